@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.benchmarks.aggregator;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the aggregator benchmarks of this package with 1, 2, 4, ... threads up
+ * to the number of available processors, with the GC profiler enabled so the
+ * allocation rate (e.g. caused by boxing) is reported next to the throughput.
+ * The single-threaded function benchmarks are only run once.
+ * <p>
+ * Usage: <code>java -cp benchmarks/target/benchmarks.jar
+ * org.apache.commons.functor.benchmarks.aggregator.AggregatorBenchmarks
+ * [maxThreads]</code>. Individual benchmarks can also be run with the JMH
+ * command line: <code>java -jar benchmarks/target/benchmarks.jar -prof gc
+ * -t 4 ListBackedAggregatorBenchmark</code>.
+ * </p>
+ */
+public final class AggregatorBenchmarks {
+    /**
+     * Prevents instantiation.
+     */
+    private AggregatorBenchmarks() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args
+     *            Optional maximum number of threads; defaults to the number of
+     *            available processors.
+     * @throws RunnerException
+     *             if a benchmark fails.
+     */
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            run(threads, ListBackedAggregatorBenchmark.class.getSimpleName(),
+                    NoStoreAggregatorBenchmark.class.getSimpleName());
+        }
+        run(1, AggregatorFunctionsBenchmark.class.getSimpleName());
+    }
+
+    /**
+     * Runs the given benchmarks with the given number of threads. Benchmarks
+     * using thread groups run as many groups as fit in that many threads (at
+     * least one).
+     *
+     * @param threads
+     *            Number of threads.
+     * @param benchmarks
+     *            Simple names of the benchmark classes to run.
+     * @throws RunnerException
+     *             if a benchmark fails.
+     */
+    private static void run(int threads, String... benchmarks) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        for (String benchmark : benchmarks) {
+            builder.include(AggregatorBenchmarks.class.getPackage().getName() + "." + benchmark + ".*");
+        }
+        Options options = builder.threads(threads).forks(1).warmupIterations(5).measurementIterations(5)
+                .addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.benchmarks.aggregator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.aggregator.DoubleArraySeries;
+import org.apache.commons.functor.aggregator.DoubleSeries;
+import org.apache.commons.functor.aggregator.LongArraySeries;
+import org.apache.commons.functor.aggregator.LongSeries;
+import org.apache.commons.functor.aggregator.functions.DoubleMaxAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleMeanValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleMedianValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleMultiPercentileAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoublePercentileAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleQuickSelectMedianValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleQuickSelectPercentileAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesMaxAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesMeanValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesMedianValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesPercentileAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesSumAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSumAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerMaxAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerMeanValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerMedianValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerPercentileAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerQuickSelectMedianValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerQuickSelectPercentileAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.LongSeriesMaxAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.LongSeriesMeanValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.LongSeriesMedianValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.LongSeriesPercentileAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.LongSeriesSumAggregatorFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of evaluating each of the list and series functions in
+ * {@link org.apache.commons.functor.aggregator.functions} over a data series
+ * of the given size, i.e. the cost of
+ * {@link org.apache.commons.functor.aggregator.AbstractTimedAggregator#evaluate()}
+ * without the locking. The binary functions are covered by
+ * {@link NoStoreAggregatorBenchmark}.
+ * <p>
+ * Each family of functions has its own state, so the parameters of one family
+ * don't multiply the runs of the others. The states are per thread: the
+ * functions which sort a copy of the data or select in place synchronize
+ * internally, so sharing them would only measure that lock.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AggregatorFunctionsBenchmark {
+    /**
+     * Random data of the given size.
+     */
+    @State(Scope.Thread)
+    public static class Data {
+        /**
+         * Number of values in the series evaluated.
+         */
+        @Param({ "100", "10000" })
+        public int size;
+
+        /**
+         * Generates random values, the same ones for a given size.
+         *
+         * @return The values, between 0 and <code>10 * size</code>.
+         */
+        protected final int[] generate() {
+            Random random = new Random(size);
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(size * 10);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * <code>List&lt;Integer&gt;</code> functions and data.
+     */
+    public static class IntegerData extends Data {
+        /**
+         * Simple name of the function to benchmark.
+         */
+        @Param({ "IntegerSumAggregatorFunction", "IntegerMaxAggregatorFunction",
+                "IntegerMeanValueAggregatorFunction", "IntegerMedianValueAggregatorFunction",
+                "IntegerPercentileAggregatorFunction", "IntegerQuickSelectMedianValueAggregatorFunction",
+                "IntegerQuickSelectPercentileAggregatorFunction" })
+        public String                            function;
+
+        /** Function named by {@link #function}. */
+        private Function<List<Integer>, Integer> fn;
+
+        /** Data evaluated. */
+        private List<Integer>                    data;
+
+        /**
+         * Creates the function and the data.
+         */
+        @Setup
+        public void setUp() {
+            fn = createIntegerFunction(function);
+            data = new ArrayList<Integer>(size);
+            for (int value : generate()) {
+                data.add(value);
+            }
+        }
+    }
+
+    /**
+     * <code>List&lt;Double&gt;</code> functions and data.
+     */
+    public static class DoubleData extends Data {
+        /**
+         * Simple name of the function to benchmark.
+         */
+        @Param({ "DoubleSumAggregatorFunction", "DoubleMaxAggregatorFunction", "DoubleMeanValueAggregatorFunction",
+                "DoubleMedianValueAggregatorFunction", "DoublePercentileAggregatorFunction",
+                "DoubleMultiPercentileAggregatorFunction", "DoubleQuickSelectMedianValueAggregatorFunction",
+                "DoubleQuickSelectPercentileAggregatorFunction" })
+        public String                     function;
+
+        /** Function named by {@link #function}. */
+        private Function<List<Double>, ?> fn;
+
+        /** Data evaluated. */
+        private List<Double>              data;
+
+        /**
+         * Creates the function and the data.
+         */
+        @Setup
+        public void setUp() {
+            fn = createDoubleFunction(function);
+            data = new ArrayList<Double>(size);
+            for (int value : generate()) {
+                data.add(value * 0.5);
+            }
+        }
+    }
+
+    /**
+     * {@link DoubleSeries} functions and data.
+     */
+    public static class DoubleSeriesData extends Data {
+        /**
+         * Simple name of the function to benchmark.
+         */
+        @Param({ "DoubleSeriesSumAggregatorFunction", "DoubleSeriesMaxAggregatorFunction",
+                "DoubleSeriesMeanValueAggregatorFunction", "DoubleSeriesMedianValueAggregatorFunction",
+                "DoubleSeriesPercentileAggregatorFunction" })
+        public String                          function;
+
+        /** Function named by {@link #function}. */
+        private Function<DoubleSeries, Double> fn;
+
+        /** Data evaluated. */
+        private DoubleSeries                   data;
+
+        /**
+         * Creates the function and the data.
+         */
+        @Setup
+        public void setUp() {
+            fn = createDoubleSeriesFunction(function);
+            int[] values = generate();
+            double[] array = new double[size];
+            for (int i = 0; i < size; i++) {
+                array[i] = values[i] * 0.5;
+            }
+            data = new DoubleArraySeries(array, size);
+        }
+    }
+
+    /**
+     * {@link LongSeries} functions and data.
+     */
+    public static class LongSeriesData extends Data {
+        /**
+         * Simple name of the function to benchmark.
+         */
+        @Param({ "LongSeriesSumAggregatorFunction", "LongSeriesMaxAggregatorFunction",
+                "LongSeriesMeanValueAggregatorFunction", "LongSeriesMedianValueAggregatorFunction",
+                "LongSeriesPercentileAggregatorFunction" })
+        public String                      function;
+
+        /** Function named by {@link #function}. */
+        private Function<LongSeries, Long> fn;
+
+        /** Data evaluated. */
+        private LongSeries                 data;
+
+        /**
+         * Creates the function and the data.
+         */
+        @Setup
+        public void setUp() {
+            fn = createLongSeriesFunction(function);
+            int[] values = generate();
+            long[] array = new long[size];
+            for (int i = 0; i < size; i++) {
+                array[i] = values[i];
+            }
+            data = new LongArraySeries(array, size);
+        }
+    }
+
+    /**
+     * Evaluates a <code>List&lt;Integer&gt;</code> function.
+     *
+     * @param state
+     *            Function and data.
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Integer evaluateIntegers(IntegerData state) {
+        return state.fn.evaluate(state.data);
+    }
+
+    /**
+     * Evaluates a <code>List&lt;Double&gt;</code> function.
+     *
+     * @param state
+     *            Function and data.
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object evaluateDoubles(DoubleData state) {
+        return state.fn.evaluate(state.data);
+    }
+
+    /**
+     * Evaluates a {@link DoubleSeries} function.
+     *
+     * @param state
+     *            Function and data.
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Double evaluateDoubleSeries(DoubleSeriesData state) {
+        return state.fn.evaluate(state.data);
+    }
+
+    /**
+     * Evaluates a {@link LongSeries} function.
+     *
+     * @param state
+     *            Function and data.
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Long evaluateLongSeries(LongSeriesData state) {
+        return state.fn.evaluate(state.data);
+    }
+
+    /**
+     * Creates a <code>List&lt;Integer&gt;</code> function given its simple
+     * class name. The percentile functions compute the 90th percentile.
+     *
+     * @param name
+     *            Simple class name of the function.
+     * @return New function.
+     */
+    static Function<List<Integer>, Integer> createIntegerFunction(String name) {
+        if ("IntegerSumAggregatorFunction".equals(name)) {
+            return new IntegerSumAggregatorFunction();
+        } else if ("IntegerMaxAggregatorFunction".equals(name)) {
+            return new IntegerMaxAggregatorFunction();
+        } else if ("IntegerMeanValueAggregatorFunction".equals(name)) {
+            return new IntegerMeanValueAggregatorFunction();
+        } else if ("IntegerMedianValueAggregatorFunction".equals(name)) {
+            return new IntegerMedianValueAggregatorFunction();
+        } else if ("IntegerPercentileAggregatorFunction".equals(name)) {
+            return new IntegerPercentileAggregatorFunction(90.0);
+        } else if ("IntegerQuickSelectMedianValueAggregatorFunction".equals(name)) {
+            return new IntegerQuickSelectMedianValueAggregatorFunction();
+        } else if ("IntegerQuickSelectPercentileAggregatorFunction".equals(name)) {
+            return new IntegerQuickSelectPercentileAggregatorFunction(90.0);
+        }
+        throw new IllegalArgumentException("Unknown function: " + name);
+    }
+
+    /**
+     * Creates a <code>List&lt;Double&gt;</code> function given its simple
+     * class name. The percentile functions compute the 90th percentile (and
+     * the 50th and 99th for the multi-percentile one).
+     *
+     * @param name
+     *            Simple class name of the function.
+     * @return New function.
+     */
+    static Function<List<Double>, ?> createDoubleFunction(String name) {
+        if ("DoubleSumAggregatorFunction".equals(name)) {
+            return new DoubleSumAggregatorFunction();
+        } else if ("DoubleMaxAggregatorFunction".equals(name)) {
+            return new DoubleMaxAggregatorFunction();
+        } else if ("DoubleMeanValueAggregatorFunction".equals(name)) {
+            return new DoubleMeanValueAggregatorFunction();
+        } else if ("DoubleMedianValueAggregatorFunction".equals(name)) {
+            return new DoubleMedianValueAggregatorFunction();
+        } else if ("DoublePercentileAggregatorFunction".equals(name)) {
+            return new DoublePercentileAggregatorFunction(90.0);
+        } else if ("DoubleMultiPercentileAggregatorFunction".equals(name)) {
+            return new DoubleMultiPercentileAggregatorFunction(50.0, 90.0, 99.0);
+        } else if ("DoubleQuickSelectMedianValueAggregatorFunction".equals(name)) {
+            return new DoubleQuickSelectMedianValueAggregatorFunction();
+        } else if ("DoubleQuickSelectPercentileAggregatorFunction".equals(name)) {
+            return new DoubleQuickSelectPercentileAggregatorFunction(90.0);
+        }
+        throw new IllegalArgumentException("Unknown function: " + name);
+    }
+
+    /**
+     * Creates a {@link DoubleSeries} function given its simple class name.
+     *
+     * @param name
+     *            Simple class name of the function.
+     * @return New function.
+     */
+    static Function<DoubleSeries, Double> createDoubleSeriesFunction(String name) {
+        if ("DoubleSeriesSumAggregatorFunction".equals(name)) {
+            return new DoubleSeriesSumAggregatorFunction();
+        } else if ("DoubleSeriesMaxAggregatorFunction".equals(name)) {
+            return new DoubleSeriesMaxAggregatorFunction();
+        } else if ("DoubleSeriesMeanValueAggregatorFunction".equals(name)) {
+            return new DoubleSeriesMeanValueAggregatorFunction();
+        } else if ("DoubleSeriesMedianValueAggregatorFunction".equals(name)) {
+            return new DoubleSeriesMedianValueAggregatorFunction();
+        } else if ("DoubleSeriesPercentileAggregatorFunction".equals(name)) {
+            return new DoubleSeriesPercentileAggregatorFunction(90.0);
+        }
+        throw new IllegalArgumentException("Unknown function: " + name);
+    }
+
+    /**
+     * Creates a {@link LongSeries} function given its simple class name.
+     *
+     * @param name
+     *            Simple class name of the function.
+     * @return New function.
+     */
+    static Function<LongSeries, Long> createLongSeriesFunction(String name) {
+        if ("LongSeriesSumAggregatorFunction".equals(name)) {
+            return new LongSeriesSumAggregatorFunction();
+        } else if ("LongSeriesMaxAggregatorFunction".equals(name)) {
+            return new LongSeriesMaxAggregatorFunction();
+        } else if ("LongSeriesMeanValueAggregatorFunction".equals(name)) {
+            return new LongSeriesMeanValueAggregatorFunction();
+        } else if ("LongSeriesMedianValueAggregatorFunction".equals(name)) {
+            return new LongSeriesMedianValueAggregatorFunction();
+        } else if ("LongSeriesPercentileAggregatorFunction".equals(name)) {
+            return new LongSeriesPercentileAggregatorFunction(90.0);
+        }
+        throw new IllegalArgumentException("Unknown function: " + name);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.benchmarks.aggregator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.functor.aggregator.ArrayListBackedAggregator;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Throughput of {@link ArrayListBackedAggregator} under contention: every
+ * thread adds to the same aggregator, so these benchmarks measure the cost of
+ * the read-write lock in
+ * {@link org.apache.commons.functor.aggregator.AbstractTimedAggregator} as well
+ * as the boxing of the values. Run with an increasing number of threads (see
+ * {@link AggregatorBenchmarks}) to see how the aggregator scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListBackedAggregatorBenchmark {
+    /**
+     * Number of values preloaded before measuring {@link #evaluate()}.
+     */
+    private static final int                   PRELOADED = 1000;
+
+    /**
+     * Aggregator shared by all the threads.
+     */
+    private ArrayListBackedAggregator<Integer> aggregator;
+
+    /**
+     * Creates the aggregator, without any timer so that only the explicit
+     * calls are measured.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        aggregator = new ArrayListBackedAggregator<Integer>(new IntegerSumAggregatorFunction());
+        for (int i = 0; i < PRELOADED; i++) {
+            aggregator.add(i);
+        }
+    }
+
+    /**
+     * Releases the aggregator.
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        aggregator.stop();
+    }
+
+    /**
+     * Adds a value. Each thread also resets the aggregator every time its
+     * values wrap around, which keeps the list bounded as the scheduler would.
+     *
+     * @param value
+     *            Per-thread value source.
+     */
+    @Benchmark
+    public void add(ThreadValue value) {
+        int next = value.next();
+        if (next == 0) {
+            aggregator.reset();
+        }
+        aggregator.add(next);
+    }
+
+    /**
+     * Evaluates the sum of the preloaded values, under the read lock.
+     *
+     * @return The sum, consumed by JMH.
+     */
+    @Benchmark
+    public Integer evaluate() {
+        return aggregator.evaluate();
+    }
+
+    /**
+     * Adds a value while other threads of the group evaluate and reset the
+     * aggregator, which keeps the list bounded.
+     *
+     * @param value
+     *            Per-thread value source.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedAdd(ThreadValue value) {
+        aggregator.add(value.next());
+    }
+
+    /**
+     * Evaluates the aggregator while other threads of the group add to it.
+     *
+     * @return The sum, consumed by JMH.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Integer mixedEvaluate() {
+        return aggregator.evaluate();
+    }
+
+    /**
+     * Evaluates and resets the aggregator while other threads of the group add
+     * to it, as the scheduler does at every interval.
+     *
+     * @return The sum, consumed by JMH.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Integer mixedEvaluateAndReset() {
+        return aggregator.evaluateAndReset();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.benchmarks.aggregator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.functor.BinaryFunction;
+import org.apache.commons.functor.aggregator.AbstractNoStoreAggregator;
+import org.apache.commons.functor.aggregator.functions.DoubleMaxAggregatorBinaryFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSumAggregatorBinaryFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerCountAggregatorBinaryFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerMaxAggregatorBinaryFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorBinaryFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Throughput of {@link AbstractNoStoreAggregator} with each of the binary
+ * functions in {@link org.apache.commons.functor.aggregator.functions}, under
+ * contention. As nothing is stored, these benchmarks isolate the cost of the
+ * lock and of boxing the running result on every add.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoStoreAggregatorBenchmark {
+    /**
+     * No-store aggregator starting from a given initial value.
+     *
+     * @param <T>
+     *            Type of object aggregated.
+     */
+    private static final class NoStoreAggregator<T> extends AbstractNoStoreAggregator<T> {
+        /** Value the aggregation starts from. */
+        private final T initial;
+
+        /**
+         * Creates a new aggregator.
+         *
+         * @param function
+         *            Aggregation function.
+         * @param initial
+         *            Value the aggregation starts from.
+         */
+        NoStoreAggregator(BinaryFunction<T, T, T> function, T initial) {
+            super(function);
+            this.initial = initial;
+            // initialValue() is first called by the super constructor, before
+            // initial is set
+            reset();
+        }
+
+        @Override
+        protected T initialValue() {
+            return initial;
+        }
+    }
+
+    /**
+     * Aggregator using one of the <code>Integer</code> binary functions.
+     */
+    @State(Scope.Benchmark)
+    public static class IntegerState {
+        /**
+         * Simple name of the function to benchmark.
+         */
+        @Param({ "IntegerSumAggregatorBinaryFunction", "IntegerMaxAggregatorBinaryFunction",
+                "IntegerCountAggregatorBinaryFunction" })
+        public String                      function;
+
+        /** Aggregator using {@link #function}. */
+        private NoStoreAggregator<Integer> aggregator;
+
+        /**
+         * Creates the aggregator.
+         */
+        @Setup(Level.Iteration)
+        public void setUp() {
+            BinaryFunction<Integer, Integer, Integer> fn;
+            if ("IntegerSumAggregatorBinaryFunction".equals(function)) {
+                fn = new IntegerSumAggregatorBinaryFunction();
+            } else if ("IntegerMaxAggregatorBinaryFunction".equals(function)) {
+                fn = new IntegerMaxAggregatorBinaryFunction();
+            } else {
+                fn = new IntegerCountAggregatorBinaryFunction();
+            }
+            aggregator = new NoStoreAggregator<Integer>(fn, 0);
+        }
+
+        /**
+         * Releases the aggregator.
+         */
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            aggregator.stop();
+        }
+    }
+
+    /**
+     * Aggregator using one of the <code>Double</code> binary functions.
+     */
+    @State(Scope.Benchmark)
+    public static class DoubleState {
+        /**
+         * Simple name of the function to benchmark.
+         */
+        @Param({ "DoubleSumAggregatorBinaryFunction", "DoubleMaxAggregatorBinaryFunction" })
+        public String                     function;
+
+        /** Aggregator using {@link #function}. */
+        private NoStoreAggregator<Double> aggregator;
+
+        /**
+         * Creates the aggregator.
+         */
+        @Setup(Level.Iteration)
+        public void setUp() {
+            BinaryFunction<Double, Double, Double> fn;
+            if ("DoubleSumAggregatorBinaryFunction".equals(function)) {
+                fn = new DoubleSumAggregatorBinaryFunction();
+            } else {
+                fn = new DoubleMaxAggregatorBinaryFunction();
+            }
+            aggregator = new NoStoreAggregator<Double>(fn, 0.0);
+        }
+
+        /**
+         * Releases the aggregator.
+         */
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            aggregator.stop();
+        }
+    }
+
+    /**
+     * Adds a boxed <code>Integer</code>.
+     *
+     * @param state
+     *            Aggregator under test.
+     * @param value
+     *            Per-thread value source.
+     */
+    @Benchmark
+    public void addInteger(IntegerState state, ThreadValue value) {
+        state.aggregator.add(value.next());
+    }
+
+    /**
+     * Adds a boxed <code>Double</code>.
+     *
+     * @param state
+     *            Aggregator under test.
+     * @param value
+     *            Per-thread value source.
+     */
+    @Benchmark
+    public void addDouble(DoubleState state, ThreadValue value) {
+        state.aggregator.add(value.nextDouble());
+    }
+
+    /**
+     * Adds while another thread of the group evaluates and resets.
+     *
+     * @param state
+     *            Aggregator under test.
+     * @param value
+     *            Per-thread value source.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public void mixedAdd(IntegerState state, ThreadValue value) {
+        state.aggregator.add(value.next());
+    }
+
+    /**
+     * Evaluates and resets while the other threads of the group add.
+     *
+     * @param state
+     *            Aggregator under test.
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Integer mixedEvaluateAndReset(IntegerState state) {
+        return state.aggregator.evaluateAndReset();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.benchmarks.aggregator;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-thread source of the values added by the benchmarks, so the threads
+ * don't contend on anything but the aggregator under test. The values cycle
+ * over a small range so the boxed <code>Integer</code>s are not all cached.
+ */
+@State(Scope.Thread)
+public class ThreadValue {
+    /** Values cycle from 0 to this value (excluded). */
+    private static final int RANGE = 1 << 12;
+
+    /** Last value returned. */
+    private int              value;
+
+    /**
+     * Returns the next value.
+     *
+     * @return Next value, between 0 and {@link #RANGE} (excluded).
+     */
+    public int next() {
+        value = (value + 1) & (RANGE - 1);
+        return value;
+    }
+
+    /**
+     * Returns the next value as a <code>double</code>.
+     *
+     * @return Next value, between 0 and {@link #RANGE} (excluded).
+     */
+    public double nextDouble() {
+        return next() * 0.5;
+    }
+}
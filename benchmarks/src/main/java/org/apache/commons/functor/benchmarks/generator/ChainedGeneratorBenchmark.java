@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.benchmarks.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.Predicate;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.FilteredGenerator;
+import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.loop.RandomAccessGenerator;
+import org.apache.commons.functor.generator.loop.TransformedGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of running a 6-stage chain (filter, transform, three times) over the
+ * same elements as nested {@link FilteredGenerator} /
+ * {@link TransformedGenerator} wrappers and as a hand-written loop calling the
+ * same functors. The difference is the cost of the generator abstraction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChainedGeneratorBenchmark {
+    /**
+     * Number of elements generated by each invocation.
+     */
+    private static final int SIZE = 100000;
+
+    /**
+     * Keeps the elements not divisible by 7.
+     */
+    private static final Predicate<Integer> FILTER = new Predicate<Integer>() {
+        public boolean test(Integer obj) {
+            return obj.intValue() % 7 != 0;
+        }
+    };
+
+    /**
+     * Adds one.
+     */
+    private static final Function<Integer, Integer> TRANSFORM = new Function<Integer, Integer>() {
+        public Integer evaluate(Integer obj) {
+            return Integer.valueOf(obj.intValue() + 1);
+        }
+    };
+
+    /**
+     * The elements.
+     */
+    private List<Integer> elements;
+
+    /**
+     * Creates the elements.
+     */
+    @Setup
+    public void setUp() {
+        elements = new ArrayList<Integer>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            elements.add(Integer.valueOf(i));
+        }
+    }
+
+    /**
+     * Runs the stages as nested generators.
+     *
+     * @return Sum of the generated elements.
+     */
+    @Benchmark
+    public long chained() {
+        Generator<Integer> gen = new RandomAccessGenerator<Integer>(elements);
+        for (int i = 0; i < 3; i++) {
+            gen = new TransformedGenerator<Integer, Integer>(new FilteredGenerator<Integer>(gen, FILTER), TRANSFORM);
+        }
+        return sum(gen);
+    }
+
+    /**
+     * Runs the stages as a hand-written loop.
+     *
+     * @return Sum of the generated elements.
+     */
+    @Benchmark
+    public long loop() {
+        long sum = 0;
+        for (int i = 0; i < elements.size(); i++) {
+            Integer value = elements.get(i);
+            if (!FILTER.test(value)) {
+                continue;
+            }
+            value = TRANSFORM.evaluate(value);
+            if (!FILTER.test(value)) {
+                continue;
+            }
+            value = TRANSFORM.evaluate(value);
+            if (!FILTER.test(value)) {
+                continue;
+            }
+            sum += TRANSFORM.evaluate(value).intValue();
+        }
+        return sum;
+    }
+
+    /**
+     * Sums the elements of a generator.
+     *
+     * @param gen
+     *            Generator to run.
+     * @return Sum of its elements.
+     */
+    private static long sum(Generator<Integer> gen) {
+        final long[] sum = new long[1];
+        gen.run(new Procedure<Integer>() {
+            public void run(Integer obj) {
+                sum[0] += obj.intValue();
+            }
+        });
+        return sum[0];
+    }
+}
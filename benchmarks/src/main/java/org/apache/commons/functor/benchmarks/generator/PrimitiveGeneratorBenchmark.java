@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.benchmarks.generator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.Predicate;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.FilteredGenerator;
+import org.apache.commons.functor.generator.IntBinaryFunction;
+import org.apache.commons.functor.generator.IntFunction;
+import org.apache.commons.functor.generator.IntPredicate;
+import org.apache.commons.functor.generator.loop.IntGenerator;
+import org.apache.commons.functor.generator.loop.IntegerRangeGenerator;
+import org.apache.commons.functor.generator.loop.TransformedGenerator;
+import org.apache.commons.functor.range.IntegerRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of filtering, transforming and summing a range of integers with boxed
+ * stages (a {@link TransformedGenerator} over a {@link FilteredGenerator} of the
+ * range, run with a {@link Procedure}) and with the primitive stages of
+ * {@link IntGenerator}.
+ * The difference is the cost of boxing each element.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrimitiveGeneratorBenchmark {
+    /**
+     * The range to generate.
+     */
+    private static final IntegerRange RANGE = new IntegerRange(0, 100000);
+
+    /**
+     * Keeps the elements not divisible by 7.
+     */
+    private static final Predicate<Integer> FILTER = new Predicate<Integer>() {
+        public boolean test(Integer obj) {
+            return obj.intValue() % 7 != 0;
+        }
+    };
+
+    /**
+     * Adds one.
+     */
+    private static final Function<Integer, Integer> TRANSFORM = new Function<Integer, Integer>() {
+        public Integer evaluate(Integer obj) {
+            return Integer.valueOf(obj.intValue() + 1);
+        }
+    };
+
+    /**
+     * Keeps the elements not divisible by 7, without boxing.
+     */
+    private static final IntPredicate INT_FILTER = new IntPredicate() {
+        public boolean test(int value) {
+            return value % 7 != 0;
+        }
+    };
+
+    /**
+     * Adds one, without boxing.
+     */
+    private static final IntFunction INT_TRANSFORM = new IntFunction() {
+        public int evaluate(int value) {
+            return value + 1;
+        }
+    };
+
+    /**
+     * Adds two ints.
+     */
+    private static final IntBinaryFunction SUM = new IntBinaryFunction() {
+        public int evaluate(int left, int right) {
+            return left + right;
+        }
+    };
+
+    /**
+     * Runs the stages on boxed elements.
+     *
+     * @return Sum of the generated elements.
+     */
+    @Benchmark
+    public int boxed() {
+        final int[] sum = new int[1];
+        new TransformedGenerator<Integer, Integer>(new FilteredGenerator<Integer>(
+                new IntegerRangeGenerator(RANGE), FILTER), TRANSFORM).run(new Procedure<Integer>() {
+            public void run(Integer obj) {
+                sum[0] += obj.intValue();
+            }
+        });
+        return sum[0];
+    }
+
+    /**
+     * Runs the stages on ints.
+     *
+     * @return Sum of the generated elements.
+     */
+    @Benchmark
+    public int primitive() {
+        return new IntegerRangeGenerator(RANGE).filter(INT_FILTER).transform(INT_TRANSFORM).fold(0, SUM);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import org.apache.commons.functor.BinaryFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A {@link AbstractWindowAggregator window aggregator} whose window covers a
+ * number of samples, e.g. the last 1000 values added. The window is split into
+ * a number of buckets holding the same number of samples each; in sliding mode
+ * {@link #evaluate()} covers the bucket currently being filled plus the
+ * previous <code>buckets - 1</code> ones, so the data reported spans between
+ * <code>window - window / buckets + 1</code> and <code>window</code> samples
+ * (exactly <code>window</code> samples right after a bucket has been filled).
+ * In tumbling mode {@link #evaluate()} reports the last complete block of
+ * <code>window</code> samples.
+ *
+ * @param <T>
+ *            Type of object stored.
+ */
+public abstract class AbstractCountWindowAggregator<T> extends AbstractWindowAggregator<T> {
+    /**
+     * Number of samples in the window.
+     */
+    private final long  window;
+
+    /**
+     * Number of samples in a bucket.
+     */
+    private final long  bucketSize;
+
+    /**
+     * Number of samples added since this instance was created or last reset.
+     */
+    private long        count;
+
+    /**
+     * Similar to
+     * {@link #AbstractCountWindowAggregator(BinaryFunction, BinaryFunction, long, int, boolean, long, boolean)
+     * AbstractCountWindowAggregator(aggregationFunction, aggregationFunction,
+     * window, buckets, false, NO_TIMER, false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)} and
+     *            {@link #evaluate()}.
+     * @param window
+     *            Number of samples in the window.
+     * @param buckets
+     *            Number of buckets to split the window into.
+     */
+    public AbstractCountWindowAggregator(BinaryFunction<T, T, T> aggregationFunction, long window, int buckets) {
+        this(aggregationFunction, aggregationFunction, window, buckets, false, NO_TIMER, false);
+    }
+
+    /**
+     * Constructs an aggregator over a window of the given number of samples.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)}. Cannot
+     *            be <code>null</code>.
+     * @param combineFunction
+     *            Function used to merge the buckets in {@link #evaluate()}.
+     *            Cannot be <code>null</code>.
+     * @param window
+     *            Number of samples in the window. Must be a multiple of
+     *            <code>buckets</code> in sliding mode and greater than zero.
+     * @param buckets
+     *            Number of buckets to split the window into (sliding mode
+     *            only). Must be greater than zero.
+     * @param tumbling
+     *            <code>true</code> for a tumbling window, <code>false</code>
+     *            for a sliding one.
+     * @param interval
+     *            interval in miliseconds at which to notify the listeners
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public AbstractCountWindowAggregator(BinaryFunction<T, T, T> aggregationFunction,
+            BinaryFunction<T, T, T> combineFunction, long window, int buckets, boolean tumbling, long interval,
+            boolean useSharedTimer) {
+        super(aggregationFunction, combineFunction, buckets, tumbling, interval, useSharedTimer);
+        Validate.isTrue(window > 0 && window % getWindowBuckets() == 0,
+                "Window must be a positive multiple of %s: %s", getWindowBuckets(), window);
+        this.window = window;
+        this.bucketSize = window / getWindowBuckets();
+    }
+
+    /**
+     * Counts the sample being added and returns the bucket it falls in.
+     *
+     * @return index of the bucket the sample being added falls in
+     */
+    @Override
+    protected final long nextEpoch() {
+        return (count++) / bucketSize;
+    }
+
+    /**
+     * In sliding mode this is the bucket the last sample added went into, so
+     * a full bucket is still part of the window until the next sample is
+     * added. In tumbling mode this is the bucket the next sample will go into,
+     * so a window is reported as soon as it is complete.
+     *
+     * @return current epoch, or a negative value if no sample has been added
+     *         in sliding mode
+     */
+    @Override
+    protected final long currentEpoch() {
+        if (isTumbling()) {
+            return count / bucketSize;
+        }
+        return count == 0 ? -1 : (count - 1) / bucketSize;
+    }
+
+    /**
+     * Restarts counting the samples from zero.
+     */
+    @Override
+    protected final void resetEpoch() {
+        count = 0;
+    }
+
+    /**
+     * Getter for {@link #window}.
+     *
+     * @return Number of samples in the window.
+     */
+    public final long getWindow() {
+        return window;
+    }
+
+    /**
+     * Getter for {@link #bucketSize}.
+     *
+     * @return Number of samples in a bucket.
+     */
+    public final long getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * Getter for {@link #count}. Provided for testing purposes only.
+     *
+     * @return Number of samples added since the last reset.
+     */
+    final long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return AbstractCountWindowAggregator.class.getName();
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.functor.core.Constant;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Base class for aggregators which maintain an exponentially weighted moving
+ * average (EWMA) over time, in the style of the Unix load average or of the
+ * 1, 5 and 15 minutes rates of throughput meters. The data added during each
+ * tick interval is summarized by subclasses into a single observation (e.g.
+ * the number of events per second, or the mean of the values added), which
+ * is then folded into the average with a weight of
+ * <code>1 - exp(-tickInterval / window)</code>: the influence of an
+ * observation decays by a factor of <i>e</i> every <code>window</code>
+ * milliseconds.
+ * <p>
+ * The ticks are driven by the timer of {@link AbstractTimedAggregator}: every
+ * <code>tickInterval</code> milliseconds the timer calls
+ * {@link #evaluateAndReset()}, which folds the data added since the previous
+ * tick into the average and notifies the
+ * {@link #addTimerListener(TimedAggregatorListener) listeners} with the new
+ * average. Unlike other aggregators, the average itself is kept across ticks;
+ * only {@link #reset()} discards it. Folding an observation takes constant
+ * time and doesn't allocate any memory.
+ * </p>
+ * <p>
+ * {@link #evaluate()} returns the average as of the last tick, or
+ * <code>null</code> if there hasn't been any observation yet.
+ * </p>
+ */
+public abstract class AbstractEwmaAggregator extends AbstractTimedAggregator<Double> implements DoubleAggregator {
+    /** Window of the 1 minute averages, in milliseconds. */
+    public static final long   ONE_MINUTE            = 60L * 1000L;
+
+    /** Window of the 5 minutes averages, in milliseconds. */
+    public static final long   FIVE_MINUTES          = 5L * ONE_MINUTE;
+
+    /** Window of the 15 minutes averages, in milliseconds. */
+    public static final long   FIFTEEN_MINUTES       = 15L * ONE_MINUTE;
+
+    /** Tick interval used when none is specified, in milliseconds. */
+    public static final long   DEFAULT_TICK_INTERVAL = 5L * 1000L;
+
+    /**
+     * Time in milliseconds over which the weight of an observation decays by
+     * a factor of <i>e</i>.
+     */
+    private final long         window;
+
+    /**
+     * Weight given to each new observation: <code>1 - exp(-tickInterval /
+     * window)</code>.
+     */
+    private final double       alpha;
+
+    /** Current value of the moving average. */
+    private double             average;
+
+    /** Whether {@link #average} has received its first observation. */
+    private boolean            initialized;
+
+    /**
+     * Constructs an aggregator averaging over the given window, ticking at
+     * the given interval.
+     *
+     * @param window
+     *            Time in milliseconds over which the weight of an observation
+     *            decays by a factor of <i>e</i>, e.g. {@link #ONE_MINUTE}. Must
+     *            be greater than zero.
+     * @param tickInterval
+     *            Interval in milliseconds between ticks, which is also the
+     *            interval of the timer. Must be greater than zero.
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     * @param lockFreeAdd
+     *            whether subclasses implement {@link #doAdd(double)} without
+     *            needing the write lock, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean, boolean)}
+     */
+    protected AbstractEwmaAggregator(long window, long tickInterval, boolean useSharedTimer, boolean lockFreeAdd) {
+        super(checkArguments(window, tickInterval), useSharedTimer, lockFreeAdd);
+        this.window = window;
+        this.alpha = 1.0 - Math.exp(-(double) tickInterval / window);
+    }
+
+    /**
+     * Adds a primitive value, under the write lock unless this aggregator was
+     * constructed with <code>lockFreeAdd</code> set.
+     *
+     * @param data
+     *            Data to be added to the aggregator.
+     */
+    public final void add(double data) {
+        if (isLockFreeAdd()) {
+            doAdd(data);
+            recordLockFreeAdd();
+            return;
+        }
+        long lockWait = lockForAdd();
+        try {
+            doAdd(data);
+        } finally {
+            unlockForAdd(lockWait);
+        }
+    }
+
+    /**
+     * Unboxes the data and passes it on to {@link #doAdd(double)}.
+     *
+     * @param data
+     *            Data to be added. Throws <code>NullPointerException</code> if
+     *            this is <code>null</code>
+     */
+    @Override
+    protected final void doAdd(Double data) {
+        doAdd(data.doubleValue());
+    }
+
+    /**
+     * Accounts for the given value in the current tick interval.
+     *
+     * @param data
+     *            Data to be added.
+     */
+    protected abstract void doAdd(double data);
+
+    /**
+     * Summarizes the data added since the previous tick into a single
+     * observation and starts a new tick interval. Called under the write
+     * lock.
+     *
+     * @param tickInterval
+     *            Interval in milliseconds between ticks.
+     * @return The observation for the tick interval which just ended, or
+     *         <code>NaN</code> if there is nothing to observe, in which case
+     *         the average is left unchanged.
+     */
+    protected abstract double drainTick(long tickInterval);
+
+    /**
+     * Returns the average as of the last tick.
+     *
+     * @return The average, or <code>null</code> if there hasn't been any
+     *         observation yet.
+     */
+    @Override
+    protected final Double doEvaluate() {
+        return initialized ? Double.valueOf(average) : null;
+    }
+
+    /**
+     * Discards the data added since the last tick as well as the average.
+     */
+    @Override
+    protected final void doReset() {
+        drainTick(getInterval());
+        average = 0.0;
+        initialized = false;
+    }
+
+    /**
+     * Ticks: folds the observation for the tick interval which just ended
+     * into the average. The average is kept for the next ticks.
+     *
+     * @return function returning the updated average
+     */
+    @Override
+    protected final NullaryFunction<Double> doDetach() {
+        double observation = drainTick(getInterval());
+        if (!Double.isNaN(observation)) {
+            if (initialized) {
+                average += alpha * (observation - average);
+            } else {
+                average = observation;
+                initialized = true;
+            }
+        }
+        return new Constant<Double>(doEvaluate());
+    }
+
+    /**
+     * Ticks even though nobody needs the updated average, so it keeps decaying.
+     */
+    @Override
+    protected final void doDiscard() {
+        doDetach();
+    }
+
+    /**
+     * This aggregator doesn't store any data, so the data series size is always
+     * 0 (zero).
+     *
+     * @return 0
+     */
+    @Override
+    protected final int retrieveDataSize() {
+        return 0;
+    }
+
+    /**
+     * Getter for {@link #window}.
+     *
+     * @return Time in milliseconds over which the weight of an observation
+     *         decays by a factor of <i>e</i>.
+     */
+    public final long getWindow() {
+        return window;
+    }
+
+    /**
+     * Getter for {@link #alpha}.
+     *
+     * @return Weight given to each new observation.
+     */
+    public final double getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Validates the window and the tick interval before the tick interval is
+     * passed on to the superclass, so an invalid instance is never scheduled.
+     *
+     * @param window
+     *            Time in milliseconds over which the weight of an observation
+     *            decays by a factor of <i>e</i>.
+     * @param tickInterval
+     *            Interval in milliseconds between ticks.
+     * @return <code>tickInterval</code>
+     */
+    private static long checkArguments(long window, long tickInterval) {
+        Validate.isTrue(window > 0L, "Window must be greater than zero: %s", window);
+        Validate.isTrue(tickInterval > NO_TIMER, "Tick interval must be greater than zero: %s", tickInterval);
+        return tickInterval;
+    }
+
+    @Override
+    public String toString() {
+        return AbstractEwmaAggregator.class.getName();
+    }
+}
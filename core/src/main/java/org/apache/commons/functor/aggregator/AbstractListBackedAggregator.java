@@ -17,8 +17,10 @@
 package org.apache.commons.functor.aggregator;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.functor.Function;
+import org.apache.commons.functor.NullaryFunction;
 import org.apache.commons.lang3.Validate;
 
 /**
@@ -54,6 +56,15 @@ public abstract class AbstractListBackedAggregator<T> extends AbstractTimedAggre
      */
     private Function<List<T>, T> aggregationFunction;
 
+    /**
+     * Spare list used by {@link #doDetach()} to swap with {@link #series}. Once
+     * a detached series has been evaluated it gets cleared and stored here so
+     * the next call to {@link #doDetach()} can reuse it rather than creating a
+     * new list. This is <code>null</code> while the spare list is in use (or
+     * before the first call to {@link #doDetach()}).
+     */
+    private final AtomicReference<List<T>> spare = new AtomicReference<List<T>>();
+
     /**
      * Default constructor. Similar to
      * {@link #AbstractListBackedAggregator(Function, long)
@@ -104,6 +115,34 @@ public abstract class AbstractListBackedAggregator<T> extends AbstractTimedAggre
         this.series = createList();
     }
 
+    /**
+     * Constructs an aggregator which will store the data in the given list
+     * rather than one returned by {@link #createList()}. This is meant for
+     * subclasses whose {@link #createList()} depends on their own fields,
+     * which are not yet initialized while this constructor runs; the list
+     * passed in must be the same kind of list {@link #createList()} returns
+     * afterwards.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param series
+     *            Empty list to store the data series in. Cannot be
+     *            <code>null</code>.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    protected AbstractListBackedAggregator(Function<List<T>, T> aggregationFunction, List<T> series,
+            long interval, boolean useSharedTimer) {
+        super(interval, useSharedTimer);
+        this.aggregationFunction = Validate.notNull(aggregationFunction, "Function argument must not be null");
+        this.series = Validate.notNull(series, "Series must not be null");
+    }
+
     /**
      * Adds data to the series which will be aggregated. This implementation
      * simply adds the data to the {@link #series} list.
@@ -137,6 +176,37 @@ public abstract class AbstractListBackedAggregator<T> extends AbstractTimedAggre
         series.clear();
     }
 
+    /**
+     * Detaches the data series by swapping {@link #series} with the
+     * {@link #spare spare list} (or a newly created list if the spare one is
+     * not available), so this operation takes constant time regardless of the
+     * size of the data series. The returned function applies
+     * {@link #aggregationFunction} to the detached list, then clears the list
+     * and keeps it as the spare list for the next swap.
+     *
+     * @return function which evaluates the detached data series
+     * @see AbstractTimedAggregator#evaluateAndReset()
+     */
+    @Override
+    protected final NullaryFunction<T> doDetach() {
+        final List<T> detached = series;
+        List<T> fresh = spare.getAndSet(null);
+        if (fresh == null) {
+            fresh = createList();
+        }
+        series = fresh;
+        return new NullaryFunction<T>() {
+            public T evaluate() {
+                try {
+                    return aggregationFunction.evaluate(detached);
+                } finally {
+                    detached.clear();
+                    spare.set(detached);
+                }
+            }
+        };
+    }
+
     /**
      * Allows subclasses to create the list which will store the {@link #series
      * data series}.
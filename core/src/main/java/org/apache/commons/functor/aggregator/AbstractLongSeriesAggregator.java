@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An aggregator which stores the data series as primitive <code>long</code>
+ * values, so that no boxing occurs when data is added via {@link #add(long)}.
+ * It is down to subclasses to decide how the values are stored -- they
+ * expose the stored data to the aggregation function via a
+ * {@link LongSeries} view returned by {@link #getSeries()}.
+ * <p>
+ * This implementation allows for various "aggregations" of the series to be
+ * used by providing a {@link Function Function&lt;LongSeries, Long&gt;} in
+ * the constructor -- see the <code>LongSeries*</code> functions in the
+ * {@link org.apache.commons.functor.aggregator.functions} package.
+ * </p>
+ * <p>
+ * <b>Thread safety</b> : {@link #add(long)} is synchronized the same way as
+ * {@link #add(Object)}, so the storage used by subclasses can be
+ * unsynchronized.
+ * </p>
+ *
+ * @see AbstractTimedAggregator
+ */
+public abstract class AbstractLongSeriesAggregator extends AbstractTimedAggregator<Long> implements
+        LongAggregator {
+    /**
+     * Used to actually aggregate the data when {@link #evaluate()} is called.
+     */
+    private final Function<LongSeries, Long> aggregationFunction;
+
+    /**
+     * Similar to {@link #AbstractLongSeriesAggregator(Function, long)
+     * AbstractLongSeriesAggregator(aggregationFunction,0L)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     */
+    public AbstractLongSeriesAggregator(Function<LongSeries, Long> aggregationFunction) {
+        this(aggregationFunction, 0L);
+    }
+
+    /**
+     * Similar to
+     * {@link #AbstractLongSeriesAggregator(Function, long, boolean)
+     * AbstractLongSeriesAggregator(aggregationFunction,interval,false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public AbstractLongSeriesAggregator(Function<LongSeries, Long> aggregationFunction, long interval) {
+        this(aggregationFunction, interval, false);
+    }
+
+    /**
+     * Constructs an aggregator which will use the given function, reset itself
+     * at the given interval and will use a shared timer on own private timer.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     * @see AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)
+     */
+    public AbstractLongSeriesAggregator(Function<LongSeries, Long> aggregationFunction, long interval,
+            boolean useSharedTimer) {
+        super(interval, useSharedTimer);
+        this.aggregationFunction = Validate.notNull(aggregationFunction, "Function argument must not be null");
+    }
+
+    /**
+     * Adds a primitive value to this aggregator. This function first locks the
+     * {@link #getDataLock() data lock} for writing then calls
+     * {@link #doAdd(long)} and at the end it unlocks it.
+     *
+     * @param data
+     *            Data to be added to the aggregator.
+     * @see #doAdd(long)
+     */
+    public final void add(long data) {
+        long lockWait = lockForAdd();
+        try {
+            doAdd(data);
+        } finally {
+            unlockForAdd(lockWait);
+        }
+    }
+
+    /**
+     * Unboxes the data and passes it on to {@link #doAdd(long)}.
+     *
+     * @param data
+     *            Data to be added to the data series. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     */
+    @Override
+    protected final void doAdd(Long data) {
+        doAdd(data.longValue());
+    }
+
+    /**
+     * Allows subclasses to store the data in the series. This is called with
+     * the write lock held, from both {@link #add(long)} and
+     * {@link #add(Object)}.
+     *
+     * @param data
+     *            Data to be added to the data series.
+     */
+    protected abstract void doAdd(long data);
+
+    /**
+     * Evaluates the data series by calling
+     * <code>aggregationFunction.evaluate(getSeries())</code>.
+     *
+     * @return the result of applying the aggregation function to the data
+     *         series
+     */
+    @Override
+    protected final Long doEvaluate() {
+        return aggregationFunction.evaluate(getSeries());
+    }
+
+    /**
+     * Allows subclasses to expose the currently-stored data series to the
+     * aggregation function. This is only called with the data lock held.
+     *
+     * @return View of the data series currently stored.
+     */
+    protected abstract LongSeries getSeries();
+
+    /**
+     * Simply returns the size of the data series.
+     *
+     * @return <code>getSeries().size()</code>
+     */
+    @Override
+    protected int retrieveDataSize() {
+        return getSeries().size();
+    }
+
+    /**
+     * Getter for {@link #aggregationFunction}.
+     *
+     * @return Current value of {@link #aggregationFunction}
+     */
+    protected final Function<LongSeries, Long> getAggregationFunction() {
+        return aggregationFunction;
+    }
+
+    @Override
+    public String toString() {
+        return AbstractLongSeriesAggregator.class.getName();
+    }
+}
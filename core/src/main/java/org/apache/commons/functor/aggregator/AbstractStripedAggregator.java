@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.functor.BinaryFunction;
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.functor.core.Constant;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An aggregator which, similar to {@link AbstractNoStoreAggregator}, doesn't
+ * store the data series but processes the data on the fly as it arrives in
+ * {@link #add(Object)}. Unlike {@link AbstractNoStoreAggregator} though, the
+ * partial result is not kept in a single field guarded by the write lock but
+ * spread across a number of "stripes" (cells), each of them updated via a
+ * compare-and-set operation. Threads calling {@link #add(Object)} pick a stripe
+ * based on their thread id and move on to another stripe if they encounter
+ * contention, so under heavy load the writers will rarely compete for the same
+ * memory location and never block each other. When {@link #evaluate()} is
+ * called (or when the timer kicks in), the partial results of all the stripes
+ * are merged together.
+ * <p>
+ * Since each stripe aggregates a different subset of the data, this class needs
+ * 2 functions:
+ * <ul>
+ * <li>an <i>aggregation</i> function, which is used in {@link #add(Object)} to
+ * fold the data passed in into the partial result of a stripe -- this has the
+ * same role as the function used in {@link AbstractNoStoreAggregator}</li>
+ * <li>a <i>combine</i> function, which is used in {@link #evaluate()} to merge
+ * the partial results of all the stripes. For functions like sum or max this is
+ * the same as the aggregation function, however, for functions like count, the
+ * partial results have to be summed up.</li>
+ * </ul>
+ * The combine function must be associative and {@link #initialValue()} must be
+ * its identity element, as the order in which the stripes are merged is not
+ * specified.
+ * </p>
+ * <p>
+ * <b>Synchronization</b>: {@link #add(Object)} is lock-free and can be called
+ * concurrently with {@link #evaluate()} and {@link #reset()}. As such, the
+ * value returned by {@link #evaluate()} is not an atomic snapshot: data added
+ * while the stripes are being merged may or may not be reflected in the result.
+ * {@link #evaluateAndReset()} (and therefore the timer) on the other hand
+ * swaps each stripe atomically, so no data is lost between the evaluation and
+ * the reset.
+ * Also the aggregation function can be invoked more than once for the same data
+ * if the compare-and-set operation fails, so it must not have any side effects.
+ * </p>
+ *
+ * @param <T>
+ *            Type of object stored.
+ */
+public abstract class AbstractStripedAggregator<T> extends AbstractTimedAggregator<T> {
+    /**
+     * Number of array slots between 2 consecutive stripes in {@link #cells}.
+     * This is used to pad the stripes so they don't end up sharing the same
+     * cache line.
+     */
+    private static final int                CELL_PADDING    = 16;
+
+    /**
+     * Default number of stripes: the smallest power of 2 greater than or equal
+     * to the number of available processors.
+     */
+    public static final int                 DEFAULT_STRIPES = ceilingPowerOfTwo(Runtime.getRuntime()
+                                                                     .availableProcessors());
+
+    /**
+     * Function used to aggregate the data on the fly in {@link #add(Object)}.
+     *
+     * @see #add(Object)
+     */
+    private final BinaryFunction<T, T, T>   aggregationFunction;
+
+    /**
+     * Function used to merge the partial results of the stripes in
+     * {@link #evaluate()}.
+     *
+     * @see #evaluate()
+     */
+    private final BinaryFunction<T, T, T>   combineFunction;
+
+    /**
+     * Number of stripes. Always a power of 2.
+     */
+    private final int                       stripes;
+
+    /**
+     * Stores the partial results of each stripe. Stripe <code>i</code> is
+     * stored at index <code>i * CELL_PADDING</code>.
+     */
+    private final AtomicReferenceArray<T>   cells;
+
+    /**
+     * Similar to
+     * {@link #AbstractStripedAggregator(BinaryFunction, BinaryFunction, int, long, boolean)
+     * AbstractStripedAggregator(aggregationFunction, aggregationFunction,
+     * DEFAULT_STRIPES, 0L, false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)} and
+     *            {@link #evaluate()}.
+     */
+    public AbstractStripedAggregator(BinaryFunction<T, T, T> aggregationFunction) {
+        this(aggregationFunction, aggregationFunction);
+    }
+
+    /**
+     * Similar to
+     * {@link #AbstractStripedAggregator(BinaryFunction, BinaryFunction, int, long, boolean)
+     * AbstractStripedAggregator(aggregationFunction, combineFunction,
+     * DEFAULT_STRIPES, 0L, false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)}.
+     * @param combineFunction
+     *            Function used to merge the stripes in {@link #evaluate()}.
+     */
+    public AbstractStripedAggregator(BinaryFunction<T, T, T> aggregationFunction,
+            BinaryFunction<T, T, T> combineFunction) {
+        this(aggregationFunction, combineFunction, DEFAULT_STRIPES, 0L, false);
+    }
+
+    /**
+     * Similar to
+     * {@link #AbstractStripedAggregator(BinaryFunction, BinaryFunction, int, long, boolean)
+     * AbstractStripedAggregator(aggregationFunction, combineFunction,
+     * DEFAULT_STRIPES, interval, false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)}.
+     * @param combineFunction
+     *            Function used to merge the stripes in {@link #evaluate()}.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public AbstractStripedAggregator(BinaryFunction<T, T, T> aggregationFunction,
+            BinaryFunction<T, T, T> combineFunction, long interval) {
+        this(aggregationFunction, combineFunction, DEFAULT_STRIPES, interval, false);
+    }
+
+    /**
+     * Constructs an aggregator which will spread the data across the given
+     * number of stripes, reset itself at the given interval and will use a
+     * shared timer or own private timer. All the stripes are initialized with
+     * the value returned by {@link #initialValue()}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)}. Cannot
+     *            be <code>null</code>.
+     * @param combineFunction
+     *            Function used to merge the stripes in {@link #evaluate()}.
+     *            Cannot be <code>null</code>.
+     * @param stripes
+     *            Number of stripes to use. This will be rounded up to the next
+     *            power of 2. Must be greater than zero.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     * @see AbstractTimedAggregator#AbstractTimedAggregator(long, boolean,
+     *      boolean)
+     */
+    public AbstractStripedAggregator(BinaryFunction<T, T, T> aggregationFunction,
+            BinaryFunction<T, T, T> combineFunction, int stripes, long interval, boolean useSharedTimer) {
+        super(interval, useSharedTimer, true);
+        this.aggregationFunction = Validate.notNull(aggregationFunction, "Aggregation function must not be null");
+        this.combineFunction = Validate.notNull(combineFunction, "Combine function must not be null");
+        Validate.isTrue(stripes > 0, "Number of stripes must be greater than zero: %s", stripes);
+        this.stripes = ceilingPowerOfTwo(stripes);
+        this.cells = new AtomicReferenceArray<T>(this.stripes * CELL_PADDING);
+        T initial = initialValue();
+        for (int i = 0; i < this.stripes; i++) {
+            cells.set(i * CELL_PADDING, initial);
+        }
+    }
+
+    /**
+     * Folds the data into the partial result of one of the stripes. The stripe
+     * is chosen based on the current thread; if the compare-and-set fails
+     * because of another thread updating the same stripe, this moves on to the
+     * next stripe and tries again.
+     *
+     * @param data
+     *            Data to aggregate
+     */
+    @Override
+    protected final void doAdd(T data) {
+        int mask = stripes - 1;
+        int stripe = hash(Thread.currentThread().getId()) & mask;
+        for (;;) {
+            int index = stripe * CELL_PADDING;
+            T current = cells.get(index);
+            if (cells.compareAndSet(index, current, aggregationFunction.evaluate(current, data))) {
+                return;
+            }
+            stripe = (stripe + 1) & mask;
+        }
+    }
+
+    /**
+     * Merges the partial results of all the stripes using
+     * {@link #combineFunction}, starting from {@link #initialValue()}.
+     *
+     * @return The combined result of all the stripes.
+     */
+    @Override
+    protected final T doEvaluate() {
+        T result = initialValue();
+        for (int i = 0; i < stripes; i++) {
+            result = combineFunction.evaluate(result, cells.get(i * CELL_PADDING));
+        }
+        return result;
+    }
+
+    /**
+     * Sets every stripe back to {@link #initialValue()}.
+     */
+    @Override
+    protected final void doReset() {
+        T initial = initialValue();
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * CELL_PADDING, initial);
+        }
+    }
+
+    /**
+     * Replaces each stripe with {@link #initialValue()} and merges the values
+     * previously stored, using an atomic get-and-set on every stripe. Unlike
+     * calling {@link #doEvaluate()} followed by {@link #doReset()}, this
+     * ensures that data added concurrently is never lost: it is accounted for
+     * either in this snapshot or in the next one.
+     *
+     * @return function returning the combined result of all the stripes
+     */
+    @Override
+    protected final NullaryFunction<T> doDetach() {
+        T initial = initialValue();
+        T result = initial;
+        for (int i = 0; i < stripes; i++) {
+            result = combineFunction.evaluate(result, cells.getAndSet(i * CELL_PADDING, initial));
+        }
+        return new Constant<T>(result);
+    }
+
+    /**
+     * Allows subclasses to define the "initial" value. This value will be
+     * stored in each stripe when an instance of this class is created or when
+     * {@link #reset()} is called. It is also the starting point when merging
+     * the stripes in {@link #evaluate()}, so it has to be the identity element
+     * of the combine function.
+     *
+     * @return Initial value to be used in each stripe.
+     */
+    protected abstract T initialValue();
+
+    /**
+     * This aggregator doesn't store any data, so the data series size is always
+     * 0 (zero).
+     *
+     * @return 0
+     */
+    @Override
+    protected int retrieveDataSize() {
+        return 0;
+    }
+
+    /**
+     * Getter for {@link #stripes}.
+     *
+     * @return Number of stripes used by this aggregator.
+     */
+    public final int getStripes() {
+        return stripes;
+    }
+
+    /**
+     * Getter for {@link #aggregationFunction}. Provided for testing purposes
+     * only.
+     *
+     * @return Current value of {@link #aggregationFunction}
+     */
+    final BinaryFunction<T, T, T> getAggregationFunction() {
+        return aggregationFunction;
+    }
+
+    /**
+     * Getter for {@link #combineFunction}. Provided for testing purposes only.
+     *
+     * @return Current value of {@link #combineFunction}
+     */
+    final BinaryFunction<T, T, T> getCombineFunction() {
+        return combineFunction;
+    }
+
+    /**
+     * Spreads the bits of the thread id so that consecutive ids end up on
+     * different stripes.
+     *
+     * @param id
+     *            Thread id
+     * @return Mixed hash of the id.
+     */
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Computes the smallest power of 2 greater than or equal to the given
+     * value.
+     *
+     * @param value
+     *            Value to round up. Must be greater than zero.
+     * @return Smallest power of 2 which is &gt;= <code>value</code>.
+     */
+    private static int ceilingPowerOfTwo(int value) {
+        int result = 1;
+        while (result < value) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return AbstractStripedAggregator.class.getName();
+    }
+}
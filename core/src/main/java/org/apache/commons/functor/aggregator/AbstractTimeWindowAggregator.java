@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.functor.BinaryFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A {@link AbstractWindowAggregator window aggregator} whose window covers a
+ * period of time, e.g. the last 60 seconds. The window is split into a number
+ * of buckets of equal duration; in sliding mode {@link #evaluate()} covers the
+ * bucket currently being filled plus the previous <code>buckets - 1</code>
+ * ones, so the data reported spans between
+ * <code>window - window / buckets</code> and <code>window</code> miliseconds.
+ * In tumbling mode {@link #evaluate()} reports the data added during the last
+ * complete window.
+ * <p>
+ * The time is measured using a monotonic clock (<code>System.nanoTime()</code>
+ * ) relative to the moment this instance was created, so windows are aligned
+ * on the creation time rather than on the wall clock.
+ * </p>
+ *
+ * @param <T>
+ *            Type of object stored.
+ */
+public abstract class AbstractTimeWindowAggregator<T> extends AbstractWindowAggregator<T> {
+    /**
+     * Length of the window in miliseconds.
+     */
+    private final long  window;
+
+    /**
+     * Duration of a bucket in miliseconds.
+     */
+    private final long  bucketLength;
+
+    /**
+     * Value of {@link #currentTimeMillis()} when this instance was created.
+     */
+    private final long  origin;
+
+    /**
+     * Similar to
+     * {@link #AbstractTimeWindowAggregator(BinaryFunction, BinaryFunction, long, int, boolean, long, boolean)
+     * AbstractTimeWindowAggregator(aggregationFunction, aggregationFunction,
+     * window, buckets, false, NO_TIMER, false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)} and
+     *            {@link #evaluate()}.
+     * @param window
+     *            Length of the window in miliseconds.
+     * @param buckets
+     *            Number of buckets to split the window into.
+     */
+    public AbstractTimeWindowAggregator(BinaryFunction<T, T, T> aggregationFunction, long window, int buckets) {
+        this(aggregationFunction, aggregationFunction, window, buckets, false, NO_TIMER, false);
+    }
+
+    /**
+     * Constructs an aggregator over a window of the given length.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)}. Cannot
+     *            be <code>null</code>.
+     * @param combineFunction
+     *            Function used to merge the buckets in {@link #evaluate()}.
+     *            Cannot be <code>null</code>.
+     * @param window
+     *            Length of the window in miliseconds. In sliding mode it must
+     *            be a positive multiple of <code>buckets</code>, so that the
+     *            buckets cover exactly the window.
+     * @param buckets
+     *            Number of buckets to split the window into (sliding mode
+     *            only). Must be greater than zero.
+     * @param tumbling
+     *            <code>true</code> for a tumbling window, <code>false</code>
+     *            for a sliding one.
+     * @param interval
+     *            interval in miliseconds at which to notify the listeners
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public AbstractTimeWindowAggregator(BinaryFunction<T, T, T> aggregationFunction,
+            BinaryFunction<T, T, T> combineFunction, long window, int buckets, boolean tumbling, long interval,
+            boolean useSharedTimer) {
+        super(aggregationFunction, combineFunction, checkArguments(window, buckets, tumbling), tumbling, interval,
+                useSharedTimer);
+        this.window = window;
+        this.bucketLength = window / getWindowBuckets();
+        this.origin = currentTimeMillis();
+    }
+
+    /**
+     * The epoch is the number of buckets elapsed since this instance was
+     * created.
+     *
+     * @return {@link #currentEpoch()}
+     */
+    @Override
+    protected final long nextEpoch() {
+        return currentEpoch();
+    }
+
+    /**
+     * The epoch is the number of buckets elapsed since this instance was
+     * created.
+     *
+     * @return number of {@link #bucketLength buckets} elapsed since
+     *         {@link #origin}
+     */
+    @Override
+    protected final long currentEpoch() {
+        return (currentTimeMillis() - origin) / bucketLength;
+    }
+
+    /**
+     * Retrieves the current time in miliseconds from a monotonic clock. Can be
+     * overridden for testing purposes.
+     *
+     * @return current time in miliseconds
+     */
+    protected long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Getter for {@link #window}.
+     *
+     * @return Length of the window in miliseconds.
+     */
+    public final long getWindow() {
+        return window;
+    }
+
+    /**
+     * Getter for {@link #bucketLength}.
+     *
+     * @return Duration of a bucket in miliseconds.
+     */
+    public final long getBucketLength() {
+        return bucketLength;
+    }
+
+    /**
+     * Validates the window and the number of buckets before they are passed on
+     * to the superclass, so an invalid instance is never scheduled.
+     *
+     * @param window
+     *            Length of the window in miliseconds.
+     * @param buckets
+     *            Number of buckets to split the window into.
+     * @param tumbling
+     *            <code>true</code> for a tumbling window, in which case the
+     *            number of buckets is ignored.
+     * @return <code>buckets</code>
+     */
+    private static int checkArguments(long window, int buckets, boolean tumbling) {
+        Validate.isTrue(buckets > 0, "Number of buckets must be greater than zero: %s", buckets);
+        int windowBuckets = tumbling ? 1 : buckets;
+        Validate.isTrue(window > 0L && window % windowBuckets == 0L,
+                "Window must be a positive multiple of %s ms: %s", windowBuckets, window);
+        return buckets;
+    }
+
+    @Override
+    public String toString() {
+        return AbstractTimeWindowAggregator.class.getName();
+    }
+}
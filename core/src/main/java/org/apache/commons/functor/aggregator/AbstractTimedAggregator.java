@@ -18,12 +18,16 @@ package org.apache.commons.functor.aggregator;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.functor.core.Constant;
+
 /**
  * An aggregator which automatically resets the aggregated data at regular
  * intervals and sends a notification when it is about to do so, so listeners
@@ -33,30 +37,54 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * the call to <code>evaluate</code> to represent an "aggregated" value over a
  * certain period of time. Note that you can still have a regular aggregator
  * extending this class by specifying an interval less than or equal to zero.
- * The regular flush/reset will be triggered from a timer which will always be
- * started as a daemon thread (so it will stop when there are no more non-daemon
- * threads in the JVM); this class allows 2 types of timers:
+ * The regular flush/reset will be triggered by an {@link AggregatorScheduler},
+ * which calls {@link #flush(Executor)} at the configured interval; the
+ * scheduler threads are always daemon threads (so they will stop when there are
+ * no more non-daemon threads in the JVM). This class allows 3 types of
+ * schedulers:
  * <ul>
- * <li>(default) per instance <code>Timer</code> -- each instance of this class
- * will create a new <code>Timer</code> and this <code>Timer</code> will have a
- * single <code>TimerTask</code> scheduled, which is the one that resets this
- * <code>Aggregator</code> regularly and sends notifications. This way, when the
- * <code>Aggregator</code> instance is destroyed, the <code>Timer</code> goes as
- * well.</li>
- * <li>shared <code>Timer</code> instance -- this class will create a static
- * instance of <code>Timer</code> which can be shared by other instances of this
- * class. While this is a bit more effective from a memory and thread management
- * point of view, it has the downside that if the <code>TimerTask</code>'s are
- * not managed properly this can create memory leaks. So if you decide to take
- * this route make sure when you are finished with this instance, to always stop
- * the timer at the end.</li>
+ * <li>(default) per instance scheduler -- each instance of this class will
+ * create a new {@link DefaultAggregatorScheduler} with a single thread, which
+ * flushes this <code>Aggregator</code> regularly and sends notifications on
+ * that same thread. The thread goes away once this instance is stopped or
+ * garbage collected.</li>
+ * <li>shared scheduler -- this class creates a static
+ * {@link #getSharedScheduler() scheduler} with a bounded number of threads,
+ * which is shared by other instances of this class. The aggregators sharing
+ * the same interval are flushed in a single batch and the listeners are
+ * notified on a separate thread, so a slow listener doesn't delay the flushing
+ * of the other aggregators. This is a lot more effective from a memory and
+ * thread management point of view when there are many aggregators.</li>
+ * <li>a custom {@link AggregatorScheduler}, passed in
+ * {@link #AbstractTimedAggregator(long, AggregatorScheduler)}.</li>
  * </ul>
+ * Scheduling starts on the first {@link #add(Object) add},
+ * {@link #evaluate() evaluation} or
+ * {@link #addTimerListener(TimedAggregatorListener) listener registration},
+ * or on an explicit call to {@link #start()}, rather than in the constructor:
+ * the scheduler threads would otherwise be able to flush an instance whose
+ * subclass fields are not assigned yet.
+ * The schedulers only keep weak references to the aggregators, so an
+ * aggregator which is no longer used stops being flushed and is garbage
+ * collected even if {@link #stop()} was never called; calling {@link #stop()}
+ * when finished with an instance is still recommended though, as it releases
+ * its resources straight away.
  * <p>
  * <b>Synchronization</b>: This class provides a thread safe framework so when
  * {@link #doAdd(Object)}, {@link #reset()} and {@link #evaluate()} is called,
  * access is synchronized via a read-write lock. {@link #evaluate()} is
  * considered a read operation and {@link #doAdd(Object)} and {@link #reset()}
- * are considered write operations.
+ * are considered write operations. Subclasses which can accept data
+ * concurrently (for instance by striping their state) can opt out of locking in
+ * {@link #add(Object)} via
+ * {@link #AbstractTimedAggregator(long, boolean, boolean)}.
+ * </p>
+ * <p>
+ * <b>Instrumentation</b>: the adds, lock waits, evaluations, timer drift and
+ * listener notifications of an aggregator can be monitored by
+ * {@link #setInstrumentation(AggregatorInstrumentation) setting} an
+ * {@link AggregatorInstrumentation}. Instrumentation is disabled by default, in
+ * which case none of these measurements is taken.
  * </p>
  *
  * @param <T>
@@ -71,65 +99,61 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
      * aren't too many updates expected to this list.
      *
      * @see #interval
-     * @see #timer
+     * @see #scheduler
      * @see TimedAggregatorListener
      */
     private List<TimedAggregatorListener<T>> timerListeners;
 
     /**
-     * As per {@link #timer} javadoc, if the interval specified is zero or less
-     * there will be no <code>Timer</code> created/assigned to this instance.
+     * As per {@link #scheduler} javadoc, if the interval specified is zero or less
+     * there will be no scheduler assigned to this instance.
      * This constant is defined to make it easier to read code which creates
      * instances of this class and doesn't assign them a timer.
      */
     public static final long                 NO_TIMER   = 0L;
 
     /**
-     * Name of the shared timer which will run all the TimerTasks resulted from
-     * creating instances of this class which are set to used the shared timer.
-     * This is useful when looking at thread dumps. For instances which use
-     * their own timer task, the name will be
+     * Prefix of the name of the threads of the shared scheduler, which will
+     * flush all the instances of this class which are set to use the shared
+     * timer. This is useful when looking at thread dumps. For instances which
+     * use their own scheduler, the prefix will be
      * <code>TIMER_NAME + hashCode()</code>.
      */
-    public static final String               TIMER_NAME = "TimedSummarizerMainTimer";
+    public static final String               TIMER_NAME       = "TimedSummarizerMainTimer";
 
     /**
-     * The main shared timer which will execute all the <code>TimerTasks</code>
-     * resulted from instances of this class which chose to use the shared
-     * timer. Note that this <code>Timer</code> is started as a daemon thread so
-     * it will stop when there are no more non-daemon threads.
+     * The main shared scheduler which will flush the instances of this class
+     * which chose to use the shared timer. Note that its threads are daemon
+     * threads so they will stop when there are no more non-daemon threads.
      *
-     * @see #timer
+     * @see #scheduler
      */
-    private static final Timer               MAIN_TIMER = new Timer(TIMER_NAME, true);
+    private static final AggregatorScheduler SHARED_SCHEDULER = new DefaultAggregatorScheduler();
 
     /**
-     * The timer instance for this instance. Can point to {@link #MAIN_TIMER} if
-     * shared timer was chosen in constructor or a newly created instance of
-     * <code>Timer</code> which is private to this instance only.
+     * The scheduler flushing this instance. Can point to
+     * {@link #SHARED_SCHEDULER} if shared timer was chosen in constructor, to a
+     * custom scheduler or to a newly created scheduler which is private to this
+     * instance only. Set to <code>null</code> if there is no timer or once
+     * {@link #stop()} has been called.
      *
-     * @see #MAIN_TIMER
+     * @see #SHARED_SCHEDULER
      */
-    private Timer                            timer;
+    private volatile AggregatorScheduler     scheduler;
 
     /**
-     * Interval in milliseconds we flush the result of the "summary". This will
-     * be used to set up our <code>TimerTask</code> and schedule it with the
-     * <code>Timer</code>. Every time the timer kicks in after this interval, it
-     * will call {@link #timer()}. If this is set to a value of zero or less, no
-     * timer will be created.
+     * Whether {@link #scheduler} has been created by this instance (and
+     * therefore has to be shut down by {@link #stop()}).
      */
-    private long                             interval;
+    private final boolean                    ownsScheduler;
 
     /**
-     * This is the task that is created when a new instance of this class is
-     * created. Once created this task will be scheduled with the {@link #timer}
-     * . Calling {@link #stop()} cancels this task and also will set it to null
-     * (so it can be recycled by the garbage collection), otherwise, until that
-     * point this will store a reference to a valid <code>TimerTask</code>
-     * instance.
+     * Interval in milliseconds we flush the result of the "summary". Every time
+     * the {@link #scheduler} kicks in after this interval, it will call
+     * {@link #flush(Executor)}. If this is set to a value of zero or less, no
+     * scheduler will be used.
      */
-    private TimerTask                        task;
+    private long                             interval;
 
     /**
      * Lock used internally to synchronize access to {@link #add(Object)},
@@ -143,9 +167,43 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
      */
     private ReadWriteLock                    dataLock;
 
+    /**
+     * Flag indicating whether {@link #add(Object)} bypasses {@link #dataLock}
+     * and calls {@link #doAdd(Object)} directly. Only subclasses which
+     * implement {@link #doAdd(Object)} in a thread-safe manner should set this.
+     *
+     * @see #AbstractTimedAggregator(long, boolean, boolean)
+     */
+    private final boolean                    lockFreeAdd;
+
+    /**
+     * Receives the measurements taken by this aggregator, or
+     * <code>null</code> (the default) to not take any measurement.
+     */
+    private volatile AggregatorInstrumentation instrumentation;
+
+    /**
+     * Value of <code>System.nanoTime()</code> when this aggregator was last
+     * flushed (or scheduled, for the first flush), used to measure the timer
+     * drift. 0 if never flushed nor scheduled.
+     */
+    private volatile long                    lastFlushNanos;
+
+    /**
+     * Guards the scheduling of this instance by {@link #start()} and its
+     * cancellation by {@link #stop()}.
+     */
+    private final Object                     schedulerLock = new Object();
+
+    /**
+     * Set once this instance no longer needs to be {@link #start() started}:
+     * it has been scheduled, has no timer or has been stopped.
+     */
+    private volatile boolean                 started;
+
     /**
      * Default constructor -- creates an instance of this aggregator with no
-     * <code>Timer</code>. Equivalent to
+     * timer. Equivalent to
      * <code>AbstractTimedAggregator(NO_TIMER)</code>.
      *
      * @see #AbstractTimedAggregator(long)
@@ -157,13 +215,13 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
     /**
      * Creates an aggregator which has a timer at the specified interval
      * (miliseconds) and uses its own timer rather than the shared
-     * {@link #MAIN_TIMER}. Equivalent to
+     * {@link #SHARED_SCHEDULER}. Equivalent to
      * <code>AbstractTimedAggregator(interval,false)</code>.
      *
      * @param interval
      *            interval in miliseconds to set the timer for.
      * @see #interval
-     * @see #timer
+     * @see #scheduler
      * @see #AbstractTimedAggregator(long, boolean)
      */
     public AbstractTimedAggregator(long interval) {
@@ -172,42 +230,122 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
 
     /**
      * Creates an aggregator which has a timer at the specified interval and
-     * also allows control over using the {@link #MAIN_TIMER shared timer} or
-     * its own per-instance timer.
+     * also allows control over using the {@link #SHARED_SCHEDULER shared
+     * timer} or its own per-instance timer.
      *
      * @param interval
      *            interval in miliseconds to set the timer for.
      * @param useSharedTimer
-     *            if set to <code>true</code>, {@link #timer} will be set to
-     *            {@link #TIMER_NAME}, otherwise a new instance of
-     *            <code>Timer</code> will be created.
+     *            if set to <code>true</code>, {@link #scheduler} will be set
+     *            to {@link #SHARED_SCHEDULER}, otherwise a new scheduler will
+     *            be created for this instance.
      */
     public AbstractTimedAggregator(long interval, boolean useSharedTimer) {
+        this(interval, useSharedTimer, false);
+    }
+
+    /**
+     * Creates an aggregator which has a timer at the specified interval, uses
+     * either the {@link #SHARED_SCHEDULER shared timer} or its own timer and
+     * allows subclasses to decide whether {@link #add(Object)} is synchronized via
+     * {@link #dataLock} or not. Subclasses which pass <code>true</code> for
+     * <code>lockFreeAdd</code> are responsible for making
+     * {@link #doAdd(Object)} safe to call concurrently with itself as well as
+     * with {@link #doEvaluate()} and {@link #doReset()}.
+     *
+     * @param interval
+     *            interval in miliseconds to set the timer for.
+     * @param useSharedTimer
+     *            if set to <code>true</code>, {@link #scheduler} will be set
+     *            to {@link #SHARED_SCHEDULER}, otherwise a new scheduler will
+     *            be created for this instance.
+     * @param lockFreeAdd
+     *            if set to <code>true</code>, {@link #add(Object)} will call
+     *            {@link #doAdd(Object)} without acquiring {@link #dataLock}.
+     * @see #lockFreeAdd
+     */
+    protected AbstractTimedAggregator(long interval, boolean useSharedTimer, boolean lockFreeAdd) {
+        this(interval, useSharedTimer ? SHARED_SCHEDULER : null, lockFreeAdd);
+    }
+
+    /**
+     * Creates an aggregator which is flushed at the specified interval by the
+     * given scheduler.
+     *
+     * @param interval
+     *            interval in miliseconds to set the timer for.
+     * @param scheduler
+     *            scheduler which will flush this aggregator. If
+     *            <code>null</code>, a new scheduler will be created for this
+     *            instance.
+     */
+    public AbstractTimedAggregator(long interval, AggregatorScheduler scheduler) {
+        this(interval, scheduler, false);
+    }
+
+    /**
+     * Creates an aggregator which is flushed at the specified interval by the
+     * given scheduler and allows subclasses to decide whether
+     * {@link #add(Object)} is synchronized via {@link #dataLock} or not, as
+     * per {@link #AbstractTimedAggregator(long, boolean, boolean)}.
+     *
+     * @param interval
+     *            interval in miliseconds to set the timer for.
+     * @param scheduler
+     *            scheduler which will flush this aggregator. If
+     *            <code>null</code>, a new scheduler will be created for this
+     *            instance.
+     * @param lockFreeAdd
+     *            if set to <code>true</code>, {@link #add(Object)} will call
+     *            {@link #doAdd(Object)} without acquiring {@link #dataLock}.
+     */
+    protected AbstractTimedAggregator(long interval, AggregatorScheduler scheduler, boolean lockFreeAdd) {
+        this.dataLock = new ReentrantReadWriteLock();
+        this.lockFreeAdd = lockFreeAdd;
         if (interval <= NO_TIMER) {
             // not using timer
             this.interval = NO_TIMER;
-            this.timer = null;
-            this.task = null;
+            this.scheduler = null;
+            this.ownsScheduler = false;
             this.timerListeners = null;
+            this.started = true;
         } else {
             // we have been requested to use timers
             this.interval = interval;
             this.timerListeners = new CopyOnWriteArrayList<TimedAggregatorListener<T>>();
-            if (useSharedTimer) {
-                this.timer = MAIN_TIMER;
+            if (scheduler == null) {
+                // the private scheduler goes away once this instance is
+                // stopped or collected
+                this.scheduler = new DefaultAggregatorScheduler(TIMER_NAME + hashCode(), 1, false, true);
+                this.ownsScheduler = true;
             } else {
-                this.timer = new Timer(TIMER_NAME + hashCode(), true);
+                this.scheduler = scheduler;
+                this.ownsScheduler = false;
             }
-            // having set up the timer, create the task
-            this.task = new TimerTask() {
-                @Override
-                public void run() {
-                    timer();
-                }
-            };
-            this.timer.scheduleAtFixedRate(this.task, this.interval, this.interval);
         }
-        this.dataLock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Starts flushing this aggregator at the configured {@link #interval}, if
+     * it has a timer. This is done automatically by the first call to
+     * {@link #add(Object)} (or to the other add methods of subclasses),
+     * {@link #evaluate()} or
+     * {@link #addTimerListener(TimedAggregatorListener)}, so it only needs to
+     * be called to have the timer run before any of these. Calling it again,
+     * or after {@link #stop()}, has no effect.
+     */
+    public final void start() {
+        if (started) {
+            return;
+        }
+        synchronized (schedulerLock) {
+            AggregatorScheduler current = scheduler;
+            if (!started && current != null) {
+                lastFlushNanos = System.nanoTime();
+                current.schedule(this);
+            }
+            started = true;
+        }
     }
 
     /**
@@ -223,7 +361,9 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
      * Adds the data to this aggregator. This function first locks
      * {@link #dataLock} for writing then calls {@link #doAdd(Object)}, which
      * allows subclasses to perform the actual adding to the aggregator and then
-     * at the end it unlocks {@link #dataLock}.
+     * at the end it unlocks {@link #dataLock}. If this instance was constructed
+     * with {@link #lockFreeAdd} set, {@link #doAdd(Object)} is called directly
+     * without any locking.
      *
      * @param data
      *            Data to be added to the aggregator.
@@ -231,11 +371,16 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
      * @see #dataLock
      */
     public final void add(T data) {
-        dataLock.writeLock().lock();
+        if (lockFreeAdd) {
+            doAdd(data);
+            recordLockFreeAdd();
+            return;
+        }
+        long lockWait = lockForAdd();
         try {
             doAdd(data);
         } finally {
-            dataLock.writeLock().unlock();
+            unlockForAdd(lockWait);
         }
     }
 
@@ -268,11 +413,36 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
      * @see #doEvaluate()
      */
     public final T evaluate() {
+        start();
+        AggregatorInstrumentation current = instrumentation;
+        if (current != null) {
+            return evaluate(current);
+        }
+        dataLock.readLock().lock();
+        try {
+            return doEvaluate();
+        } finally {
+            dataLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #evaluate()}, timing the wait for the lock and the
+     * evaluation.
+     *
+     * @param current
+     *            Instrumentation to report the measurements to.
+     * @return result of aggregating the data
+     */
+    private T evaluate(AggregatorInstrumentation current) {
+        long start = System.nanoTime();
         dataLock.readLock().lock();
+        long locked = System.nanoTime();
         try {
             return doEvaluate();
         } finally {
             dataLock.readLock().unlock();
+            current.onEvaluate(this, locked - start, System.nanoTime() - locked);
         }
     }
 
@@ -315,6 +485,63 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
      */
     protected abstract void doReset();
 
+    /**
+     * Atomically evaluates and resets this aggregator: no data added via
+     * {@link #add(Object)} can slip in between the evaluation and the reset, so
+     * every piece of data is accounted for in exactly one evaluation. This
+     * function locks {@link #dataLock} for writing only for the duration of
+     * {@link #doDetach()}, which detaches the current state from this
+     * aggregator and replaces it with a fresh one; the detached snapshot is
+     * then evaluated after the lock has been released, so the (potentially
+     * expensive) aggregation doesn't block other threads from adding data.
+     *
+     * @return result of aggregating the data which was added since the last
+     *         reset
+     * @see #doDetach()
+     */
+    public final T evaluateAndReset() {
+        NullaryFunction<T> snapshot;
+        dataLock.writeLock().lock();
+        try {
+            snapshot = doDetach();
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+        return snapshot.evaluate();
+    }
+
+    /**
+     * Function provided to allow subclasses to detach their current state and
+     * replace it with a fresh one, as part of {@link #evaluateAndReset()}. This
+     * function is called while holding the <b>write</b> lock so it should be
+     * as cheap as possible (ideally swapping a reference to a buffer with
+     * another one); the returned function is called after the lock is released
+     * and should perform the actual aggregation of the detached state. This
+     * default implementation simply calls {@link #doEvaluate()} followed by
+     * {@link #doReset()} and returns the result wrapped in a {@link Constant}.
+     *
+     * @return function which will evaluate the detached state. Cannot be
+     *         <code>null</code>.
+     */
+    protected NullaryFunction<T> doDetach() {
+        T result = doEvaluate();
+        doReset();
+        return new Constant<T>(result);
+    }
+
+    /**
+     * Function provided to allow subclasses to end the current interval when
+     * nobody needs its result: {@link #flush(Executor)} calls it instead of
+     * {@link #evaluateAndReset()} when there are no listeners and no
+     * {@link #instrumentation}, while holding the <b>write</b> lock. This
+     * default implementation calls {@link #doReset()}. Subclasses whose
+     * {@link #doDetach()} keeps state across intervals (e.g. a moving average
+     * or a sliding window) must override it to update that state the same way.
+     */
+    protected void doDiscard() {
+        doReset();
+    }
+
     /**
      * Retrieves the size of the currently-stored data series. This function
      * first locks {@link #dataLock} for reading then calls
@@ -345,6 +572,102 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
      */
     protected abstract int retrieveDataSize();
 
+    /**
+     * Getter for {@link #dataLock}. Provided for subclasses which expose
+     * additional operations on their data (e.g. adding primitive values
+     * without boxing them) and need to synchronize them the same way
+     * {@link #add(Object)}, {@link #evaluate()} and {@link #reset()} are.
+     *
+     * @return Lock used to synchronize access to the data of this aggregator.
+     */
+    protected final ReadWriteLock getDataLock() {
+        return dataLock;
+    }
+
+    /**
+     * Locks {@link #dataLock} for writing in order to add data, timing the
+     * wait for the lock if there is an {@link #instrumentation}. Provided for
+     * subclasses which expose additional add methods (e.g. adding primitive
+     * values without boxing them), so these are instrumented the same way as
+     * {@link #add(Object)}. The caller must pass the returned value to
+     * {@link #unlockForAdd(long)} in a <code>finally</code> block once done.
+     *
+     * @return Time spent waiting for the lock in nanoseconds, or -1 if there
+     *         is no instrumentation.
+     */
+    protected final long lockForAdd() {
+        start();
+        Lock lock = dataLock.writeLock();
+        if (instrumentation == null) {
+            lock.lock();
+            return -1L;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Unlocks {@link #dataLock} after {@link #lockForAdd()}, then reports the
+     * add to the {@link #instrumentation} if any. The report happens after the
+     * lock is released, so the instrumentation neither lengthens the time the
+     * lock is held nor leaves it locked if it throws.
+     *
+     * @param lockWaitNanos
+     *            Value returned by {@link #lockForAdd()}.
+     */
+    protected final void unlockForAdd(long lockWaitNanos) {
+        dataLock.writeLock().unlock();
+        AggregatorInstrumentation current = instrumentation;
+        if (current != null && lockWaitNanos >= 0L) {
+            current.onAdd(this, lockWaitNanos);
+        }
+    }
+
+    /**
+     * Reports an add which didn't acquire {@link #dataLock} to the
+     * {@link #instrumentation} if any. Provided for subclasses which expose
+     * additional lock-free add methods, so these are instrumented the same way
+     * as {@link #add(Object)}.
+     */
+    protected final void recordLockFreeAdd() {
+        start();
+        AggregatorInstrumentation current = instrumentation;
+        if (current != null) {
+            current.onAdd(this, 0L);
+        }
+    }
+
+    /**
+     * Getter for {@link #instrumentation}.
+     *
+     * @return Current instrumentation, or <code>null</code> if disabled.
+     */
+    public final AggregatorInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation receiving the measurements taken by this
+     * aggregator. Can be changed at any time.
+     *
+     * @param instrumentation
+     *            Instrumentation to report to, or <code>null</code> to disable
+     *            instrumentation.
+     */
+    public final void setInstrumentation(AggregatorInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Checks whether {@link #add(Object)} bypasses {@link #dataLock}.
+     *
+     * @return Current value of {@link #lockFreeAdd}
+     */
+    public final boolean isLockFreeAdd() {
+        return lockFreeAdd;
+    }
+
     /**
      * Retrieves <b>an unmodifiable copy</b> of the {@link #timerListeners timer
      * listeners}. Used for testing.
@@ -377,6 +700,7 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
             return;
         }
         timerListeners.add(listener);
+        start();
     }
 
     /**
@@ -403,85 +727,159 @@ public abstract class AbstractTimedAggregator<T> implements Aggregator<T> {
     }
 
     /**
-     * Computes the current aggregated value (by calling {@link #evaluate()},
-     * resets this aggregator then notifies all listeners. Go through all the
-     * {@link #timerListeners} and sends
+     * Computes the current aggregated value and resets this aggregator in one
+     * atomic operation (by calling {@link #evaluateAndReset()}) then notifies
+     * all listeners. This is called by the {@link #scheduler} every
+     * {@link #interval} miliseconds, but can also be called directly to force
+     * a flush. The evaluation happens on the calling thread, while the
+     * notifications are sent via the given executor (if any): this goes
+     * through all the {@link #timerListeners} and sends
      * {@link TimedAggregatorListener#onTimer(AbstractTimedAggregator,Object)
-     * notification messages} to each of them. Does nothing if
-     * {@link #timerListeners} is <code>null</code>. Please note that
-     * {@link #evaluate()} is called only once at the beginning of this
-     * function, and only if there are listeners configured, then this value is
-     * passed to every notification. This is in order to ensure all listeners
-     * receive the same value -- the value of the evaluation prior to resetting
-     * it.
-     */
-    private void timer() {
-        if (timerListeners != null) {
-            // if we have listeners, notify them
-            T aggregated = evaluate(); // NOTE: shouldn't evaluate() and reset()
-                                       // be done atomically here?
-            reset();
-            for (TimedAggregatorListener<T> i : timerListeners) {
-                i.onTimer(this, aggregated);
+     * notification messages} to each of them. Please note that
+     * {@link #evaluateAndReset()} is called only once at the beginning of this
+     * function, then this value is passed to every notification. This is in
+     * order to ensure all listeners receive the same value -- the value of the
+     * evaluation prior to resetting it. If there are no listeners and no
+     * {@link #instrumentation}, the data is discarded via {@link #doDiscard()}
+     * without being evaluated at all.
+     *
+     * @param listenerExecutor
+     *            Executor used to notify the listeners. If <code>null</code>
+     *            the listeners are notified on the calling thread.
+     */
+    public final void flush(Executor listenerExecutor) {
+        long start = System.nanoTime();
+        long previous = lastFlushNanos;
+        lastFlushNanos = start;
+        final AggregatorInstrumentation current = instrumentation;
+        if (current == null && (timerListeners == null || timerListeners.isEmpty())) {
+            // nobody needs the result, so don't pay for the evaluation
+            dataLock.writeLock().lock();
+            try {
+                doDiscard();
+            } finally {
+                dataLock.writeLock().unlock();
             }
+            return;
+        }
+        final T aggregated = evaluateAndReset();
+        final long flushed;
+        if (current == null) {
+            flushed = 0L;
         } else {
-            reset();
+            flushed = System.nanoTime();
+            long drift = 0L;
+            if (previous != 0L && interval > NO_TIMER) {
+                drift = start - previous - TimeUnit.MILLISECONDS.toNanos(interval);
+            }
+            current.onFlush(this, drift, flushed - start);
+        }
+        if (timerListeners == null || timerListeners.isEmpty()) {
+            return;
+        }
+        if (listenerExecutor == null) {
+            notifyListeners(aggregated, current, flushed);
+        } else {
+            listenerExecutor.execute(new Runnable() {
+                public void run() {
+                    notifyListeners(aggregated, current, flushed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the given evaluation to all the {@link #timerListeners}.
+     *
+     * @param aggregated
+     *            Evaluation to send.
+     * @param current
+     *            Instrumentation to report the notifications to, or
+     *            <code>null</code>.
+     * @param flushed
+     *            Value of <code>System.nanoTime()</code> at the end of the
+     *            flush, if <code>current</code> is not <code>null</code>.
+     */
+    private void notifyListeners(T aggregated, AggregatorInstrumentation current, long flushed) {
+        for (TimedAggregatorListener<T> i : timerListeners) {
+            if (current == null) {
+                i.onTimer(this, aggregated);
+            } else {
+                long start = System.nanoTime();
+                i.onTimer(this, aggregated);
+                current.onNotify(this, i, start - flushed, System.nanoTime() - start);
+            }
         }
     }
 
     /**
      * Checks whether this instance has a timer associated with it or not. If
-     * there is a timer for this Aggregator, then the {@link #task} member
+     * there is a timer for this Aggregator, then the {@link #scheduler} member
      * should be set to a non-null value.
      *
-     * @return <code>true</code> if {@link #task} is not null,
+     * @return <code>true</code> if {@link #scheduler} is not null,
      *         <code>false</code> otherwise (in which case there is no timer).
      */
     public final boolean isTimerEnabled() {
-        return (task != null);
+        return (scheduler != null);
     }
 
     /**
-     * Checks whether this instance uses its own timer or {@link #MAIN_TIMER the
-     * shared timer} for scheduling {@link #task the timer task}.
+     * Checks whether this instance uses its own scheduler (or a custom one) or
+     * {@link #SHARED_SCHEDULER the shared scheduler}.
      *
-     * @return <code>true</code> if <code>timer == MAIN_TIMER</code> or
+     * @return <code>true</code> if
+     *         <code>scheduler == SHARED_SCHEDULER</code> or
      *         <code>false</code> otherwise.
      */
     public final boolean isSharedTimer() {
-        return (timer == MAIN_TIMER);
+        return (scheduler == SHARED_SCHEDULER);
+    }
+
+    /**
+     * Getter for {@link #scheduler}. Provided for testing purposes only.
+     *
+     * @return Current value of {@link #scheduler}
+     */
+    final AggregatorScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Retrieves the scheduler shared by all the instances of this class
+     * constructed with <code>useSharedTimer</code> set to <code>true</code>.
+     *
+     * @return the shared scheduler
+     */
+    public static AggregatorScheduler getSharedScheduler() {
+        return SHARED_SCHEDULER;
     }
 
     /**
-     * Cancels the current timer task (if set) -- which means from there on the
-     * data will not be reset anymore. Also, if {@link #timer} is not set to
-     * {@link #MAIN_TIMER the shared timer} then it will be cancelled as well
-     * Also releases all the listeners from the {@link #timerListeners list}.
+     * Cancels the scheduling of this instance (if set) -- which means from
+     * there on the data will not be reset anymore. Also, if the
+     * {@link #scheduler} was created by this instance then it will be shut
+     * down as well. Also releases all the listeners from the
+     * {@link #timerListeners list}.
      */
     public final void stop() {
-        // cancel the task first
-        if (task != null) {
-            task.cancel();
-            task = null;
-            timer.purge(); // remove the reference to this task
-        }
-        // then the timer if needed
-        if (timer != null && timer != MAIN_TIMER) {
-            timer.cancel();
+        synchronized (schedulerLock) {
+            AggregatorScheduler current = scheduler;
+            scheduler = null;
+            started = true;
+            if (current != null) {
+                current.cancel(this);
+                if (ownsScheduler) {
+                    current.shutdown();
+                }
+            }
         }
-        timer = null;
         // finally remove the elements from the listeners list
         if (timerListeners != null) {
             timerListeners.clear();
         }
     }
 
-    @Override
-    protected final void finalize() throws Throwable {
-        // if we're going in the garbage, make sure we clean up
-        stop();
-    }
-
     @Override
     public String toString() {
         return AbstractTimedAggregator.class.getName();
@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.Arrays;
+
+import org.apache.commons.functor.BinaryFunction;
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.functor.core.Constant;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An aggregator which, rather than aggregating everything added since the last
+ * reset, only aggregates the data which falls in a "window" -- for instance
+ * the last N seconds or the last N samples. Similar to
+ * {@link AbstractNoStoreAggregator}, the data is not stored but processed on
+ * the fly; however, instead of a single partial result, this class keeps a
+ * preallocated ring of <i>buckets</i>, each of them holding the partial result
+ * for a slice of the window. Every bucket is tagged with the <i>epoch</i> (the
+ * index of the slice since the start) it holds data for, so when the window
+ * moves forward the buckets which fell out of it are simply recycled the next
+ * time they are needed -- advancing the window never touches the data already
+ * aggregated and is at most O(buckets).
+ * <p>
+ * Two modes are supported:
+ * <ul>
+ * <li><i>sliding</i> -- {@link #evaluate()} combines all the buckets in the
+ * window, including the one currently being filled. The window therefore moves
+ * forward one bucket at a time, and its oldest data expires one bucket at a
+ * time as well (so the more buckets, the finer the granularity).</li>
+ * <li><i>tumbling</i> -- the window is made of a single bucket and
+ * {@link #evaluate()} returns the result of the last <b>complete</b> window,
+ * while the current one is being filled. The value only changes when a window
+ * ends.</li>
+ * </ul>
+ * Subclasses decide how the epochs are computed (e.g. based on the clock or on
+ * the number of samples added) via {@link #nextEpoch()} and
+ * {@link #currentEpoch()}.
+ * </p>
+ * <p>
+ * The timer provided by {@link AbstractTimedAggregator} does <b>not</b> reset
+ * the window: when the timer kicks in, the listeners are notified with the
+ * current value of the window and the buckets which fell out of it are
+ * released, but the data still in the window is kept. This way, listeners see
+ * a smooth series of values rather than a sawtooth. Calling {@link #reset()}
+ * explicitly however empties all the buckets.
+ * </p>
+ * <p>
+ * Like for {@link AbstractStripedAggregator}, 2 functions are needed: an
+ * <i>aggregation</i> function to fold the data into a bucket in
+ * {@link #add(Object)} and a <i>combine</i> function to merge the buckets in
+ * {@link #evaluate()}. The combine function must be associative and
+ * {@link #initialValue()} must be its identity element.
+ * </p>
+ *
+ * @param <T>
+ *            Type of object stored.
+ */
+public abstract class AbstractWindowAggregator<T> extends AbstractTimedAggregator<T> {
+    /**
+     * Epoch marking a bucket which doesn't hold any data.
+     */
+    private static final long               NO_EPOCH = Long.MIN_VALUE;
+
+    /**
+     * Function used to aggregate the data into a bucket in {@link #add(Object)}
+     * .
+     */
+    private final BinaryFunction<T, T, T>   aggregationFunction;
+
+    /**
+     * Function used to merge the buckets in {@link #evaluate()}.
+     */
+    private final BinaryFunction<T, T, T>   combineFunction;
+
+    /**
+     * Number of buckets making up the window. Always 1 for tumbling windows.
+     */
+    private final int                       windowBuckets;
+
+    /**
+     * Whether this is a tumbling window (as opposed to a sliding one).
+     */
+    private final boolean                   tumbling;
+
+    /**
+     * The ring of buckets. The bucket for epoch <code>e</code> is stored at
+     * index <code>e % buckets.length</code>.
+     */
+    private final Object[]                  buckets;
+
+    /**
+     * The epoch each of the {@link #buckets} holds data for, or
+     * {@link #NO_EPOCH} if the bucket is empty.
+     */
+    private final long[]                    epochs;
+
+    /**
+     * Constructs a window aggregator.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #add(Object)}. Cannot
+     *            be <code>null</code>.
+     * @param combineFunction
+     *            Function used to merge the buckets in {@link #evaluate()}.
+     *            Cannot be <code>null</code>.
+     * @param windowBuckets
+     *            Number of buckets the window is split into. Must be greater
+     *            than zero. Ignored (and set to 1) for tumbling windows.
+     * @param tumbling
+     *            <code>true</code> for a tumbling window, <code>false</code>
+     *            for a sliding one.
+     * @param interval
+     *            interval in miliseconds at which to notify the listeners
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    protected AbstractWindowAggregator(BinaryFunction<T, T, T> aggregationFunction,
+            BinaryFunction<T, T, T> combineFunction, int windowBuckets, boolean tumbling, long interval,
+            boolean useSharedTimer) {
+        super(interval, useSharedTimer);
+        this.aggregationFunction = Validate.notNull(aggregationFunction, "Aggregation function must not be null");
+        this.combineFunction = Validate.notNull(combineFunction, "Combine function must not be null");
+        Validate.isTrue(windowBuckets > 0, "Number of buckets must be greater than zero: %s", windowBuckets);
+        this.tumbling = tumbling;
+        this.windowBuckets = tumbling ? 1 : windowBuckets;
+        // a tumbling window needs the current bucket and the last complete one
+        int ringSize = tumbling ? 2 : windowBuckets;
+        this.buckets = new Object[ringSize];
+        this.epochs = new long[ringSize];
+        Arrays.fill(epochs, NO_EPOCH);
+    }
+
+    /**
+     * Folds the data into the bucket for {@link #nextEpoch()}, recycling the
+     * bucket first if it holds data for an older epoch.
+     *
+     * @param data
+     *            Data to aggregate
+     */
+    @Override
+    protected final void doAdd(T data) {
+        long epoch = nextEpoch();
+        int slot = slot(epoch);
+        if (epochs[slot] != epoch) {
+            buckets[slot] = initialValue();
+            epochs[slot] = epoch;
+        }
+        buckets[slot] = aggregationFunction.evaluate(bucket(slot), data);
+    }
+
+    /**
+     * Combines the buckets which fall in the window ending at
+     * {@link #currentEpoch()}, starting from {@link #initialValue()}.
+     *
+     * @return The combined result of the buckets in the window.
+     */
+    @Override
+    protected final T doEvaluate() {
+        long last = currentEpoch();
+        if (tumbling) {
+            // only the last complete window
+            last--;
+        }
+        long first = last - windowBuckets + 1;
+        T result = initialValue();
+        for (int i = 0; i < buckets.length; i++) {
+            if (epochs[i] != NO_EPOCH && epochs[i] >= first && epochs[i] <= last) {
+                result = combineFunction.evaluate(result, bucket(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Empties all the buckets and calls {@link #resetEpoch()}.
+     */
+    @Override
+    protected final void doReset() {
+        Arrays.fill(buckets, null);
+        Arrays.fill(epochs, NO_EPOCH);
+        resetEpoch();
+    }
+
+    /**
+     * Evaluates the window <b>without</b> resetting it, so the timer reports
+     * the current value of the window rather than emptying it. The buckets
+     * which are no longer in (or ahead of) the window are released.
+     *
+     * @return function returning the current value of the window
+     */
+    @Override
+    protected final NullaryFunction<T> doDetach() {
+        T result = doEvaluate();
+        releaseExpiredBuckets();
+        return new Constant<T>(result);
+    }
+
+    /**
+     * Releases the buckets which are no longer in (or ahead of) the window,
+     * without emptying the window.
+     */
+    @Override
+    protected final void doDiscard() {
+        releaseExpiredBuckets();
+    }
+
+    /**
+     * Releases the buckets which are no longer in (or ahead of) the window.
+     */
+    private void releaseExpiredBuckets() {
+        long last = currentEpoch();
+        long first = last - buckets.length + 1;
+        for (int i = 0; i < buckets.length; i++) {
+            if (epochs[i] != NO_EPOCH && epochs[i] < first) {
+                buckets[i] = null;
+                epochs[i] = NO_EPOCH;
+            }
+        }
+    }
+
+    /**
+     * Computes the epoch of the data being added. Called from
+     * {@link #add(Object)} while holding the write lock, so subclasses can
+     * update their state (e.g. a sample counter) here. Must never go
+     * backwards between calls, unless {@link #reset()} is called.
+     *
+     * @return epoch the data being added belongs to. Must not be negative.
+     */
+    protected abstract long nextEpoch();
+
+    /**
+     * Computes the epoch which is currently being filled, which marks the end
+     * of the window. Called from {@link #evaluate()} while holding the read
+     * lock, so this must not modify any state.
+     *
+     * @return current epoch, or a negative value if no epoch has started yet.
+     */
+    protected abstract long currentEpoch();
+
+    /**
+     * Allows subclasses to reset the state used to compute the epochs when
+     * {@link #reset()} is called. Called while holding the write lock. This
+     * implementation does nothing.
+     */
+    protected void resetEpoch() {
+        // nothing to reset by default
+    }
+
+    /**
+     * Allows subclasses to define the "initial" value. This value will be
+     * stored in a bucket when it starts receiving data for a new epoch and is
+     * also the starting point when merging the buckets in {@link #evaluate()},
+     * so it has to be the identity element of the combine function.
+     *
+     * @return Initial value to be used in each bucket.
+     */
+    protected abstract T initialValue();
+
+    /**
+     * This aggregator doesn't store any data, so the data series size is always
+     * 0 (zero).
+     *
+     * @return 0
+     */
+    @Override
+    protected int retrieveDataSize() {
+        return 0;
+    }
+
+    /**
+     * Getter for {@link #windowBuckets}.
+     *
+     * @return Number of buckets the window is split into.
+     */
+    public final int getWindowBuckets() {
+        return windowBuckets;
+    }
+
+    /**
+     * Getter for {@link #tumbling}.
+     *
+     * @return <code>true</code> if this is a tumbling window,
+     *         <code>false</code> if it is a sliding one.
+     */
+    public final boolean isTumbling() {
+        return tumbling;
+    }
+
+    /**
+     * Getter for {@link #aggregationFunction}. Provided for testing purposes
+     * only.
+     *
+     * @return Current value of {@link #aggregationFunction}
+     */
+    final BinaryFunction<T, T, T> getAggregationFunction() {
+        return aggregationFunction;
+    }
+
+    /**
+     * Getter for {@link #combineFunction}. Provided for testing purposes only.
+     *
+     * @return Current value of {@link #combineFunction}
+     */
+    final BinaryFunction<T, T, T> getCombineFunction() {
+        return combineFunction;
+    }
+
+    /**
+     * Maps an epoch onto its slot in the ring.
+     *
+     * @param epoch
+     *            Epoch to map. Must not be negative.
+     * @return index in {@link #buckets} and {@link #epochs}
+     */
+    private int slot(long epoch) {
+        return (int) (epoch % buckets.length);
+    }
+
+    /**
+     * Retrieves the partial result stored in the given slot.
+     *
+     * @param slot
+     *            Index in {@link #buckets}
+     * @return partial result stored in the slot
+     */
+    @SuppressWarnings("unchecked")
+    private T bucket(int slot) {
+        return (T) buckets[slot];
+    }
+
+    @Override
+    public String toString() {
+        return AbstractWindowAggregator.class.getName();
+    }
+}
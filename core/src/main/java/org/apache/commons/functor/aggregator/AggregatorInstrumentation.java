@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * Receives measurements from the internals of an {@link AbstractTimedAggregator}
+ * -- adds, time spent waiting for its lock, evaluations, timer drift and
+ * listener notifications -- so they can be exported to a monitoring system,
+ * e.g. via JMX using {@link JmxAggregatorInstrumentation}. Instrumentation is
+ * set per aggregator via
+ * {@link AbstractTimedAggregator#setInstrumentation(AggregatorInstrumentation)}
+ * and is disabled by default, in which case the aggregators don't take any
+ * measurement at all.
+ * <p>
+ * The callbacks are made on the threads using the aggregator, some of them
+ * while holding its lock, so implementations must be thread safe and cheap
+ * (typically incrementing a few atomic counters). All durations are in
+ * nanoseconds, as measured by <code>System.nanoTime()</code>.
+ * </p>
+ */
+public interface AggregatorInstrumentation {
+    /**
+     * Called every time data is added to the aggregator.
+     *
+     * @param aggregator
+     *            Aggregator the data was added to.
+     * @param lockWaitNanos
+     *            Time spent waiting to acquire the lock of the aggregator; 0
+     *            for aggregators which add without locking.
+     */
+    void onAdd(AbstractTimedAggregator<?> aggregator, long lockWaitNanos);
+
+    /**
+     * Called every time the aggregator is evaluated via
+     * {@link AbstractTimedAggregator#evaluate()}.
+     *
+     * @param aggregator
+     *            Aggregator evaluated.
+     * @param lockWaitNanos
+     *            Time spent waiting to acquire the lock of the aggregator.
+     * @param durationNanos
+     *            Time spent evaluating, once the lock was acquired.
+     */
+    void onEvaluate(AbstractTimedAggregator<?> aggregator, long lockWaitNanos, long durationNanos);
+
+    /**
+     * Called every time the aggregator is flushed (evaluated and reset, before
+     * its listeners are notified), normally by its scheduler.
+     *
+     * @param aggregator
+     *            Aggregator flushed.
+     * @param driftNanos
+     *            How late (positive) or early (negative) this flush happened
+     *            compared to the interval of the aggregator, measured from the
+     *            previous flush; 0 for the first flush of aggregators without
+     *            timer.
+     * @param durationNanos
+     *            Time spent evaluating and resetting the aggregator.
+     */
+    void onFlush(AbstractTimedAggregator<?> aggregator, long driftNanos, long durationNanos);
+
+    /**
+     * Called every time a listener of the aggregator has been notified of a
+     * flush.
+     *
+     * @param aggregator
+     *            Aggregator flushed.
+     * @param listener
+     *            Listener notified.
+     * @param latencyNanos
+     *            Time between the end of the flush and the moment the listener
+     *            was called, including the time waiting for the listener
+     *            executor and for the previous listeners.
+     * @param durationNanos
+     *            Time spent in the listener.
+     */
+    void onNotify(AbstractTimedAggregator<?> aggregator, TimedAggregatorListener<?> listener, long latencyNanos,
+            long durationNanos);
+}
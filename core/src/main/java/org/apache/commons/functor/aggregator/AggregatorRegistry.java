@@ -0,0 +1,542 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A registry of aggregators, one per key (e.g. per endpoint and status code),
+ * created lazily from a factory the first time data is added for a key. All
+ * the aggregators in the registry are flushed together, in a single timer
+ * tick, rather than each of them having its own timer: the aggregators
+ * created by the factory are expected to have no timer of their own (i.e.
+ * constructed with an interval of {@link AbstractTimedAggregator#NO_TIMER}).
+ * <p>
+ * On each {@link #flush() flush}, every aggregator which received data since
+ * the previous flush is evaluated and reset and its value is sent to the
+ * {@link AggregatorRegistryListener listeners}; the aggregators which didn't
+ * receive any data are skipped. Keys which haven't received any data for a
+ * number of consecutive flushes are considered idle and are evicted from the
+ * registry, so the registry only holds on to the dimensions which are actually
+ * in use. An evicted key is simply created again if data is added for it
+ * later.
+ * </p>
+ * <p>
+ * <b>Synchronization</b>: The aggregators are stored in a
+ * <code>ConcurrentHashMap</code>, so looking up an existing key never blocks.
+ * Creating the aggregator for a new key is synchronized on one of a number of
+ * lock stripes (chosen by the hash of the key), so the factory is only ever
+ * called once per key while keys falling in different stripes can be created
+ * concurrently. Adding data to an aggregator is synchronized with its
+ * eviction, so no data is lost when a key is evicted at the same time data is
+ * added for it: either the key is not evicted or the data goes to a new
+ * aggregator. Flushes are serialized.
+ * </p>
+ * <p>
+ * Note that the listeners can occasionally receive the value of an aggregator
+ * which has just been reset (e.g. zero for a counter) if data was added while
+ * it was being flushed.
+ * </p>
+ *
+ * @param <K>
+ *            Type of the keys. Keys cannot be <code>null</code>.
+ * @param <T>
+ *            Type of object the aggregators are operating on.
+ */
+public class AggregatorRegistry<K, T> {
+    /**
+     * Default number of lock stripes used when creating aggregators.
+     */
+    public static final int                                  DEFAULT_CREATION_STRIPES = 32;
+
+    /**
+     * Default number of consecutive flushes without any data after which a key
+     * is evicted.
+     */
+    public static final int                                  DEFAULT_IDLE_FLUSHES     = 5;
+
+    /**
+     * Value of {@link Entry#writers} once the entry has been evicted.
+     */
+    private static final int                                 EVICTED                  = Integer.MIN_VALUE;
+
+    /**
+     * Factory used to create the aggregator for a new key.
+     */
+    private final Function<? super K, ? extends Aggregator<T>> factory;
+
+    /**
+     * The aggregators, by key.
+     */
+    private final ConcurrentHashMap<K, Entry<T>>             entries                  = new ConcurrentHashMap<K, Entry<T>>();
+
+    /**
+     * Monitors used to synchronize the creation of the aggregators. Always a
+     * power of 2 in length.
+     */
+    private final Object[]                                   creationLocks;
+
+    /**
+     * Number of consecutive flushes without any data after which a key is
+     * evicted. Zero or less disables eviction.
+     */
+    private final int                                        idleFlushes;
+
+    /**
+     * Listeners receiving the values of the aggregators on each flush.
+     */
+    private final List<AggregatorRegistryListener<K, T>>      listeners                = new CopyOnWriteArrayList<AggregatorRegistryListener<K, T>>();
+
+    /**
+     * Interval in miliseconds at which this registry is flushed, or
+     * {@link AbstractTimedAggregator#NO_TIMER} if it is only flushed
+     * explicitly.
+     */
+    private final long                                       interval;
+
+    /**
+     * Executor running the periodic flush, or <code>null</code> if there is no
+     * timer.
+     */
+    private final ScheduledExecutorService                   executor;
+
+    /**
+     * Whether {@link #executor} has been created by this instance.
+     */
+    private final boolean                                    ownsExecutor;
+
+    /**
+     * Result of scheduling the periodic flush, or <code>null</code> if there
+     * is no timer or once {@link #stop()} has been called.
+     */
+    private volatile ScheduledFuture<?>                      task;
+
+    /**
+     * Creates a registry with no timer and the default idle eviction, which
+     * only gets flushed when calling {@link #flush()}.
+     *
+     * @param factory
+     *            Factory creating the aggregator for a new key. Cannot be
+     *            <code>null</code>.
+     */
+    public AggregatorRegistry(Function<? super K, ? extends Aggregator<T>> factory) {
+        this(factory, AbstractTimedAggregator.NO_TIMER, DEFAULT_IDLE_FLUSHES, null);
+    }
+
+    /**
+     * Creates a registry which flushes itself at the given interval on its own
+     * daemon thread.
+     *
+     * @param factory
+     *            Factory creating the aggregator for a new key. Cannot be
+     *            <code>null</code>.
+     * @param interval
+     *            interval in miliseconds to flush this registry
+     * @param idleFlushes
+     *            Number of consecutive flushes without any data after which a
+     *            key is evicted. Zero or less disables eviction.
+     */
+    public AggregatorRegistry(Function<? super K, ? extends Aggregator<T>> factory, long interval,
+            int idleFlushes) {
+        this(factory, interval, idleFlushes, null);
+    }
+
+    /**
+     * Creates a registry which flushes itself at the given interval using the
+     * given executor.
+     *
+     * @param factory
+     *            Factory creating the aggregator for a new key. Cannot be
+     *            <code>null</code>.
+     * @param interval
+     *            interval in miliseconds to flush this registry. If zero or
+     *            less, there is no timer and the registry is only flushed
+     *            when calling {@link #flush()}.
+     * @param idleFlushes
+     *            Number of consecutive flushes without any data after which a
+     *            key is evicted. Zero or less disables eviction.
+     * @param executor
+     *            Executor used to flush this registry. If <code>null</code>
+     *            and there is a timer, a single daemon thread is created for
+     *            this registry, which is shut down by {@link #stop()}.
+     */
+    public AggregatorRegistry(Function<? super K, ? extends Aggregator<T>> factory, long interval,
+            int idleFlushes, ScheduledExecutorService executor) {
+        this.factory = Validate.notNull(factory, "Factory must not be null");
+        this.idleFlushes = idleFlushes;
+        this.creationLocks = new Object[DEFAULT_CREATION_STRIPES];
+        for (int i = 0; i < creationLocks.length; i++) {
+            creationLocks[i] = new Object();
+        }
+        if (interval <= AbstractTimedAggregator.NO_TIMER) {
+            this.interval = AbstractTimedAggregator.NO_TIMER;
+            this.executor = null;
+            this.ownsExecutor = false;
+            this.task = null;
+        } else {
+            this.interval = interval;
+            if (executor == null) {
+                this.executor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+                        AbstractTimedAggregator.TIMER_NAME + hashCode()));
+                this.ownsExecutor = true;
+            } else {
+                this.executor = executor;
+                this.ownsExecutor = false;
+            }
+            this.task = this.executor.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    try {
+                        flush();
+                    } catch (RuntimeException e) {
+                        // report it without cancelling the periodic task
+                        Thread current = Thread.currentThread();
+                        current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                    }
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Adds the data to the aggregator for the given key, creating the
+     * aggregator first if needed.
+     *
+     * @param key
+     *            Key to add the data for. Cannot be <code>null</code>.
+     * @param data
+     *            Data to be added to the aggregator.
+     */
+    public final void add(K key, T data) {
+        Validate.notNull(key, "Key must not be null");
+        for (;;) {
+            Entry<T> entry = entry(key);
+            if (entry.acquire()) {
+                try {
+                    entry.aggregator.add(data);
+                    if (!entry.dirty) {
+                        entry.dirty = true;
+                    }
+                } finally {
+                    entry.release();
+                }
+                return;
+            }
+            // evicted concurrently, the next lookup will create a new one
+        }
+    }
+
+    /**
+     * Evaluates the aggregator for the given key, without resetting it.
+     *
+     * @param key
+     *            Key to evaluate.
+     * @return The value of the aggregator for the given key or
+     *         <code>null</code> if there is no aggregator for the key.
+     */
+    public final T evaluate(K key) {
+        Entry<T> entry = entries.get(key);
+        return entry == null ? null : entry.aggregator.evaluate();
+    }
+
+    /**
+     * Checks whether there is an aggregator for the given key.
+     *
+     * @param key
+     *            Key to check.
+     * @return <code>true</code> if the registry holds an aggregator for the
+     *         key, <code>false</code> otherwise.
+     */
+    public final boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Retrieves the keys this registry currently holds an aggregator for.
+     *
+     * @return an unmodifiable view of the keys.
+     */
+    public final Set<K> keys() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Retrieves the number of keys this registry currently holds an aggregator
+     * for.
+     *
+     * @return number of keys.
+     */
+    public final int size() {
+        return entries.size();
+    }
+
+    /**
+     * Flushes all the keys: each aggregator which received data since the
+     * previous flush is evaluated and reset and the value is sent to all the
+     * {@link #listeners}, while the keys which have been idle for
+     * {@link #idleFlushes} consecutive flushes are evicted. This is called by
+     * the timer (if any) but can also be called directly.
+     */
+    public final synchronized void flush() {
+        for (Map.Entry<K, Entry<T>> mapEntry : entries.entrySet()) {
+            K key = mapEntry.getKey();
+            Entry<T> entry = mapEntry.getValue();
+            if (entry.dirty) {
+                entry.dirty = false;
+                entry.idle = 0;
+                notifyListeners(key, evaluateAndReset(entry.aggregator));
+            } else if (idleFlushes > 0 && ++entry.idle >= idleFlushes && entry.evict()) {
+                entries.remove(key, entry);
+                if (entry.dirty) {
+                    // data was added after the check above but before the
+                    // eviction
+                    notifyListeners(key, evaluateAndReset(entry.aggregator));
+                }
+                if (entry.aggregator instanceof AbstractTimedAggregator<?>) {
+                    ((AbstractTimedAggregator<?>) entry.aggregator).stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a listener which receives the value of each key on every flush.
+     *
+     * @param listener
+     *            Listener to add. Cannot be <code>null</code>.
+     */
+    public final void addListener(AggregatorRegistryListener<K, T> listener) {
+        listeners.add(Validate.notNull(listener, "Listener must not be null"));
+    }
+
+    /**
+     * Removes a listener previously added.
+     *
+     * @param listener
+     *            Listener to remove.
+     * @return <code>true</code> if the listener was previously added,
+     *         <code>false</code> otherwise.
+     */
+    public final boolean removeListener(AggregatorRegistryListener<K, T> listener) {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * Stops the timer (if any), shutting down its thread if it was created by
+     * this instance, and releases all the listeners. The aggregators are kept,
+     * so the registry can still be flushed explicitly.
+     */
+    public final void stop() {
+        ScheduledFuture<?> current = task;
+        task = null;
+        if (current != null) {
+            current.cancel(false);
+            if (ownsExecutor) {
+                executor.shutdown();
+            }
+        }
+        listeners.clear();
+    }
+
+    /**
+     * Getter for {@link #interval}.
+     *
+     * @return Interval in miliseconds at which this registry is flushed.
+     */
+    public final long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Getter for {@link #idleFlushes}.
+     *
+     * @return Number of consecutive flushes without data after which a key is
+     *         evicted.
+     */
+    public final int getIdleFlushes() {
+        return idleFlushes;
+    }
+
+    /**
+     * Checks whether this registry flushes itself regularly.
+     *
+     * @return <code>true</code> if the timer is running, <code>false</code>
+     *         otherwise.
+     */
+    public final boolean isTimerEnabled() {
+        return task != null;
+    }
+
+    /**
+     * Retrieves the aggregator for the given key, creating it if needed.
+     *
+     * @param key
+     *            Key to retrieve the aggregator for.
+     * @return entry holding the aggregator for the key.
+     */
+    private Entry<T> entry(K key) {
+        Entry<T> entry = entries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        synchronized (creationLocks[stripe(key)]) {
+            entry = entries.get(key);
+            if (entry == null) {
+                Aggregator<T> aggregator = Validate.notNull(factory.evaluate(key),
+                        "Factory returned null for key %s", key);
+                entry = new Entry<T>(aggregator);
+                entries.put(key, entry);
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Chooses the creation lock stripe for the given key.
+     *
+     * @param key
+     *            Key to choose the stripe for.
+     * @return index in {@link #creationLocks}
+     */
+    private int stripe(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & (creationLocks.length - 1);
+    }
+
+    /**
+     * Evaluates and resets the given aggregator, atomically if it supports it.
+     *
+     * @param aggregator
+     *            Aggregator to flush.
+     * @return value of the aggregator before the reset
+     */
+    private T evaluateAndReset(Aggregator<T> aggregator) {
+        if (aggregator instanceof AbstractTimedAggregator<?>) {
+            return ((AbstractTimedAggregator<T>) aggregator).evaluateAndReset();
+        }
+        T result = aggregator.evaluate();
+        aggregator.reset();
+        return result;
+    }
+
+    /**
+     * Sends the value for the given key to all the {@link #listeners}.
+     *
+     * @param key
+     *            Key the value is for.
+     * @param evaluation
+     *            Value to send.
+     */
+    private void notifyListeners(K key, T evaluation) {
+        for (AggregatorRegistryListener<K, T> listener : listeners) {
+            listener.onFlush(this, key, evaluation);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return AggregatorRegistry.class.getName();
+    }
+
+    /**
+     * Holds the aggregator for a key together with the state needed to flush
+     * and evict it.
+     *
+     * @param <T>
+     *            Type of object the aggregator is operating on.
+     */
+    private static final class Entry<T> {
+        /**
+         * The aggregator for the key.
+         */
+        private final Aggregator<T>     aggregator;
+
+        /**
+         * Number of threads currently adding data to {@link #aggregator}, or
+         * {@link AggregatorRegistry#EVICTED} once the entry has been evicted.
+         */
+        private final AtomicInteger     writers = new AtomicInteger();
+
+        /**
+         * Whether data has been added since the last flush.
+         */
+        private volatile boolean        dirty;
+
+        /**
+         * Number of consecutive flushes without any data. Only accessed by the
+         * flushing thread.
+         */
+        private int                     idle;
+
+        /**
+         * Creates an entry for the given aggregator.
+         *
+         * @param aggregator
+         *            Aggregator for the key.
+         */
+        Entry(Aggregator<T> aggregator) {
+            this.aggregator = aggregator;
+        }
+
+        /**
+         * Registers a thread adding data, unless the entry has been evicted.
+         *
+         * @return <code>true</code> if data can be added,
+         *         <code>false</code> if the entry has been evicted.
+         */
+        boolean acquire() {
+            for (;;) {
+                int current = writers.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (writers.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Unregisters a thread adding data.
+         */
+        void release() {
+            writers.decrementAndGet();
+        }
+
+        /**
+         * Marks the entry as evicted, unless data is being added.
+         *
+         * @return <code>true</code> if the entry has been evicted.
+         */
+        boolean evict() {
+            return writers.compareAndSet(0, EVICTED);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * Listener to be used with instances of {@link AggregatorRegistry} to receive
+ * the value of each key when the registry is flushed. This is the keyed
+ * counterpart of {@link TimedAggregatorListener}.
+ *
+ * @param <K>
+ *            Type of the keys in the registry.
+ * @param <T>
+ *            Type of object the aggregators in the registry are operating on.
+ */
+public interface AggregatorRegistryListener<K, T> {
+    /**
+     * Received for each key which received data since the previous flush, when
+     * the registry is flushed.
+     *
+     * @param registry
+     *            Registry which has been flushed.
+     * @param key
+     *            Key the evaluation is for.
+     * @param evaluation
+     *            Evaluation result of the data the aggregator for the given key
+     *            has gathered since the previous flush.
+     */
+    void onFlush(AggregatorRegistry<K, T> registry, K key, T evaluation);
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * Schedules the regular flushing of {@link AbstractTimedAggregator timed
+ * aggregators}. Each aggregator registered with a scheduler must be
+ * {@link AbstractTimedAggregator#flush(java.util.concurrent.Executor) flushed}
+ * every {@link AbstractTimedAggregator#getInterval() interval} miliseconds
+ * until it is cancelled or the scheduler is shut down. Implementations are
+ * free to decide on which threads the flushing happens and on which threads
+ * the listeners are notified, however they must be thread safe, as aggregators
+ * register and cancel themselves from any thread.
+ * <p>
+ * Implementations should not prevent aggregators which have not been
+ * {@link AbstractTimedAggregator#stop() stopped} from being garbage collected:
+ * aggregators which are no longer referenced by the application should simply
+ * stop being flushed.
+ * </p>
+ *
+ * @see DefaultAggregatorScheduler
+ * @see AbstractTimedAggregator#AbstractTimedAggregator(long,
+ *      AggregatorScheduler)
+ */
+public interface AggregatorScheduler {
+    /**
+     * Starts flushing the given aggregator regularly, at the interval returned
+     * by {@link AbstractTimedAggregator#getInterval()}.
+     *
+     * @param aggregator
+     *            Aggregator to flush. Cannot be <code>null</code>.
+     */
+    void schedule(AbstractTimedAggregator<?> aggregator);
+
+    /**
+     * Stops flushing the given aggregator.
+     *
+     * @param aggregator
+     *            Aggregator previously passed to
+     *            {@link #schedule(AbstractTimedAggregator)}.
+     * @return <code>true</code> if the aggregator was scheduled with this
+     *         scheduler, <code>false</code> otherwise.
+     */
+    boolean cancel(AbstractTimedAggregator<?> aggregator);
+
+    /**
+     * Stops flushing all the aggregators scheduled and releases all the
+     * resources (e.g. threads) used by this scheduler.
+     */
+    void shutdown();
+}
@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Listener which hands the timer notifications over to another listener on a
+ * dedicated thread, so a listener doing I/O (writing to a file or to a socket)
+ * doesn't stall the thread flushing the aggregators -- and with it every other
+ * aggregator flushed by the same {@link AggregatorScheduler}. The
+ * notifications are queued in a bounded queue; when the delegate listener
+ * can't keep up and the queue is full, the {@link OverflowPolicy overflow
+ * policy} decides whether to drop notifications or to block the flushing
+ * thread until there is room, so memory stays bounded either way.
+ * <p>
+ * Notifications are delivered in the order they were received, one at a time,
+ * so the delegate listener doesn't need to be thread safe even when it is
+ * registered with several aggregators. An exception or error thrown by the
+ * delegate listener is counted and the next notification is delivered. The queue size,
+ * number of dropped notifications and the time notifications spend in the
+ * queue are available for monitoring.
+ * </p>
+ * <p>
+ * The dispatching thread is a daemon thread started on construction; call
+ * {@link #stop()} to release it once the listener is no longer used.
+ * </p>
+ *
+ * @param <T>
+ *            Type of object the <code>Aggregator</code> is operating on.
+ */
+public class AsyncTimedAggregatorListener<T> implements TimedAggregatorListener<T> {
+    /**
+     * What to do with a notification when the queue is full.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Discard the oldest queued notification to make room for the new
+         * one, so the delegate listener always gets the most recent data.
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the new notification.
+         */
+        DROP_NEWEST,
+        /**
+         * Block the thread sending the notification until there is room in
+         * the queue, so no notification is lost but the flushing of the
+         * aggregators is slowed down to the pace of the delegate listener.
+         */
+        BLOCK
+    }
+
+    /**
+     * Default capacity of the queue.
+     */
+    public static final int                      DEFAULT_CAPACITY = 1024;
+
+    /**
+     * How long a thread blocked by {@link OverflowPolicy#BLOCK} waits for room
+     * in the queue before checking whether this listener has been stopped, in
+     * milliseconds.
+     */
+    private static final long                    BLOCK_POLL_MILLIS = 100L;
+
+    /**
+     * A queued notification.
+     *
+     * @param <T>
+     *            Type of object the <code>Aggregator</code> is operating on.
+     */
+    private static final class Notification<T> {
+        /** Aggregator which triggered the notification. */
+        private final AbstractTimedAggregator<T> aggregator;
+        /** Evaluation sent by the aggregator. */
+        private final T                          evaluation;
+        /** Value of <code>System.nanoTime()</code> when queued. */
+        private final long                       queuedAt;
+
+        /**
+         * Creates a new notification.
+         *
+         * @param aggregator
+         *            Aggregator which triggered the notification.
+         * @param evaluation
+         *            Evaluation sent by the aggregator.
+         */
+        Notification(AbstractTimedAggregator<T> aggregator, T evaluation) {
+            this.aggregator = aggregator;
+            this.evaluation = evaluation;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Listener the notifications are delivered to.
+     */
+    private final TimedAggregatorListener<T>     delegate;
+
+    /**
+     * What to do when {@link #queue} is full.
+     */
+    private final OverflowPolicy                 policy;
+
+    /**
+     * Notifications waiting to be delivered.
+     */
+    private final BlockingQueue<Notification<T>> queue;
+
+    /**
+     * Thread delivering the notifications.
+     */
+    private final Thread                         dispatcher;
+
+    /**
+     * Number of notifications received.
+     */
+    private final AtomicLong                     received         = new AtomicLong();
+
+    /**
+     * Number of notifications delivered to {@link #delegate}.
+     */
+    private final AtomicLong                     dispatched       = new AtomicLong();
+
+    /**
+     * Number of notifications dropped because {@link #queue} was full.
+     */
+    private final AtomicLong                     dropped          = new AtomicLong();
+
+    /**
+     * Number of notifications for which {@link #delegate} threw an exception.
+     */
+    private final AtomicLong                     failed           = new AtomicLong();
+
+    /**
+     * Guards {@link #latencySamples}, {@link #totalLatency} and
+     * {@link #maxLatency}, so they are always read consistently.
+     */
+    private final Object                         latencyLock      = new Object();
+
+    /**
+     * Number of notifications whose latency was recorded.
+     */
+    private long                                 latencySamples;
+
+    /**
+     * Sum of the time spent in {@link #queue} by the notifications delivered,
+     * in nanoseconds.
+     */
+    private long                                 totalLatency;
+
+    /**
+     * Longest time spent in {@link #queue} by a notification delivered, in
+     * nanoseconds.
+     */
+    private long                                 maxLatency;
+
+    /**
+     * Set once {@link #stop()} has been called.
+     */
+    private volatile boolean                     stopped;
+
+    /**
+     * Similar to
+     * {@link #AsyncTimedAggregatorListener(TimedAggregatorListener, int, OverflowPolicy)
+     * AsyncTimedAggregatorListener(delegate, DEFAULT_CAPACITY,
+     * OverflowPolicy.DROP_OLDEST)}.
+     *
+     * @param delegate
+     *            Listener the notifications are delivered to.
+     */
+    public AsyncTimedAggregatorListener(TimedAggregatorListener<T> delegate) {
+        this(delegate, DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Creates a listener delivering the notifications to the given listener on
+     * its own thread, which is started straight away.
+     *
+     * @param delegate
+     *            Listener the notifications are delivered to. Cannot be
+     *            <code>null</code>.
+     * @param capacity
+     *            Maximum number of notifications queued. Must be greater than
+     *            zero.
+     * @param policy
+     *            What to do when the queue is full. Cannot be
+     *            <code>null</code>.
+     */
+    public AsyncTimedAggregatorListener(TimedAggregatorListener<T> delegate, int capacity, OverflowPolicy policy) {
+        this.delegate = Validate.notNull(delegate, "Listener must not be null");
+        Validate.isTrue(capacity > 0, "Capacity must be greater than zero: %s", capacity);
+        this.policy = Validate.notNull(policy, "Overflow policy must not be null");
+        this.queue = new ArrayBlockingQueue<Notification<T>>(capacity);
+        this.dispatcher = new DaemonThreadFactory(AsyncTimedAggregatorListener.class.getSimpleName())
+                .newThread(new Runnable() {
+                    public void run() {
+                        dispatch();
+                    }
+                });
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queues the notification for delivery to the delegate listener, applying
+     * the overflow policy if the queue is full. Notifications received after
+     * {@link #stop()} are dropped.
+     *
+     * @param aggregator
+     *            Aggregator which has triggered the time event.
+     * @param evaluation
+     *            Evaluation result of the aggregator.
+     */
+    public void onTimer(AbstractTimedAggregator<T> aggregator, T evaluation) {
+        received.incrementAndGet();
+        Notification<T> notification = new Notification<T>(aggregator, evaluation);
+        if (stopped) {
+            dropped.incrementAndGet();
+            return;
+        }
+        switch (policy) {
+        case DROP_NEWEST:
+            if (!queue.offer(notification)) {
+                dropped.incrementAndGet();
+            }
+            break;
+        case DROP_OLDEST:
+            while (!queue.offer(notification)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            break;
+        default:
+            try {
+                while (!queue.offer(notification, BLOCK_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (stopped) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                dropped.incrementAndGet();
+                Thread.currentThread().interrupt();
+                return;
+            }
+            break;
+        }
+        // stop() may have drained the queue before the notification was
+        // queued, in which case nobody would ever take it
+        if (stopped && queue.remove(notification)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Delivers the queued notifications until {@link #stop()} is called.
+     */
+    private void dispatch() {
+        while (!stopped) {
+            Notification<T> notification;
+            try {
+                notification = queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            long latency = System.nanoTime() - notification.queuedAt;
+            synchronized (latencyLock) {
+                latencySamples++;
+                totalLatency += latency;
+                if (latency > maxLatency) {
+                    maxLatency = latency;
+                }
+            }
+            try {
+                delegate.onTimer(notification.aggregator, notification.evaluation);
+            } catch (Throwable e) {
+                // an error must not kill the dispatching thread either, or
+                // the queue would fill up and block the flushing thread
+                failed.incrementAndGet();
+            }
+            dispatched.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops the dispatching thread. Notifications still queued are dropped,
+     * as are the ones received afterwards.
+     */
+    public void stop() {
+        stopped = true;
+        dispatcher.interrupt();
+        Notification<T> notification = queue.poll();
+        while (notification != null) {
+            dropped.incrementAndGet();
+            notification = queue.poll();
+        }
+    }
+
+    /**
+     * Checks whether {@link #stop()} has been called.
+     *
+     * @return <code>true</code> if this listener has been stopped.
+     */
+    public final boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Getter for {@link #delegate}.
+     *
+     * @return Listener the notifications are delivered to.
+     */
+    public final TimedAggregatorListener<T> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Getter for {@link #policy}.
+     *
+     * @return What to do when the queue is full.
+     */
+    public final OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    /**
+     * Retrieves the number of notifications waiting to be delivered.
+     *
+     * @return Current size of the queue.
+     */
+    public final int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Retrieves the number of notifications received so far.
+     *
+     * @return Number of notifications received.
+     */
+    public final long getReceivedCount() {
+        return received.get();
+    }
+
+    /**
+     * Retrieves the number of notifications delivered to the delegate listener
+     * so far.
+     *
+     * @return Number of notifications delivered, including those for which
+     *         the delegate listener threw an exception.
+     */
+    public final long getDispatchedCount() {
+        return dispatched.get();
+    }
+
+    /**
+     * Retrieves the number of notifications dropped so far, because the queue
+     * was full or this listener was stopped.
+     *
+     * @return Number of notifications dropped.
+     */
+    public final long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Retrieves the number of notifications for which the delegate listener
+     * threw an exception or an error.
+     *
+     * @return Number of failed notifications.
+     */
+    public final long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Computes the mean time the notifications taken off the queue spent in
+     * it, including a notification still being delivered.
+     *
+     * @return Mean dispatch latency in nanoseconds, or 0 if no notification
+     *         has been taken off the queue.
+     */
+    public final long getMeanDispatchLatency() {
+        synchronized (latencyLock) {
+            if (latencySamples == 0L) {
+                return 0L;
+            }
+            return totalLatency / latencySamples;
+        }
+    }
+
+    /**
+     * Retrieves the longest time a delivered notification spent in the queue.
+     *
+     * @return Maximum dispatch latency in nanoseconds.
+     */
+    public final long getMaxDispatchLatency() {
+        synchronized (latencyLock) {
+            return maxLatency;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return AsyncTimedAggregatorListener.class.getName();
+    }
+}
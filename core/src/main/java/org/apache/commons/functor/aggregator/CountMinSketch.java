@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Count-Min sketch: estimates how many times an item has been added using a
+ * fixed number of counters, organised as <code>depth</code> rows of
+ * <code>width</code> counters each. Every item increments one counter per
+ * row and its count is estimated as the minimum of these counters, so the
+ * estimate is never lower than the actual count and exceeds it by at most
+ * <code>e / width</code> times the total count with probability
+ * <code>1 - exp(-depth)</code>. Counters are updated conservatively (only
+ * the counters equal to the minimum are incremented), which further reduces
+ * the over-estimation.
+ * <p>
+ * Used by {@link HeavyHittersAggregator} to bound the count of keys entering
+ * the monitored set. This class is not thread safe.
+ * </p>
+ */
+final class CountMinSketch {
+    /**
+     * Number of rows.
+     */
+    private final int    depth;
+
+    /**
+     * Mask selecting a counter within a row; rows have a power of 2 width.
+     */
+    private final int    mask;
+
+    /**
+     * The counters, row after row.
+     */
+    private final long[] counters;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param depth
+     *            Number of rows. Must be positive.
+     * @param width
+     *            Minimum number of counters per row, rounded up to a power of
+     *            2. Must be positive.
+     */
+    CountMinSketch(int depth, int width) {
+        Validate.isTrue(depth > 0, "Depth must be positive: %s", depth);
+        Validate.isTrue(width > 0 && width <= 1 << 30, "Invalid width: %s", width);
+        this.depth = depth;
+        int actualWidth = Integer.highestOneBit(width);
+        if (actualWidth < width) {
+            actualWidth <<= 1;
+        }
+        this.mask = actualWidth - 1;
+        this.counters = new long[depth * actualWidth];
+    }
+
+    /**
+     * Adds an occurrence of the given item.
+     *
+     * @param item
+     *            Item to add. Cannot be <code>null</code>.
+     * @return The estimated count of the item, this occurrence included.
+     */
+    long add(Object item) {
+        long hash = HyperLogLog.mix(item.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[indexOf(hash, row)]);
+        }
+        long updated = estimate + 1;
+        for (int row = 0; row < depth; row++) {
+            int index = indexOf(hash, row);
+            if (counters[index] < updated) {
+                counters[index] = updated;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Estimates how many times the given item has been added.
+     *
+     * @param item
+     *            Item to look up. Cannot be <code>null</code>.
+     * @return Estimated count of the item, never lower than the actual count.
+     */
+    long estimate(Object item) {
+        long hash = HyperLogLog.mix(item.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[indexOf(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Clears all the counters.
+     */
+    void reset() {
+        Arrays.fill(counters, 0L);
+    }
+
+    /**
+     * Getter for {@link #depth}.
+     *
+     * @return Number of rows.
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Retrieves the number of counters per row.
+     *
+     * @return Number of counters per row.
+     */
+    int getWidth() {
+        return mask + 1;
+    }
+
+    /**
+     * Computes the position of the counter of an item in the given row, by
+     * combining the 2 halves of the hash of the item (double hashing).
+     *
+     * @param hash
+     *            64 bits hash of the item.
+     * @param row
+     *            Row index.
+     * @return Index in {@link #counters}.
+     */
+    private int indexOf(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> Integer.SIZE);
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+
+    @Override
+    public String toString() {
+        return CountMinSketch.class.getName();
+    }
+}
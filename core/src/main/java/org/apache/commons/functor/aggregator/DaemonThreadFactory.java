@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads, for the executors created by the classes in
+ * this package.
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+    /**
+     * Prefix of the thread names.
+     */
+    private final String        name;
+
+    /**
+     * Number of threads created so far.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Creates a factory for threads with the given name prefix.
+     *
+     * @param name
+     *            Prefix of the thread names.
+     */
+    DaemonThreadFactory(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates a daemon thread for the given task.
+     *
+     * @param task
+     *            Task to run.
+     * @return New daemon thread.
+     */
+    public Thread newThread(Runnable task) {
+        Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
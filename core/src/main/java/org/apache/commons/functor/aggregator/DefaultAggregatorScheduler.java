@@ -0,0 +1,410 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Default implementation of {@link AggregatorScheduler}, based on a
+ * <code>ScheduledExecutorService</code> with a bounded number of threads.
+ * <p>
+ * Rather than scheduling one task per aggregator, this class groups the
+ * aggregators by interval and schedules a single periodic task per interval,
+ * which flushes all the aggregators in that <i>batch</i> one after the other.
+ * This keeps the number of scheduled tasks (and threads) independent of the
+ * number of aggregators. As a consequence, an aggregator joining an existing
+ * batch is flushed for the first time at the next tick of that batch, which
+ * can come sooner than one full interval after it was scheduled.
+ * </p>
+ * <p>
+ * Flushing an aggregator (evaluating and resetting it) happens on the
+ * scheduler threads, while the listeners are notified on a separate listener
+ * executor, so a slow {@link TimedAggregatorListener} doesn't delay the
+ * flushing of the other aggregators. By default the listener executor is a
+ * single daemon thread, so the notifications of each aggregator are delivered
+ * in order, with a bounded queue; if the listeners can't keep up and the queue
+ * fills up, the notifications are delivered on the scheduler thread instead,
+ * which slows down the flushing rather than dropping any notification.
+ * Exceptions thrown while flushing an aggregator are passed to the
+ * <code>UncaughtExceptionHandler</code> of the scheduler thread and don't
+ * prevent the aggregator from being flushed at the next tick.
+ * </p>
+ * <p>
+ * The aggregators are only weakly referenced, so an aggregator which is no
+ * longer used by the application is garbage collected even if
+ * {@link AbstractTimedAggregator#stop()} was never called; its batch simply
+ * forgets about it at the next tick. Batches with no aggregators left are
+ * cancelled.
+ * </p>
+ */
+public class DefaultAggregatorScheduler implements AggregatorScheduler {
+    /**
+     * Default number of threads used for flushing the aggregators: the number
+     * of available processors, but no more than 4.
+     */
+    public static final int                         DEFAULT_THREADS        = Math.max(1,
+                                                                               Math.min(4, Runtime.getRuntime()
+                                                                                       .availableProcessors()));
+
+    /**
+     * Default capacity of the queue of notifications waiting to be delivered
+     * to the listeners.
+     */
+    public static final int                         DEFAULT_LISTENER_QUEUE = 1024;
+
+    /**
+     * Executor running the periodic task of each batch.
+     */
+    private final ScheduledExecutorService          executor;
+
+    /**
+     * Executor used to notify the listeners, or <code>null</code> if the
+     * listeners are notified on the scheduler threads.
+     */
+    private final Executor                          listenerExecutor;
+
+    /**
+     * Whether {@link #executor} and {@link #listenerExecutor} have been created
+     * by this instance, in which case {@link #shutdown()} shuts them down.
+     */
+    private final boolean                           ownsExecutors;
+
+    /**
+     * Whether this scheduler shuts itself down when it has no more aggregators
+     * to flush.
+     */
+    private final boolean                           shutdownWhenIdle;
+
+    /**
+     * The batches of aggregators, by interval. Guarded by its own monitor.
+     */
+    private final Map<Long, Batch>                  batches                = new HashMap<Long, Batch>();
+
+    /**
+     * Creates a scheduler with {@link #DEFAULT_THREADS} threads and a separate
+     * listener thread.
+     */
+    public DefaultAggregatorScheduler() {
+        this(AbstractTimedAggregator.TIMER_NAME, DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates a scheduler with the given number of threads and a separate
+     * listener thread. All the threads are daemon threads.
+     *
+     * @param name
+     *            Prefix for the name of the threads, useful when looking at
+     *            thread dumps. Cannot be <code>null</code>.
+     * @param threads
+     *            Number of threads flushing the aggregators. Must be greater
+     *            than zero.
+     */
+    public DefaultAggregatorScheduler(String name, int threads) {
+        this(name, threads, true, false);
+    }
+
+    /**
+     * Creates a scheduler which flushes the aggregators using the given
+     * executor and notifies the listeners using the given listener executor.
+     * The executors are not shut down by {@link #shutdown()}.
+     *
+     * @param executor
+     *            Executor used to flush the aggregators. Cannot be
+     *            <code>null</code>.
+     * @param listenerExecutor
+     *            Executor used to notify the listeners. If <code>null</code>
+     *            the listeners will be notified on the threads of
+     *            <code>executor</code>.
+     */
+    public DefaultAggregatorScheduler(ScheduledExecutorService executor, Executor listenerExecutor) {
+        this.executor = Validate.notNull(executor, "Executor must not be null");
+        this.listenerExecutor = listenerExecutor;
+        this.ownsExecutors = false;
+        this.shutdownWhenIdle = false;
+    }
+
+    /**
+     * Creates a scheduler with its own threads.
+     *
+     * @param name
+     *            Prefix for the name of the threads. Cannot be
+     *            <code>null</code>.
+     * @param threads
+     *            Number of threads flushing the aggregators. Must be greater
+     *            than zero.
+     * @param separateListenerThread
+     *            Whether to notify the listeners on a separate thread or on
+     *            the threads flushing the aggregators.
+     * @param shutdownWhenIdle
+     *            Whether to shut down this scheduler once it has no more
+     *            aggregators to flush. Used by aggregators which own their
+     *            scheduler.
+     */
+    DefaultAggregatorScheduler(String name, int threads, boolean separateListenerThread, boolean shutdownWhenIdle) {
+        Validate.notNull(name, "Name must not be null");
+        Validate.isTrue(threads > 0, "Number of threads must be greater than zero: %s", threads);
+        this.executor = new ScheduledThreadPoolExecutor(threads, new DaemonThreadFactory(name));
+        if (separateListenerThread) {
+            this.listenerExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(DEFAULT_LISTENER_QUEUE), new DaemonThreadFactory(name
+                            + "-listener"), new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.listenerExecutor = null;
+        }
+        this.ownsExecutors = true;
+        this.shutdownWhenIdle = shutdownWhenIdle;
+    }
+
+    /**
+     * Adds the aggregator to the batch for its interval, creating and
+     * scheduling the batch if needed.
+     *
+     * @param aggregator
+     *            Aggregator to flush. Cannot be <code>null</code>.
+     */
+    public void schedule(AbstractTimedAggregator<?> aggregator) {
+        Validate.notNull(aggregator, "Aggregator must not be null");
+        long interval = aggregator.getInterval();
+        Validate.isTrue(interval > 0L, "Aggregator has no interval set");
+        synchronized (batches) {
+            Batch batch = batches.get(interval);
+            if (batch == null) {
+                batch = new Batch(interval);
+                batches.put(interval, batch);
+                batch.future = executor.scheduleAtFixedRate(batch, interval, interval, TimeUnit.MILLISECONDS);
+            }
+            batch.aggregators.put(new AggregatorReference(aggregator), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Removes the aggregator from its batch, cancelling the batch if it has no
+     * other aggregators.
+     *
+     * @param aggregator
+     *            Aggregator previously scheduled.
+     * @return <code>true</code> if the aggregator was scheduled with this
+     *         instance, <code>false</code> otherwise.
+     */
+    public boolean cancel(AbstractTimedAggregator<?> aggregator) {
+        if (aggregator == null) {
+            return false;
+        }
+        synchronized (batches) {
+            Batch batch = batches.get(aggregator.getInterval());
+            if (batch == null || batch.aggregators.remove(new AggregatorReference(aggregator)) == null) {
+                return false;
+            }
+            removeIfEmpty(batch);
+            return true;
+        }
+    }
+
+    /**
+     * Cancels all the batches and, if they were created by this instance,
+     * shuts down the executors.
+     */
+    public void shutdown() {
+        synchronized (batches) {
+            for (Batch batch : batches.values()) {
+                batch.future.cancel(false);
+            }
+            batches.clear();
+        }
+        if (ownsExecutors) {
+            executor.shutdown();
+            if (listenerExecutor instanceof ThreadPoolExecutor) {
+                ((ThreadPoolExecutor) listenerExecutor).shutdown();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of aggregators currently scheduled. Provided for
+     * testing purposes only.
+     *
+     * @return number of aggregators in all the batches
+     */
+    final int getScheduledCount() {
+        synchronized (batches) {
+            int count = 0;
+            for (Batch batch : batches.values()) {
+                count += batch.aggregators.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Retrieves the number of batches (distinct intervals) currently
+     * scheduled. Provided for testing purposes only.
+     *
+     * @return number of batches
+     */
+    final int getBatchCount() {
+        synchronized (batches) {
+            return batches.size();
+        }
+    }
+
+    /**
+     * Checks whether the executors are shut down. Provided for testing
+     * purposes only.
+     *
+     * @return <code>true</code> if the flushing executor is shut down
+     */
+    final boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * Cancels and removes the batch if it has no aggregators left, and shuts
+     * this scheduler down if it has to when idle. Must be called while holding
+     * the monitor of {@link #batches}.
+     *
+     * @param batch
+     *            Batch to check.
+     */
+    private void removeIfEmpty(Batch batch) {
+        if (!batch.aggregators.isEmpty() || batches.get(batch.interval) != batch) {
+            return;
+        }
+        batches.remove(batch.interval);
+        batch.future.cancel(false);
+        if (shutdownWhenIdle && batches.isEmpty() && ownsExecutors) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return DefaultAggregatorScheduler.class.getName();
+    }
+
+    /**
+     * All the aggregators sharing the same interval, flushed by a single
+     * periodic task.
+     */
+    private final class Batch implements Runnable {
+        /**
+         * Interval in miliseconds of all the aggregators in this batch.
+         */
+        private final long                                              interval;
+
+        /**
+         * The aggregators in this batch. Used as a concurrent set.
+         */
+        private final ConcurrentHashMap<AggregatorReference, Boolean>   aggregators = new ConcurrentHashMap<AggregatorReference, Boolean>();
+
+        /**
+         * Result of scheduling this batch. Guarded by the monitor of
+         * {@link DefaultAggregatorScheduler#batches}.
+         */
+        private ScheduledFuture<?>                                      future;
+
+        /**
+         * Creates an empty batch.
+         *
+         * @param interval
+         *            Interval of the aggregators in this batch.
+         */
+        Batch(long interval) {
+            this.interval = interval;
+        }
+
+        /**
+         * Flushes every aggregator in this batch, forgetting the ones which
+         * have been garbage collected.
+         */
+        public void run() {
+            boolean collected = false;
+            for (AggregatorReference reference : aggregators.keySet()) {
+                AbstractTimedAggregator<?> aggregator = reference.get();
+                if (aggregator == null) {
+                    aggregators.remove(reference);
+                    collected = true;
+                    continue;
+                }
+                try {
+                    aggregator.flush(listenerExecutor);
+                } catch (RuntimeException e) {
+                    // report it without cancelling the periodic task
+                    Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                }
+            }
+            if (collected) {
+                synchronized (batches) {
+                    removeIfEmpty(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Weak reference to an aggregator which compares by identity of the
+     * referent, so it can be looked up with a fresh reference to the same
+     * aggregator.
+     */
+    private static final class AggregatorReference extends WeakReference<AbstractTimedAggregator<?>> {
+        /**
+         * Identity hash code of the referent, computed upfront as the referent
+         * can be collected.
+         */
+        private final int hash;
+
+        /**
+         * Creates a reference to the given aggregator.
+         *
+         * @param aggregator
+         *            Referent.
+         */
+        AggregatorReference(AbstractTimedAggregator<?> aggregator) {
+            super(aggregator);
+            this.hash = System.identityHashCode(aggregator);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof AggregatorReference)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((AggregatorReference) obj).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.NullaryFunction;
+
+/**
+ * Implementation of an aggregator which stores the data series off-heap, in
+ * segments allocated as direct <code>ByteBuffer</code>s. This is meant for
+ * aggregators holding millions of values between resets: unlike
+ * {@link DoubleArrayBackedAggregator} the values don't take up any heap space,
+ * so they neither inflate the heap nor lengthen the garbage collection pauses,
+ * and growing the series never copies the values already stored. The
+ * aggregation function sees the values through the same
+ * {@link DoubleSeries} view as with the other <code>double</code> aggregators.
+ * <p>
+ * Resetting the aggregator doesn't release the segments, they are reused for
+ * the next interval: after the first few intervals no further memory is
+ * allocated. The memory is released when the aggregator is garbage collected.
+ * </p>
+ */
+public class DirectDoubleBackedAggregator extends AbstractDoubleSeriesAggregator {
+    /** Number of values per segment used when none is specified (64KB). */
+    public static final int                           DEFAULT_SEGMENT_SIZE = 8192;
+
+    /**
+     * Number of values per segment.
+     */
+    private final int                                 segmentSize;
+
+    /**
+     * Stores the data series.
+     */
+    private DirectDoubleSeries                        series;
+
+    /**
+     * Spare series used by {@link #doDetach()} to swap with {@link #series},
+     * or <code>null</code> if not available.
+     *
+     * @see DoubleArrayBackedAggregator#doDetach()
+     */
+    private final AtomicReference<DirectDoubleSeries> spare                = new AtomicReference<DirectDoubleSeries>();
+
+    /**
+     * Similar to {@link #DirectDoubleBackedAggregator(Function, long)
+     * DirectDoubleBackedAggregator(aggregationFunction, 0L)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     */
+    public DirectDoubleBackedAggregator(Function<DoubleSeries, Double> aggregationFunction) {
+        this(aggregationFunction, 0L);
+    }
+
+    /**
+     * Similar to
+     * {@link #DirectDoubleBackedAggregator(Function, long, boolean)
+     * DirectDoubleBackedAggregator(aggregationFunction,interval,false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public DirectDoubleBackedAggregator(Function<DoubleSeries, Double> aggregationFunction, long interval) {
+        this(aggregationFunction, interval, false);
+    }
+
+    /**
+     * Similar to
+     * {@link #DirectDoubleBackedAggregator(Function, int, long, boolean)
+     * DirectDoubleBackedAggregator(aggregationFunction,DEFAULT_SEGMENT_SIZE,interval,useSharedTimer)}
+     * .
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it shares a timer across instances as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long,boolean)}
+     *            , otherwise this instance will use its private timer
+     */
+    public DirectDoubleBackedAggregator(Function<DoubleSeries, Double> aggregationFunction, long interval,
+            boolean useSharedTimer) {
+        this(aggregationFunction, DEFAULT_SEGMENT_SIZE, interval, useSharedTimer);
+    }
+
+    /**
+     * Initializes an aggregator with the given function, segment size and
+     * interval and decides whether to use the shared timer or own timer.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param segmentSize
+     *            Number of values per segment. Must be a power of 2.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it shares a timer across instances as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long,boolean)}
+     *            , otherwise this instance will use its private timer
+     */
+    public DirectDoubleBackedAggregator(Function<DoubleSeries, Double> aggregationFunction, int segmentSize,
+            long interval, boolean useSharedTimer) {
+        super(aggregationFunction, interval, useSharedTimer);
+        this.series = new DirectDoubleSeries(segmentSize);
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Appends the value to the series, allocating a new segment if needed.
+     *
+     * @param data
+     *            Data to be added to the data series.
+     */
+    @Override
+    protected final void doAdd(double data) {
+        series.add(data);
+    }
+
+    /**
+     * Returns a view over the values currently stored.
+     *
+     * @return View of the data series.
+     */
+    @Override
+    protected final DoubleSeries getSeries() {
+        return series;
+    }
+
+    /**
+     * Resets the data series to the empty state. The segments are kept so they
+     * can be reused.
+     */
+    @Override
+    protected final void doReset() {
+        series.clear();
+    }
+
+    /**
+     * Detaches the data series by swapping it with a spare one, in constant
+     * time. Once the detached series has been evaluated, it is cleared and
+     * becomes the spare one for the next swap, so its segments are reused.
+     *
+     * @return function which evaluates the detached data series
+     * @see AbstractTimedAggregator#evaluateAndReset()
+     */
+    @Override
+    protected final NullaryFunction<Double> doDetach() {
+        final DirectDoubleSeries detached = series;
+        DirectDoubleSeries fresh = spare.getAndSet(null);
+        if (fresh == null) {
+            fresh = new DirectDoubleSeries(segmentSize);
+        }
+        series = fresh;
+        return new NullaryFunction<Double>() {
+            public Double evaluate() {
+                try {
+                    return getAggregationFunction().evaluate(detached);
+                } finally {
+                    detached.clear();
+                    spare.set(detached);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the number of values stored.
+     *
+     * @return Number of values in the data series.
+     */
+    @Override
+    protected final int retrieveDataSize() {
+        return series.size();
+    }
+
+    /**
+     * Getter for {@link #segmentSize}.
+     *
+     * @return Number of values per segment.
+     */
+    public final int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Getter for {@link #series}. Provided for testing purposes only.
+     *
+     * @return The series currently storing the data.
+     */
+    final DirectDoubleSeries getDirectSeries() {
+        return series;
+    }
+
+    @Override
+    public String toString() {
+        return DirectDoubleBackedAggregator.class.getName();
+    }
+}
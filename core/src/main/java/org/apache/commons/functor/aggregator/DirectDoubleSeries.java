@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Growable {@link DoubleSeries} storing its values outside of the Java heap, in
+ * fixed-size segments allocated as direct <code>ByteBuffer</code>s (in the
+ * native byte order). Growing the series allocates a new segment rather than
+ * copying the existing values, and {@link #clear()} keeps the segments
+ * allocated so they are reused for the next values; the series only ever
+ * allocates as many segments as needed by its largest size.
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @see DirectDoubleBackedAggregator
+ */
+final class DirectDoubleSeries implements DoubleSeries {
+    /** Number of bytes per value. */
+    private static final int         BYTES_PER_VALUE = Double.SIZE / Byte.SIZE;
+
+    /**
+     * Segments allocated so far; only the first {@link #size} values are part
+     * of the series.
+     */
+    private final List<DoubleBuffer> segments        = new ArrayList<DoubleBuffer>();
+
+    /**
+     * Number of bits to shift an index by to get its segment.
+     */
+    private final int                segmentShift;
+
+    /**
+     * Mask to apply to an index to get its position within its segment.
+     */
+    private final int                segmentMask;
+
+    /**
+     * Number of values in the series.
+     */
+    private int                      size;
+
+    /**
+     * Creates an empty series. No memory is allocated until the first value is
+     * added.
+     *
+     * @param segmentSize
+     *            Number of values per segment. Must be a power of 2.
+     */
+    DirectDoubleSeries(int segmentSize) {
+        Validate.isTrue(segmentSize > 0 && Integer.bitCount(segmentSize) == 1,
+                "Segment size must be a power of 2: %s", segmentSize);
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+        this.segmentMask = segmentSize - 1;
+    }
+
+    /**
+     * Appends a value, allocating a new segment if all the segments are full.
+     *
+     * @param value
+     *            Value to append.
+     */
+    void add(double value) {
+        int segment = size >>> segmentShift;
+        if (segment == segments.size()) {
+            segments.add(ByteBuffer.allocateDirect((segmentMask + 1) * BYTES_PER_VALUE)
+                    .order(ByteOrder.nativeOrder()).asDoubleBuffer());
+        }
+        segments.get(segment).put(size & segmentMask, value);
+        size++;
+    }
+
+    /**
+     * Empties the series, keeping the segments so they can be reused.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return segments.get(index >>> segmentShift).get(index & segmentMask);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void copyTo(double[] dest) {
+        int copied = 0;
+        for (int i = 0; copied < size; i++) {
+            DoubleBuffer segment = segments.get(i).duplicate();
+            int length = Math.min(size - copied, segmentMask + 1);
+            segment.position(0);
+            segment.get(dest, copied, length);
+            copied += length;
+        }
+    }
+
+    /**
+     * Retrieves the number of segments allocated.
+     *
+     * @return Number of segments allocated.
+     */
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Retrieves the number of values per segment.
+     *
+     * @return Number of values per segment.
+     */
+    int getSegmentSize() {
+        return segmentMask + 1;
+    }
+
+    @Override
+    public String toString() {
+        return DirectDoubleSeries.class.getName();
+    }
+}
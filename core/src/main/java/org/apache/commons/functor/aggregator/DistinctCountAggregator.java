@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.locks.Lock;
+
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Aggregator estimating the number of distinct items added since the last
+ * reset -- e.g. unique user ids per minute -- using a {@link HyperLogLog}
+ * sketch, so the memory used is fixed by the precision of the sketch rather
+ * than by the number of distinct items, and {@link #evaluate()} takes constant
+ * time.
+ * <p>
+ * The aggregated type is <code>Long</code>: {@link #add(Object)} and
+ * {@link #add(long)} take numeric identifiers and {@link #evaluate()} returns
+ * the estimated count. Items of any other type can be added via
+ * {@link #addItem(Object)}, or via {@link #addHash(long)} given a 64 bits
+ * hash.
+ * </p>
+ * <p>
+ * <b>Synchronization</b>: adding an item doesn't acquire any lock, it only
+ * updates a register of the current sketch with a compare-and-set. On reset
+ * the current sketch is swapped for an empty one; as adding an item is
+ * idempotent, an item added while the sketch is being swapped is added to
+ * the new sketch as well, so it is never lost (though it might be counted in
+ * both intervals). Sketches of different intervals or different aggregators
+ * can be combined via {@link #snapshot()} and {@link #merge(HyperLogLog)}.
+ * </p>
+ */
+public class DistinctCountAggregator extends AbstractTimedAggregator<Long> implements LongAggregator {
+    /**
+     * Precision of the sketches created by this aggregator.
+     */
+    private final int            precision;
+
+    /**
+     * Sketch of the items added since the last reset.
+     */
+    private volatile HyperLogLog sketch;
+
+    /**
+     * Similar to {@link #DistinctCountAggregator(int)
+     * DistinctCountAggregator(HyperLogLog.DEFAULT_PRECISION)}.
+     */
+    public DistinctCountAggregator() {
+        this(HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Similar to {@link #DistinctCountAggregator(int, long)
+     * DistinctCountAggregator(precision, 0L)}.
+     *
+     * @param precision
+     *            Precision of the sketch, as per
+     *            {@link HyperLogLog#HyperLogLog(int)}
+     */
+    public DistinctCountAggregator(int precision) {
+        this(precision, 0L);
+    }
+
+    /**
+     * Similar to {@link #DistinctCountAggregator(int, long, boolean)
+     * DistinctCountAggregator(precision, interval, false)}.
+     *
+     * @param precision
+     *            Precision of the sketch, as per
+     *            {@link HyperLogLog#HyperLogLog(int)}
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public DistinctCountAggregator(int precision, long interval) {
+        this(precision, interval, false);
+    }
+
+    /**
+     * Constructs an aggregator which will estimate the number of distinct
+     * items using a sketch with the given precision, reset itself at the given
+     * interval and will use a shared timer on own private timer.
+     *
+     * @param precision
+     *            Precision of the sketch, as per
+     *            {@link HyperLogLog#HyperLogLog(int)}
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public DistinctCountAggregator(int precision, long interval, boolean useSharedTimer) {
+        super(interval, useSharedTimer, true);
+        this.sketch = new HyperLogLog(precision);
+        this.precision = precision;
+    }
+
+    /**
+     * Adds a numeric identifier, without locking.
+     *
+     * @param data
+     *            Identifier to be added to the aggregator.
+     */
+    public final void add(long data) {
+        addHash(HyperLogLog.mix(data));
+    }
+
+    /**
+     * Adds a numeric identifier, without locking.
+     *
+     * @param data
+     *            Identifier to be added. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     */
+    @Override
+    protected final void doAdd(Long data) {
+        doAddHash(HyperLogLog.mix(data.longValue()));
+    }
+
+    /**
+     * Adds an item of any type, hashing its <code>hashCode()</code>, without
+     * locking.
+     *
+     * @param item
+     *            Item to be added to the aggregator. Cannot be
+     *            <code>null</code>.
+     * @see HyperLogLog#add(Object)
+     */
+    public final void addItem(Object item) {
+        Validate.notNull(item, "Item must not be null");
+        addHash(HyperLogLog.mix(item.hashCode()));
+    }
+
+    /**
+     * Adds an item given its 64 bits hash, without locking.
+     *
+     * @param hash
+     *            Hash of the item to be added to the aggregator.
+     * @see HyperLogLog#addHash(long)
+     */
+    public final void addHash(long hash) {
+        doAddHash(hash);
+        recordLockFreeAdd();
+    }
+
+    /**
+     * Adds a hash to the current sketch and, if the sketch has been swapped in
+     * the meantime, to the new one as well.
+     *
+     * @param hash
+     *            Hash of the item to be added to the aggregator.
+     */
+    private void doAddHash(long hash) {
+        HyperLogLog current = sketch;
+        current.addHash(hash);
+        if (current != sketch) {
+            sketch.addHash(hash);
+        }
+    }
+
+    /**
+     * Estimates the number of distinct items added since the last reset.
+     *
+     * @return Estimated number of distinct items.
+     */
+    @Override
+    protected final Long doEvaluate() {
+        return Long.valueOf(sketch.estimate());
+    }
+
+    /**
+     * Replaces the sketch with an empty one.
+     */
+    @Override
+    protected final void doReset() {
+        sketch = new HyperLogLog(precision);
+    }
+
+    /**
+     * Swaps the sketch with an empty one and estimates the detached sketch
+     * outside the lock.
+     *
+     * @return function which evaluates the detached sketch
+     * @see AbstractTimedAggregator#evaluateAndReset()
+     */
+    @Override
+    protected final NullaryFunction<Long> doDetach() {
+        final HyperLogLog detached = sketch;
+        sketch = new HyperLogLog(precision);
+        return new NullaryFunction<Long>() {
+            public Long evaluate() {
+                return Long.valueOf(detached.estimate());
+            }
+        };
+    }
+
+    /**
+     * Retrieves a copy of the sketch of the items added since the last reset,
+     * e.g. to merge it into the sketch of another aggregator or of a longer
+     * interval.
+     *
+     * @return Independent copy of the current sketch.
+     */
+    public final HyperLogLog snapshot() {
+        Lock lock = getDataLock().readLock();
+        lock.lock();
+        try {
+            return sketch.copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Atomically retrieves the sketch of the items added since the last reset
+     * and replaces it with an empty one.
+     *
+     * @return The sketch of the items added since the last reset.
+     */
+    public final HyperLogLog snapshotAndReset() {
+        Lock lock = getDataLock().writeLock();
+        lock.lock();
+        try {
+            HyperLogLog detached = sketch;
+            sketch = new HyperLogLog(precision);
+            return detached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Merges the given sketch (e.g. a {@link #snapshot()} of another
+     * aggregator) into the sketch of this aggregator.
+     *
+     * @param other
+     *            Sketch to merge. Cannot be <code>null</code> and must have
+     *            the same precision as the sketches of this aggregator.
+     */
+    public final void merge(HyperLogLog other) {
+        Validate.notNull(other, "Sketch must not be null");
+        Lock lock = getDataLock().readLock();
+        lock.lock();
+        try {
+            sketch.merge(other);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This aggregator doesn't store the data series, so the data series size is
+     * always 0 (zero).
+     *
+     * @return 0
+     */
+    @Override
+    protected final int retrieveDataSize() {
+        return 0;
+    }
+
+    /**
+     * Getter for {@link #precision}.
+     *
+     * @return Precision of the sketches used by this aggregator.
+     */
+    public final int getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public String toString() {
+        return DistinctCountAggregator.class.getName();
+    }
+}
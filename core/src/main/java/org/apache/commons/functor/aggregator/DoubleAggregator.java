@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * An {@link Aggregator} operating on <code>double</code> values which also
+ * allows the data to be added as primitives, so no boxing is required for each
+ * piece of data added.
+ */
+public interface DoubleAggregator extends Aggregator<Double> {
+    /**
+     * Adds data to the series which will be aggregated. This is the primitive
+     * counterpart of {@link #add(Object)}.
+     *
+     * @param data
+     *            Data to be added to the series which this aggregator will
+     *            process/aggregate.
+     */
+    void add(double data);
+}
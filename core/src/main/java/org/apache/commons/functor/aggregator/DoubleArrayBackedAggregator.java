@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Implementation of an aggregator which stores the data series in a growable
+ * array of primitive <code>double</code> values. This is the primitive
+ * counterpart of {@link ArrayListBackedAggregator}: it doesn't box any of the
+ * values added and stores them contiguously in memory. Resetting the
+ * aggregator doesn't release the array, so after the first few intervals the
+ * array will have grown enough to not require any further reallocation. A
+ * burst of values does not grow the aggregator for good though: an array much
+ * larger than the interval it was detached from needed is not reused, so the
+ * next interval starts again from the initial capacity.
+ */
+public class DoubleArrayBackedAggregator extends AbstractDoubleSeriesAggregator {
+    /** Initial capacity of the array used when none is specified. */
+    public static final int              DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * A detached array is only kept as the {@link #spare} one if its length
+     * is at most this many times the initial capacity or the number of values
+     * it held, whichever is larger.
+     */
+    private static final int             MAX_SPARE_SLACK = 4;
+
+    /**
+     * Initial capacity of the array storing the data series.
+     */
+    private final int                    initialCapacity;
+
+    /**
+     * Stores the data series. Only the first {@link #size} elements are part
+     * of the series.
+     */
+    private double[]                     series;
+
+    /**
+     * Number of values stored in {@link #series}.
+     */
+    private int                          size;
+
+    /**
+     * Spare array used by {@link #doDetach()} to swap with {@link #series}, or
+     * <code>null</code> if not available.
+     *
+     * @see AbstractListBackedAggregator#doDetach()
+     */
+    private final AtomicReference<double[]> spare = new AtomicReference<double[]>();
+
+    /**
+     * Similar to {@link #DoubleArrayBackedAggregator(Function, long)
+     * DoubleArrayBackedAggregator(aggregationFunction, 0L)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     */
+    public DoubleArrayBackedAggregator(Function<DoubleSeries, Double> aggregationFunction) {
+        this(aggregationFunction, 0L);
+    }
+
+    /**
+     * Similar to
+     * {@link #DoubleArrayBackedAggregator(Function, long, boolean)
+     * DoubleArrayBackedAggregator(aggregationFunction,interval,false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public DoubleArrayBackedAggregator(Function<DoubleSeries, Double> aggregationFunction, long interval) {
+        this(aggregationFunction, interval, false);
+    }
+
+    /**
+     * Similar to
+     * {@link #DoubleArrayBackedAggregator(Function, int, long, boolean)
+     * DoubleArrayBackedAggregator(aggregationFunction,DEFAULT_INITIAL_CAPACITY,interval,useSharedTimer)}
+     * .
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it shares a timer across instances as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long,boolean)}
+     *            , otherwise this instance will use its private timer
+     */
+    public DoubleArrayBackedAggregator(Function<DoubleSeries, Double> aggregationFunction, long interval,
+            boolean useSharedTimer) {
+        this(aggregationFunction, DEFAULT_INITIAL_CAPACITY, interval, useSharedTimer);
+    }
+
+    /**
+     * Initializes an aggregator with the given function, initial capacity and
+     * interval and decides whether to use the shared timer or own timer.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param initialCapacity
+     *            Initial capacity of the array storing the data series. Must
+     *            be greater than zero.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it shares a timer across instances as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long,boolean)}
+     *            , otherwise this instance will use its private timer
+     */
+    public DoubleArrayBackedAggregator(Function<DoubleSeries, Double> aggregationFunction, int initialCapacity,
+            long interval, boolean useSharedTimer) {
+        super(aggregationFunction, interval, useSharedTimer);
+        Validate.isTrue(initialCapacity > 0, "Initial capacity must be greater than zero: %s", initialCapacity);
+        this.initialCapacity = initialCapacity;
+        this.series = new double[initialCapacity];
+    }
+
+    /**
+     * Appends the value to the end of the array, doubling the size of the
+     * array if it is full.
+     *
+     * @param data
+     *            Data to be added to the data series.
+     */
+    @Override
+    protected final void doAdd(double data) {
+        if (size == series.length) {
+            double[] grown = new double[series.length << 1];
+            System.arraycopy(series, 0, grown, 0, size);
+            series = grown;
+        }
+        series[size++] = data;
+    }
+
+    /**
+     * Returns a view over the values currently stored.
+     *
+     * @return View of the data series.
+     */
+    @Override
+    protected final DoubleSeries getSeries() {
+        return new DoubleArraySeries(series, size);
+    }
+
+    /**
+     * Resets the data series to the empty state. The array is kept so it can be
+     * reused.
+     */
+    @Override
+    protected final void doReset() {
+        size = 0;
+    }
+
+    /**
+     * Detaches the data series by swapping the array with a spare one, in
+     * constant time. Once the detached series has been evaluated, its array
+     * becomes the spare one for the next swap, unless it grew much larger than
+     * the series needed.
+     *
+     * @return function which evaluates the detached data series
+     * @see AbstractTimedAggregator#evaluateAndReset()
+     */
+    @Override
+    protected final NullaryFunction<Double> doDetach() {
+        final double[] detached = series;
+        final int detachedSize = size;
+        double[] fresh = spare.getAndSet(null);
+        if (fresh == null) {
+            fresh = new double[initialCapacity];
+        }
+        series = fresh;
+        size = 0;
+        return new NullaryFunction<Double>() {
+            public Double evaluate() {
+                try {
+                    return getAggregationFunction().evaluate(new DoubleArraySeries(detached, detachedSize));
+                } finally {
+                    if (detached.length <= (long) MAX_SPARE_SLACK * Math.max(initialCapacity, detachedSize)) {
+                        spare.set(detached);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the number of values stored.
+     *
+     * @return Number of values in the data series.
+     */
+    @Override
+    protected final int retrieveDataSize() {
+        return size;
+    }
+
+    /**
+     * Retrieves the length of the array currently storing the data series.
+     *
+     * @return Capacity of the data series before it has to grow.
+     */
+    final int getCapacity() {
+        return series.length;
+    }
+
+    /**
+     * Getter for {@link #initialCapacity}.
+     *
+     * @return Initial capacity of the array storing the data series.
+     */
+    public final int getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleArrayBackedAggregator.class.getName();
+    }
+}
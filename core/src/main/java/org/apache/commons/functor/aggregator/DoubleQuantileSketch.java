@@ -0,0 +1,527 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Bounded-memory sketch of a stream of <code>double</code> values which can
+ * answer approximate <a
+ * href="http://en.wikipedia.org/wiki/Percentile">percentile</a> queries. This
+ * is an implementation of the KLL sketch (Karnin, Lang, Liberty: "Optimal
+ * Quantile Approximation in Streams"): values are stored in a hierarchy of
+ * "compactors", where each item stored on level <code>h</code> stands for
+ * <code>2^h</code> values of the original stream. When the sketch grows above
+ * its capacity, the lowest full level is sorted and every other item of it is
+ * promoted to the level above, halving the number of items stored while
+ * preserving the total weight.
+ * <p>
+ * The accuracy of the sketch is controlled by the parameter <code>k</code>:
+ * the memory used is roughly <code>3k</code> values (plus a few values per
+ * level), regardless of how many values were added, while the error in the
+ * rank of the value returned for a percentile is about
+ * <code>1.7 / k</code> of the total count with high probability (e.g. around
+ * 1% for the {@link #DEFAULT_K default} of 200). As long as no compaction took
+ * place (i.e. fewer than roughly <code>k</code> values were added) the results
+ * are exact and identical to the ones of
+ * {@link org.apache.commons.functor.aggregator.functions.DoublePercentileAggregatorFunction}
+ * . The minimum and maximum values are always tracked exactly.
+ * </p>
+ * <p>
+ * Sketches can be {@link #merge(DoubleQuantileSketch) merged}: the result is a
+ * sketch of the union of the 2 streams, with the same accuracy guarantees.
+ * </p>
+ * <p>
+ * <b>Thread safety</b> : This class is not thread safe -- see
+ * {@link QuantileSketchAggregator} for a synchronized aggregator based on it.
+ * </p>
+ */
+public final class DoubleQuantileSketch {
+    /** Default value for the accuracy parameter <code>k</code>. */
+    public static final int     DEFAULT_K      = 200;
+
+    /** Minimum value accepted for the accuracy parameter <code>k</code>. */
+    public static final int     MIN_K          = 8;
+
+    /** A percentile goes from 0 to 100% and that's it. */
+    private static final double MAX_PERCENTAGE = 100.0;
+
+    /** Factor by which the capacity shrinks from one level to the one below. */
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    /**
+     * Minimum capacity of a level, regardless of how far it is from the top
+     * level.
+     */
+    private static final int    MIN_CAPACITY   = 8;
+
+    /**
+     * Accuracy parameter: capacity of the top level.
+     */
+    private final int           k;
+
+    /**
+     * Random generator used to decide which half of a level gets promoted on
+     * compaction.
+     */
+    private final Random        random;
+
+    /**
+     * Items stored on each level. Only the first <code>sizes[h]</code> items of
+     * <code>levels[h]</code> are valid.
+     */
+    private double[][]          levels;
+
+    /**
+     * Number of items stored on each level.
+     */
+    private int[]               sizes;
+
+    /**
+     * Number of levels currently in use.
+     */
+    private int                 levelCount;
+
+    /**
+     * Total number of values added to this sketch (including merged
+     * sketches).
+     */
+    private long                count;
+
+    /** Smallest value added to this sketch. */
+    private double              min;
+
+    /** Largest value added to this sketch. */
+    private double              max;
+
+    /**
+     * Creates an empty sketch using the {@link #DEFAULT_K default accuracy}.
+     */
+    public DoubleQuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Creates an empty sketch with the given accuracy.
+     *
+     * @param k
+     *            Accuracy parameter: the higher, the more accurate the sketch
+     *            is and the more memory it uses. Must be at least
+     *            {@link #MIN_K}.
+     */
+    public DoubleQuantileSketch(int k) {
+        Validate.isTrue(k >= MIN_K, "k must be at least " + MIN_K + ": %s", k);
+        this.k = k;
+        this.random = new Random();
+        this.levels = new double[1][];
+        this.levels[0] = new double[k];
+        this.sizes = new int[1];
+        this.levelCount = 1;
+        this.min = Double.NaN;
+        this.max = Double.NaN;
+    }
+
+    /**
+     * Adds a value to this sketch.
+     *
+     * @param value
+     *            Value to add. <code>NaN</code> values are ignored.
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else if (value < min) {
+            min = value;
+        } else if (value > max) {
+            max = value;
+        }
+        count++;
+        append(0, value);
+        compress();
+    }
+
+    /**
+     * Merges the given sketch into this one. After this call, this sketch
+     * represents the union of the values added to both sketches. The other
+     * sketch is not modified.
+     *
+     * @param other
+     *            Sketch to merge into this one. Cannot be <code>null</code>.
+     */
+    public void merge(DoubleQuantileSketch other) {
+        Validate.notNull(other, "Sketch to merge must not be null");
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        while (levelCount < other.levelCount) {
+            addLevel();
+        }
+        for (int h = 0; h < other.levelCount; h++) {
+            double[] items = other.levels[h];
+            for (int i = 0, n = other.sizes[h]; i < n; i++) {
+                append(h, items[i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * Retrieves the (approximate) value for the given percentile. This uses the
+     * same definition of the rank as
+     * {@link org.apache.commons.functor.aggregator.functions.DoublePercentileAggregatorFunction}
+     * : the value returned is the one at index
+     * <code>floor((percentile / 100) * (N - 1))</code> in the sorted stream.
+     *
+     * @param percentile
+     *            Percentile to retrieve the value for: 0 &lt;= percentile
+     *            &lt;= 100
+     * @return Value for the given percentile or <code>NaN</code> if the sketch
+     *         is empty.
+     */
+    public double getPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > MAX_PERCENTAGE) {
+            throw new IllegalArgumentException("Invalid value for percentile: " + percentile);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor((percentile * (count - 1)) / MAX_PERCENTAGE);
+        if (rank == 0) {
+            return min;
+        }
+        if (rank == count - 1) {
+            return max;
+        }
+        // sort each level then walk them in order, as in a k-way merge
+        double[][] sorted = new double[levelCount][];
+        int[] positions = new int[levelCount];
+        for (int h = 0; h < levelCount; h++) {
+            sorted[h] = new double[sizes[h]];
+            System.arraycopy(levels[h], 0, sorted[h], 0, sizes[h]);
+            Arrays.sort(sorted[h]);
+        }
+        long weight = 0;
+        double value = max;
+        for (;;) {
+            int next = -1;
+            for (int h = 0; h < levelCount; h++) {
+                if (positions[h] < sorted[h].length
+                        && (next < 0 || sorted[h][positions[h]] < sorted[next][positions[next]])) {
+                    next = h;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            value = sorted[next][positions[next]++];
+            weight += 1L << next;
+            if (weight > rank) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Empties this sketch, so it can be reused. The memory allocated for the
+     * levels is retained.
+     */
+    public void reset() {
+        Arrays.fill(sizes, 0);
+        levelCount = 1;
+        count = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+
+    /**
+     * Creates a copy of this sketch. Further changes to either sketch are not
+     * reflected in the other one.
+     *
+     * @return Independent copy of this sketch.
+     */
+    public DoubleQuantileSketch copy() {
+        DoubleQuantileSketch copy = new DoubleQuantileSketch(k);
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * Getter for {@link #k}.
+     *
+     * @return Accuracy parameter of this sketch.
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Getter for {@link #count}.
+     *
+     * @return Number of values added to this sketch.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Getter for {@link #min}.
+     *
+     * @return Smallest value added to this sketch or <code>NaN</code> if the
+     *         sketch is empty.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Getter for {@link #max}.
+     *
+     * @return Largest value added to this sketch or <code>NaN</code> if the
+     *         sketch is empty.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Retrieves the number of values currently stored by this sketch. This is
+     * bounded by (roughly) <code>3k</code> plus a few items per level,
+     * regardless of {@link #getCount()}.
+     *
+     * @return Number of items stored across all levels.
+     */
+    public int getRetainedItems() {
+        int total = 0;
+        for (int h = 0; h < levelCount; h++) {
+            total += sizes[h];
+        }
+        return total;
+    }
+
+    /**
+     * Retrieves the approximate error in the rank of the values returned by
+     * {@link #getPercentile(double)}, as a fraction of {@link #getCount()}.
+     *
+     * @return Normalized rank error for the accuracy of this sketch.
+     */
+    public double getNormalizedRankError() {
+        return 1.7 / k;
+    }
+
+    /**
+     * Retrieves the number of levels in use. Provided for serialization
+     * purposes only.
+     *
+     * @return Number of levels.
+     * @see SnapshotCodecs#DOUBLE_QUANTILE_SKETCH
+     */
+    int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * Retrieves the number of items stored in the given level. Provided for
+     * serialization purposes only.
+     *
+     * @param level
+     *            Level to retrieve the size of.
+     * @return Number of items in the level.
+     */
+    int getLevelSize(int level) {
+        return sizes[level];
+    }
+
+    /**
+     * Retrieves an item stored in the given level. Provided for serialization
+     * purposes only.
+     *
+     * @param level
+     *            Level to retrieve the item from.
+     * @param index
+     *            Index of the item in the level.
+     * @return The item.
+     */
+    double getLevelItem(int level, int index) {
+        return levels[level][index];
+    }
+
+    /**
+     * Makes sure this sketch has at least the given number of levels. Provided
+     * for deserialization purposes only.
+     *
+     * @param restoredLevels
+     *            Number of levels to restore.
+     */
+    void restoreLevels(int restoredLevels) {
+        while (levelCount < restoredLevels) {
+            addLevel();
+        }
+    }
+
+    /**
+     * Restores an item in the given level, without compacting the sketch.
+     * Provided for deserialization purposes only: once all the items have
+     * been restored, {@link #restoreSummary(long, double, double)} must be
+     * called.
+     *
+     * @param level
+     *            Level to append the item to.
+     * @param value
+     *            Item to append.
+     */
+    void restoreItem(int level, double value) {
+        append(level, value);
+    }
+
+    /**
+     * Restores the count and the range of the values of this sketch. Provided
+     * for deserialization purposes only.
+     *
+     * @param restoredCount
+     *            Number of values added to the sketch.
+     * @param restoredMin
+     *            Smallest value added to the sketch.
+     * @param restoredMax
+     *            Largest value added to the sketch.
+     */
+    void restoreSummary(long restoredCount, double restoredMin, double restoredMax) {
+        this.count = restoredCount;
+        this.min = restoredMin;
+        this.max = restoredMax;
+    }
+
+    /**
+     * Appends an item to the given level, creating the level and growing its
+     * storage as needed.
+     *
+     * @param level
+     *            Level to append to.
+     * @param value
+     *            Item to append.
+     */
+    private void append(int level, double value) {
+        while (level >= levelCount) {
+            addLevel();
+        }
+        double[] items = levels[level];
+        int size = sizes[level];
+        if (size == items.length) {
+            items = new double[Math.max(MIN_CAPACITY, items.length << 1)];
+            System.arraycopy(levels[level], 0, items, 0, size);
+            levels[level] = items;
+        }
+        items[size] = value;
+        sizes[level] = size + 1;
+    }
+
+    /**
+     * Adds a new level on top of the existing ones.
+     */
+    private void addLevel() {
+        if (levelCount == levels.length) {
+            double[][] grownLevels = new double[levelCount + 1][];
+            System.arraycopy(levels, 0, grownLevels, 0, levelCount);
+            levels = grownLevels;
+            int[] grownSizes = new int[levelCount + 1];
+            System.arraycopy(sizes, 0, grownSizes, 0, levelCount);
+            sizes = grownSizes;
+        }
+        if (levels[levelCount] == null) {
+            levels[levelCount] = new double[MIN_CAPACITY];
+        }
+        sizes[levelCount] = 0;
+        levelCount++;
+    }
+
+    /**
+     * Computes the capacity of the given level: the top level has a capacity of
+     * <code>k</code> and each level below has 2/3 of the capacity of the one
+     * above, but never less than {@link #MIN_CAPACITY}.
+     *
+     * @param level
+     *            Level to compute the capacity for.
+     * @return Capacity of the level.
+     */
+    private int capacity(int level) {
+        int depth = levelCount - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    /**
+     * Compacts levels while the number of items stored exceeds the total
+     * capacity of the sketch.
+     */
+    private void compress() {
+        for (;;) {
+            int total = 0;
+            int full = -1;
+            for (int h = 0; h < levelCount; h++) {
+                total += capacity(h) - sizes[h];
+                if (full < 0 && sizes[h] >= capacity(h)) {
+                    full = h;
+                }
+            }
+            if (total >= 0 || full < 0) {
+                return;
+            }
+            compact(full);
+        }
+    }
+
+    /**
+     * Sorts the given level and promotes every other item (starting randomly
+     * with the first or the second one) to the level above. If the level has an
+     * odd number of items, its smallest item stays behind.
+     *
+     * @param level
+     *            Level to compact.
+     */
+    private void compact(int level) {
+        if (level + 1 == levelCount) {
+            addLevel();
+        }
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        int start = size & 1;
+        for (int i = start + (random.nextBoolean() ? 1 : 0); i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        sizes[level] = start;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleQuantileSketch.class.getName();
+    }
+}
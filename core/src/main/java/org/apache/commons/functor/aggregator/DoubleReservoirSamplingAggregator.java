@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.NullaryFunction;
+
+/**
+ * Primitive counterpart of {@link ReservoirSamplingAggregator}: keeps a
+ * uniform random sample of at most <code>capacity</code> of the values added,
+ * stored in a <code>double</code> array allocated upfront, so the memory used
+ * is fixed regardless of how many values are added between two resets.
+ * <p>
+ * The {@link DoubleSeries} passed to the aggregation function implements
+ * {@link SampledSeries}, so functions which need the true number of values
+ * added can retrieve it via {@link SampledSeries#getTotalCount()}; it is also
+ * available from {@link #getTotalCount()}.
+ * </p>
+ */
+public class DoubleReservoirSamplingAggregator extends AbstractDoubleSeriesAggregator {
+    /**
+     * Decides which values are stored in {@link #series} and where.
+     */
+    private final ReservoirSampler          sampler;
+
+    /**
+     * Stores the sample. Only the first <code>sampler.size()</code> elements
+     * are part of the series.
+     */
+    private double[]                        series;
+
+    /**
+     * Spare array used by {@link #doDetach()} to swap with {@link #series}, or
+     * <code>null</code> if not available. Like {@link #series}, it has the
+     * capacity of the reservoir and never grows, so unlike the spare array of
+     * {@link DoubleArrayBackedAggregator} it never needs to be trimmed.
+     *
+     * @see AbstractListBackedAggregator#doDetach()
+     */
+    private final AtomicReference<double[]> spare = new AtomicReference<double[]>();
+
+    /**
+     * Similar to
+     * {@link #DoubleReservoirSamplingAggregator(Function, int, long)
+     * DoubleReservoirSamplingAggregator(aggregationFunction, capacity, 0L)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param capacity
+     *            Maximum number of values stored. Must be greater than zero.
+     */
+    public DoubleReservoirSamplingAggregator(Function<DoubleSeries, Double> aggregationFunction, int capacity) {
+        this(aggregationFunction, capacity, 0L);
+    }
+
+    /**
+     * Similar to
+     * {@link #DoubleReservoirSamplingAggregator(Function, int, long, boolean)
+     * DoubleReservoirSamplingAggregator(aggregationFunction, capacity, interval, false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param capacity
+     *            Maximum number of values stored. Must be greater than zero.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public DoubleReservoirSamplingAggregator(Function<DoubleSeries, Double> aggregationFunction, int capacity,
+            long interval) {
+        this(aggregationFunction, capacity, interval, false);
+    }
+
+    /**
+     * Initializes an aggregator with the given function, capacity and interval
+     * and decides whether to use the shared timer or own timer.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param capacity
+     *            Maximum number of values stored. Must be greater than zero.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it shares a timer across instances as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long,boolean)}
+     *            , otherwise this instance will use its private timer
+     */
+    public DoubleReservoirSamplingAggregator(Function<DoubleSeries, Double> aggregationFunction, int capacity,
+            long interval, boolean useSharedTimer) {
+        super(aggregationFunction, interval, useSharedTimer);
+        this.sampler = new ReservoirSampler(capacity, new Random());
+        this.series = new double[capacity];
+    }
+
+    /**
+     * Offers the value to the sample, storing it if picked.
+     *
+     * @param data
+     *            Data to be added to the data series.
+     */
+    @Override
+    protected final void doAdd(double data) {
+        int slot = sampler.offer();
+        if (slot >= 0) {
+            series[slot] = data;
+        }
+    }
+
+    /**
+     * Returns a view over the sample currently stored.
+     *
+     * @return View of the data series.
+     */
+    @Override
+    protected final DoubleSeries getSeries() {
+        return new DoubleReservoirSeries(series, sampler.size(), sampler.getCount());
+    }
+
+    /**
+     * Empties the sample. The array is kept so it can be reused.
+     */
+    @Override
+    protected final void doReset() {
+        sampler.reset();
+    }
+
+    /**
+     * Detaches the sample by swapping the array with a spare one, in constant
+     * time. Once the detached sample has been evaluated, its array becomes the
+     * spare one for the next swap.
+     *
+     * @return function which evaluates the detached data series
+     * @see AbstractTimedAggregator#evaluateAndReset()
+     */
+    @Override
+    protected final NullaryFunction<Double> doDetach() {
+        final double[] detached = series;
+        final int detachedSize = sampler.size();
+        final long detachedCount = sampler.getCount();
+        double[] fresh = spare.getAndSet(null);
+        if (fresh == null) {
+            fresh = new double[sampler.getCapacity()];
+        }
+        series = fresh;
+        sampler.reset();
+        return new NullaryFunction<Double>() {
+            public Double evaluate() {
+                try {
+                    return getAggregationFunction().evaluate(
+                            new DoubleReservoirSeries(detached, detachedSize, detachedCount));
+                } finally {
+                    spare.set(detached);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the number of values in the sample.
+     *
+     * @return Number of values in the data series.
+     */
+    @Override
+    protected final int retrieveDataSize() {
+        return sampler.size();
+    }
+
+    /**
+     * Retrieves the number of values added since the last reset, of which the
+     * data series is a sample.
+     *
+     * @return Number of values added, which is greater than or equal to
+     *         {@link #retrieveDataSize()}.
+     */
+    public final long getTotalCount() {
+        getDataLock().readLock().lock();
+        try {
+            return sampler.getCount();
+        } finally {
+            getDataLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the maximum number of values stored.
+     *
+     * @return Capacity of the sample.
+     */
+    public final int getCapacity() {
+        return sampler.getCapacity();
+    }
+
+    @Override
+    public String toString() {
+        return DoubleReservoirSamplingAggregator.class.getName();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * {@link DoubleSeries} view over the sample stored by a
+ * {@link DoubleReservoirSamplingAggregator}, which also reports the number of
+ * values the sample has been drawn from. The array is not copied.
+ */
+final class DoubleReservoirSeries implements DoubleSeries, SampledSeries {
+    /** View over the values in the sample. */
+    private final DoubleArraySeries sample;
+
+    /** Number of values the sample has been drawn from. */
+    private final long              totalCount;
+
+    /**
+     * Creates a view over the first <code>size</code> elements of the array.
+     *
+     * @param data
+     *            Array storing the sample.
+     * @param size
+     *            Number of values in the sample.
+     * @param totalCount
+     *            Number of values the sample has been drawn from.
+     */
+    DoubleReservoirSeries(double[] data, int size, long totalCount) {
+        this.sample = new DoubleArraySeries(data, size);
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return sample.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double get(int index) {
+        return sample.get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void copyTo(double[] dest) {
+        sample.copyTo(dest);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleReservoirSeries.class.getName();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * Read-only view of a data series of primitive <code>double</code> values.
+ * This allows aggregators which store their data as primitives (e.g.
+ * {@link DoubleArrayBackedAggregator}) to pass it on to aggregation functions
+ * without boxing each value.
+ */
+public interface DoubleSeries {
+    /**
+     * Retrieves the number of values in this series.
+     *
+     * @return Number of values in this series.
+     */
+    int size();
+
+    /**
+     * Retrieves the value at the given position in this series.
+     *
+     * @param index
+     *            Zero-based index of the value to retrieve. Must be greater than
+     *            or equal to 0 and less than {@link #size()}.
+     * @return Value at the given index.
+     */
+    double get(int index);
+
+    /**
+     * Copies all the values in this series into the given array, starting at
+     * index 0.
+     *
+     * @param dest
+     *            Array to copy the values into. Its length must be at least
+     *            {@link #size()}.
+     */
+    void copyTo(double[] dest);
+}
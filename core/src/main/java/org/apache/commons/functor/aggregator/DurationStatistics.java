@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe count, total and maximum of a series of durations, updated
+ * without locking. Used by {@link JmxAggregatorInstrumentation}.
+ */
+final class DurationStatistics {
+    /** Number of durations recorded. */
+    private final AtomicLong count = new AtomicLong();
+
+    /** Sum of the durations recorded. */
+    private final AtomicLong total = new AtomicLong();
+
+    /** Longest duration recorded. */
+    private final AtomicLong max   = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param duration
+     *            Duration to record.
+     */
+    void record(long duration) {
+        count.incrementAndGet();
+        total.addAndGet(duration);
+        long current = max.get();
+        while (duration > current && !max.compareAndSet(current, duration)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Clears the statistics.
+     */
+    void reset() {
+        count.set(0L);
+        total.set(0L);
+        max.set(0L);
+    }
+
+    /**
+     * Retrieves the number of durations recorded.
+     *
+     * @return Number of durations recorded.
+     */
+    long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Retrieves the sum of the durations recorded.
+     *
+     * @return Sum of the durations recorded.
+     */
+    long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Computes the mean of the durations recorded.
+     *
+     * @return Mean duration, or 0 if none has been recorded.
+     */
+    long getMean() {
+        long n = count.get();
+        return n == 0L ? 0L : total.get() / n;
+    }
+
+    /**
+     * Retrieves the longest duration recorded.
+     *
+     * @return Longest duration, or 0 if none has been recorded.
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return DurationStatistics.class.getName();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * Aggregator computing an exponentially weighted moving average over time of
+ * the values added -- e.g. a load-average style view of a queue length or of
+ * a latency. On each tick the mean of the values added since the previous
+ * tick is folded into the average, as described in
+ * {@link AbstractEwmaAggregator}; ticks without any values leave the average
+ * unchanged.
+ * <p>
+ * Values are accumulated in two primitive fields under the write lock, so
+ * adding a value takes constant time and doesn't allocate any memory.
+ * </p>
+ */
+public class EwmaAggregator extends AbstractEwmaAggregator {
+    /** Sum of the values added since the last tick. */
+    private double sum;
+
+    /** Number of values added since the last tick. */
+    private long   count;
+
+    /**
+     * Similar to {@link #EwmaAggregator(long, long)
+     * EwmaAggregator(window, DEFAULT_TICK_INTERVAL)}.
+     *
+     * @param window
+     *            Time in milliseconds over which the weight of a tick decays by
+     *            a factor of <i>e</i>, e.g. {@link #ONE_MINUTE}.
+     */
+    public EwmaAggregator(long window) {
+        this(window, DEFAULT_TICK_INTERVAL);
+    }
+
+    /**
+     * Similar to {@link #EwmaAggregator(long, long, boolean)
+     * EwmaAggregator(window, tickInterval, false)}.
+     *
+     * @param window
+     *            Time in milliseconds over which the weight of a tick decays by
+     *            a factor of <i>e</i>, e.g. {@link #ONE_MINUTE}.
+     * @param tickInterval
+     *            Interval in milliseconds between ticks.
+     */
+    public EwmaAggregator(long window, long tickInterval) {
+        this(window, tickInterval, false);
+    }
+
+    /**
+     * Constructs an aggregator averaging the values over the given window,
+     * ticking at the given interval.
+     *
+     * @param window
+     *            Time in milliseconds over which the weight of a tick decays by
+     *            a factor of <i>e</i>, e.g. {@link #ONE_MINUTE}. Must be
+     *            greater than zero.
+     * @param tickInterval
+     *            Interval in milliseconds between ticks. Must be greater than
+     *            zero.
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public EwmaAggregator(long window, long tickInterval, boolean useSharedTimer) {
+        super(window, tickInterval, useSharedTimer, false);
+    }
+
+    /**
+     * Accounts for the value in the current tick interval.
+     *
+     * @param data
+     *            Value to add.
+     */
+    @Override
+    protected final void doAdd(double data) {
+        sum += data;
+        count++;
+    }
+
+    /**
+     * Computes the mean of the values added since the last tick.
+     *
+     * @param tickInterval
+     *            Interval in milliseconds between ticks.
+     * @return Mean of the values added during the last tick interval, or
+     *         <code>NaN</code> if there weren't any.
+     */
+    @Override
+    protected final double drainTick(long tickInterval) {
+        double observation = count == 0L ? Double.NaN : sum / count;
+        sum = 0.0;
+        count = 0L;
+        return observation;
+    }
+
+    @Override
+    public String toString() {
+        return EwmaAggregator.class.getName();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * A key reported by {@link HeavyHittersAggregator} together with its
+ * estimated count. The estimate is never lower than the actual count and
+ * exceeds it by at most {@link #getError()}, so the key occurred at least
+ * {@link #getGuaranteedCount()} times.
+ *
+ * @param <K>
+ *            Type of the key.
+ */
+public final class HeavyHitter<K> {
+    /**
+     * The key.
+     */
+    private final K    key;
+
+    /**
+     * Estimated number of occurrences of the key.
+     */
+    private final long count;
+
+    /**
+     * Maximum over-estimation of {@link #count}.
+     */
+    private final long error;
+
+    /**
+     * Creates a new heavy hitter.
+     *
+     * @param key
+     *            The key.
+     * @param count
+     *            Estimated number of occurrences of the key.
+     * @param error
+     *            Maximum over-estimation of the count.
+     */
+    HeavyHitter(K key, long count, long error) {
+        this.key = key;
+        this.count = count;
+        this.error = error;
+    }
+
+    /**
+     * Getter for {@link #key}.
+     *
+     * @return The key.
+     */
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     * Getter for {@link #count}.
+     *
+     * @return Estimated number of occurrences of the key; never lower than
+     *         the actual number.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Getter for {@link #error}.
+     *
+     * @return Maximum over-estimation of {@link #getCount()}.
+     */
+    public long getError() {
+        return error;
+    }
+
+    /**
+     * Computes the minimum number of occurrences of the key.
+     *
+     * @return {@link #getCount()} minus {@link #getError()}.
+     */
+    public long getGuaranteedCount() {
+        return count - error;
+    }
+
+    @Override
+    public String toString() {
+        return HeavyHitter.class.getName() + "[key=" + key + ",count=" + count + ",error=" + error + "]";
+    }
+}
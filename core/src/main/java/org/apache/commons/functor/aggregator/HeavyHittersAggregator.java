@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Aggregator tracking the approximately most frequent keys added since the last
+ * reset -- e.g. the "top 20" endpoints by number of slow requests or the top
+ * talkers by number of connections -- in bounded memory. Rather than storing
+ * every key and sorting them on evaluation, it monitors a fixed number of keys
+ * (the capacity) using the Space-Saving algorithm, backed by a Count-Min sketch
+ * which keeps the counts of newly monitored keys tight. Adding a key takes
+ * amortized constant time and the ranked list is read off the monitored keys
+ * directly.
+ * <p>
+ * As the value returned by {@link #evaluate()} has to be of the same type as
+ * the data added, it is the most frequent key; the ranked list of the top
+ * <code>k</code> keys, with their estimated counts, is retrieved via
+ * {@link #getTop()} or {@link #getTopAndReset()}. The counts are never lower
+ * than the actual counts; any key occurring more than <code>n / capacity</code>
+ * times out of <code>n</code> is guaranteed to be monitored, so a capacity a
+ * few times larger than <code>k</code> makes the ranking of the top keys
+ * reliable.
+ * </p>
+ *
+ * @param <K>
+ *            Type of the keys. Keys must implement <code>equals()</code> and
+ *            <code>hashCode()</code>.
+ */
+public class HeavyHittersAggregator<K> extends AbstractTimedAggregator<K> {
+    /**
+     * Default number of keys monitored for each key reported.
+     */
+    public static final int  DEFAULT_CAPACITY_FACTOR = 10;
+
+    /**
+     * Number of keys reported by {@link #getTop()}.
+     */
+    private final int        k;
+
+    /**
+     * Number of keys monitored.
+     */
+    private final int        capacity;
+
+    /**
+     * Summary of the keys added since the last reset.
+     */
+    private StreamSummary<K> summary;
+
+    /**
+     * Similar to {@link #HeavyHittersAggregator(int, int)
+     * HeavyHittersAggregator(k, k * DEFAULT_CAPACITY_FACTOR)}.
+     *
+     * @param k
+     *            Number of keys reported by {@link #getTop()}
+     */
+    public HeavyHittersAggregator(int k) {
+        this(k, k * DEFAULT_CAPACITY_FACTOR);
+    }
+
+    /**
+     * Similar to {@link #HeavyHittersAggregator(int, int, long)
+     * HeavyHittersAggregator(k, capacity, 0L)}.
+     *
+     * @param k
+     *            Number of keys reported by {@link #getTop()}
+     * @param capacity
+     *            Number of keys monitored
+     */
+    public HeavyHittersAggregator(int k, int capacity) {
+        this(k, capacity, 0L);
+    }
+
+    /**
+     * Similar to {@link #HeavyHittersAggregator(int, int, long, boolean)
+     * HeavyHittersAggregator(k, capacity, interval, false)}.
+     *
+     * @param k
+     *            Number of keys reported by {@link #getTop()}
+     * @param capacity
+     *            Number of keys monitored
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public HeavyHittersAggregator(int k, int capacity, long interval) {
+        this(k, capacity, interval, false);
+    }
+
+    /**
+     * Constructs an aggregator which will report the top <code>k</code> keys
+     * out of <code>capacity</code> monitored keys, reset itself at the given
+     * interval and will use a shared timer on own private timer.
+     *
+     * @param k
+     *            Number of keys reported by {@link #getTop()}. Must be
+     *            positive.
+     * @param capacity
+     *            Number of keys monitored. Must be at least <code>k</code>;
+     *            the memory used is proportional to it.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public HeavyHittersAggregator(int k, int capacity, long interval, boolean useSharedTimer) {
+        super(interval, useSharedTimer);
+        Validate.isTrue(k > 0, "k must be positive: %s", k);
+        Validate.isTrue(capacity >= k, "Capacity %s must be at least k (%s)", capacity, k);
+        this.k = k;
+        this.capacity = capacity;
+        this.summary = new StreamSummary<K>(capacity);
+    }
+
+    /**
+     * Counts an occurrence of the key.
+     *
+     * @param data
+     *            Key to count. Cannot be <code>null</code>.
+     */
+    @Override
+    protected final void doAdd(K data) {
+        Validate.notNull(data, "Key must not be null");
+        summary.add(data);
+    }
+
+    /**
+     * Retrieves the most frequent key.
+     *
+     * @return The most frequent key or <code>null</code> if no key has been
+     *         added.
+     */
+    @Override
+    protected final K doEvaluate() {
+        return summary.getTopKey();
+    }
+
+    /**
+     * Replaces the summary with an empty one.
+     */
+    @Override
+    protected final void doReset() {
+        summary = new StreamSummary<K>(capacity);
+    }
+
+    /**
+     * Swaps the summary with an empty one; the most frequent key is read from
+     * the detached summary after the lock has been released.
+     *
+     * @return function retrieving the most frequent key of the detached
+     *         summary
+     */
+    @Override
+    protected final NullaryFunction<K> doDetach() {
+        final StreamSummary<K> detached = summary;
+        summary = new StreamSummary<K>(capacity);
+        return new NullaryFunction<K>() {
+            public K evaluate() {
+                return detached.getTopKey();
+            }
+        };
+    }
+
+    /**
+     * Retrieves the top <code>k</code> keys added since the last reset.
+     *
+     * @return The keys with their estimated counts, by decreasing count. At
+     *         most <code>k</code> keys; empty if no key has been added.
+     */
+    public final List<HeavyHitter<K>> getTop() {
+        return getTop(k);
+    }
+
+    /**
+     * Retrieves the top keys added since the last reset.
+     *
+     * @param n
+     *            Maximum number of keys to retrieve. Must be positive and at
+     *            most the capacity of this aggregator.
+     * @return The keys with their estimated counts, by decreasing count.
+     */
+    public final List<HeavyHitter<K>> getTop(int n) {
+        Validate.isTrue(n > 0 && n <= capacity, "Invalid number of keys: %s", n);
+        Lock lock = getDataLock().readLock();
+        lock.lock();
+        try {
+            return summary.getTop(n);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Atomically retrieves the top <code>k</code> keys added since the last
+     * reset and resets this aggregator, so no key added in between is lost.
+     *
+     * @return The keys with their estimated counts, by decreasing count.
+     */
+    public final List<HeavyHitter<K>> getTopAndReset() {
+        StreamSummary<K> detached;
+        Lock lock = getDataLock().writeLock();
+        lock.lock();
+        try {
+            detached = summary;
+            summary = new StreamSummary<K>(capacity);
+        } finally {
+            lock.unlock();
+        }
+        return detached.getTop(k);
+    }
+
+    /**
+     * Estimates how many times the given key has been added since the last
+     * reset, whether it is monitored or not.
+     *
+     * @param key
+     *            Key to look up. Cannot be <code>null</code>.
+     * @return Estimated count of the key, never lower than the actual count.
+     */
+    public final long estimate(K key) {
+        Validate.notNull(key, "Key must not be null");
+        Lock lock = getDataLock().readLock();
+        lock.lock();
+        try {
+            return summary.estimate(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of keys added since the last reset.
+     *
+     * @return Number of keys added, duplicates included.
+     */
+    public final long getTotalCount() {
+        Lock lock = getDataLock().readLock();
+        lock.lock();
+        try {
+            return summary.getTotal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of keys currently monitored.
+     *
+     * @return Number of distinct keys monitored, at most the capacity.
+     */
+    @Override
+    protected final int retrieveDataSize() {
+        return summary.size();
+    }
+
+    /**
+     * Getter for {@link #k}.
+     *
+     * @return Number of keys reported by {@link #getTop()}.
+     */
+    public final int getK() {
+        return k;
+    }
+
+    /**
+     * Getter for {@link #capacity}.
+     *
+     * @return Number of keys monitored.
+     */
+    public final int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return HeavyHittersAggregator.class.getName();
+    }
+}
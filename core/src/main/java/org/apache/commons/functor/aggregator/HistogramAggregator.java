@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.locks.Lock;
+
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Aggregator which records <code>long</code> values (typically latencies) in
+ * a {@link LongHistogram}, so that adding a value takes constant time and
+ * never blocks, and the memory used is fixed regardless of how many values
+ * are added. Count, sum, min, max, mean and any percentile of the values
+ * added since the last reset can be retrieved from the histogram;
+ * {@link #evaluate()} returns the value of the percentile this aggregator was
+ * constructed with.
+ * <p>
+ * <b>Synchronization</b>: values are recorded straight into a cumulative
+ * histogram which is never reset, without acquiring any lock. Resetting this
+ * aggregator only takes a {@link LongHistogram#copyOfBuckets() copy of the
+ * buckets} of the cumulative histogram as the new baseline, and the values
+ * added since the last reset are computed by
+ * {@link LongHistogram#subtract(LongHistogram) subtracting} the baseline from
+ * another copy of the buckets. As bucket counts only ever grow, a value added
+ * concurrently with {@link #evaluateAndReset()} is never lost: it is
+ * accounted for either in this interval or in the next one. Since only the
+ * buckets are copied, the count, sum, mean, min and max of an interval are all
+ * computed from the same bucket counts as its percentiles: they are exact for
+ * values below <code>2^precision</code> and otherwise only accurate within the
+ * {@link LongHistogram#getRelativeError() relative error} of the histogram.
+ * </p>
+ */
+public class HistogramAggregator extends AbstractTimedAggregator<Long> implements LongAggregator {
+    /** A percentile goes from 0 to 100% and that's it. */
+    private static final double  MAX_PERCENTAGE = 100.0;
+
+    /**
+     * Percentile value returned by {@link #evaluate()}. 0 &lt;= percentile
+     * &lt;= 100
+     */
+    private final double         percentile;
+
+    /**
+     * Histogram of all the values ever added to this aggregator.
+     */
+    private final LongHistogram  cumulative;
+
+    /**
+     * Copy of {@link #cumulative} taken at the last reset. It is replaced, but
+     * never modified, on reset.
+     */
+    private volatile LongHistogram baseline;
+
+    /**
+     * Similar to {@link #HistogramAggregator(double, int)
+     * HistogramAggregator(percentile, LongHistogram.DEFAULT_PRECISION)}.
+     *
+     * @param percentile
+     *            Percentile {@link #evaluate()} will return the value for
+     */
+    public HistogramAggregator(double percentile) {
+        this(percentile, LongHistogram.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Similar to {@link #HistogramAggregator(double, int, long)
+     * HistogramAggregator(percentile, precision, 0L)}.
+     *
+     * @param percentile
+     *            Percentile {@link #evaluate()} will return the value for
+     * @param precision
+     *            Precision of the histogram, as per
+     *            {@link LongHistogram#LongHistogram(int)}
+     */
+    public HistogramAggregator(double percentile, int precision) {
+        this(percentile, precision, 0L);
+    }
+
+    /**
+     * Similar to {@link #HistogramAggregator(double, int, long, boolean)
+     * HistogramAggregator(percentile, precision, interval, false)}.
+     *
+     * @param percentile
+     *            Percentile {@link #evaluate()} will return the value for
+     * @param precision
+     *            Precision of the histogram, as per
+     *            {@link LongHistogram#LongHistogram(int)}
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public HistogramAggregator(double percentile, int precision, long interval) {
+        this(percentile, precision, interval, false);
+    }
+
+    /**
+     * Constructs an aggregator which will compute the given percentile using a
+     * histogram with the given precision, reset itself at the given interval
+     * and will use a shared timer on own private timer.
+     *
+     * @param percentile
+     *            Percentile {@link #evaluate()} will return the value for
+     * @param precision
+     *            Precision of the histogram, as per
+     *            {@link LongHistogram#LongHistogram(int)}
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public HistogramAggregator(double percentile, int precision, long interval, boolean useSharedTimer) {
+        super(interval, useSharedTimer, true);
+        if (percentile < 0.0 || percentile > MAX_PERCENTAGE) {
+            throw new IllegalArgumentException("Invalid value for percentile: " + percentile);
+        }
+        this.percentile = percentile;
+        this.cumulative = new LongHistogram(precision);
+        this.baseline = new LongHistogram(precision);
+    }
+
+    /**
+     * Records a primitive value, without locking.
+     *
+     * @param data
+     *            Data to be added to the aggregator. Must not be negative.
+     */
+    public final void add(long data) {
+        cumulative.record(data);
+        recordLockFreeAdd();
+    }
+
+    /**
+     * Records the value, without locking.
+     *
+     * @param data
+     *            Data to be added. Throws <code>NullPointerException</code> if
+     *            this is <code>null</code>
+     */
+    @Override
+    protected final void doAdd(Long data) {
+        cumulative.record(data.longValue());
+    }
+
+    /**
+     * Retrieves the value of {@link #percentile} from the values added since
+     * the last reset.
+     *
+     * @return Approximate value of the percentile or <code>null</code> if no
+     *         data was added since the last reset.
+     */
+    @Override
+    protected final Long doEvaluate() {
+        return percentileOf(interval(baseline), percentile);
+    }
+
+    /**
+     * Takes a copy of the buckets of the cumulative histogram as the new
+     * baseline.
+     */
+    @Override
+    protected final void doReset() {
+        baseline = cumulative.copyOfBuckets();
+    }
+
+    /**
+     * Takes a copy of the buckets of the cumulative histogram as the new
+     * baseline; the values added since the previous reset are computed and
+     * evaluated from both baselines outside the lock.
+     *
+     * @return function which evaluates the detached interval
+     * @see AbstractTimedAggregator#evaluateAndReset()
+     */
+    @Override
+    protected final NullaryFunction<Long> doDetach() {
+        final LongHistogram previous = baseline;
+        final LongHistogram current = cumulative.copyOfBuckets();
+        baseline = current;
+        return new NullaryFunction<Long>() {
+            public Long evaluate() {
+                return percentileOf(delta(current, previous), percentile);
+            }
+        };
+    }
+
+    /**
+     * Retrieves the approximate value of any percentile of the data added since
+     * the last reset.
+     *
+     * @param p
+     *            Percentile to retrieve the value for: 0 &lt;= p &lt;= 100
+     * @return Approximate value of the percentile or <code>null</code> if no
+     *         data was added since the last reset.
+     */
+    public final Long getPercentile(double p) {
+        return percentileOf(snapshot(), p);
+    }
+
+    /**
+     * Retrieves the histogram of the values added since the last reset. This
+     * is computed every time, so to query several statistics retrieve the
+     * histogram once and query it directly.
+     *
+     * @return Histogram of the values added since the last reset, which is
+     *         not modified further by this aggregator.
+     */
+    public final LongHistogram snapshot() {
+        Lock lock = getDataLock().readLock();
+        lock.lock();
+        try {
+            return interval(baseline);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Atomically retrieves the histogram of the values added since the last
+     * reset and resets this aggregator.
+     *
+     * @return The histogram of the values added since the last reset.
+     */
+    public final LongHistogram snapshotAndReset() {
+        LongHistogram previous;
+        LongHistogram current;
+        Lock lock = getDataLock().writeLock();
+        lock.lock();
+        try {
+            previous = baseline;
+            current = cumulative.copyOfBuckets();
+            baseline = current;
+        } finally {
+            lock.unlock();
+        }
+        return delta(current, previous);
+    }
+
+    /**
+     * Adds the values of the given histogram (e.g. a {@link #snapshot()} of
+     * another aggregator) to this aggregator.
+     *
+     * @param other
+     *            Histogram to merge. Cannot be <code>null</code> and must have
+     *            the same precision as the histogram of this aggregator.
+     */
+    public final void merge(LongHistogram other) {
+        Validate.notNull(other, "Histogram must not be null");
+        cumulative.add(other);
+    }
+
+    /**
+     * Retrieves the number of values added since the last reset.
+     *
+     * @return Number of values added since the last reset.
+     */
+    public final long getCount() {
+        // the total count of the cumulative histogram is updated right after
+        // its buckets, so it can briefly lag behind the baseline copy
+        return Math.max(0L, cumulative.getCount() - baseline.getCount());
+    }
+
+    /**
+     * This aggregator doesn't store the data series, so the data series size is
+     * always 0 (zero).
+     *
+     * @return 0
+     */
+    @Override
+    protected final int retrieveDataSize() {
+        return 0;
+    }
+
+    /**
+     * Getter for {@link #percentile}.
+     *
+     * @return Percentile returned by {@link #evaluate()}
+     */
+    public final double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Retrieves the precision of the histogram used by this aggregator.
+     *
+     * @return {@link LongHistogram#getPrecision()}
+     */
+    public final int getPrecision() {
+        return cumulative.getPrecision();
+    }
+
+    /**
+     * Computes the values added since the given baseline was taken.
+     *
+     * @param since
+     *            Baseline to subtract from the cumulative histogram.
+     * @return Histogram of the values added since the baseline.
+     */
+    private LongHistogram interval(LongHistogram since) {
+        LongHistogram result = cumulative.copyOfBuckets();
+        result.subtract(since);
+        return result;
+    }
+
+    /**
+     * Subtracts a copy of the buckets of the cumulative histogram from a later
+     * one. Neither copy is modified, as both can be baselines.
+     *
+     * @param current
+     *            Later copy.
+     * @param previous
+     *            Earlier copy.
+     * @return New histogram holding the values in <code>current</code> but
+     *         not in <code>previous</code>
+     */
+    private static LongHistogram delta(LongHistogram current, LongHistogram previous) {
+        LongHistogram result = current.copy();
+        result.subtract(previous);
+        return result;
+    }
+
+    /**
+     * Retrieves the given percentile from the histogram.
+     *
+     * @param histogram
+     *            Histogram to query
+     * @param p
+     *            Percentile to retrieve
+     * @return Value of the percentile, or <code>null</code> if the histogram
+     *         is empty.
+     */
+    private static Long percentileOf(LongHistogram histogram, double p) {
+        if (histogram.getCount() == 0L) {
+            if (p < 0.0 || p > MAX_PERCENTAGE) {
+                throw new IllegalArgumentException("Invalid value for percentile: " + p);
+            }
+            return null;
+        }
+        return Long.valueOf(histogram.getPercentile(p));
+    }
+
+    @Override
+    public String toString() {
+        return HistogramAggregator.class.getName();
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct items added to it
+ * using a fixed amount of memory: <code>2^precision</code> registers of one
+ * byte each, regardless of the number of items. Each item is hashed to 64
+ * bits; the first <code>precision</code> bits select a register and the
+ * register keeps the highest number of leading zeros (plus one) seen in the
+ * remaining bits. The standard error of the estimate is about
+ * <code>1.04 / sqrt(2^precision)</code> (see {@link #getRelativeError()}),
+ * e.g. 0.8% for the {@link #DEFAULT_PRECISION default precision}. Small
+ * cardinalities are estimated using linear counting, so they are close to
+ * exact.
+ * <p>
+ * The registers are packed 8 to a <code>long</code> and updated with a
+ * compare-and-set, so items can be added concurrently from any number of
+ * threads without locking. Adding an item is idempotent and sketches with the
+ * same precision can be {@link #merge(HyperLogLog) merged} register-wise: the
+ * merged sketch estimates the number of distinct items added to either
+ * sketch.
+ * </p>
+ * <p>
+ * Items can be added via {@link #add(Object)}, which hashes their
+ * <code>hashCode()</code>, via {@link #add(long)} for numeric identifiers, or
+ * via {@link #addHash(long)} for callers who already have a good 64 bits hash
+ * of their items. As <code>hashCode()</code> only has 32 bits, the latter is
+ * preferable for cardinalities in the billions.
+ * </p>
+ */
+public final class HyperLogLog {
+    /** Precision used when none is specified: 16384 registers. */
+    public static final int     DEFAULT_PRECISION = 14;
+
+    /** Lowest precision accepted. */
+    public static final int     MIN_PRECISION     = 4;
+
+    /** Highest precision accepted. */
+    public static final int     MAX_PRECISION     = 18;
+
+    /** Number of registers packed in each <code>long</code>. */
+    private static final int    REGISTERS_PER_WORD = 8;
+
+    /** Log2 of {@link #REGISTERS_PER_WORD}. */
+    private static final int    WORD_SHIFT        = 3;
+
+    /** Mask of a register within a word. */
+    private static final long   REGISTER_MASK     = 0xFFL;
+
+    /**
+     * Number of bits of each register within a word. A rank fits in 6 bits,
+     * but whole bytes keep 8 registers in each word, none of them straddling
+     * two words.
+     */
+    private static final int    REGISTER_BITS     = 8;
+
+    /** Number of bits used to select a register. */
+    private final int           precision;
+
+    /** The registers, packed {@link #REGISTERS_PER_WORD} to a word. */
+    private final AtomicLongArray words;
+
+    /**
+     * Creates an empty sketch using the {@link #DEFAULT_PRECISION default
+     * precision}.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates an empty sketch with the given precision.
+     *
+     * @param precision
+     *            Number of bits used to select a register: the sketch uses
+     *            <code>2^precision</code> registers. Must be between
+     *            {@link #MIN_PRECISION} and {@link #MAX_PRECISION}.
+     */
+    public HyperLogLog(int precision) {
+        Validate.isTrue(precision >= MIN_PRECISION && precision <= MAX_PRECISION, "Invalid precision: %s",
+                precision);
+        this.precision = precision;
+        this.words = new AtomicLongArray((1 << precision) >> WORD_SHIFT);
+    }
+
+    /**
+     * Adds an item, hashing its <code>hashCode()</code> to 64 bits.
+     *
+     * @param item
+     *            Item to add. Cannot be <code>null</code>.
+     */
+    public void add(Object item) {
+        Validate.notNull(item, "Item must not be null");
+        addHash(mix(item.hashCode()));
+    }
+
+    /**
+     * Adds a numeric item, such as an identifier, hashing it to 64 bits.
+     *
+     * @param item
+     *            Item to add.
+     */
+    public void add(long item) {
+        addHash(mix(item));
+    }
+
+    /**
+     * Adds an item given its 64 bits hash. The hash must be uniformly
+     * distributed over all 64 bits.
+     *
+     * @param hash
+     *            Hash of the item to add.
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        // the marker bit bounds the rank to 64 - precision + 1
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        int rank = Long.numberOfLeadingZeros(remaining) + 1;
+        raise(index, rank);
+    }
+
+    /**
+     * Merges the given sketch into this one, keeping the maximum of each pair
+     * of registers.
+     *
+     * @param other
+     *            Sketch to merge. Cannot be <code>null</code> and must have the
+     *            same precision as this one. It is not modified.
+     */
+    public void merge(HyperLogLog other) {
+        Validate.notNull(other, "Sketch must not be null");
+        Validate.isTrue(other.precision == precision, "Precision mismatch: %s instead of %s", other.precision,
+                precision);
+        int registers = getRegisterCount();
+        for (int i = 0; i < registers; i++) {
+            int rank = other.getRegister(i);
+            if (rank != 0) {
+                raise(i, rank);
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of distinct items added to this sketch.
+     *
+     * @return Estimated number of distinct items.
+     */
+    public long estimate() {
+        int registers = getRegisterCount();
+        double sum = 0.0;
+        int zeros = 0;
+        for (int i = 0; i < registers; i++) {
+            int rank = getRegister(i);
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(registers) * registers * registers / sum;
+        if (zeros != 0 && estimate <= 2.5 * registers) {
+            // linear counting is more accurate for small cardinalities
+            estimate = registers * Math.log((double) registers / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Empties this sketch, so it can be reused.
+     */
+    public void reset() {
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0L);
+        }
+    }
+
+    /**
+     * Creates a copy of this sketch. Further changes to either sketch are not
+     * reflected in the other one.
+     *
+     * @return Independent copy of this sketch.
+     */
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        for (int i = 0; i < words.length(); i++) {
+            copy.words.set(i, words.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Getter for {@link #precision}.
+     *
+     * @return Number of bits used to select a register.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Retrieves the standard error of the estimates of this sketch.
+     *
+     * @return <code>1.04 / sqrt(2^precision)</code>
+     */
+    public double getRelativeError() {
+        return 1.04 / Math.sqrt(getRegisterCount());
+    }
+
+    /**
+     * Retrieves the number of registers.
+     *
+     * @return <code>2^precision</code>
+     */
+    int getRegisterCount() {
+        return 1 << precision;
+    }
+
+    /**
+     * Retrieves the value of a register. Also used for serialization.
+     *
+     * @param index
+     *            Index of the register.
+     * @return Value of the register.
+     * @see SnapshotCodecs#HYPER_LOG_LOG
+     */
+    int getRegister(int index) {
+        long word = words.get(index >>> WORD_SHIFT);
+        return (int) ((word >>> shiftOf(index)) & REGISTER_MASK);
+    }
+
+    /**
+     * Raises the value of a register to the given rank, unless it is already
+     * higher. Also used for deserialization.
+     *
+     * @param index
+     *            Index of the register.
+     * @param rank
+     *            New value of the register.
+     */
+    void raise(int index, int rank) {
+        int wordIndex = index >>> WORD_SHIFT;
+        int shift = shiftOf(index);
+        for (;;) {
+            long word = words.get(wordIndex);
+            if (((word >>> shift) & REGISTER_MASK) >= rank) {
+                return;
+            }
+            long updated = (word & ~(REGISTER_MASK << shift)) | ((long) rank << shift);
+            if (words.compareAndSet(wordIndex, word, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Computes the position of a register within its word.
+     *
+     * @param index
+     *            Index of the register.
+     * @return Number of bits to shift the word by.
+     */
+    private static int shiftOf(int index) {
+        return (index & (REGISTERS_PER_WORD - 1)) * REGISTER_BITS;
+    }
+
+    /**
+     * Computes the bias correction constant for the given number of registers.
+     *
+     * @param registers
+     *            Number of registers.
+     * @return The <i>alpha</i> constant of HyperLogLog.
+     */
+    private static double alpha(int registers) {
+        switch (registers) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1.0 + 1.079 / registers);
+        }
+    }
+
+    /**
+     * Spreads the bits of a value over 64 bits (the finalizer of
+     * MurmurHash3). Also used by {@link CountMinSketch} and
+     * {@link DistinctCountAggregator}.
+     *
+     * @param value
+     *            Value to hash.
+     * @return 64 bits hash of the value.
+     */
+    static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return HyperLogLog.class.getName();
+    }
+}
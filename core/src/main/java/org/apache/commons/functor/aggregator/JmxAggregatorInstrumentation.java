@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * {@link AggregatorInstrumentation} exposing the measurements of an aggregator
+ * as a JMX MBean: number and rate of adds, contention on the lock, evaluation
+ * and flush durations, timer drift and listener latency (see
+ * {@link JmxAggregatorInstrumentationMBean} for the attributes). Each instance
+ * monitors one aggregator; the simplest way to monitor an aggregator is
+ * {@link #install(AbstractTimedAggregator, String)}, which registers the MBean
+ * with the platform MBean server and sets it as the instrumentation of the
+ * aggregator. {@link #uninstall()} reverts that.
+ * <p>
+ * The statistics are kept in atomic counters, so the overhead is a few
+ * uncontended atomic updates and calls to <code>System.nanoTime()</code> per
+ * operation.
+ * </p>
+ */
+public class JmxAggregatorInstrumentation implements AggregatorInstrumentation, JmxAggregatorInstrumentationMBean {
+    /**
+     * Domain of the names of the MBeans registered by
+     * {@link #install(AbstractTimedAggregator, String)}.
+     */
+    public static final String               DOMAIN           = "org.apache.commons.functor.aggregator";
+
+    /**
+     * Aggregator monitored.
+     */
+    private final AbstractTimedAggregator<?> aggregator;
+
+    /**
+     * Lock wait times of the adds.
+     */
+    private final DurationStatistics         adds             = new DurationStatistics();
+
+    /**
+     * Lock wait times of the evaluations.
+     */
+    private final DurationStatistics         evaluateLockWait = new DurationStatistics();
+
+    /**
+     * Durations of the evaluations.
+     */
+    private final DurationStatistics         evaluations      = new DurationStatistics();
+
+    /**
+     * Durations of the flushes.
+     */
+    private final DurationStatistics         flushes          = new DurationStatistics();
+
+    /**
+     * Delays of the flushes (drifts, ignoring the early flushes).
+     */
+    private final DurationStatistics         flushDelays      = new DurationStatistics();
+
+    /**
+     * Latencies of the listener notifications.
+     */
+    private final DurationStatistics         latencies        = new DurationStatistics();
+
+    /**
+     * Durations of the listener notifications.
+     */
+    private final DurationStatistics         notifications    = new DurationStatistics();
+
+    /**
+     * Drift of the last flush.
+     */
+    private volatile long                    lastFlushDrift;
+
+    /**
+     * Value of <code>System.nanoTime()</code> when the statistics were last
+     * reset, to compute the add rate.
+     */
+    private volatile long                    since            = System.nanoTime();
+
+    /**
+     * Server this MBean has been registered with by
+     * {@link #register(MBeanServer, ObjectName)}, if any.
+     */
+    private MBeanServer                      server;
+
+    /**
+     * Name this MBean has been registered under by
+     * {@link #register(MBeanServer, ObjectName)}, if any.
+     */
+    private ObjectName                       name;
+
+    /**
+     * Creates an instrumentation for the given aggregator. The instrumentation
+     * isn't set on the aggregator nor registered with any MBean server; see
+     * {@link #register(MBeanServer, ObjectName)}.
+     *
+     * @param aggregator
+     *            Aggregator to monitor. Cannot be <code>null</code>.
+     */
+    public JmxAggregatorInstrumentation(AbstractTimedAggregator<?> aggregator) {
+        this.aggregator = Validate.notNull(aggregator, "Aggregator must not be null");
+    }
+
+    /**
+     * Monitors the given aggregator via an MBean registered with the platform
+     * MBean server under
+     * <code>org.apache.commons.functor.aggregator:type=Aggregator,name=&lt;name&gt;</code>.
+     *
+     * @param aggregator
+     *            Aggregator to monitor. Cannot be <code>null</code>.
+     * @param name
+     *            Name of the aggregator, which must be unique. Cannot be
+     *            <code>null</code>.
+     * @return The instrumentation, now registered and set on the aggregator.
+     * @throws JMException
+     *             if the MBean cannot be registered, e.g. because the name is
+     *             already in use.
+     */
+    public static JmxAggregatorInstrumentation install(AbstractTimedAggregator<?> aggregator, String name)
+            throws JMException {
+        Validate.notNull(name, "Name must not be null");
+        JmxAggregatorInstrumentation instrumentation = new JmxAggregatorInstrumentation(aggregator);
+        instrumentation.register(ManagementFactory.getPlatformMBeanServer(), new ObjectName(DOMAIN
+                + ":type=Aggregator,name=" + ObjectName.quote(name)));
+        return instrumentation;
+    }
+
+    /**
+     * Registers this MBean with the given server and sets it as the
+     * instrumentation of the aggregator.
+     *
+     * @param mbeanServer
+     *            Server to register with. Cannot be <code>null</code>.
+     * @param objectName
+     *            Name to register under. Cannot be <code>null</code>.
+     * @throws JMException
+     *             if the MBean cannot be registered.
+     */
+    public final synchronized void register(MBeanServer mbeanServer, ObjectName objectName) throws JMException {
+        Validate.notNull(mbeanServer, "MBean server must not be null");
+        Validate.notNull(objectName, "Name must not be null");
+        Validate.validState(server == null, "Already registered as %s", name);
+        mbeanServer.registerMBean(this, objectName);
+        this.server = mbeanServer;
+        this.name = objectName;
+        resetStatistics();
+        aggregator.setInstrumentation(this);
+    }
+
+    /**
+     * Stops monitoring the aggregator: unregisters this MBean, if registered,
+     * and removes it from the aggregator, if still set.
+     *
+     * @throws JMException
+     *             if the MBean cannot be unregistered.
+     */
+    public final synchronized void uninstall() throws JMException {
+        if (aggregator.getInstrumentation() == this) {
+            aggregator.setInstrumentation(null);
+        }
+        if (server != null) {
+            try {
+                server.unregisterMBean(name);
+            } finally {
+                server = null;
+                name = null;
+            }
+        }
+    }
+
+    /**
+     * Getter for {@link #name}.
+     *
+     * @return Name this MBean is registered under, or <code>null</code> if
+     *         not registered.
+     */
+    public final synchronized ObjectName getObjectName() {
+        return name;
+    }
+
+    /**
+     * Getter for {@link #aggregator}.
+     *
+     * @return Aggregator monitored.
+     */
+    public final AbstractTimedAggregator<?> getAggregator() {
+        return aggregator;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void onAdd(AbstractTimedAggregator<?> source, long lockWaitNanos) {
+        adds.record(lockWaitNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void onEvaluate(AbstractTimedAggregator<?> source, long lockWaitNanos, long durationNanos) {
+        evaluateLockWait.record(lockWaitNanos);
+        evaluations.record(durationNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void onFlush(AbstractTimedAggregator<?> source, long driftNanos, long durationNanos) {
+        flushes.record(durationNanos);
+        flushDelays.record(Math.max(driftNanos, 0L));
+        lastFlushDrift = driftNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void onNotify(AbstractTimedAggregator<?> source, TimedAggregatorListener<?> listener, long latencyNanos,
+            long durationNanos) {
+        latencies.record(latencyNanos);
+        notifications.record(durationNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getInterval() {
+        return aggregator.getInterval();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getDataSize() {
+        return aggregator.getDataSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getAddCount() {
+        return adds.getCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double getAddRate() {
+        long elapsed = System.nanoTime() - since;
+        if (elapsed <= 0L) {
+            return 0.0;
+        }
+        return adds.getCount() * (double) TimeUnit.SECONDS.toNanos(1L) / elapsed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getTotalAddLockWait() {
+        return adds.getTotal();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMaxAddLockWait() {
+        return adds.getMax();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getEvaluateCount() {
+        return evaluations.getCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMeanEvaluateDuration() {
+        return evaluations.getMean();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMaxEvaluateDuration() {
+        return evaluations.getMax();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getTotalEvaluateLockWait() {
+        return evaluateLockWait.getTotal();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getFlushCount() {
+        return flushes.getCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMeanFlushDuration() {
+        return flushes.getMean();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getLastFlushDrift() {
+        return lastFlushDrift;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMaxFlushDelay() {
+        return flushDelays.getMax();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getNotifyCount() {
+        return notifications.getCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMeanListenerLatency() {
+        return latencies.getMean();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMaxListenerLatency() {
+        return latencies.getMax();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMeanListenerDuration() {
+        return notifications.getMean();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMaxListenerDuration() {
+        return notifications.getMax();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void resetStatistics() {
+        adds.reset();
+        evaluateLockWait.reset();
+        evaluations.reset();
+        flushes.reset();
+        flushDelays.reset();
+        latencies.reset();
+        notifications.reset();
+        lastFlushDrift = 0L;
+        since = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return JmxAggregatorInstrumentation.class.getName();
+    }
+}
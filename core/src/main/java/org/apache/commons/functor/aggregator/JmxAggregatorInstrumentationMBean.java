@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * Management interface of {@link JmxAggregatorInstrumentation}. All durations
+ * are in nanoseconds and all statistics cover the period since the
+ * instrumentation was installed or last {@link #resetStatistics() reset}.
+ */
+public interface JmxAggregatorInstrumentationMBean {
+    /**
+     * Retrieves the interval of the aggregator.
+     *
+     * @return Interval in milliseconds, 0 if the aggregator has no timer.
+     */
+    long getInterval();
+
+    /**
+     * Retrieves the size of the data series of the aggregator.
+     *
+     * @return Value of {@link AbstractTimedAggregator#getDataSize()}.
+     */
+    int getDataSize();
+
+    /**
+     * Retrieves the number of adds.
+     *
+     * @return Number of adds.
+     */
+    long getAddCount();
+
+    /**
+     * Computes the number of adds per second.
+     *
+     * @return Mean number of adds per second.
+     */
+    double getAddRate();
+
+    /**
+     * Retrieves the total time spent by adds waiting for the lock of the
+     * aggregator, a measure of the contention on the aggregator.
+     *
+     * @return Total lock wait time of the adds.
+     */
+    long getTotalAddLockWait();
+
+    /**
+     * Retrieves the longest time an add waited for the lock.
+     *
+     * @return Maximum lock wait time of the adds.
+     */
+    long getMaxAddLockWait();
+
+    /**
+     * Retrieves the number of evaluations.
+     *
+     * @return Number of evaluations.
+     */
+    long getEvaluateCount();
+
+    /**
+     * Retrieves the mean time spent evaluating.
+     *
+     * @return Mean evaluation duration.
+     */
+    long getMeanEvaluateDuration();
+
+    /**
+     * Retrieves the longest time spent evaluating.
+     *
+     * @return Maximum evaluation duration.
+     */
+    long getMaxEvaluateDuration();
+
+    /**
+     * Retrieves the total time spent by evaluations waiting for the lock.
+     *
+     * @return Total lock wait time of the evaluations.
+     */
+    long getTotalEvaluateLockWait();
+
+    /**
+     * Retrieves the number of flushes.
+     *
+     * @return Number of flushes.
+     */
+    long getFlushCount();
+
+    /**
+     * Retrieves the mean time spent flushing, i.e. evaluating and resetting.
+     *
+     * @return Mean flush duration.
+     */
+    long getMeanFlushDuration();
+
+    /**
+     * Retrieves the drift of the last flush compared to the interval.
+     *
+     * @return Drift of the last flush; positive if late.
+     */
+    long getLastFlushDrift();
+
+    /**
+     * Retrieves the largest delay of a flush compared to the interval.
+     *
+     * @return Maximum flush delay.
+     */
+    long getMaxFlushDelay();
+
+    /**
+     * Retrieves the number of listener notifications.
+     *
+     * @return Number of notifications.
+     */
+    long getNotifyCount();
+
+    /**
+     * Retrieves the mean time between the end of a flush and the notification
+     * of a listener.
+     *
+     * @return Mean listener latency.
+     */
+    long getMeanListenerLatency();
+
+    /**
+     * Retrieves the longest time between the end of a flush and the
+     * notification of a listener.
+     *
+     * @return Maximum listener latency.
+     */
+    long getMaxListenerLatency();
+
+    /**
+     * Retrieves the mean time spent in a listener.
+     *
+     * @return Mean listener duration.
+     */
+    long getMeanListenerDuration();
+
+    /**
+     * Retrieves the longest time spent in a listener.
+     *
+     * @return Maximum listener duration.
+     */
+    long getMaxListenerDuration();
+
+    /**
+     * Clears all the statistics.
+     */
+    void resetStatistics();
+}
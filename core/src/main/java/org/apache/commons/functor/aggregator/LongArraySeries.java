@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * {@link LongSeries} view over the first <code>size</code> elements of a
+ * <code>long</code> array. The array is not copied, so any changes to it are
+ * visible through this view.
+ */
+public final class LongArraySeries implements LongSeries {
+    /**
+     * Array storing the data.
+     */
+    private final long[] data;
+
+    /**
+     * Number of elements in {@link #data} which are part of the series.
+     */
+    private final int      size;
+
+    /**
+     * Creates a view over the given array.
+     *
+     * @param data
+     *            Array storing the data
+     * @param size
+     *            Number of elements (from the start of the array) which are
+     *            part of the series. Must be between 0 and
+     *            <code>data.length</code>.
+     */
+    public LongArraySeries(long[] data, int size) {
+        this.data = Validate.notNull(data, "Data array must not be null");
+        Validate.isTrue(size >= 0 && size <= data.length, "Invalid size: %s", size);
+        this.size = size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return data[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void copyTo(long[] dest) {
+        System.arraycopy(data, 0, dest, 0, size);
+    }
+
+    @Override
+    public String toString() {
+        return LongArraySeries.class.getName();
+    }
+}
@@ -0,0 +1,527 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Histogram of non-negative <code>long</code> values (typically latencies)
+ * using a fixed, log-linear bucket layout similar to the one used by
+ * HdrHistogram: values below <code>2^precision</code> each have their own
+ * bucket, and every power of 2 above is split into
+ * <code>2^(precision - 1)</code> buckets of equal width. The width of a bucket
+ * is therefore always less than <code>2^(1 - precision)</code> times the
+ * values it holds, which bounds the relative error of any percentile computed
+ * from the histogram (see {@link #getRelativeError()}), while the whole range
+ * of non-negative <code>long</code> values is covered by a few thousand
+ * buckets.
+ * <p>
+ * {@link #record(long) Recording} a value takes constant time: the bucket is
+ * computed with a few bit operations and its count incremented atomically, so
+ * values can be recorded concurrently from any number of threads without
+ * locking. Count, sum, min and max are tracked exactly; percentiles are
+ * computed from the buckets. Queries made while values are being recorded
+ * are not atomic snapshots, but each bucket count only ever grows, so a
+ * {@link #copy() copy} taken later always dominates one taken earlier and the
+ * two can be {@link #subtract(LongHistogram) subtracted} to get the values
+ * recorded in between. A copy taken while values are being recorded may
+ * however count a value in its sum, min or max but not in its buckets, or the
+ * other way round; {@link #copyOfBuckets()} only copies the buckets, so that
+ * all the statistics of the copy describe the same values.
+ * </p>
+ */
+public final class LongHistogram {
+    /** Precision used when none is specified: relative error under 0.8%. */
+    public static final int     DEFAULT_PRECISION = 7;
+
+    /** Lowest precision accepted. */
+    public static final int     MIN_PRECISION     = 1;
+
+    /** Highest precision accepted: about 400000 buckets. */
+    public static final int     MAX_PRECISION     = 14;
+
+    /** A percentile goes from 0 to 100% and that's it. */
+    private static final double MAX_PERCENTAGE    = 100.0;
+
+    /** Number of bits used to index a bucket within a power of 2. */
+    private final int           precision;
+
+    /** Count of values recorded in each bucket. */
+    private final AtomicLongArray counts;
+
+    /** Number of values recorded. */
+    private final AtomicLong    totalCount        = new AtomicLong();
+
+    /** Sum of the values recorded. */
+    private final AtomicLong    sum               = new AtomicLong();
+
+    /** Smallest value recorded, <code>Long.MAX_VALUE</code> if none. */
+    private final AtomicLong    min               = new AtomicLong(Long.MAX_VALUE);
+
+    /** Largest value recorded, <code>Long.MIN_VALUE</code> if none. */
+    private final AtomicLong    max               = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Creates an empty histogram using the {@link #DEFAULT_PRECISION default
+     * precision}.
+     */
+    public LongHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates an empty histogram with the given precision.
+     *
+     * @param precision
+     *            Number of bits of precision of the buckets: the higher, the
+     *            more accurate the percentiles and the more memory used. Must
+     *            be between {@link #MIN_PRECISION} and {@link #MAX_PRECISION}.
+     */
+    public LongHistogram(int precision) {
+        Validate.isTrue(precision >= MIN_PRECISION && precision <= MAX_PRECISION, "Invalid precision: %s",
+                precision);
+        this.precision = precision;
+        // the largest value, Long.MAX_VALUE, is in the last bucket
+        this.counts = new AtomicLongArray(indexOf(Long.MAX_VALUE) + 1);
+    }
+
+    /**
+     * Records a value in this histogram.
+     *
+     * @param value
+     *            Value to record. Must not be negative.
+     */
+    public void record(long value) {
+        if (value < 0L) {
+            throw new IllegalArgumentException("Value must not be negative: " + value);
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        sum.addAndGet(value);
+        updateMin(value);
+        updateMax(value);
+    }
+
+    /**
+     * Adds all the values recorded in the given histogram to this one.
+     *
+     * @param other
+     *            Histogram to add. Cannot be <code>null</code> and must have
+     *            the same precision as this one.
+     */
+    public void add(LongHistogram other) {
+        checkCompatible(other);
+        long added = 0L;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0L) {
+                counts.addAndGet(i, count);
+                added += count;
+            }
+        }
+        totalCount.addAndGet(added);
+        sum.addAndGet(other.sum.get());
+        updateMin(other.min.get());
+        updateMax(other.max.get());
+    }
+
+    /**
+     * Removes all the values recorded in the given histogram from this one.
+     * This is typically used to compute the values recorded during an
+     * interval, by subtracting a copy taken at the beginning of the interval
+     * from a copy taken at the end. As the min and max of the remaining values
+     * can't be derived from the ones of both histograms, they are narrowed
+     * down to the range of the lowest and highest buckets left, so they are
+     * only accurate within the {@link #getRelativeError() relative error} of
+     * this histogram.
+     *
+     * @param other
+     *            Histogram to subtract. Cannot be <code>null</code>, must have
+     *            the same precision as this one and must not have more values
+     *            in any bucket than this one.
+     */
+    public void subtract(LongHistogram other) {
+        checkCompatible(other);
+        for (int i = 0; i < counts.length(); i++) {
+            if (other.counts.get(i) > counts.get(i)) {
+                throw new IllegalArgumentException("Cannot subtract a histogram with more values in bucket " + i);
+            }
+        }
+        long removed = 0L;
+        int lowest = -1;
+        int highest = -1;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0L) {
+                removed += count;
+            }
+            if (counts.addAndGet(i, -count) != 0L) {
+                if (lowest < 0) {
+                    lowest = i;
+                }
+                highest = i;
+            }
+        }
+        totalCount.addAndGet(-removed);
+        sum.addAndGet(-other.sum.get());
+        if (lowest < 0) {
+            min.set(Long.MAX_VALUE);
+            max.set(Long.MIN_VALUE);
+        } else {
+            min.set(Math.max(min.get(), lowerBound(lowest)));
+            max.set(Math.min(max.get(), upperBound(highest)));
+        }
+    }
+
+    /**
+     * Empties this histogram, so it can be reused.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0L);
+        }
+        totalCount.set(0L);
+        sum.set(0L);
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    /**
+     * Creates a copy of this histogram. Further changes to either histogram
+     * are not reflected in the other one.
+     *
+     * @return Independent copy of this histogram.
+     */
+    public LongHistogram copy() {
+        LongHistogram copy = new LongHistogram(precision);
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Creates a copy of the buckets of this histogram, whose count, sum, min
+     * and max are computed from the buckets copied rather than copied as well:
+     * the sum adds up the midpoint of the bucket of each value, and the min
+     * and max are the lower bound of the lowest bucket and the upper bound of
+     * the highest one. They are exact for values below
+     * <code>2^precision</code>, which have a bucket each, and otherwise only
+     * accurate within the {@link #getRelativeError() relative error} of this
+     * histogram. Unlike {@link #copy()}, all the statistics of the copy are
+     * consistent with each other even when values are recorded concurrently.
+     *
+     * @return Independent copy of the buckets of this histogram.
+     */
+    public LongHistogram copyOfBuckets() {
+        LongHistogram copy = new LongHistogram(precision);
+        long copiedCount = 0L;
+        long copiedSum = 0L;
+        int lowest = -1;
+        int highest = -1;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count != 0L) {
+                copy.counts.set(i, count);
+                copiedCount += count;
+                copiedSum += count * midpoint(i);
+                if (lowest < 0) {
+                    lowest = i;
+                }
+                highest = i;
+            }
+        }
+        copy.totalCount.set(copiedCount);
+        copy.sum.set(copiedSum);
+        if (lowest >= 0) {
+            copy.min.set(lowerBound(lowest));
+            copy.max.set(upperBound(highest));
+        }
+        return copy;
+    }
+
+    /**
+     * Computes the approximate value of the given percentile of the values
+     * recorded: the midpoint of the bucket holding it, narrowed down to the
+     * range of the values recorded. The 0th and 100th percentiles return
+     * {@link #getMin()} and {@link #getMax()}, which are exact unless values
+     * have been {@link #subtract(LongHistogram) subtracted} from this
+     * histogram or it is a {@link #copyOfBuckets() copy of the buckets} of
+     * another one.
+     *
+     * @param percentile
+     *            Percentile to compute: 0 &lt;= percentile &lt;= 100
+     * @return Approximate value of the percentile or 0 if this histogram is
+     *         empty.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > MAX_PERCENTAGE) {
+            throw new IllegalArgumentException("Invalid value for percentile: " + percentile);
+        }
+        long total = 0L;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        if (percentile == 0.0) {
+            return getMin();
+        }
+        if (percentile == MAX_PERCENTAGE) {
+            return getMax();
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile / MAX_PERCENTAGE * total));
+        long seen = 0L;
+        int index = 0;
+        for (; index < counts.length() - 1; index++) {
+            seen += counts.get(index);
+            if (seen >= rank) {
+                break;
+            }
+        }
+        return Math.max(min.get(), Math.min(max.get(), midpoint(index)));
+    }
+
+    /**
+     * Retrieves the number of values recorded.
+     *
+     * @return Number of values recorded.
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Retrieves the sum of the values recorded.
+     *
+     * @return Sum of the values recorded, 0 if this histogram is empty.
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Retrieves the smallest value recorded.
+     *
+     * @return Smallest value recorded, 0 if this histogram is empty.
+     */
+    public long getMin() {
+        long result = min.get();
+        // the max is updated after the min, so it tells whether a value has
+        // been recorded even if Long.MAX_VALUE was
+        return max.get() == Long.MIN_VALUE ? 0L : result;
+    }
+
+    /**
+     * Retrieves the largest value recorded.
+     *
+     * @return Largest value recorded, 0 if this histogram is empty.
+     */
+    public long getMax() {
+        long result = max.get();
+        return result == Long.MIN_VALUE ? 0L : result;
+    }
+
+    /**
+     * Computes the mean of the values recorded.
+     *
+     * @return Mean of the values recorded or <code>NaN</code> if this
+     *         histogram is empty.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0L ? Double.NaN : (double) sum.get() / count;
+    }
+
+    /**
+     * Getter for {@link #precision}.
+     *
+     * @return Number of bits of precision of the buckets.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Retrieves the maximum relative error of the percentiles computed by this
+     * histogram: half the width of a bucket relative to the values it holds.
+     *
+     * @return <code>2^-precision</code>
+     */
+    public double getRelativeError() {
+        return 1.0 / (1L << precision);
+    }
+
+    /**
+     * Retrieves the number of buckets. Provided for serialization purposes
+     * only.
+     *
+     * @return Number of buckets.
+     * @see SnapshotCodecs#LONG_HISTOGRAM
+     */
+    int getBucketCount() {
+        return counts.length();
+    }
+
+    /**
+     * Retrieves the number of values recorded in the given bucket. Provided
+     * for serialization purposes only.
+     *
+     * @param index
+     *            Index of the bucket.
+     * @return Number of values in the bucket.
+     */
+    long getBucketValueCount(int index) {
+        return counts.get(index);
+    }
+
+    /**
+     * Restores the number of values recorded in the given bucket. Provided for
+     * deserialization purposes only: once all the buckets have been restored,
+     * {@link #restoreSummary(long, long, long, long)} must be called.
+     *
+     * @param index
+     *            Index of the bucket.
+     * @param count
+     *            Number of values in the bucket.
+     */
+    void restoreBucket(int index, long count) {
+        counts.set(index, count);
+    }
+
+    /**
+     * Restores the count, sum and range of the values of this histogram.
+     * Provided for deserialization purposes only.
+     *
+     * @param restoredCount
+     *            Number of values recorded.
+     * @param restoredSum
+     *            Sum of the values recorded.
+     * @param restoredMin
+     *            Smallest value recorded.
+     * @param restoredMax
+     *            Largest value recorded.
+     */
+    void restoreSummary(long restoredCount, long restoredSum, long restoredMin, long restoredMax) {
+        totalCount.set(restoredCount);
+        sum.set(restoredSum);
+        min.set(restoredMin);
+        max.set(restoredMax);
+    }
+
+    /**
+     * Computes the index of the bucket holding the given value. The value is
+     * shifted right so that its highest bit lands at position
+     * <code>precision - 1</code>, unless it is already small enough; the
+     * number of bits shifted out selects the power of 2 and the remaining
+     * bits the bucket within it.
+     *
+     * @param value
+     *            Non-negative value.
+     * @return Index of the bucket.
+     */
+    private int indexOf(long value) {
+        int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - precision);
+        return (shift << (precision - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * Computes the smallest value held by the given bucket.
+     *
+     * @param index
+     *            Index of the bucket.
+     * @return Smallest value which would be recorded in the bucket.
+     */
+    private long lowerBound(int index) {
+        int shift = Math.max(0, (index >> (precision - 1)) - 1);
+        return (long) (index - (shift << (precision - 1))) << shift;
+    }
+
+    /**
+     * Computes the largest value held by the given bucket.
+     *
+     * @param index
+     *            Index of the bucket.
+     * @return Largest value which would be recorded in the bucket.
+     */
+    private long upperBound(int index) {
+        int shift = Math.max(0, (index >> (precision - 1)) - 1);
+        return lowerBound(index) + (1L << shift) - 1L;
+    }
+
+    /**
+     * Computes the value in the middle of the given bucket.
+     *
+     * @param index
+     *            Index of the bucket.
+     * @return Midpoint of the values which would be recorded in the bucket.
+     */
+    private long midpoint(int index) {
+        long lower = lowerBound(index);
+        return lower + ((upperBound(index) - lower) >>> 1);
+    }
+
+    /**
+     * Lowers {@link #min} to the given value if needed.
+     *
+     * @param value
+     *            Value recorded.
+     */
+    private void updateMin(long value) {
+        for (;;) {
+            long current = min.get();
+            if (value >= current || min.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Raises {@link #max} to the given value if needed.
+     *
+     * @param value
+     *            Value recorded.
+     */
+    private void updateMax(long value) {
+        for (;;) {
+            long current = max.get();
+            if (value <= current || max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Makes sure the given histogram can be added to or subtracted from this
+     * one.
+     *
+     * @param other
+     *            Histogram to check.
+     */
+    private void checkCompatible(LongHistogram other) {
+        Validate.notNull(other, "Histogram must not be null");
+        Validate.isTrue(other.precision == precision, "Precision mismatch: %s instead of %s", other.precision,
+                precision);
+    }
+
+    @Override
+    public String toString() {
+        return LongHistogram.class.getName();
+    }
+}
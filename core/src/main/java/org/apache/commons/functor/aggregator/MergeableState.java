@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * The partial state of an aggregation, which can be merged with another
+ * partial state of the same kind. This allows data to be aggregated in
+ * parallel (e.g. one state per thread or per core, or one per machine) and
+ * the partial results to be reduced afterwards, which is not possible with
+ * the values returned by {@link Aggregator#evaluate()} alone -- for instance,
+ * merging 2 means requires the sums and counts they have been computed from.
+ * <p>
+ * Implementations must follow monoid semantics: {@link #merge(MergeableState)}
+ * has to be associative, and a newly created state (which hasn't received any
+ * data) has to be its identity element. Merging 2 states must produce the same
+ * result (up to floating point rounding) as adding all their data to a single
+ * state.
+ * </p>
+ * <p>
+ * Instances are <b>not</b> thread safe -- synchronization is the
+ * responsibility of the caller (e.g. {@link StateAggregator}).
+ * </p>
+ *
+ * @param <T>
+ *            Type of data added to the state.
+ * @param <R>
+ *            Type of the result computed from the state.
+ * @param <S>
+ *            Type of the state itself, so states can only be merged with
+ *            states of the same kind.
+ */
+public interface MergeableState<T, R, S extends MergeableState<T, R, S>> {
+    /**
+     * Adds the given data to this state.
+     *
+     * @param data
+     *            Data to add.
+     */
+    void add(T data);
+
+    /**
+     * Merges the given state into this one. The other state is not modified.
+     *
+     * @param other
+     *            State to merge into this one. Cannot be <code>null</code>.
+     */
+    void merge(S other);
+
+    /**
+     * Computes the result of the aggregation from this state.
+     *
+     * @return Result of the aggregation of all the data added (or merged) into
+     *         this state.
+     */
+    R getResult();
+
+    /**
+     * Creates an independent copy of this state.
+     *
+     * @return A new state, equal to this one.
+     */
+    S copy();
+}
@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.locks.Lock;
+
+import org.apache.commons.functor.NullaryFunction;
+
+/**
+ * Aggregator which computes an approximate percentile of the data series using
+ * a {@link DoubleQuantileSketch}, rather than storing every value and sorting
+ * them on evaluation (like
+ * {@link org.apache.commons.functor.aggregator.functions.DoublePercentileAggregatorFunction}
+ * does). Adding a value takes amortized constant time and the memory used is
+ * bounded by the accuracy of the sketch, regardless of how many values are
+ * added between resets.
+ * <p>
+ * {@link #evaluate()} returns the value of the percentile this aggregator was
+ * constructed with, however, any other percentile can be retrieved via
+ * {@link #getPercentile(double)}. The sketch itself can be retrieved via
+ * {@link #snapshot()} or {@link #snapshotAndReset()} and merged with sketches
+ * from other aggregators via {@link #merge(DoubleQuantileSketch)}.
+ * </p>
+ */
+public class QuantileSketchAggregator extends AbstractTimedAggregator<Double> implements DoubleAggregator {
+    /** A percentile goes from 0 to 100% and that's it. */
+    private static final double  MAX_PERCENTAGE = 100.0;
+
+    /**
+     * Percentile value returned by {@link #evaluate()}. 0 &lt;= percentile
+     * &lt;= 100
+     */
+    private final double         percentile;
+
+    /**
+     * Accuracy parameter of the sketches created by this aggregator.
+     */
+    private final int            k;
+
+    /**
+     * Sketch of the data added since the last reset.
+     */
+    private DoubleQuantileSketch sketch;
+
+    /**
+     * Similar to {@link #QuantileSketchAggregator(double, int)
+     * QuantileSketchAggregator(percentile, DoubleQuantileSketch.DEFAULT_K)}.
+     *
+     * @param percentile
+     *            Percentile {@link #evaluate()} will return the value for
+     */
+    public QuantileSketchAggregator(double percentile) {
+        this(percentile, DoubleQuantileSketch.DEFAULT_K);
+    }
+
+    /**
+     * Similar to {@link #QuantileSketchAggregator(double, int, long)
+     * QuantileSketchAggregator(percentile, k, 0L)}.
+     *
+     * @param percentile
+     *            Percentile {@link #evaluate()} will return the value for
+     * @param k
+     *            Accuracy parameter of the sketch, as per
+     *            {@link DoubleQuantileSketch#DoubleQuantileSketch(int)}
+     */
+    public QuantileSketchAggregator(double percentile, int k) {
+        this(percentile, k, 0L);
+    }
+
+    /**
+     * Similar to {@link #QuantileSketchAggregator(double, int, long, boolean)
+     * QuantileSketchAggregator(percentile, k, interval, false)}.
+     *
+     * @param percentile
+     *            Percentile {@link #evaluate()} will return the value for
+     * @param k
+     *            Accuracy parameter of the sketch, as per
+     *            {@link DoubleQuantileSketch#DoubleQuantileSketch(int)}
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public QuantileSketchAggregator(double percentile, int k, long interval) {
+        this(percentile, k, interval, false);
+    }
+
+    /**
+     * Constructs an aggregator which will compute the given percentile using a
+     * sketch with the given accuracy, reset itself at the given interval and
+     * will use a shared timer on own private timer.
+     *
+     * @param percentile
+     *            Percentile {@link #evaluate()} will return the value for
+     * @param k
+     *            Accuracy parameter of the sketch, as per
+     *            {@link DoubleQuantileSketch#DoubleQuantileSketch(int)}
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public QuantileSketchAggregator(double percentile, int k, long interval, boolean useSharedTimer) {
+        super(interval, useSharedTimer);
+        if (percentile < 0.0 || percentile > MAX_PERCENTAGE) {
+            throw new IllegalArgumentException("Invalid value for percentile: " + percentile);
+        }
+        this.percentile = percentile;
+        this.k = k;
+        this.sketch = new DoubleQuantileSketch(k);
+    }
+
+    /**
+     * Adds a primitive value to the sketch, under the write lock.
+     *
+     * @param data
+     *            Data to be added to the aggregator.
+     */
+    public final void add(double data) {
+        long lockWait = lockForAdd();
+        try {
+            sketch.add(data);
+        } finally {
+            unlockForAdd(lockWait);
+        }
+    }
+
+    /**
+     * Adds the data to the sketch.
+     *
+     * @param data
+     *            Data to be added. Throws <code>NullPointerException</code> if
+     *            this is <code>null</code>
+     */
+    @Override
+    protected final void doAdd(Double data) {
+        sketch.add(data.doubleValue());
+    }
+
+    /**
+     * Retrieves the value of {@link #percentile} from the sketch.
+     *
+     * @return Approximate value of the percentile or <code>null</code> if no
+     *         data was added since the last reset.
+     */
+    @Override
+    protected final Double doEvaluate() {
+        return percentileOf(sketch, percentile);
+    }
+
+    /**
+     * Empties the sketch.
+     */
+    @Override
+    protected final void doReset() {
+        sketch.reset();
+    }
+
+    /**
+     * Swaps the sketch with an empty one in constant time and evaluates the
+     * detached sketch outside the lock.
+     *
+     * @return function which evaluates the detached sketch
+     * @see AbstractTimedAggregator#evaluateAndReset()
+     */
+    @Override
+    protected final NullaryFunction<Double> doDetach() {
+        final DoubleQuantileSketch detached = sketch;
+        sketch = new DoubleQuantileSketch(k);
+        return new NullaryFunction<Double>() {
+            public Double evaluate() {
+                return percentileOf(detached, percentile);
+            }
+        };
+    }
+
+    /**
+     * Retrieves the approximate value of any percentile of the data added since
+     * the last reset.
+     *
+     * @param p
+     *            Percentile to retrieve the value for: 0 &lt;= p &lt;= 100
+     * @return Approximate value of the percentile or <code>null</code> if no
+     *         data was added since the last reset.
+     */
+    public final Double getPercentile(double p) {
+        Lock lock = getDataLock().readLock();
+        lock.lock();
+        try {
+            return percentileOf(sketch, p);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a copy of the sketch of the data added since the last reset.
+     *
+     * @return Independent copy of the current sketch.
+     */
+    public final DoubleQuantileSketch snapshot() {
+        Lock lock = getDataLock().readLock();
+        lock.lock();
+        try {
+            return sketch.copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Atomically retrieves the sketch of the data added since the last reset
+     * and replaces it with an empty one.
+     *
+     * @return The sketch of the data added since the last reset.
+     */
+    public final DoubleQuantileSketch snapshotAndReset() {
+        Lock lock = getDataLock().writeLock();
+        lock.lock();
+        try {
+            DoubleQuantileSketch detached = sketch;
+            sketch = new DoubleQuantileSketch(k);
+            return detached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Merges the given sketch (e.g. a {@link #snapshot()} of another
+     * aggregator) into the sketch of this aggregator.
+     *
+     * @param other
+     *            Sketch to merge. Cannot be <code>null</code>.
+     */
+    public final void merge(DoubleQuantileSketch other) {
+        Lock lock = getDataLock().writeLock();
+        lock.lock();
+        try {
+            sketch.merge(other);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of values retained by the sketch, which is bounded by
+     * the accuracy of the sketch.
+     *
+     * @return {@link DoubleQuantileSketch#getRetainedItems()}
+     */
+    @Override
+    protected final int retrieveDataSize() {
+        return sketch.getRetainedItems();
+    }
+
+    /**
+     * Getter for {@link #percentile}.
+     *
+     * @return Percentile returned by {@link #evaluate()}
+     */
+    public final double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Getter for {@link #k}.
+     *
+     * @return Accuracy parameter of the sketches used by this aggregator.
+     */
+    public final int getK() {
+        return k;
+    }
+
+    /**
+     * Retrieves the given percentile from the sketch.
+     *
+     * @param sketch
+     *            Sketch to query
+     * @param p
+     *            Percentile to retrieve
+     * @return Value of the percentile, or <code>null</code> if the sketch is
+     *         empty.
+     */
+    private static Double percentileOf(DoubleQuantileSketch sketch, double p) {
+        if (sketch.getCount() == 0) {
+            if (p < 0.0 || p > MAX_PERCENTAGE) {
+                throw new IllegalArgumentException("Invalid value for percentile: " + p);
+            }
+            return null;
+        }
+        return sketch.getPercentile(p);
+    }
+
+    @Override
+    public String toString() {
+        return QuantileSketchAggregator.class.getName();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregator computing an exponentially weighted moving average of the rate
+ * at which events occur, per second -- e.g. requests per second over the last
+ * minute. Each call to {@link #add(double)} accounts for the given number of
+ * events (typically 1, or a number of bytes for a throughput); on each tick
+ * the number of events since the previous tick is turned into a rate and
+ * folded into the average, as described in {@link AbstractEwmaAggregator}.
+ * A tick without any events counts as a rate of 0, so the average decays
+ * when events stop.
+ * <p>
+ * Adding events is lock-free: the events are accumulated with a
+ * compare-and-set, without acquiring the write lock and without allocating
+ * any memory.
+ * </p>
+ */
+public class RateAggregator extends AbstractEwmaAggregator {
+    /** Number of milliseconds in a second, the unit of the rate. */
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    /**
+     * Raw bits of the <code>double</code> number of events since the last
+     * tick.
+     */
+    private final AtomicLong    pending           = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+    /**
+     * Similar to {@link #RateAggregator(long, long)
+     * RateAggregator(window, DEFAULT_TICK_INTERVAL)}.
+     *
+     * @param window
+     *            Time in milliseconds over which the weight of a tick decays by
+     *            a factor of <i>e</i>, e.g. {@link #ONE_MINUTE}.
+     */
+    public RateAggregator(long window) {
+        this(window, DEFAULT_TICK_INTERVAL);
+    }
+
+    /**
+     * Similar to {@link #RateAggregator(long, long, boolean)
+     * RateAggregator(window, tickInterval, false)}.
+     *
+     * @param window
+     *            Time in milliseconds over which the weight of a tick decays by
+     *            a factor of <i>e</i>, e.g. {@link #ONE_MINUTE}.
+     * @param tickInterval
+     *            Interval in milliseconds between ticks.
+     */
+    public RateAggregator(long window, long tickInterval) {
+        this(window, tickInterval, false);
+    }
+
+    /**
+     * Constructs an aggregator computing the rate averaged over the given
+     * window, ticking at the given interval.
+     *
+     * @param window
+     *            Time in milliseconds over which the weight of a tick decays by
+     *            a factor of <i>e</i>, e.g. {@link #ONE_MINUTE}. Must be
+     *            greater than zero.
+     * @param tickInterval
+     *            Interval in milliseconds between ticks. Must be greater than
+     *            zero.
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public RateAggregator(long window, long tickInterval, boolean useSharedTimer) {
+        super(window, tickInterval, useSharedTimer, true);
+    }
+
+    /**
+     * Accounts for the given number of events, without locking.
+     *
+     * @param data
+     *            Number of events.
+     */
+    @Override
+    protected final void doAdd(double data) {
+        for (;;) {
+            long bits = pending.get();
+            long updated = Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + data);
+            if (pending.compareAndSet(bits, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Turns the number of events since the last tick into a rate per second.
+     *
+     * @param tickInterval
+     *            Interval in milliseconds between ticks.
+     * @return Rate of events per second during the last tick interval.
+     */
+    @Override
+    protected final double drainTick(long tickInterval) {
+        double events = Double.longBitsToDouble(pending.getAndSet(Double.doubleToRawLongBits(0.0)));
+        return events * MILLIS_PER_SECOND / tickInterval;
+    }
+
+    @Override
+    public String toString() {
+        return RateAggregator.class.getName();
+    }
+}
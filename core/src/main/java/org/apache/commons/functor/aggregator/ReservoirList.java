@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.RandomAccess;
+
+/**
+ * Fixed-capacity list which keeps a uniform random sample of all the elements
+ * {@link #add(Object) added} to it, as decided by a {@link ReservoirSampler}.
+ * Adding an element always succeeds, but the element is only stored if it is
+ * picked for the sample, in which case it may replace a previously stored
+ * element. The list never holds more than its capacity, and
+ * {@link #getTotalCount()} reports how many elements have been added.
+ *
+ * @param <T>
+ *            Type of elements stored.
+ */
+final class ReservoirList<T> extends AbstractList<T> implements RandomAccess, SampledSeries {
+    /** Decides which elements are stored and where. */
+    private final ReservoirSampler sampler;
+
+    /** Elements stored, only the first {@link ReservoirSampler#size()} are valid. */
+    private final Object[]         elements;
+
+    /**
+     * Creates an empty list with the given capacity.
+     *
+     * @param capacity
+     *            Maximum number of elements stored. Must be greater than zero.
+     */
+    ReservoirList(int capacity) {
+        this(capacity, new Random());
+    }
+
+    /**
+     * Creates an empty list with the given capacity, using the given random
+     * generator to sample elements.
+     *
+     * @param capacity
+     *            Maximum number of elements stored. Must be greater than zero.
+     * @param random
+     *            Random generator to use. Cannot be <code>null</code>.
+     */
+    ReservoirList(int capacity, Random random) {
+        this.sampler = new ReservoirSampler(capacity, random);
+        this.elements = new Object[capacity];
+    }
+
+    /**
+     * Offers the element to the sample.
+     *
+     * @param element
+     *            Element to add.
+     * @return <code>true</code> -- the element is always accounted for in
+     *         {@link #getTotalCount()}, even if not stored.
+     */
+    @Override
+    public boolean add(T element) {
+        int slot = sampler.offer();
+        if (slot >= 0) {
+            elements[slot] = element;
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves an element of the sample.
+     *
+     * @param index
+     *            Index of the element.
+     * @return The element at the given index.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= sampler.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + sampler.size());
+        }
+        return (T) elements[index];
+    }
+
+    /**
+     * Retrieves the number of elements in the sample.
+     *
+     * @return The number of elements added, capped at the capacity.
+     */
+    @Override
+    public int size() {
+        return sampler.size();
+    }
+
+    /**
+     * Empties the list and forgets about the elements added so far.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, sampler.size(), null);
+        sampler.reset();
+    }
+
+    /**
+     * Retrieves the number of elements added since the list was last cleared.
+     *
+     * @return Number of elements added.
+     */
+    public long getTotalCount() {
+        return sampler.getCount();
+    }
+
+    /**
+     * Getter for the capacity of this list.
+     *
+     * @return Maximum number of elements stored.
+     */
+    int getCapacity() {
+        return sampler.getCapacity();
+    }
+}
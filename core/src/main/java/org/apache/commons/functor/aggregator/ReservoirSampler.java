@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.Random;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Decides which of the values offered to a fixed-capacity reservoir are kept,
+ * so that at any time the reservoir holds a uniform random sample of all the
+ * values offered so far. This implements Li's "Algorithm L": rather than
+ * drawing a random number for each value offered (as "Algorithm R" does), it
+ * computes how many values to skip before the next one to keep, so once the
+ * reservoir is full the cost of offering a value is a counter increment and a
+ * comparison.
+ * <p>
+ * This class only computes the slots; storing the values is down to the
+ * caller, which allows the reservoir to be backed by a list as well as by a
+ * primitive array. It is not thread safe.
+ * </p>
+ */
+final class ReservoirSampler {
+    /** Number of values the reservoir can hold. */
+    private final int    capacity;
+
+    /** Random generator used to pick the values kept and their slots. */
+    private final Random random;
+
+    /** Number of values offered since the last reset. */
+    private long         count;
+
+    /**
+     * Zero-based index (in the order values are offered) of the next value to
+     * be kept once the reservoir is full.
+     */
+    private long         next;
+
+    /**
+     * Running "weight" of Algorithm L: the largest of the random keys of the
+     * values in the reservoir.
+     */
+    private double       weight;
+
+    /**
+     * Creates a sampler for a reservoir of the given capacity.
+     *
+     * @param capacity
+     *            Number of values the reservoir can hold. Must be greater than
+     *            zero.
+     * @param random
+     *            Random generator to use. Cannot be <code>null</code>.
+     */
+    ReservoirSampler(int capacity, Random random) {
+        Validate.isTrue(capacity > 0, "Capacity must be greater than zero: %s", capacity);
+        this.capacity = capacity;
+        this.random = Validate.notNull(random, "Random generator must not be null");
+        reset();
+    }
+
+    /**
+     * Offers a new value to the reservoir.
+     *
+     * @return Slot of the reservoir the value must be stored in (possibly
+     *         replacing the value stored there), or -1 if the value is not
+     *         kept.
+     */
+    int offer() {
+        long index = count++;
+        if (index < capacity) {
+            if (index == capacity - 1) {
+                weight = Math.exp(Math.log(nextDouble()) / capacity);
+                skip();
+            }
+            return (int) index;
+        }
+        if (index != next) {
+            return -1;
+        }
+        weight *= Math.exp(Math.log(nextDouble()) / capacity);
+        skip();
+        return random.nextInt(capacity);
+    }
+
+    /**
+     * Forgets all the values offered so far.
+     */
+    void reset() {
+        count = 0L;
+        next = 0L;
+        weight = 1.0;
+    }
+
+    /**
+     * Getter for {@link #count}.
+     *
+     * @return Number of values offered since the last reset.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Computes the number of values stored in the reservoir.
+     *
+     * @return The number of values offered so far, capped at the capacity.
+     */
+    int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    /**
+     * Getter for {@link #capacity}.
+     *
+     * @return Number of values the reservoir can hold.
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Computes the index of the next value to keep from the current
+     * {@link #weight}: the number of values skipped follows a geometric
+     * distribution with parameter <code>weight</code>.
+     */
+    private void skip() {
+        double skipped = Math.floor(Math.log(nextDouble()) / Math.log1p(-weight));
+        if (skipped >= Long.MAX_VALUE - count || Double.isNaN(skipped)) {
+            next = Long.MAX_VALUE;
+        } else {
+            next = count + (long) skipped;
+        }
+    }
+
+    /**
+     * Draws a random number in <code>(0, 1]</code>, so its logarithm is
+     * always finite.
+     *
+     * @return Random number.
+     */
+    private double nextDouble() {
+        return 1.0 - random.nextDouble();
+    }
+}
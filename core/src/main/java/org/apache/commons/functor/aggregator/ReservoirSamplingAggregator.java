@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.List;
+
+import org.apache.commons.functor.Function;
+
+/**
+ * A list-backed aggregator which uses a bounded amount of memory: rather than
+ * storing every item added, like {@link ArrayListBackedAggregator} does, it
+ * keeps a uniform random sample ("reservoir") of at most <code>capacity</code>
+ * items. A spike in the number of items added between two resets therefore
+ * costs neither more memory nor a longer {@link #evaluate()}.
+ * <p>
+ * Aggregation functions which estimate a property of the distribution of the
+ * data -- such as the mean, the median or any percentile -- can be used
+ * unchanged, as the sample is uniform. The list passed to the aggregation
+ * function implements {@link SampledSeries}, so functions which need the true
+ * number of items added (e.g. to compute a count or a sum) can retrieve it via
+ * {@link SampledSeries#getTotalCount()}; it is also available from
+ * {@link #getTotalCount()}.
+ * </p>
+ * <p>
+ * Once the reservoir is full, adding an item costs a counter increment and a
+ * comparison for most items, as the sampling skips directly to the next item
+ * to keep ("Algorithm L").
+ * </p>
+ *
+ * @param <T>
+ *            Type of object stored.
+ * @see DoubleReservoirSamplingAggregator
+ */
+public class ReservoirSamplingAggregator<T> extends AbstractListBackedAggregator<T> {
+    /**
+     * Maximum number of items stored.
+     */
+    private final int capacity;
+
+    /**
+     * Similar to {@link #ReservoirSamplingAggregator(Function, int, long)
+     * ReservoirSamplingAggregator(aggregationFunction, capacity, 0L)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param capacity
+     *            Maximum number of items stored. Must be greater than zero.
+     */
+    public ReservoirSamplingAggregator(Function<List<T>, T> aggregationFunction, int capacity) {
+        this(aggregationFunction, capacity, 0L);
+    }
+
+    /**
+     * Similar to
+     * {@link #ReservoirSamplingAggregator(Function, int, long, boolean)
+     * ReservoirSamplingAggregator(aggregationFunction, capacity, interval, false)}.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param capacity
+     *            Maximum number of items stored. Must be greater than zero.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public ReservoirSamplingAggregator(Function<List<T>, T> aggregationFunction, int capacity, long interval) {
+        this(aggregationFunction, capacity, interval, false);
+    }
+
+    /**
+     * Initializes an aggregator with the given function, capacity and interval
+     * and decides whether to use the shared timer or own timer.
+     *
+     * @param aggregationFunction
+     *            Aggregation function to use in {@link #evaluate()}. Throws
+     *            <code>NullPointerException</code> if this is <code>null</code>
+     * @param capacity
+     *            Maximum number of items stored. Must be greater than zero.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it shares a timer across instances as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long,boolean)}
+     *            , otherwise this instance will use its private timer
+     */
+    public ReservoirSamplingAggregator(Function<List<T>, T> aggregationFunction, int capacity, long interval,
+            boolean useSharedTimer) {
+        super(aggregationFunction, new ReservoirList<T>(capacity), interval, useSharedTimer);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a new, empty reservoir.
+     *
+     * @return newly created list holding at most {@link #capacity} items.
+     */
+    @Override
+    protected List<T> createList() {
+        return new ReservoirList<T>(capacity);
+    }
+
+    /**
+     * Retrieves the number of items added since the last reset, of which the
+     * data series is a sample.
+     *
+     * @return Number of items added, which is greater than or equal to
+     *         {@link #retrieveDataSize()}.
+     */
+    public final long getTotalCount() {
+        getDataLock().readLock().lock();
+        try {
+            return ((SampledSeries) getSeries()).getTotalCount();
+        } finally {
+            getDataLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * Getter for {@link #capacity}.
+     *
+     * @return Maximum number of items stored.
+     */
+    public final int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return ReservoirSamplingAggregator.class.getName();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+/**
+ * Implemented by the data series passed to aggregation functions when the
+ * series is a sample of the data added to the aggregator rather than the data
+ * itself (see {@link ReservoirSamplingAggregator} and
+ * {@link DoubleReservoirSamplingAggregator}). Statistics which don't depend on
+ * the number of values, such as the mean or the percentiles, can be estimated
+ * from the sample directly; statistics which do, such as the count or the sum,
+ * need to be scaled by <code>getTotalCount() / size()</code>.
+ */
+public interface SampledSeries {
+    /**
+     * Retrieves the number of values the series is a sample of.
+     *
+     * @return Number of values added to the aggregator, which is greater than
+     *         or equal to the number of values in the series.
+     */
+    long getTotalCount();
+}
@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Encodes and decodes snapshots of aggregators (the values returned by
+ * {@link Aggregator#evaluate()}, sketches or {@link MergeableState mergeable
+ * states}) using a compact, versioned binary format, so they can be shipped
+ * to another process and, for sketches and states, merged there.
+ * <p>
+ * Every snapshot starts with a 3 bytes header: the {@link #getType() type tag}
+ * identifying the codec, the {@link #getVersion() version} of the format and
+ * a flags byte (currently only used to mark <code>null</code> values),
+ * followed by the payload specific to each codec. Integral values such as
+ * counts and sizes are encoded as variable-length integers (7 bits per byte)
+ * and floating point values are encoded as-is, so decoding a snapshot always
+ * gives back exactly the state which was encoded. Multi-byte values are
+ * encoded in big-endian order, so the buffers passed in must use
+ * <code>ByteOrder.BIG_ENDIAN</code> (the default for <code>ByteBuffer</code>
+ * ).
+ * </p>
+ * <p>
+ * The values are written straight into the buffer passed in, without creating
+ * any intermediate object or array. Codecs are stateless and thread safe. The
+ * codecs available out of the box are listed in {@link SnapshotCodecs}.
+ * </p>
+ *
+ * @param <T>
+ *            Type of the snapshots encoded.
+ */
+public abstract class SnapshotCodec<T> {
+    /** Size in bytes of the header of each snapshot. */
+    public static final int     HEADER_SIZE = 3;
+
+    /** Flag set in the header for <code>null</code> values. */
+    private static final byte   FLAG_NULL   = 0x01;
+
+    /** Number of bits of payload in each byte of a variable-length integer. */
+    private static final int    VAR_BITS    = 7;
+
+    /** Mask for the payload bits of each byte of a variable-length integer. */
+    private static final int    VAR_MASK    = 0x7F;
+
+    /** Bit set in each byte of a variable-length integer but the last one. */
+    private static final int    VAR_MORE    = 0x80;
+
+    /** Type tag identifying this codec. */
+    private final byte          type;
+
+    /** Version of the format written by this codec. */
+    private final byte          version;
+
+    /**
+     * Creates a codec with the given type tag and version.
+     *
+     * @param type
+     *            Type tag identifying the codec. Must be unique across codecs.
+     * @param version
+     *            Version of the format written by the codec. Snapshots with a
+     *            higher version are rejected by {@link #decode(ByteBuffer)}.
+     */
+    protected SnapshotCodec(byte type, byte version) {
+        this.type = type;
+        this.version = version;
+    }
+
+    /**
+     * Computes the number of bytes needed to encode the given value, header
+     * included.
+     *
+     * @param value
+     *            Value to encode. Can be <code>null</code>.
+     * @return Number of bytes {@link #encode(Object, ByteBuffer)} will write.
+     */
+    public final int getEncodedSize(T value) {
+        return HEADER_SIZE + (value == null ? 0 : getPayloadSize(value));
+    }
+
+    /**
+     * Encodes the given value at the current position of the buffer, advancing
+     * the position.
+     *
+     * @param value
+     *            Value to encode. Can be <code>null</code>.
+     * @param buffer
+     *            Big-endian buffer to write to.
+     * @throws java.nio.BufferOverflowException
+     *             if the buffer doesn't have enough space left, in which case
+     *             the content of the buffer is undefined.
+     */
+    public final void encode(T value, ByteBuffer buffer) {
+        Validate.isTrue(buffer.order() == ByteOrder.BIG_ENDIAN, "Buffer must be big-endian");
+        buffer.put(type);
+        buffer.put(version);
+        if (value == null) {
+            buffer.put(FLAG_NULL);
+        } else {
+            buffer.put((byte) 0);
+            encodePayload(value, buffer);
+        }
+    }
+
+    /**
+     * Decodes a value at the current position of the buffer, advancing the
+     * position.
+     *
+     * @param buffer
+     *            Big-endian buffer to read from.
+     * @return The value decoded, possibly <code>null</code>.
+     * @throws IllegalArgumentException
+     *             if the snapshot has been encoded by another codec or with a
+     *             newer version of this codec.
+     * @throws java.nio.BufferUnderflowException
+     *             if the snapshot is truncated.
+     */
+    public final T decode(ByteBuffer buffer) {
+        Validate.isTrue(buffer.order() == ByteOrder.BIG_ENDIAN, "Buffer must be big-endian");
+        byte readType = buffer.get();
+        Validate.isTrue(readType == type, "Expected a snapshot of type %s but found %s", type, readType);
+        byte readVersion = buffer.get();
+        Validate.isTrue(readVersion > 0 && readVersion <= version, "Unsupported version %s for snapshot type %s",
+                readVersion, type);
+        byte flags = buffer.get();
+        if ((flags & FLAG_NULL) != 0) {
+            return null;
+        }
+        return decodePayload(buffer, readVersion);
+    }
+
+    /**
+     * Encodes the given value and writes it to the channel, using the given
+     * buffer. The buffer is cleared first and must be large enough to hold
+     * the whole snapshot (see {@link #getEncodedSize(Object)}); it is
+     * typically allocated once (possibly as a direct buffer) and reused for
+     * all the snapshots written to the same channel.
+     *
+     * @param value
+     *            Value to encode. Can be <code>null</code>.
+     * @param channel
+     *            Channel to write to.
+     * @param buffer
+     *            Big-endian buffer to encode the value in.
+     * @return Number of bytes written.
+     * @throws IOException
+     *             if writing to the channel fails.
+     */
+    public final int writeTo(T value, WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        int size = getEncodedSize(value);
+        Validate.isTrue(buffer.capacity() >= size, "Buffer too small: %s bytes needed", size);
+        buffer.clear();
+        encode(value, buffer);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return size;
+    }
+
+    /**
+     * Getter for {@link #type}.
+     *
+     * @return Type tag identifying this codec.
+     */
+    public final byte getType() {
+        return type;
+    }
+
+    /**
+     * Getter for {@link #version}.
+     *
+     * @return Version of the format written by this codec.
+     */
+    public final byte getVersion() {
+        return version;
+    }
+
+    /**
+     * Computes the number of bytes needed to encode the payload of the given
+     * value.
+     *
+     * @param value
+     *            Value to encode. Never <code>null</code>.
+     * @return Number of bytes {@link #encodePayload(Object, ByteBuffer)} will
+     *         write.
+     */
+    protected abstract int getPayloadSize(T value);
+
+    /**
+     * Encodes the payload of the given value.
+     *
+     * @param value
+     *            Value to encode. Never <code>null</code>.
+     * @param buffer
+     *            Buffer to write to.
+     */
+    protected abstract void encodePayload(T value, ByteBuffer buffer);
+
+    /**
+     * Decodes the payload of a value.
+     *
+     * @param buffer
+     *            Buffer to read from.
+     * @param payloadVersion
+     *            Version the payload has been encoded with; never greater
+     *            than {@link #getVersion()}.
+     * @return Decoded value.
+     */
+    protected abstract T decodePayload(ByteBuffer buffer, byte payloadVersion);
+
+    /**
+     * Writes a non-negative <code>long</code> as a variable-length integer.
+     *
+     * @param buffer
+     *            Buffer to write to.
+     * @param value
+     *            Value to write. Must not be negative.
+     */
+    protected static void putVarLong(ByteBuffer buffer, long value) {
+        Validate.isTrue(value >= 0L, "Value must not be negative: %s", value);
+        long remaining = value;
+        while (remaining > VAR_MASK) {
+            buffer.put((byte) ((remaining & VAR_MASK) | VAR_MORE));
+            remaining >>>= VAR_BITS;
+        }
+        buffer.put((byte) remaining);
+    }
+
+    /**
+     * Reads a variable-length integer written by
+     * {@link #putVarLong(ByteBuffer, long)}.
+     *
+     * @param buffer
+     *            Buffer to read from.
+     * @return The value read.
+     */
+    protected static long getVarLong(ByteBuffer buffer) {
+        long result = 0L;
+        for (int shift = 0; shift < Long.SIZE; shift += VAR_BITS) {
+            int b = buffer.get();
+            result |= (long) (b & VAR_MASK) << shift;
+            if ((b & VAR_MORE) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /**
+     * Computes the number of bytes {@link #putVarLong(ByteBuffer, long)} needs
+     * to write the given value.
+     *
+     * @param value
+     *            Value to write. Must not be negative.
+     * @return Number of bytes needed.
+     */
+    protected static int getVarLongSize(long value) {
+        int size = 1;
+        long remaining = value;
+        while (remaining > VAR_MASK) {
+            size++;
+            remaining >>>= VAR_BITS;
+        }
+        return size;
+    }
+
+    /**
+     * Maps a signed <code>long</code> onto a non-negative one (0, -1, 1, -2,
+     * ... become 0, 1, 2, 3, ...) so small negative values are encoded in few
+     * bytes.
+     *
+     * @param value
+     *            Signed value.
+     * @return Zig-zag encoded value, to be read as an unsigned value.
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> (Long.SIZE - 1));
+    }
+
+    /**
+     * Writes a signed <code>long</code> as a zig-zag encoded variable-length
+     * integer.
+     *
+     * @param buffer
+     *            Buffer to write to.
+     * @param value
+     *            Value to write.
+     */
+    protected static void putZigZagLong(ByteBuffer buffer, long value) {
+        long remaining = zigZag(value);
+        while ((remaining & ~VAR_MASK) != 0L) {
+            buffer.put((byte) ((remaining & VAR_MASK) | VAR_MORE));
+            remaining >>>= VAR_BITS;
+        }
+        buffer.put((byte) remaining);
+    }
+
+    /**
+     * Reads a signed <code>long</code> written by
+     * {@link #putZigZagLong(ByteBuffer, long)}.
+     *
+     * @param buffer
+     *            Buffer to read from.
+     * @return The value read.
+     */
+    protected static long getZigZagLong(ByteBuffer buffer) {
+        long raw = 0L;
+        for (int shift = 0; shift < Long.SIZE + VAR_BITS; shift += VAR_BITS) {
+            int b = buffer.get();
+            raw |= (long) (b & VAR_MASK) << shift;
+            if ((b & VAR_MORE) == 0) {
+                return (raw >>> 1) ^ -(raw & 1L);
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /**
+     * Computes the number of bytes {@link #putZigZagLong(ByteBuffer, long)}
+     * needs to write the given value.
+     *
+     * @param value
+     *            Value to write.
+     * @return Number of bytes needed.
+     */
+    protected static int getZigZagLongSize(long value) {
+        int size = 1;
+        long remaining = zigZag(value);
+        while ((remaining & ~VAR_MASK) != 0L) {
+            size++;
+            remaining >>>= VAR_BITS;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return SnapshotCodec.class.getName() + "[type=" + type + ",version=" + version + "]";
+    }
+}
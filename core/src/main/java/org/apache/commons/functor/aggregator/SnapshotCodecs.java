@@ -0,0 +1,534 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.nio.ByteBuffer;
+
+import org.apache.commons.functor.aggregator.state.DoubleCountState;
+import org.apache.commons.functor.aggregator.state.DoubleMaxState;
+import org.apache.commons.functor.aggregator.state.DoubleMeanState;
+import org.apache.commons.functor.aggregator.state.DoubleMinState;
+import org.apache.commons.functor.aggregator.state.DoubleSumState;
+import org.apache.commons.functor.aggregator.state.DoubleSummaryState;
+import org.apache.commons.functor.aggregator.state.DoubleVarianceState;
+
+/**
+ * The {@link SnapshotCodec codecs} available out of the box, for the values
+ * returned by the aggregators in this package, for
+ * {@link DoubleQuantileSketch sketches}, for {@link LongHistogram histograms},
+ * for {@link HyperLogLog distinct counts} and for the
+ * {@link org.apache.commons.functor.aggregator.state mergeable states}. Each
+ * codec has a unique type tag, so a snapshot can be decoded without knowing
+ * its type upfront by looking up the codec via {@link #forType(byte)}.
+ * <p>
+ * Type tags below 64 are reserved for the codecs defined in this class.
+ * </p>
+ */
+public final class SnapshotCodecs {
+    /** Size in bytes of a <code>double</code>. */
+    private static final int                                 DOUBLE_BYTES   = Double.SIZE / Byte.SIZE;
+
+    /** Highest type tag reserved for the codecs defined in this class. */
+    public static final byte                                 MAX_RESERVED_TYPE = 63;
+
+    /**
+     * Codec for <code>Double</code> values, encoded as 8 bytes.
+     */
+    public static final SnapshotCodec<Double>                DOUBLE         = new SnapshotCodec<Double>((byte) 1,
+                                                                                    (byte) 1) {
+        @Override
+        protected int getPayloadSize(Double value) {
+            return DOUBLE_BYTES;
+        }
+
+        @Override
+        protected void encodePayload(Double value, ByteBuffer buffer) {
+            buffer.putDouble(value.doubleValue());
+        }
+
+        @Override
+        protected Double decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            return Double.valueOf(buffer.getDouble());
+        }
+    };
+
+    /**
+     * Codec for <code>Long</code> values, encoded as zig-zag variable-length
+     * integers so small values (positive or negative) take few bytes.
+     */
+    public static final SnapshotCodec<Long>                  LONG           = new SnapshotCodec<Long>((byte) 2,
+                                                                                    (byte) 1) {
+        @Override
+        protected int getPayloadSize(Long value) {
+            return getZigZagLongSize(value.longValue());
+        }
+
+        @Override
+        protected void encodePayload(Long value, ByteBuffer buffer) {
+            putZigZagLong(buffer, value.longValue());
+        }
+
+        @Override
+        protected Long decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            return Long.valueOf(getZigZagLong(buffer));
+        }
+    };
+
+    /**
+     * Codec for <code>Integer</code> values, encoded as zig-zag
+     * variable-length integers so small values (positive or negative) take few
+     * bytes.
+     */
+    public static final SnapshotCodec<Integer>               INTEGER        = new SnapshotCodec<Integer>((byte) 3,
+                                                                                    (byte) 1) {
+        @Override
+        protected int getPayloadSize(Integer value) {
+            return getZigZagLongSize(value.longValue());
+        }
+
+        @Override
+        protected void encodePayload(Integer value, ByteBuffer buffer) {
+            putZigZagLong(buffer, value.longValue());
+        }
+
+        @Override
+        protected Integer decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            return Integer.valueOf((int) getZigZagLong(buffer));
+        }
+    };
+
+    /**
+     * Codec for {@link DoubleQuantileSketch} instances. All the items retained
+     * by the sketch are encoded, level by level, together with its accuracy
+     * parameter, count and range, so the decoded sketch returns exactly the
+     * same percentiles as the original one and can be merged into other
+     * sketches.
+     */
+    public static final SnapshotCodec<DoubleQuantileSketch>  DOUBLE_QUANTILE_SKETCH = new SnapshotCodec<DoubleQuantileSketch>(
+                                                                                    (byte) 10, (byte) 1) {
+        @Override
+        protected int getPayloadSize(DoubleQuantileSketch value) {
+            int levelCount = value.getLevelCount();
+            int size = getVarLongSize(value.getK()) + getVarLongSize(value.getCount()) + 2 * DOUBLE_BYTES
+                    + getVarLongSize(levelCount);
+            for (int level = 0; level < levelCount; level++) {
+                int levelSize = value.getLevelSize(level);
+                size += getVarLongSize(levelSize) + levelSize * DOUBLE_BYTES;
+            }
+            return size;
+        }
+
+        @Override
+        protected void encodePayload(DoubleQuantileSketch value, ByteBuffer buffer) {
+            putVarLong(buffer, value.getK());
+            putVarLong(buffer, value.getCount());
+            buffer.putDouble(value.getMin());
+            buffer.putDouble(value.getMax());
+            int levelCount = value.getLevelCount();
+            putVarLong(buffer, levelCount);
+            for (int level = 0; level < levelCount; level++) {
+                int levelSize = value.getLevelSize(level);
+                putVarLong(buffer, levelSize);
+                for (int i = 0; i < levelSize; i++) {
+                    buffer.putDouble(value.getLevelItem(level, i));
+                }
+            }
+        }
+
+        @Override
+        protected DoubleQuantileSketch decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            DoubleQuantileSketch sketch = new DoubleQuantileSketch((int) getVarLong(buffer));
+            long count = getVarLong(buffer);
+            double min = buffer.getDouble();
+            double max = buffer.getDouble();
+            int levelCount = (int) getVarLong(buffer);
+            sketch.restoreLevels(levelCount);
+            for (int level = 0; level < levelCount; level++) {
+                int levelSize = (int) getVarLong(buffer);
+                for (int i = 0; i < levelSize; i++) {
+                    sketch.restoreItem(level, buffer.getDouble());
+                }
+            }
+            sketch.restoreSummary(count, min, max);
+            return sketch;
+        }
+    };
+
+    /**
+     * Codec for {@link LongHistogram} instances. Only the non-empty buckets
+     * are encoded, as (index gap, count) pairs of variable-length integers,
+     * together with the precision, count, sum, min and max, so the decoded
+     * histogram is identical to the original one. The histogram must not be
+     * recorded into while being encoded -- encode a
+     * {@link LongHistogram#copy() copy} or a
+     * {@link HistogramAggregator#snapshot() snapshot} instead.
+     */
+    public static final SnapshotCodec<LongHistogram>         LONG_HISTOGRAM = new SnapshotCodec<LongHistogram>(
+                                                                                    (byte) 11, (byte) 1) {
+        @Override
+        protected int getPayloadSize(LongHistogram value) {
+            int size = getVarLongSize(value.getPrecision()) + getVarLongSize(value.getCount());
+            if (value.getCount() == 0L) {
+                return size;
+            }
+            size += getZigZagLongSize(value.getSum()) + getVarLongSize(value.getMin())
+                    + getVarLongSize(value.getMax());
+            int buckets = 0;
+            int previous = -1;
+            for (int i = 0; i < value.getBucketCount(); i++) {
+                long count = value.getBucketValueCount(i);
+                if (count != 0L) {
+                    size += getVarLongSize(i - previous - 1) + getVarLongSize(count);
+                    previous = i;
+                    buckets++;
+                }
+            }
+            return size + getVarLongSize(buckets);
+        }
+
+        @Override
+        protected void encodePayload(LongHistogram value, ByteBuffer buffer) {
+            putVarLong(buffer, value.getPrecision());
+            putVarLong(buffer, value.getCount());
+            if (value.getCount() == 0L) {
+                return;
+            }
+            putZigZagLong(buffer, value.getSum());
+            putVarLong(buffer, value.getMin());
+            putVarLong(buffer, value.getMax());
+            int buckets = 0;
+            for (int i = 0; i < value.getBucketCount(); i++) {
+                if (value.getBucketValueCount(i) != 0L) {
+                    buckets++;
+                }
+            }
+            putVarLong(buffer, buckets);
+            int previous = -1;
+            for (int i = 0; i < value.getBucketCount(); i++) {
+                long count = value.getBucketValueCount(i);
+                if (count != 0L) {
+                    putVarLong(buffer, i - previous - 1);
+                    putVarLong(buffer, count);
+                    previous = i;
+                }
+            }
+        }
+
+        @Override
+        protected LongHistogram decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            LongHistogram histogram = new LongHistogram((int) getVarLong(buffer));
+            long count = getVarLong(buffer);
+            if (count == 0L) {
+                return histogram;
+            }
+            long sum = getZigZagLong(buffer);
+            long min = getVarLong(buffer);
+            long max = getVarLong(buffer);
+            int buckets = (int) getVarLong(buffer);
+            int index = -1;
+            for (int i = 0; i < buckets; i++) {
+                index += (int) getVarLong(buffer) + 1;
+                histogram.restoreBucket(index, getVarLong(buffer));
+            }
+            histogram.restoreSummary(count, sum, min, max);
+            return histogram;
+        }
+    };
+
+    /**
+     * Codec for {@link HyperLogLog} sketches: the precision followed by one
+     * byte per register, so the decoded sketch is identical to the original
+     * one.
+     */
+    public static final SnapshotCodec<HyperLogLog>           HYPER_LOG_LOG  = new SnapshotCodec<HyperLogLog>(
+                                                                                    (byte) 12, (byte) 1) {
+        @Override
+        protected int getPayloadSize(HyperLogLog value) {
+            return getVarLongSize(value.getPrecision()) + value.getRegisterCount();
+        }
+
+        @Override
+        protected void encodePayload(HyperLogLog value, ByteBuffer buffer) {
+            putVarLong(buffer, value.getPrecision());
+            int registers = value.getRegisterCount();
+            for (int i = 0; i < registers; i++) {
+                buffer.put((byte) value.getRegister(i));
+            }
+        }
+
+        @Override
+        protected HyperLogLog decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            HyperLogLog sketch = new HyperLogLog((int) getVarLong(buffer));
+            int registers = sketch.getRegisterCount();
+            for (int i = 0; i < registers; i++) {
+                int rank = buffer.get();
+                if (rank != 0) {
+                    sketch.raise(i, rank);
+                }
+            }
+            return sketch;
+        }
+    };
+
+    /**
+     * Codec for {@link DoubleSumState} instances.
+     */
+    public static final SnapshotCodec<DoubleSumState>        SUM_STATE      = new SnapshotCodec<DoubleSumState>(
+                                                                                    (byte) 20, (byte) 1) {
+        @Override
+        protected int getPayloadSize(DoubleSumState value) {
+            return DOUBLE_BYTES;
+        }
+
+        @Override
+        protected void encodePayload(DoubleSumState value, ByteBuffer buffer) {
+            buffer.putDouble(value.getSum());
+        }
+
+        @Override
+        protected DoubleSumState decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            return new DoubleSumState(buffer.getDouble());
+        }
+    };
+
+    /**
+     * Codec for {@link DoubleCountState} instances.
+     */
+    public static final SnapshotCodec<DoubleCountState>      COUNT_STATE    = new SnapshotCodec<DoubleCountState>(
+                                                                                    (byte) 21, (byte) 1) {
+        @Override
+        protected int getPayloadSize(DoubleCountState value) {
+            return getVarLongSize(value.getCount());
+        }
+
+        @Override
+        protected void encodePayload(DoubleCountState value, ByteBuffer buffer) {
+            putVarLong(buffer, value.getCount());
+        }
+
+        @Override
+        protected DoubleCountState decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            return new DoubleCountState(getVarLong(buffer));
+        }
+    };
+
+    /**
+     * Codec for {@link DoubleMinState} instances. Empty states are encoded as
+     * a single byte.
+     */
+    public static final SnapshotCodec<DoubleMinState>        MIN_STATE      = new SnapshotCodec<DoubleMinState>(
+                                                                                    (byte) 22, (byte) 1) {
+        @Override
+        protected int getPayloadSize(DoubleMinState value) {
+            return value.isEmpty() ? 1 : 1 + DOUBLE_BYTES;
+        }
+
+        @Override
+        protected void encodePayload(DoubleMinState value, ByteBuffer buffer) {
+            if (value.isEmpty()) {
+                buffer.put((byte) 0);
+            } else {
+                buffer.put((byte) 1);
+                buffer.putDouble(value.getResult().doubleValue());
+            }
+        }
+
+        @Override
+        protected DoubleMinState decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            DoubleMinState state = new DoubleMinState();
+            if (buffer.get() != 0) {
+                state.add(buffer.getDouble());
+            }
+            return state;
+        }
+    };
+
+    /**
+     * Codec for {@link DoubleMaxState} instances. Empty states are encoded as
+     * a single byte.
+     */
+    public static final SnapshotCodec<DoubleMaxState>        MAX_STATE      = new SnapshotCodec<DoubleMaxState>(
+                                                                                    (byte) 23, (byte) 1) {
+        @Override
+        protected int getPayloadSize(DoubleMaxState value) {
+            return value.isEmpty() ? 1 : 1 + DOUBLE_BYTES;
+        }
+
+        @Override
+        protected void encodePayload(DoubleMaxState value, ByteBuffer buffer) {
+            if (value.isEmpty()) {
+                buffer.put((byte) 0);
+            } else {
+                buffer.put((byte) 1);
+                buffer.putDouble(value.getResult().doubleValue());
+            }
+        }
+
+        @Override
+        protected DoubleMaxState decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            DoubleMaxState state = new DoubleMaxState();
+            if (buffer.get() != 0) {
+                state.add(buffer.getDouble());
+            }
+            return state;
+        }
+    };
+
+    /**
+     * Codec for {@link DoubleMeanState} instances.
+     */
+    public static final SnapshotCodec<DoubleMeanState>       MEAN_STATE     = new SnapshotCodec<DoubleMeanState>(
+                                                                                    (byte) 24, (byte) 1) {
+        @Override
+        protected int getPayloadSize(DoubleMeanState value) {
+            return DOUBLE_BYTES + getVarLongSize(value.getCount());
+        }
+
+        @Override
+        protected void encodePayload(DoubleMeanState value, ByteBuffer buffer) {
+            buffer.putDouble(value.getSum());
+            putVarLong(buffer, value.getCount());
+        }
+
+        @Override
+        protected DoubleMeanState decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            double sum = buffer.getDouble();
+            return new DoubleMeanState(sum, getVarLong(buffer));
+        }
+    };
+
+    /**
+     * Codec for {@link DoubleVarianceState} instances.
+     */
+    public static final SnapshotCodec<DoubleVarianceState>   VARIANCE_STATE = new SnapshotCodec<DoubleVarianceState>(
+                                                                                    (byte) 25, (byte) 1) {
+        @Override
+        protected int getPayloadSize(DoubleVarianceState value) {
+            return getVarLongSize(value.getCount()) + 2 * DOUBLE_BYTES;
+        }
+
+        @Override
+        protected void encodePayload(DoubleVarianceState value, ByteBuffer buffer) {
+            putVarLong(buffer, value.getCount());
+            buffer.putDouble(value.getMean());
+            buffer.putDouble(value.getM2());
+        }
+
+        @Override
+        protected DoubleVarianceState decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            long count = getVarLong(buffer);
+            double mean = buffer.getDouble();
+            return new DoubleVarianceState(count, mean, buffer.getDouble());
+        }
+    };
+
+    /**
+     * Codec for {@link DoubleSummaryState} instances. Empty states are encoded
+     * as a single byte.
+     */
+    public static final SnapshotCodec<DoubleSummaryState>    SUMMARY_STATE  = new SnapshotCodec<DoubleSummaryState>(
+                                                                                    (byte) 26, (byte) 1) {
+        @Override
+        protected int getPayloadSize(DoubleSummaryState value) {
+            if (value.getCount() == 0L) {
+                return getVarLongSize(0L);
+            }
+            return getVarLongSize(value.getCount()) + 5 * DOUBLE_BYTES;
+        }
+
+        @Override
+        protected void encodePayload(DoubleSummaryState value, ByteBuffer buffer) {
+            putVarLong(buffer, value.getCount());
+            if (value.getCount() == 0L) {
+                return;
+            }
+            buffer.putDouble(value.getSum());
+            buffer.putDouble(value.getMean());
+            buffer.putDouble(value.getM2());
+            buffer.putDouble(value.getMin().doubleValue());
+            buffer.putDouble(value.getMax().doubleValue());
+        }
+
+        @Override
+        protected DoubleSummaryState decodePayload(ByteBuffer buffer, byte payloadVersion) {
+            long count = getVarLong(buffer);
+            if (count == 0L) {
+                return new DoubleSummaryState();
+            }
+            double sum = buffer.getDouble();
+            double mean = buffer.getDouble();
+            double m2 = buffer.getDouble();
+            double min = buffer.getDouble();
+            return new DoubleSummaryState(count, sum, mean, m2, min, buffer.getDouble());
+        }
+    };
+
+    /**
+     * All the codecs defined in this class, indexed by type tag.
+     */
+    private static final SnapshotCodec<?>[]                  CODECS         = new SnapshotCodec<?>[MAX_RESERVED_TYPE + 1];
+
+    static {
+        register(DOUBLE);
+        register(LONG);
+        register(INTEGER);
+        register(DOUBLE_QUANTILE_SKETCH);
+        register(LONG_HISTOGRAM);
+        register(HYPER_LOG_LOG);
+        register(SUM_STATE);
+        register(COUNT_STATE);
+        register(MIN_STATE);
+        register(MAX_STATE);
+        register(MEAN_STATE);
+        register(VARIANCE_STATE);
+        register(SUMMARY_STATE);
+    }
+
+    /**
+     * Utility class, not to be instantiated.
+     */
+    private SnapshotCodecs() {
+    }
+
+    /**
+     * Looks up the codec defined in this class with the given type tag.
+     *
+     * @param type
+     *            Type tag, e.g. the first byte of a snapshot.
+     * @return The codec with the given type tag, or <code>null</code> if there
+     *         is no such codec in this class.
+     */
+    public static SnapshotCodec<?> forType(byte type) {
+        if (type < 0 || type > MAX_RESERVED_TYPE) {
+            return null;
+        }
+        return CODECS[type];
+    }
+
+    /**
+     * Registers a codec in {@link #CODECS}.
+     *
+     * @param codec
+     *            Codec to register.
+     */
+    private static void register(SnapshotCodec<?> codec) {
+        if (CODECS[codec.getType()] != null) {
+            throw new IllegalStateException("Duplicate snapshot type " + codec.getType());
+        }
+        CODECS[codec.getType()] = codec;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An aggregator which, similar to {@link AbstractNoStoreAggregator}, doesn't
+ * store the data series but processes the data on the fly; however, rather
+ * than a single value it keeps a {@link MergeableState mergeable state}, which
+ * allows it to compute results which can't be derived from the previous result
+ * alone (e.g. a mean or a variance) and, more importantly, to export its state
+ * and import states exported by other aggregators. This way data can be
+ * aggregated in parallel -- for instance one aggregator per thread, per core
+ * or per machine -- and the partial states reduced cheaply into a single one,
+ * without having to store or transfer the data itself.
+ * <p>
+ * The states are created via a {@link NullaryFunction factory}, which must
+ * return a new, empty state every time it is called: one is created when this
+ * aggregator is constructed and every time it is reset.
+ * </p>
+ *
+ * @param <T>
+ *            Type of object stored.
+ * @param <S>
+ *            Type of the state.
+ */
+public class StateAggregator<T, S extends MergeableState<T, T, S>> extends AbstractTimedAggregator<T> {
+    /**
+     * Factory creating new, empty states.
+     */
+    private final NullaryFunction<S> stateFactory;
+
+    /**
+     * The current state, which all the data is added to.
+     */
+    private S                        state;
+
+    /**
+     * Similar to {@link #StateAggregator(NullaryFunction, long, boolean)
+     * StateAggregator(stateFactory, 0L, false)}.
+     *
+     * @param stateFactory
+     *            Factory creating new, empty states.
+     */
+    public StateAggregator(NullaryFunction<S> stateFactory) {
+        this(stateFactory, 0L, false);
+    }
+
+    /**
+     * Similar to {@link #StateAggregator(NullaryFunction, long, boolean)
+     * StateAggregator(stateFactory, interval, false)}.
+     *
+     * @param stateFactory
+     *            Factory creating new, empty states.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public StateAggregator(NullaryFunction<S> stateFactory, long interval) {
+        this(stateFactory, interval, false);
+    }
+
+    /**
+     * Constructs an aggregator which will use states created by the given
+     * factory, reset itself at the given interval and will use a shared timer
+     * or own private timer.
+     *
+     * @param stateFactory
+     *            Factory creating new, empty states. Cannot be
+     *            <code>null</code> and cannot return <code>null</code>.
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public StateAggregator(NullaryFunction<S> stateFactory, long interval, boolean useSharedTimer) {
+        super(interval, useSharedTimer);
+        this.stateFactory = Validate.notNull(stateFactory, "State factory must not be null");
+        this.state = newState();
+    }
+
+    /**
+     * Adds the data to the current state.
+     *
+     * @param data
+     *            Data to aggregate
+     */
+    @Override
+    protected final void doAdd(T data) {
+        state.add(data);
+    }
+
+    /**
+     * Computes the result from the current state.
+     *
+     * @return Result of the current state
+     */
+    @Override
+    protected final T doEvaluate() {
+        return state.getResult();
+    }
+
+    /**
+     * Replaces the current state with a new, empty one.
+     */
+    @Override
+    protected final void doReset() {
+        state = newState();
+    }
+
+    /**
+     * Swaps the current state with a new, empty one; the result is computed
+     * from the detached state after the lock has been released.
+     *
+     * @return function computing the result of the detached state
+     */
+    @Override
+    protected final NullaryFunction<T> doDetach() {
+        final S detached = state;
+        state = newState();
+        return new NullaryFunction<T>() {
+            public T evaluate() {
+                return detached.getResult();
+            }
+        };
+    }
+
+    /**
+     * Exports a copy of the current state, e.g. to merge it into another
+     * aggregator or to send it over the wire. The data of this aggregator is
+     * not modified.
+     *
+     * @return copy of the current state
+     */
+    public final S exportState() {
+        getDataLock().readLock().lock();
+        try {
+            return state.copy();
+        } finally {
+            getDataLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * Atomically exports the current state and replaces it with a new, empty
+     * one. This is cheaper than {@link #exportState()} followed by
+     * {@link #reset()} as the state doesn't need to be copied, and doesn't
+     * lose any data added in between.
+     *
+     * @return the state this aggregator held until now
+     */
+    public final S exportStateAndReset() {
+        getDataLock().writeLock().lock();
+        try {
+            S result = state;
+            state = newState();
+            return result;
+        } finally {
+            getDataLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges the given state, typically exported from another aggregator,
+     * into the current state of this aggregator. The state passed in is not
+     * modified.
+     *
+     * @param other
+     *            State to merge. Cannot be <code>null</code>.
+     */
+    public final void importState(S other) {
+        Validate.notNull(other, "State must not be null");
+        getDataLock().writeLock().lock();
+        try {
+            state.merge(other);
+        } finally {
+            getDataLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * This aggregator doesn't store any data, so the data series size is always
+     * 0 (zero).
+     *
+     * @return 0
+     */
+    @Override
+    protected int retrieveDataSize() {
+        return 0;
+    }
+
+    /**
+     * Getter for {@link #stateFactory}.
+     *
+     * @return Factory creating new, empty states.
+     */
+    public final NullaryFunction<S> getStateFactory() {
+        return stateFactory;
+    }
+
+    /**
+     * Retrieves the current state, so subclasses can update it directly (e.g.
+     * without boxing the data). Subclasses must hold {@link #getDataLock()}
+     * while accessing the state, for writing if they modify it.
+     *
+     * @return the current state
+     */
+    protected final S getState() {
+        return state;
+    }
+
+    /**
+     * Creates a new state via {@link #stateFactory}.
+     *
+     * @return new state
+     */
+    private S newState() {
+        return Validate.notNull(stateFactory.evaluate(), "State factory returned null");
+    }
+
+    @Override
+    public String toString() {
+        return StateAggregator.class.getName();
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving summary tracking the approximately most frequent keys of a
+ * stream with a fixed number of counters. While there are free counters each
+ * new key gets its own one; once they are all in use, a new key takes over the
+ * counter with the lowest count. Any key occurring more than
+ * <code>n / capacity</code> times in a stream of <code>n</code> keys is
+ * guaranteed to be monitored.
+ * <p>
+ * The counters are kept in a "stream summary": a list of buckets sorted by
+ * count, each holding the counters with that count. A key is counted by moving
+ * its counter to the next bucket and the counter with the lowest count is the
+ * first one of the first bucket, so adding a key takes constant time, and the
+ * top keys are read off the last buckets without sorting. A
+ * {@link CountMinSketch} bounds the count given to a key taking over a
+ * counter: in plain Space-Saving the key inherits the count of the evicted
+ * key, which over-estimates keys that are rare but arrive late.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @param <K>
+ *            Type of the keys.
+ */
+final class StreamSummary<K> {
+    /**
+     * Number of rows of the Count-Min sketch.
+     */
+    private static final int        SKETCH_DEPTH         = 4;
+
+    /**
+     * Number of counters of each row of the Count-Min sketch, per monitored
+     * key.
+     */
+    private static final int        SKETCH_WIDTH_PER_KEY = 4;
+
+    /**
+     * Group of counters having the same count, linked to the buckets with the
+     * next lower and higher counts.
+     */
+    private static final class Bucket {
+        /** Count of all the counters in this bucket. */
+        private final long    count;
+        /** Bucket with the next lower count. */
+        private Bucket        prev;
+        /** Bucket with the next higher count. */
+        private Bucket        next;
+        /** First counter in this bucket. */
+        private Counter<?>    head;
+
+        /**
+         * Creates an empty bucket.
+         *
+         * @param count
+         *            Count of the counters of the bucket.
+         */
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+
+    /**
+     * Counter of a monitored key, linked to the other counters of its bucket.
+     *
+     * @param <K>
+     *            Type of the key.
+     */
+    private static final class Counter<K> {
+        /** The key counted. */
+        private K          key;
+        /** Maximum over-estimation of the count. */
+        private long       error;
+        /** Bucket holding this counter. */
+        private Bucket     bucket;
+        /** Previous counter in the bucket. */
+        private Counter<?> prev;
+        /** Next counter in the bucket. */
+        private Counter<?> next;
+    }
+
+    /**
+     * Maximum number of keys monitored.
+     */
+    private final int                  capacity;
+
+    /**
+     * Counters of the monitored keys.
+     */
+    private final Map<K, Counter<K>>   counters;
+
+    /**
+     * Sketch of all the keys added, bounding the count of keys which take
+     * over a counter.
+     */
+    private final CountMinSketch       sketch;
+
+    /**
+     * Bucket with the lowest count.
+     */
+    private Bucket                     min;
+
+    /**
+     * Bucket with the highest count.
+     */
+    private Bucket                     max;
+
+    /**
+     * Total number of keys added.
+     */
+    private long                       total;
+
+    /**
+     * Creates an empty summary.
+     *
+     * @param capacity
+     *            Maximum number of keys monitored. Must be positive.
+     */
+    StreamSummary(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<K, Counter<K>>(capacity * 2);
+        this.sketch = new CountMinSketch(SKETCH_DEPTH, capacity * SKETCH_WIDTH_PER_KEY);
+    }
+
+    /**
+     * Counts an occurrence of the given key.
+     *
+     * @param key
+     *            Key to count. Cannot be <code>null</code>.
+     */
+    void add(K key) {
+        total++;
+        long estimate = sketch.add(key);
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            moveTo(counter, counter.bucket.count + 1);
+        } else if (counters.size() < capacity) {
+            counter = new Counter<K>();
+            counter.key = key;
+            counters.put(key, counter);
+            moveTo(counter, 1L);
+        } else {
+            // take over the counter with the lowest count: the new key
+            // occurred at most min + 1 times, and at most as often as the
+            // sketch says
+            @SuppressWarnings("unchecked")
+            Counter<K> victim = (Counter<K>) min.head;
+            counters.remove(victim.key);
+            victim.key = key;
+            counters.put(key, victim);
+            long count = Math.min(estimate, min.count + 1);
+            victim.error = count - 1;
+            moveTo(victim, count);
+        }
+    }
+
+    /**
+     * Retrieves the monitored keys with the highest counts.
+     *
+     * @param k
+     *            Maximum number of keys to retrieve.
+     * @return The keys, by decreasing count.
+     */
+    List<HeavyHitter<K>> getTop(int k) {
+        List<HeavyHitter<K>> result = new ArrayList<HeavyHitter<K>>(Math.min(k, counters.size()));
+        for (Bucket bucket = max; bucket != null && result.size() < k; bucket = bucket.prev) {
+            for (Counter<?> c = bucket.head; c != null && result.size() < k; c = c.next) {
+                @SuppressWarnings("unchecked")
+                Counter<K> counter = (Counter<K>) c;
+                result.add(new HeavyHitter<K>(counter.key, bucket.count, counter.error));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the monitored key with the highest count.
+     *
+     * @return The key or <code>null</code> if no key has been added.
+     */
+    @SuppressWarnings("unchecked")
+    K getTopKey() {
+        if (max == null) {
+            return null;
+        }
+        return ((Counter<K>) max.head).key;
+    }
+
+    /**
+     * Estimates the count of the given key.
+     *
+     * @param key
+     *            Key to look up. Cannot be <code>null</code>.
+     * @return The count of the key if monitored, the estimate of the sketch
+     *         otherwise; in both cases never lower than the actual count.
+     */
+    long estimate(K key) {
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            return counter.bucket.count;
+        }
+        return sketch.estimate(key);
+    }
+
+    /**
+     * Getter for {@link #total}.
+     *
+     * @return Total number of keys added.
+     */
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * Retrieves the number of keys monitored.
+     *
+     * @return Number of keys monitored, at most {@link #getCapacity()}.
+     */
+    int size() {
+        return counters.size();
+    }
+
+    /**
+     * Getter for {@link #capacity}.
+     *
+     * @return Maximum number of keys monitored.
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Moves a counter to the bucket with the given count. The count must be
+     * at most one more than the current count of the counter (or than the
+     * lowest count, for a counter not in any bucket yet), so the target bucket
+     * is at most one step away and the move takes constant time.
+     *
+     * @param counter
+     *            Counter to move.
+     * @param count
+     *            New count of the counter.
+     */
+    private void moveTo(Counter<K> counter, long count) {
+        Bucket from = counter.bucket;
+        if (from != null && from.count == count) {
+            return;
+        }
+        // find the bucket to insert after: the last one with a lower count
+        Bucket before = from;
+        if (before == null || before.count > count) {
+            before = null;
+            for (Bucket b = min; b != null && b.count < count; b = b.next) {
+                before = b;
+            }
+        } else {
+            while (before.next != null && before.next.count < count) {
+                before = before.next;
+            }
+        }
+        Bucket target = before == null ? min : before.next;
+        if (target == null || target.count != count) {
+            target = new Bucket(count);
+            link(target, before);
+        }
+        if (from != null) {
+            unlink(counter);
+            if (from.head == null) {
+                unlink(from);
+            }
+        }
+        counter.bucket = target;
+        counter.prev = null;
+        counter.next = target.head;
+        if (target.head != null) {
+            target.head.prev = counter;
+        }
+        target.head = counter;
+    }
+
+    /**
+     * Inserts a bucket after the given one.
+     *
+     * @param bucket
+     *            Bucket to insert.
+     * @param before
+     *            Bucket to insert after, <code>null</code> to insert the
+     *            bucket first.
+     */
+    private void link(Bucket bucket, Bucket before) {
+        Bucket after = before == null ? min : before.next;
+        bucket.prev = before;
+        bucket.next = after;
+        if (before == null) {
+            min = bucket;
+        } else {
+            before.next = bucket;
+        }
+        if (after == null) {
+            max = bucket;
+        } else {
+            after.prev = bucket;
+        }
+    }
+
+    /**
+     * Removes an empty bucket.
+     *
+     * @param bucket
+     *            Bucket to remove.
+     */
+    private void unlink(Bucket bucket) {
+        if (bucket.prev == null) {
+            min = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next == null) {
+            max = bucket.prev;
+        } else {
+            bucket.next.prev = bucket.prev;
+        }
+    }
+
+    /**
+     * Removes a counter from its bucket.
+     *
+     * @param counter
+     *            Counter to remove.
+     */
+    private void unlink(Counter<?> counter) {
+        Bucket bucket = counter.bucket;
+        if (counter.prev == null) {
+            bucket.head = counter.next;
+        } else {
+            counter.prev.next = counter.next;
+        }
+        if (counter.next != null) {
+            counter.next.prev = counter.prev;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return StreamSummary.class.getName();
+    }
+}
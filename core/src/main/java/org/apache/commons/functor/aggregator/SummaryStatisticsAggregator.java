@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.functor.aggregator.state.DoubleSummaryState;
+
+/**
+ * Aggregator which computes the count, sum, mean, variance, standard
+ * deviation, minimum and maximum of the data added in a single pass, without
+ * storing the data. All the statistics are kept in the primitive fields of a
+ * {@link DoubleSummaryState} and updated together using Welford's online
+ * algorithm, so adding a value takes a single acquisition of the write lock
+ * rather than one per statistic -- as would be the case when using one
+ * {@link AbstractNoStoreAggregator} per statistic.
+ * <p>
+ * {@link #evaluate()} returns the mean; all the statistics can be retrieved
+ * together via {@link #getStatistics()}. As with any {@link StateAggregator},
+ * the statistics of aggregators fed by different threads (or machines) can be
+ * merged via {@link #exportState()} and
+ * {@link #importState(org.apache.commons.functor.aggregator.MergeableState)
+ * importState()}.
+ * </p>
+ */
+public class SummaryStatisticsAggregator extends StateAggregator<Double, DoubleSummaryState> implements
+        DoubleAggregator {
+    /**
+     * Factory creating the empty states used by this aggregator.
+     */
+    private static final NullaryFunction<DoubleSummaryState> STATE_FACTORY = new NullaryFunction<DoubleSummaryState>() {
+        public DoubleSummaryState evaluate() {
+            return new DoubleSummaryState();
+        }
+    };
+
+    /**
+     * Similar to {@link #SummaryStatisticsAggregator(long, boolean)
+     * SummaryStatisticsAggregator(0L, false)}.
+     */
+    public SummaryStatisticsAggregator() {
+        this(0L, false);
+    }
+
+    /**
+     * Similar to {@link #SummaryStatisticsAggregator(long, boolean)
+     * SummaryStatisticsAggregator(interval, false)}.
+     *
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     */
+    public SummaryStatisticsAggregator(long interval) {
+        this(interval, false);
+    }
+
+    /**
+     * Constructs an aggregator which will reset itself at the given interval
+     * and will use a shared timer or own private timer.
+     *
+     * @param interval
+     *            interval in miliseconds to reset this aggregator
+     * @param useSharedTimer
+     *            if set to true, it will use a shared timer, as per
+     *            {@link AbstractTimedAggregator#AbstractTimedAggregator(long, boolean)}
+     *            ; otherwise if it's false it will use its own timer instance
+     */
+    public SummaryStatisticsAggregator(long interval, boolean useSharedTimer) {
+        super(STATE_FACTORY, interval, useSharedTimer);
+    }
+
+    /**
+     * Adds a primitive value to all the statistics, under the write lock.
+     *
+     * @param data
+     *            Data to be added to the aggregator.
+     */
+    public final void add(double data) {
+        long lockWait = lockForAdd();
+        try {
+            getState().add(data);
+        } finally {
+            unlockForAdd(lockWait);
+        }
+    }
+
+    /**
+     * Retrieves all the statistics of the data added since the last reset.
+     * This is the same as {@link #exportState()}.
+     *
+     * @return Copy of the current statistics.
+     */
+    public final DoubleSummaryState getStatistics() {
+        return exportState();
+    }
+
+    @Override
+    public String toString() {
+        return SummaryStatisticsAggregator.class.getName();
+    }
+}
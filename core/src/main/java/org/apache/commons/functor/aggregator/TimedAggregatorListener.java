@@ -18,7 +18,11 @@ package org.apache.commons.functor.aggregator;
 
 /**
  * Listener to be used with instances of {@link AbstractTimedAggregator} to
- * receive notifications when the timer kicks in.
+ * receive notifications when the timer kicks in. Depending on the
+ * {@link AggregatorScheduler} used, the notifications can be delivered on a
+ * different thread than the one flushing the aggregator. Listeners which may
+ * block (e.g. doing I/O) can be wrapped in an
+ * {@link AsyncTimedAggregatorListener} so they never delay the flushing.
  *
  * @param <T>
  *            Type of object the <code>Aggregator</code> is operating on.
@@ -31,8 +35,9 @@ public interface TimedAggregatorListener<T> {
      *            Aggregator which has triggered the time event in the first
      *            place.
      * @param evaluation
-     *            Current {@link AbstractTimedAggregator#evaluate() evaluation
-     *            result} of the aggregator which triggered the event
+     *            Evaluation result of the data the aggregator which triggered
+     *            the event has gathered since the last reset, as returned by
+     *            {@link AbstractTimedAggregator#evaluateAndReset()}
      */
     void onTimer(AbstractTimedAggregator<T> aggregator, T evaluation);
 }
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.functor.Function;
+
+/**
+ * Function which retrieves the values for several <a
+ * href="http://en.wikipedia.org/wiki/Percentile">percentiles</a> of a list in
+ * one go (e.g. p50, p90, p99 and p99.9). It uses the same formula for the rank
+ * of each percentile as {@link DoublePercentileAggregatorFunction}, however it
+ * copies the values into a primitive array and uses <a
+ * href="http://en.wikipedia.org/wiki/Quickselect">quickselect</a> to find the
+ * element for each rank. The percentiles are processed in ascending order and
+ * each selection only has to partition the part of the array to the right of
+ * the previous one, so the array is only partitioned once overall rather than
+ * once per percentile. The original list is never modified.
+ * <p>
+ * Since this function returns several values, it cannot be used directly as
+ * the aggregation function of an
+ * {@link org.apache.commons.functor.aggregator.AbstractListBackedAggregator};
+ * it is meant to be applied to a data series gathered by a subclass of it (or
+ * any other list of values) when the values for several percentiles are
+ * needed. A new array is allocated for each evaluation, so a single instance
+ * can be shared by any number of aggregators.
+ * </p>
+ */
+public final class DoubleMultiPercentileAggregatorFunction implements Function<List<Double>, double[]> {
+    /** A percentile goes from 0 to 100% and that's it. */
+    private static final double MAX_PERCENTAGE = 100.0;
+
+    /**
+     * Percentile values to calculate, in the order they were passed in the
+     * constructor. 0 &lt;= percentile &lt;= 100
+     */
+    private final double[]      percentiles;
+
+    /**
+     * Indices in {@link #percentiles}, ordered by percentile.
+     */
+    private final int[]         order;
+
+    /**
+     * Initializes the function with the given percentiles.
+     *
+     * @param percentiles
+     *            Percentiles this function will return the values for, e.g.
+     *            <code>50, 90, 99, 99.9</code>. At least one percentile must
+     *            be given.
+     */
+    public DoubleMultiPercentileAggregatorFunction(double... percentiles) {
+        if (percentiles == null || percentiles.length == 0) {
+            throw new IllegalArgumentException("At least one percentile is required");
+        }
+        for (double percentile : percentiles) {
+            if (percentile < 0.0 || percentile > MAX_PERCENTAGE) {
+                throw new IllegalArgumentException("Invalid value for percentile: " + percentile);
+            }
+        }
+        this.percentiles = percentiles.clone();
+        this.order = new int[percentiles.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // insertion sort of the indices by percentile -- there's only a handful
+        for (int i = 1; i < order.length; i++) {
+            int index = order[i];
+            int j = i - 1;
+            while (j >= 0 && this.percentiles[order[j]] > this.percentiles[index]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = index;
+        }
+    }
+
+    /**
+     * Copies the list into an array and selects the elements at the
+     * rank of each percentile, in ascending order.
+     *
+     * @param data
+     *            List to compute the percentiles for
+     * @return values of the percentiles for the given list, in the same order
+     *         as the percentiles were passed in the constructor, or null if
+     *         list is <code>null</code> or empty (zero size).
+     */
+    public double[] evaluate(List<Double> data) {
+        if (data == null || data.size() == 0) {
+            return null;
+        }
+        int n = data.size();
+        double[] scratch = new double[n];
+        int i = 0;
+        for (Double d : data) {
+            scratch[i++] = d;
+        }
+        double[] result = new double[percentiles.length];
+        int from = 0;
+        int previousRank = -1;
+        for (int index : order) {
+            int rank = (int) Math.floor((percentiles[index] * (n - 1)) / MAX_PERCENTAGE);
+            if (rank != previousRank) {
+                // everything left of the previous rank is smaller, so only the
+                // range to its right needs to be partitioned
+                Selection.select(scratch, from, n, rank);
+                from = rank + 1;
+                previousRank = rank;
+            }
+            result[index] = scratch[rank];
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the percentiles computed by this function.
+     *
+     * @return Copy of the percentiles, in the order passed in the constructor.
+     */
+    public double[] getPercentiles() {
+        return percentiles.clone();
+    }
+
+    @Override
+    public String toString() {
+        return DoubleMultiPercentileAggregatorFunction.class.getName() + Arrays.toString(percentiles);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import java.util.List;
+
+import org.apache.commons.functor.Function;
+
+/**
+ * Aggregator function to be used with subclasses of
+ * {@link org.apache.commons.functor.aggregator.AbstractListBackedAggregator}
+ * which retrieves the <a
+ * href="http://en.wikipedia.org/wiki/Percentile">percentile</a> value for a
+ * given percentile. This is an alternative to
+ * {@link DoublePercentileAggregatorFunction} which uses the same formula for
+ * the rank and returns the same result, however, rather than sorting the list
+ * (or a copy of it) it copies the values into a primitive array and uses <a
+ * href="http://en.wikipedia.org/wiki/Quickselect">quickselect</a> to find the
+ * element at that rank, in <i>O(n)</i> expected time. The original list is
+ * never modified. A new array is allocated for each evaluation, so a single
+ * instance can be shared by any number of aggregators.
+ */
+public final class DoubleQuickSelectPercentileAggregatorFunction implements Function<List<Double>, Double> {
+    /** A percentile goes from 0 to 100% and that's it. */
+    private static final double MAX_PERCENTAGE = 100.0;
+
+    /**
+     * Percentile value to calculate. 0 &lt;= percentile &lt;= 100
+     */
+    private final double        percentile;
+
+    /**
+     * Initializes the function with the given percentile.
+     *
+     * @param percentile
+     *            Percentile this function will return the value for
+     */
+    public DoubleQuickSelectPercentileAggregatorFunction(double percentile) {
+        if (percentile < 0.0 || percentile > MAX_PERCENTAGE) {
+            throw new IllegalArgumentException("Invalid value for percentile: " + percentile);
+        }
+        this.percentile = percentile;
+    }
+
+    /**
+     * Used internally to compute the rank of the item in the list for the
+     * requested percentile.
+     *
+     * @param size
+     *            Number of items in the list. Must be greater than zero.
+     * @return Index of the item for the requested percentile
+     * @see DoublePercentileAggregatorFunction#computeRank(List)
+     */
+    final int computeRank(int size) {
+        int maxRank = size - 1;
+        return (int) Math.floor((percentile * maxRank) / MAX_PERCENTAGE);
+    }
+
+    /**
+     * Copies the list into an array and selects the element at the
+     * rank of the percentile.
+     *
+     * @param data
+     *            List to compute the percentile for
+     * @return percentile of the given list or null if list is <code>null</code>
+     *         or empty (zero size).
+     */
+    public Double evaluate(List<Double> data) {
+        if (data == null || data.size() == 0) {
+            return null;
+        }
+        int n = data.size();
+        double[] scratch = new double[n];
+        int i = 0;
+        for (Double d : data) {
+            scratch[i++] = d;
+        }
+        return Selection.select(scratch, 0, n, computeRank(n));
+    }
+
+    /**
+     * Getter for {@link #percentile}.
+     *
+     * @return Retrieves the percentile this instance will return
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleQuickSelectPercentileAggregatorFunction.class.getName();
+    }
+}
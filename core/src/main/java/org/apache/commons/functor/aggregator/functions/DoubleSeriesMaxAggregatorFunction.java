@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.aggregator.DoubleSeries;
+
+/**
+ * Aggregator function to be used with subclasses of
+ * {@link org.apache.commons.functor.aggregator.AbstractDoubleSeriesAggregator}
+ * which finds the maximum number in a series. It does this by traversing the
+ * series (once) -- so the complexity of this will be <i>O(n)</i>. Primitive
+ * counterpart of {@link DoubleMaxAggregatorFunction}.
+ */
+public final class DoubleSeriesMaxAggregatorFunction implements Function<DoubleSeries, Double> {
+    /**
+     * Does the actual traversal of the series and finds the maximum value then
+     * returns the result. Please note that caller is responsible for
+     * synchronizing access to the series.
+     *
+     * @param data
+     *            Series to traverse and find max
+     * @return max number in the series or null if the series is empty.
+     */
+    public Double evaluate(DoubleSeries data) {
+        if (data == null || data.size() == 0) {
+            return null;
+        }
+        double max = data.get(0);
+        for (int i = 1, n = data.size(); i < n; i++) {
+            double d = data.get(i);
+            if (max < d) {
+                max = d;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleSeriesMaxAggregatorFunction.class.getName();
+    }
+}
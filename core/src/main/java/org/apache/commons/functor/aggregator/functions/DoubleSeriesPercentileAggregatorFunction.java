@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.aggregator.DoubleSeries;
+
+/**
+ * Aggregator function to be used with subclasses of
+ * {@link org.apache.commons.functor.aggregator.AbstractDoubleSeriesAggregator}
+ * which retrieves the <a
+ * href="http://en.wikipedia.org/wiki/Percentile">percentile</a> value for a
+ * given percentile. Primitive counterpart of
+ * {@link DoublePercentileAggregatorFunction}, using the same formula to compute
+ * the rank of the percentile. The series is never modified: its values are
+ * copied into a primitive array in which the element at that rank is found
+ * using <a href="http://en.wikipedia.org/wiki/Quickselect">quickselect</a>, in
+ * <i>O(n)</i> expected time. A new array is allocated for each evaluation, so a
+ * single instance can be shared by any number of aggregators.
+ */
+public final class DoubleSeriesPercentileAggregatorFunction implements Function<DoubleSeries, Double> {
+    /** A percentile goes from 0 to 100% and that's it. */
+    private static final double MAX_PERCENTAGE = 100.0;
+
+    /**
+     * Percentile value to calculate. 0 &lt;= percentile &lt;= 100
+     */
+    private final double        percentile;
+
+    /**
+     * Initializes the function with the given percentile.
+     *
+     * @param percentile
+     *            Percentile this function will return the value for
+     */
+    public DoubleSeriesPercentileAggregatorFunction(double percentile) {
+        if (percentile < 0.0 || percentile > MAX_PERCENTAGE) {
+            throw new IllegalArgumentException("Invalid value for percentile: " + percentile);
+        }
+        this.percentile = percentile;
+    }
+
+    /**
+     * Used internally to compute the rank of the item in the series for the
+     * requested percentile.
+     *
+     * @param size
+     *            Number of items in the series. Must be greater than zero.
+     * @return Index of the item for the requested percentile
+     * @see DoublePercentileAggregatorFunction#computeRank(java.util.List)
+     */
+    final int computeRank(int size) {
+        int maxRank = size - 1;
+        return (int) Math.floor((percentile * maxRank) / MAX_PERCENTAGE);
+    }
+
+    /**
+     * Copies the series into an array and selects the element at the
+     * rank of the percentile.
+     *
+     * @param data
+     *            Series to compute the percentile for
+     * @return percentile of the given series or null if series is
+     *         <code>null</code> or empty (zero size).
+     */
+    public Double evaluate(DoubleSeries data) {
+        if (data == null || data.size() == 0) {
+            return null;
+        }
+        int n = data.size();
+        double[] scratch = new double[n];
+        data.copyTo(scratch);
+        return Selection.select(scratch, 0, n, computeRank(n));
+    }
+
+    /**
+     * Getter for {@link #percentile}.
+     *
+     * @return Retrieves the percentile this instance will return
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleSeriesPercentileAggregatorFunction.class.getName();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import java.util.List;
+
+import org.apache.commons.functor.Function;
+
+/**
+ * Aggregator function to be used with subclasses of
+ * {@link org.apache.commons.functor.aggregator.AbstractListBackedAggregator}
+ * which computes the <a href="http://en.wikipedia.org/wiki/Median">median</a>
+ * of all the numbers in the list. This is an alternative to
+ * {@link IntegerMedianValueAggregatorFunction} which returns the same result,
+ * however, rather than sorting the list (or a copy of it) it copies the values
+ * into a primitive array and uses <a
+ * href="http://en.wikipedia.org/wiki/Quickselect">quickselect</a> to find the
+ * middle element(s), in <i>O(n)</i> expected time. The original list is never
+ * modified. A new array is allocated for each evaluation, so a single instance
+ * can be shared by any number of aggregators.
+ */
+public final class IntegerQuickSelectMedianValueAggregatorFunction implements Function<List<Integer>, Integer> {
+    /**
+     * Copies the list into an array and selects the median value.
+     *
+     * @param data
+     *            List to compute the median value for
+     * @return the median value of the given list or <code>null</code> if the
+     *         list is <code>null</code> or empty.
+     */
+    public Integer evaluate(List<Integer> data) {
+        if (data == null || data.size() == 0) {
+            return null;
+        }
+        int n = data.size();
+        // if only one element in it, it is the median
+        if (n == 1) {
+            return data.get(0);
+        }
+        long[] scratch = new long[n];
+        int i = 0;
+        for (Integer d : data) {
+            scratch[i++] = d;
+        }
+        int middle = n / 2;
+        int median = (int) Selection.select(scratch, 0, n, middle);
+        if (n % 2 == 0) {
+            // everything before middle is less than or equal to it, so the
+            // element at middle-1 in sorted order is the largest of them
+            return (median + (int) Selection.max(scratch, 0, middle)) / 2;
+        }
+        return median;
+    }
+
+    @Override
+    public String toString() {
+        return IntegerQuickSelectMedianValueAggregatorFunction.class.getName();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.aggregator.LongSeries;
+
+/**
+ * Aggregator function to be used with subclasses of
+ * {@link org.apache.commons.functor.aggregator.AbstractLongSeriesAggregator}
+ * which computes the arithmetic mean of all the numbers in the series.
+ * Primitive counterpart of {@link IntegerMeanValueAggregatorFunction}.
+ */
+public final class LongSeriesMeanValueAggregatorFunction implements Function<LongSeries, Long> {
+    /**
+     * Does the actual computation and returns the result. Please note that
+     * caller is responsible for synchronizing access to the series.
+     *
+     * @param data
+     *            Series to traverse and sum
+     * @return arithmetic mean (average) of all the data in the series or null
+     *         if the series is empty.
+     */
+    public Long evaluate(LongSeries data) {
+        if (data == null || data.size() == 0) {
+            return null;
+        }
+        long mean = 0L;
+        int n = data.size();
+        for (int i = 0; i < n; i++) {
+            mean += data.get(i);
+        }
+        mean /= n;
+        return mean;
+    }
+
+    @Override
+    public String toString() {
+        return LongSeriesMeanValueAggregatorFunction.class.getName();
+    }
+}
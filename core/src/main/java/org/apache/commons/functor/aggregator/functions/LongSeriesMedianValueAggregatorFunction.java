@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.aggregator.LongSeries;
+
+/**
+ * Aggregator function to be used with subclasses of
+ * {@link org.apache.commons.functor.aggregator.AbstractLongSeriesAggregator}
+ * which computes the <a href="http://en.wikipedia.org/wiki/Median">median</a>
+ * of all the numbers in the series. Primitive counterpart of
+ * {@link IntegerMedianValueAggregatorFunction}. The series is never modified:
+ * its values are copied into a primitive array in which the middle element(s)
+ * are found using <a href="http://en.wikipedia.org/wiki/Quickselect">
+ * quickselect</a>, in <i>O(n)</i> expected time. A new array is allocated for
+ * each evaluation, so a single instance can be shared by any number of
+ * aggregators.
+ */
+public final class LongSeriesMedianValueAggregatorFunction implements Function<LongSeries, Long> {
+    /**
+     * Copies the series into an array and selects the median value.
+     *
+     * @param data
+     *            Series to compute the median value for
+     * @return the median value of the given series or <code>null</code> if the
+     *         series is <code>null</code> or empty.
+     */
+    public Long evaluate(LongSeries data) {
+        if (data == null || data.size() == 0) {
+            return null;
+        }
+        int n = data.size();
+        // if only one element in it, it is the median
+        if (n == 1) {
+            return data.get(0);
+        }
+        long[] scratch = new long[n];
+        data.copyTo(scratch);
+        int middle = n / 2;
+        long median = Selection.select(scratch, 0, n, middle);
+        if (n % 2 == 0) {
+            // everything before middle is less than or equal to it, so the
+            // element at middle-1 in sorted order is the largest of them
+            return (median + Selection.max(scratch, 0, middle)) / 2;
+        }
+        return median;
+    }
+
+    @Override
+    public String toString() {
+        return LongSeriesMedianValueAggregatorFunction.class.getName();
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+/**
+ * Utility class providing <a
+ * href="http://en.wikipedia.org/wiki/Quickselect">quickselect</a> on arrays of
+ * primitives: finds the k-th smallest element of an array in <i>O(n)</i>
+ * expected time, by partially ordering the array rather than sorting it. Used
+ * internally by the selection-based median and percentile functions.
+ * <p>
+ * <code>double</code>s are ordered like {@link Double#compareTo(Double)}
+ * orders them, so that the result is the one the sort-based functions return:
+ * <code>NaN</code> is greater than any other value, and <code>-0.0</code> is
+ * less than <code>0.0</code>.
+ * </p>
+ */
+final class Selection {
+    /**
+     * Below this size a range is simply sorted with insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * No instances of this class.
+     */
+    private Selection() {
+    }
+
+    /**
+     * Rearranges the elements of <code>data</code> between <code>from</code>
+     * (inclusive) and <code>to</code> (exclusive) so that the element at index
+     * <code>k</code> is the one which would be there if the range was sorted,
+     * all elements before it are less than or equal to it and all elements
+     * after it are greater than or equal to it.
+     *
+     * @param data
+     *            Array to partially order
+     * @param from
+     *            Start of the range (inclusive)
+     * @param to
+     *            End of the range (exclusive)
+     * @param k
+     *            Index of the element to select: <code>from &lt;= k &lt; to</code>
+     * @return <code>data[k]</code> after the partial ordering
+     */
+    static double select(double[] data, int from, int to, int k) {
+        int left = from;
+        int right = to - 1;
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            // median of 3 as pivot, moved to data[left]
+            int middle = (left + right) >>> 1;
+            if (less(data[middle], data[left])) {
+                swap(data, middle, left);
+            }
+            if (less(data[right], data[left])) {
+                swap(data, right, left);
+            }
+            if (less(data[right], data[middle])) {
+                swap(data, right, middle);
+            }
+            swap(data, left, middle);
+            double pivot = data[left];
+            // Hoare partitioning
+            int i = left;
+            int j = right + 1;
+            for (;;) {
+                do {
+                    i++;
+                } while (i <= right && less(data[i], pivot));
+                do {
+                    j--;
+                } while (less(pivot, data[j]));
+                if (i >= j) {
+                    break;
+                }
+                swap(data, i, j);
+            }
+            swap(data, left, j);
+            if (j == k) {
+                return data[k];
+            } else if (j < k) {
+                left = j + 1;
+            } else {
+                right = j - 1;
+            }
+        }
+        // small range: insertion sort
+        for (int i = left + 1; i <= right; i++) {
+            double value = data[i];
+            int j = i - 1;
+            while (j >= left && less(value, data[j])) {
+                data[j + 1] = data[j];
+                j--;
+            }
+            data[j + 1] = value;
+        }
+        return data[k];
+    }
+
+    /**
+     * Integer version of {@link #select(double[], int, int, int)}.
+     *
+     * @param data
+     *            Array to partially order
+     * @param from
+     *            Start of the range (inclusive)
+     * @param to
+     *            End of the range (exclusive)
+     * @param k
+     *            Index of the element to select: <code>from &lt;= k &lt; to</code>
+     * @return <code>data[k]</code> after the partial ordering
+     */
+    static long select(long[] data, int from, int to, int k) {
+        int left = from;
+        int right = to - 1;
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            int middle = (left + right) >>> 1;
+            if (data[middle] < data[left]) {
+                swap(data, middle, left);
+            }
+            if (data[right] < data[left]) {
+                swap(data, right, left);
+            }
+            if (data[right] < data[middle]) {
+                swap(data, right, middle);
+            }
+            swap(data, left, middle);
+            long pivot = data[left];
+            int i = left;
+            int j = right + 1;
+            for (;;) {
+                do {
+                    i++;
+                } while (i <= right && data[i] < pivot);
+                do {
+                    j--;
+                } while (data[j] > pivot);
+                if (i >= j) {
+                    break;
+                }
+                swap(data, i, j);
+            }
+            swap(data, left, j);
+            if (j == k) {
+                return data[k];
+            } else if (j < k) {
+                left = j + 1;
+            } else {
+                right = j - 1;
+            }
+        }
+        for (int i = left + 1; i <= right; i++) {
+            long value = data[i];
+            int j = i - 1;
+            while (j >= left && data[j] > value) {
+                data[j + 1] = data[j];
+                j--;
+            }
+            data[j + 1] = value;
+        }
+        return data[k];
+    }
+
+    /**
+     * Finds the largest element in the given range.
+     *
+     * @param data
+     *            Array to search
+     * @param from
+     *            Start of the range (inclusive)
+     * @param to
+     *            End of the range (exclusive), must be greater than
+     *            <code>from</code>
+     * @return Largest element between <code>from</code> and <code>to</code>,
+     *         as ordered by {@link Double#compare(double, double)}
+     */
+    static double max(double[] data, int from, int to) {
+        double max = data[from];
+        for (int i = from + 1; i < to; i++) {
+            if (less(max, data[i])) {
+                max = data[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Integer version of {@link #max(double[], int, int)}.
+     *
+     * @param data
+     *            Array to search
+     * @param from
+     *            Start of the range (inclusive)
+     * @param to
+     *            End of the range (exclusive), must be greater than
+     *            <code>from</code>
+     * @return Largest element between <code>from</code> and <code>to</code>
+     */
+    static long max(long[] data, int from, int to) {
+        long max = data[from];
+        for (int i = from + 1; i < to; i++) {
+            if (data[i] > max) {
+                max = data[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Compares 2 <code>double</code>s like {@link Double#compare(double, double)}.
+     *
+     * @param a
+     *            First value
+     * @param b
+     *            Second value
+     * @return <code>true</code> if <code>a</code> is ordered before
+     *         <code>b</code>
+     */
+    private static boolean less(double a, double b) {
+        return Double.compare(a, b) < 0;
+    }
+
+    /**
+     * Swaps 2 elements of an array.
+     *
+     * @param data
+     *            Array
+     * @param i
+     *            Index of the first element
+     * @param j
+     *            Index of the second element
+     */
+    private static void swap(double[] data, int i, int j) {
+        double tmp = data[i];
+        data[i] = data[j];
+        data[j] = tmp;
+    }
+
+    /**
+     * Swaps 2 elements of an array.
+     *
+     * @param data
+     *            Array
+     * @param i
+     *            Index of the first element
+     * @param j
+     *            Index of the second element
+     */
+    private static void swap(long[] data, int i, int j) {
+        long tmp = data[i];
+        data[i] = data[j];
+        data[j] = tmp;
+    }
+}
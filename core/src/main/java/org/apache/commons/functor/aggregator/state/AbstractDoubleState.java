@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+import org.apache.commons.functor.aggregator.MergeableState;
+
+/**
+ * Base class for {@link MergeableState mergeable states} operating on
+ * <code>double</code> values, which allows the data to be added without
+ * boxing via {@link #add(double)}.
+ *
+ * @param <S>
+ *            Type of the state itself.
+ */
+public abstract class AbstractDoubleState<S extends AbstractDoubleState<S>> implements
+        MergeableState<Double, Double, S> {
+    /**
+     * Unboxes the data and passes it to {@link #add(double)}.
+     *
+     * @param data
+     *            Data to add. Cannot be <code>null</code>.
+     */
+    public final void add(Double data) {
+        add(data.doubleValue());
+    }
+
+    /**
+     * Adds the given value to this state.
+     *
+     * @param value
+     *            Value to add.
+     */
+    public abstract void add(double value);
+}
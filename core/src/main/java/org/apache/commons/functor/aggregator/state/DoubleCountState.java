@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+/**
+ * Mergeable state counting the <code>double</code> values added. Merging 2
+ * states adds up their counts. The result is returned as a <code>Double</code>
+ * so this state can be used with aggregators of <code>Double</code> values;
+ * {@link #getCount()} returns the exact count.
+ */
+public final class DoubleCountState extends AbstractDoubleState<DoubleCountState> {
+    /**
+     * Number of values added.
+     */
+    private long count;
+
+    /**
+     * Creates an empty state, with a count of 0 (zero).
+     */
+    public DoubleCountState() {
+        this(0L);
+    }
+
+    /**
+     * Creates a state with the given count.
+     *
+     * @param count
+     *            Initial count. Must not be negative.
+     */
+    public DoubleCountState(long count) {
+        if (count < 0L) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        this.count = count;
+    }
+
+    @Override
+    public void add(double value) {
+        count++;
+    }
+
+    /**
+     * Adds the count of the other state to this one.
+     *
+     * @param other
+     *            State to merge into this one.
+     */
+    public void merge(DoubleCountState other) {
+        count += other.count;
+    }
+
+    /**
+     * Returns the number of values added.
+     *
+     * @return the count as a <code>Double</code>.
+     */
+    public Double getResult() {
+        return (double) count;
+    }
+
+    /**
+     * Creates a copy of this state.
+     *
+     * @return new state with the same count.
+     */
+    public DoubleCountState copy() {
+        return new DoubleCountState(count);
+    }
+
+    /**
+     * Getter for {@link #count}.
+     *
+     * @return the number of values added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleCountState.class.getName();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+/**
+ * Mergeable state computing the maximum of <code>double</code> values. Merging
+ * 2 states keeps the maximum of the 2.
+ */
+public final class DoubleMaxState extends AbstractDoubleState<DoubleMaxState> {
+    /**
+     * The maximum value added so far.
+     */
+    private double  max   = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Whether any value has been added, so an empty state can be told apart
+     * from one which only received infinite values.
+     */
+    private boolean empty = true;
+
+    /**
+     * Creates an empty state.
+     */
+    public DoubleMaxState() {
+        // empty
+    }
+
+    @Override
+    public void add(double value) {
+        if (empty || value > max) {
+            max = value;
+        }
+        empty = false;
+    }
+
+    /**
+     * Keeps the maximum of this state and the other one.
+     *
+     * @param other
+     *            State to merge into this one.
+     */
+    public void merge(DoubleMaxState other) {
+        if (!other.empty) {
+            add(other.max);
+        }
+    }
+
+    /**
+     * Returns the maximum value added.
+     *
+     * @return the maximum or <code>null</code> if no value has been added.
+     */
+    public Double getResult() {
+        if (empty) {
+            return null;
+        }
+        return max;
+    }
+
+    /**
+     * Creates a copy of this state.
+     *
+     * @return new state with the same maximum.
+     */
+    public DoubleMaxState copy() {
+        DoubleMaxState result = new DoubleMaxState();
+        result.merge(this);
+        return result;
+    }
+
+    /**
+     * Checks whether any value has been added to this state.
+     *
+     * @return <code>true</code> if no value has been added.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleMaxState.class.getName();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+/**
+ * Mergeable state computing the mean (average) of <code>double</code> values.
+ * The state is made of the sum and the count of the values, so 2 states are
+ * merged by adding up their sums and counts -- averaging 2 means would not be
+ * correct unless they were computed over the same number of values.
+ */
+public final class DoubleMeanState extends AbstractDoubleState<DoubleMeanState> {
+    /**
+     * Sum of all the values added.
+     */
+    private double  sum;
+
+    /**
+     * Number of values added.
+     */
+    private long    count;
+
+    /**
+     * Creates an empty state.
+     */
+    public DoubleMeanState() {
+        this(0.0, 0L);
+    }
+
+    /**
+     * Creates a state with the given sum and count.
+     *
+     * @param sum
+     *            Sum of the values.
+     * @param count
+     *            Number of values. Must not be negative.
+     */
+    public DoubleMeanState(double sum, long count) {
+        if (count < 0L) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        this.sum = sum;
+        this.count = count;
+    }
+
+    @Override
+    public void add(double value) {
+        sum += value;
+        count++;
+    }
+
+    /**
+     * Adds the sum and count of the other state to this one.
+     *
+     * @param other
+     *            State to merge into this one.
+     */
+    public void merge(DoubleMeanState other) {
+        sum += other.sum;
+        count += other.count;
+    }
+
+    /**
+     * Returns the mean of the values added.
+     *
+     * @return <code>sum / count</code> or <code>null</code> if no value has
+     *         been added.
+     */
+    public Double getResult() {
+        if (count == 0L) {
+            return null;
+        }
+        return sum / count;
+    }
+
+    /**
+     * Creates a copy of this state.
+     *
+     * @return new state with the same sum and count.
+     */
+    public DoubleMeanState copy() {
+        return new DoubleMeanState(sum, count);
+    }
+
+    /**
+     * Getter for {@link #sum}.
+     *
+     * @return the sum of all the values added.
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Getter for {@link #count}.
+     *
+     * @return the number of values added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleMeanState.class.getName();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+/**
+ * Mergeable state computing the sum of <code>double</code> values. Merging 2
+ * states simply adds up their sums.
+ */
+public final class DoubleSumState extends AbstractDoubleState<DoubleSumState> {
+    /**
+     * Sum of all the values added.
+     */
+    private double sum;
+
+    /**
+     * Creates an empty state, with a sum of 0 (zero).
+     */
+    public DoubleSumState() {
+        this(0.0);
+    }
+
+    /**
+     * Creates a state with the given sum.
+     *
+     * @param sum
+     *            Initial sum.
+     */
+    public DoubleSumState(double sum) {
+        this.sum = sum;
+    }
+
+    @Override
+    public void add(double value) {
+        sum += value;
+    }
+
+    /**
+     * Adds the sum of the other state to this one.
+     *
+     * @param other
+     *            State to merge into this one.
+     */
+    public void merge(DoubleSumState other) {
+        sum += other.sum;
+    }
+
+    /**
+     * Returns the sum of all the values added.
+     *
+     * @return the sum, 0 (zero) if no value has been added.
+     */
+    public Double getResult() {
+        return sum;
+    }
+
+    /**
+     * Creates a copy of this state.
+     *
+     * @return new state with the same sum.
+     */
+    public DoubleSumState copy() {
+        return new DoubleSumState(sum);
+    }
+
+    /**
+     * Getter for {@link #sum}.
+     *
+     * @return the sum of all the values added.
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleSumState.class.getName();
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+/**
+ * Mergeable state computing the count, sum, mean, variance, minimum and
+ * maximum of <code>double</code> values in a single pass. The mean and the sum
+ * of squared differences from the mean (<i>M2</i>) are updated using Welford's
+ * online algorithm and merged using the pairwise formula of Chan et al., as in
+ * {@link DoubleVarianceState}; all the statistics are kept in primitive fields
+ * and updated together by each call to {@link #add(double)}.
+ * <p>
+ * {@link #getResult()} returns the mean; the other statistics are available
+ * via their own getters.
+ * </p>
+ */
+public final class DoubleSummaryState extends AbstractDoubleState<DoubleSummaryState> {
+    /**
+     * Number of values added.
+     */
+    private long   count;
+
+    /**
+     * Sum of the values added.
+     */
+    private double sum;
+
+    /**
+     * Mean of the values added.
+     */
+    private double mean;
+
+    /**
+     * Sum of the squared differences between the values added and
+     * {@link #mean}.
+     */
+    private double m2;
+
+    /**
+     * The minimum value added so far.
+     */
+    private double min;
+
+    /**
+     * The maximum value added so far.
+     */
+    private double max;
+
+    /**
+     * Creates an empty state.
+     */
+    public DoubleSummaryState() {
+        this(0L, 0.0, 0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Creates a state with the given statistics.
+     *
+     * @param count
+     *            Number of values. Must not be negative.
+     * @param sum
+     *            Sum of the values.
+     * @param mean
+     *            Mean of the values.
+     * @param m2
+     *            Sum of squared differences from the mean. Must not be
+     *            negative.
+     * @param min
+     *            Minimum of the values, ignored if <code>count</code> is 0.
+     * @param max
+     *            Maximum of the values, ignored if <code>count</code> is 0.
+     */
+    public DoubleSummaryState(long count, double sum, double mean, double m2, double min, double max) {
+        if (count < 0L) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        if (m2 < 0.0) {
+            throw new IllegalArgumentException("M2 must not be negative: " + m2);
+        }
+        this.count = count;
+        this.sum = sum;
+        this.mean = mean;
+        this.m2 = m2;
+        this.min = count == 0L ? Double.POSITIVE_INFINITY : min;
+        this.max = count == 0L ? Double.NEGATIVE_INFINITY : max;
+    }
+
+    @Override
+    public void add(double value) {
+        count++;
+        sum += value;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Merges the other state into this one.
+     *
+     * @param other
+     *            State to merge into this one.
+     */
+    public void merge(DoubleSummaryState other) {
+        if (other.count == 0L) {
+            return;
+        }
+        if (count == 0L) {
+            count = other.count;
+            sum = other.sum;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the mean of the values added.
+     *
+     * @return the mean or <code>null</code> if no value has been added.
+     */
+    public Double getResult() {
+        if (count == 0L) {
+            return null;
+        }
+        return mean;
+    }
+
+    /**
+     * Returns the sample variance of the values added.
+     *
+     * @return <code>M2 / (count - 1)</code>, 0 (zero) if a single value has
+     *         been added or <code>null</code> if no value has been added.
+     */
+    public Double getVariance() {
+        if (count == 0L) {
+            return null;
+        }
+        if (count == 1L) {
+            return 0.0;
+        }
+        return m2 / (count - 1);
+    }
+
+    /**
+     * Returns the population variance of the values added.
+     *
+     * @return <code>M2 / count</code> or <code>null</code> if no value has
+     *         been added.
+     */
+    public Double getPopulationVariance() {
+        if (count == 0L) {
+            return null;
+        }
+        return m2 / count;
+    }
+
+    /**
+     * Returns the sample standard deviation of the values added.
+     *
+     * @return the square root of {@link #getVariance()} or <code>null</code>
+     *         if no value has been added.
+     */
+    public Double getStandardDeviation() {
+        Double variance = getVariance();
+        return variance == null ? null : Math.sqrt(variance);
+    }
+
+    /**
+     * Returns the minimum value added.
+     *
+     * @return the minimum or <code>null</code> if no value has been added.
+     */
+    public Double getMin() {
+        if (count == 0L) {
+            return null;
+        }
+        return min;
+    }
+
+    /**
+     * Returns the maximum value added.
+     *
+     * @return the maximum or <code>null</code> if no value has been added.
+     */
+    public Double getMax() {
+        if (count == 0L) {
+            return null;
+        }
+        return max;
+    }
+
+    /**
+     * Creates a copy of this state.
+     *
+     * @return new state with the same statistics.
+     */
+    public DoubleSummaryState copy() {
+        return new DoubleSummaryState(count, sum, mean, m2, min, max);
+    }
+
+    /**
+     * Getter for {@link #count}.
+     *
+     * @return the number of values added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Getter for {@link #sum}.
+     *
+     * @return the sum of the values added, 0 (zero) if none.
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Getter for {@link #mean}.
+     *
+     * @return the mean of the values added, 0 (zero) if none.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Getter for {@link #m2}.
+     *
+     * @return the sum of squared differences from the mean.
+     */
+    public double getM2() {
+        return m2;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleSummaryState.class.getName();
+    }
+}
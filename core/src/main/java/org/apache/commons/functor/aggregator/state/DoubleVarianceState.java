@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+/**
+ * Mergeable state computing the variance of <code>double</code> values. The
+ * state is made of the count, the mean and the sum of squared differences from
+ * the mean (<i>M2</i>) of the values, updated using Welford's online
+ * algorithm, which (unlike summing up the squares of the values) doesn't
+ * suffer from catastrophic cancellation. 2 states are merged using the
+ * pairwise formula of Chan et al.
+ * <p>
+ * {@link #getResult()} returns the sample (bias-corrected) variance; the
+ * population variance is available via {@link #getPopulationVariance()}.
+ * </p>
+ */
+public final class DoubleVarianceState extends AbstractDoubleState<DoubleVarianceState> {
+    /**
+     * Number of values added.
+     */
+    private long    count;
+
+    /**
+     * Mean of the values added.
+     */
+    private double  mean;
+
+    /**
+     * Sum of the squared differences between the values added and
+     * {@link #mean}.
+     */
+    private double  m2;
+
+    /**
+     * Creates an empty state.
+     */
+    public DoubleVarianceState() {
+        this(0L, 0.0, 0.0);
+    }
+
+    /**
+     * Creates a state with the given count, mean and sum of squared
+     * differences from the mean.
+     *
+     * @param count
+     *            Number of values. Must not be negative.
+     * @param mean
+     *            Mean of the values.
+     * @param m2
+     *            Sum of squared differences from the mean. Must not be
+     *            negative.
+     */
+    public DoubleVarianceState(long count, double mean, double m2) {
+        if (count < 0L) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        if (m2 < 0.0) {
+            throw new IllegalArgumentException("M2 must not be negative: " + m2);
+        }
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    @Override
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Merges the other state into this one.
+     *
+     * @param other
+     *            State to merge into this one.
+     */
+    public void merge(DoubleVarianceState other) {
+        if (other.count == 0L) {
+            return;
+        }
+        if (count == 0L) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+    }
+
+    /**
+     * Returns the sample variance of the values added.
+     *
+     * @return <code>M2 / (count - 1)</code>, 0 (zero) if a single value has
+     *         been added or <code>null</code> if no value has been added.
+     */
+    public Double getResult() {
+        if (count == 0L) {
+            return null;
+        }
+        if (count == 1L) {
+            return 0.0;
+        }
+        return m2 / (count - 1);
+    }
+
+    /**
+     * Returns the population variance of the values added.
+     *
+     * @return <code>M2 / count</code> or <code>null</code> if no value has
+     *         been added.
+     */
+    public Double getPopulationVariance() {
+        if (count == 0L) {
+            return null;
+        }
+        return m2 / count;
+    }
+
+    /**
+     * Creates a copy of this state.
+     *
+     * @return new state with the same count, mean and M2.
+     */
+    public DoubleVarianceState copy() {
+        return new DoubleVarianceState(count, mean, m2);
+    }
+
+    /**
+     * Getter for {@link #count}.
+     *
+     * @return the number of values added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Getter for {@link #mean}.
+     *
+     * @return the mean of the values added, 0 (zero) if none.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Getter for {@link #m2}.
+     *
+     * @return the sum of squared differences from the mean.
+     */
+    public double getM2() {
+        return m2;
+    }
+
+    @Override
+    public String toString() {
+        return DoubleVarianceState.class.getName();
+    }
+}
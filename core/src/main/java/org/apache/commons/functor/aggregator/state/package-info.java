@@ -0,0 +1,28 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * <p>
+ * This package contains {@link org.apache.commons.functor.aggregator.MergeableState mergeable states}
+ * used by aggregators defined in <code>org.apache.commons.functor.aggregator</code>.
+ * </p>
+ * <p>
+ * These will normally be created by factories passed as parameters in constructors to
+ * classes such as {@link org.apache.commons.functor.aggregator.StateAggregator}, and
+ * allow partial aggregations computed in parallel to be merged together.
+ * </p>
+ */
+package org.apache.commons.functor.aggregator.state;
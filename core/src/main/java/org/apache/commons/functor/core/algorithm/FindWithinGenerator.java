@@ -20,11 +20,14 @@ import java.util.NoSuchElementException;
 
 import org.apache.commons.functor.BinaryFunction;
 import org.apache.commons.functor.Predicate;
-import org.apache.commons.functor.Procedure;
 import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.ShortCircuits;
 
 /**
  * Return the first Object in a {@link Generator} matching a {@link Predicate}.
+ * The generation stops at the first match (see
+ * {@link org.apache.commons.functor.generator.ShortCircuitProcedure}).
  *
  * @param <E> the arguments type.
  * @version $Revision$ $Date$
@@ -42,7 +45,7 @@ public final class FindWithinGenerator<E>
      *
      * @param <T> the argument type.
      */
-    private static class FindProcedure<T> implements Procedure<T> {
+    private static class FindProcedure<T> implements ShortCircuitProcedure<T> {
         /**
          * The object found, if any.
          */
@@ -73,6 +76,14 @@ public final class FindWithinGenerator<E>
                 found = obj;
             }
         }
+
+        /**
+         * {@inheritDoc}
+         * Done once an element has been found.
+         */
+        public boolean isDone() {
+            return wasFound;
+        }
     }
 
     /**
@@ -111,7 +122,7 @@ public final class FindWithinGenerator<E>
      */
     public E evaluate(Generator<? extends E> left, Predicate<? super E> right) {
         FindProcedure<E> findProcedure = new FindProcedure<E>(right);
-        left.run(findProcedure);
+        ShortCircuits.run(left, findProcedure);
         if (!findProcedure.wasFound) {
             if (useIfNone) {
                 return ifNone;
@@ -18,11 +18,14 @@ package org.apache.commons.functor.core.algorithm;
 
 import org.apache.commons.functor.BinaryPredicate;
 import org.apache.commons.functor.Predicate;
-import org.apache.commons.functor.Procedure;
 import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.ShortCircuits;
 
 /**
  * Tests whether a {@link Generator} contains an element that matches a {@link Predicate}.
+ * The generation stops at the first match (see
+ * {@link org.apache.commons.functor.generator.ShortCircuitProcedure}).
  *
  * @param <T> the predicate argument type.
  * @version $Revision$ $Date$
@@ -38,7 +41,7 @@ public final class GeneratorContains<T> implements BinaryPredicate<Generator<? e
      *
      * @param <T> the predicate argument type.
      */
-    private static class ContainsProcedure<T> implements Procedure<T> {
+    private static class ContainsProcedure<T> implements ShortCircuitProcedure<T> {
         /**
          * The wrapped predicate.
          */
@@ -63,6 +66,14 @@ public final class GeneratorContains<T> implements BinaryPredicate<Generator<? e
         public void run(T obj) {
             found |= pred.test(obj);
         }
+
+        /**
+         * {@inheritDoc}
+         * Done once a matching element has been found.
+         */
+        public boolean isDone() {
+            return found;
+        }
     }
 
     /**
@@ -72,7 +83,7 @@ public final class GeneratorContains<T> implements BinaryPredicate<Generator<? e
      */
     public boolean test(Generator<? extends T> left, Predicate<? super T> right) {
         ContainsProcedure<T> findProcedure = new ContainsProcedure<T>(right);
-        left.run(findProcedure);
+        ShortCircuits.run(left, findProcedure);
         return findProcedure.found;
     }
 
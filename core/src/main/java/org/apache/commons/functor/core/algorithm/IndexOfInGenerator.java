@@ -18,12 +18,14 @@ package org.apache.commons.functor.core.algorithm;
 
 import org.apache.commons.functor.BinaryFunction;
 import org.apache.commons.functor.Predicate;
-import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.ShortCircuits;
 import org.apache.commons.functor.generator.loop.LoopGenerator;
 
 /**
  * Return the index of the first Object in a {@link LoopGenerator} matching a
- * {@link Predicate}, or -1 if not found.
+ * {@link Predicate}, or -1 if not found. The generation stops at the first
+ * match (see {@link org.apache.commons.functor.generator.ShortCircuitProcedure}).
  *
  * @param <T> the procedure argument types
  * @version $Revision$ $Date$
@@ -40,7 +42,7 @@ public final class IndexOfInGenerator<T>
      *
      * @param <T> the procedure argument type
      */
-    private static class IndexProcedure<T> implements Procedure<T> {
+    private static class IndexProcedure<T> implements ShortCircuitProcedure<T> {
         /**
          * The wrapped generator.
          */
@@ -80,6 +82,14 @@ public final class IndexOfInGenerator<T>
             }
             current++;
         }
+
+        /**
+         * {@inheritDoc}
+         * Done once the target has been found.
+         */
+        public boolean isDone() {
+            return index >= 0;
+        }
     }
 
     /**
@@ -89,7 +99,7 @@ public final class IndexOfInGenerator<T>
      */
     public Number evaluate(LoopGenerator<? extends T> left, Predicate<? super T> right) {
         IndexProcedure<T> findProcedure = new IndexProcedure<T>(left, right);
-        left.run(findProcedure);
+        ShortCircuits.run(left, findProcedure);
         return Long.valueOf(findProcedure.index);
     }
 
@@ -18,7 +18,6 @@ package org.apache.commons.functor.generator;
 
 import org.apache.commons.functor.Predicate;
 import org.apache.commons.functor.Procedure;
-import org.apache.commons.functor.core.composite.ConditionalProcedure;
 import org.apache.commons.lang3.Validate;
 
 /**
@@ -53,8 +52,18 @@ public class FilteredGenerator<E> extends BaseGenerator<E> {
     /**
      * {@inheritDoc}
      */
-    public void run(Procedure<? super E> proc) {
-        getWrappedGenerator().run(new ConditionalProcedure<E>(pred, proc));
+    public void run(final Procedure<? super E> proc) {
+        getWrappedGenerator().run(new ShortCircuitProcedure<E>() {
+            public void run(E obj) {
+                if (pred.test(obj)) {
+                    proc.run(obj);
+                }
+            }
+
+            public boolean isDone() {
+                return ShortCircuits.isDone(proc);
+            }
+        });
     }
 
     /**
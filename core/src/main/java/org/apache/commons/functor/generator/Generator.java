@@ -27,7 +27,9 @@ import org.apache.commons.functor.Procedure;
  */
 public interface Generator<E> {
     /**
-     * Generators must implement this method.
+     * Generators must implement this method. If <code>proc</code> is a
+     * {@link ShortCircuitProcedure}, implementations should stop generating
+     * elements as soon as it is {@link ShortCircuitProcedure#isDone() done}.
      * @param proc Procedure to run
      */
     void run(Procedure<? super E> proc);
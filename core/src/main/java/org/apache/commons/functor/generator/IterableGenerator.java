@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator;
+
+import java.util.Iterator;
+
+/**
+ * A {@link Generator} which can also be consumed one element at a time,
+ * through an {@link Iterator}, without buffering its elements.
+ * {@link org.apache.commons.functor.generator.util.IteratorTransformer} uses
+ * this pull path when it is available, and falls back to running the generator
+ * on a producer thread otherwise.
+ *
+ * @param <E> the type of elements held in this generator.
+ * @version $Revision$ $Date$
+ */
+public interface IterableGenerator<E> extends Generator<E> {
+
+    /**
+     * Returns an iterator over the elements {@link #run(org.apache.commons.functor.Procedure) run}
+     * would generate. Like <code>run</code>, the iterator consumes this
+     * generator: the elements it returns are not generated again.
+     *
+     * @return Iterator
+     */
+    Iterator<E> iterator();
+}
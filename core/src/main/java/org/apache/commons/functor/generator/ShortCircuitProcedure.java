@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator;
+
+import org.apache.commons.functor.Procedure;
+
+/**
+ * A {@link Procedure} which can tell the {@link Generator} running it that it
+ * does not need any more elements, for instance because a search has found
+ * what it was looking for.
+ * <p>
+ * Generators are expected to check {@link #isDone()} after passing each
+ * element to such a procedure, and to return from
+ * {@link Generator#run(Procedure)} as soon as it is <code>true</code>.
+ * Generators wrapping another generator pass the signal on by running the
+ * wrapped generator with a <code>ShortCircuitProcedure</code> whose
+ * {@link #isDone()} delegates to the downstream procedure. For generators
+ * which do not honor this contract, {@link ShortCircuits#run(Generator,
+ * ShortCircuitProcedure)} stops the generation anyway.
+ * </p>
+ *
+ * @param <A> the argument type.
+ * @version $Revision$ $Date$
+ */
+public interface ShortCircuitProcedure<A> extends Procedure<A> {
+
+    /**
+     * Checks whether this procedure needs more elements.
+     *
+     * @return <code>true</code> if the generator running this procedure can
+     *         stop, <code>false</code> otherwise
+     */
+    boolean isDone();
+}
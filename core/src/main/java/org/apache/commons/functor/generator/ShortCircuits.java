@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Helpers for the {@link ShortCircuitProcedure} contract.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class ShortCircuits {
+
+    /**
+     * Unwinds a generator which kept generating elements after its procedure
+     * was done. Has no stack trace, as it is thrown and caught in the same
+     * place every time.
+     */
+    private static final class Done extends RuntimeException {
+        /**
+         * serialVersionUID declaration.
+         */
+        private static final long serialVersionUID = -3046476358442765316L;
+
+        /**
+         * The guard which threw this exception.
+         */
+        private final transient Guard<?> guard;
+
+        /**
+         * Create a new Done.
+         * @param guard the guard throwing it
+         */
+        Done(Guard<?> guard) {
+            super();
+            this.guard = guard;
+        }
+
+        /**
+         * Skips the stack trace.
+         * @return this
+         */
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Procedure refusing the elements generated after the procedure it wraps
+     * is done.
+     *
+     * @param <A> the argument type.
+     */
+    private static final class Guard<A> implements ShortCircuitProcedure<A> {
+        /**
+         * The wrapped procedure.
+         */
+        private final ShortCircuitProcedure<? super A> proc;
+
+        /**
+         * Create a new Guard.
+         * @param proc the wrapped procedure
+         */
+        Guard(ShortCircuitProcedure<? super A> proc) {
+            this.proc = proc;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void run(A obj) {
+            if (proc.isDone()) {
+                throw new Done(this);
+            }
+            proc.run(obj);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isDone() {
+            return proc.isDone();
+        }
+    }
+
+    /**
+     * Hidden constructor as this only is a helper class with static methods.
+     */
+    private ShortCircuits() {
+    }
+
+    /**
+     * Checks whether a procedure is a {@link ShortCircuitProcedure} which is
+     * done. Used by generators after passing each element to a procedure.
+     *
+     * @param proc the procedure
+     * @return <code>true</code> if the generator running <code>proc</code>
+     *         can stop
+     */
+    public static boolean isDone(Procedure<?> proc) {
+        return proc instanceof ShortCircuitProcedure<?> && ((ShortCircuitProcedure<?>) proc).isDone();
+    }
+
+    /**
+     * Runs a generator until a procedure is done. Generators honoring the
+     * {@link ShortCircuitProcedure} contract stop by themselves; any other
+     * generator is interrupted, by an exception caught here, when it passes
+     * the procedure one more element after it is done. That element is not
+     * given to the procedure.
+     *
+     * @param <E> the type of elements held in the generator.
+     * @param generator Generator to run
+     * @param proc ShortCircuitProcedure to run on each element
+     */
+    public static <E> void run(Generator<? extends E> generator, ShortCircuitProcedure<? super E> proc) {
+        Validate.notNull(generator, "Generator argument was null");
+        Validate.notNull(proc, "Procedure argument was null");
+        if (proc.isDone()) {
+            return;
+        }
+        Guard<E> guard = new Guard<E>(proc);
+        try {
+            generator.run(guard);
+        } catch (Done e) {
+            if (e.guard != guard) {
+                // thrown on behalf of an enclosing run
+                throw e;
+            }
+        }
+    }
+}
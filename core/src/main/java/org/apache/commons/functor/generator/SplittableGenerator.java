@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator;
+
+/**
+ * A {@link Generator} whose elements can be partitioned, so that disjoint
+ * parts of it can be run concurrently, for instance by a
+ * {@link org.apache.commons.functor.generator.loop.ParallelGenerator}.
+ * Splitting is expected to be cheap: random access lists and numeric ranges
+ * split by index, in constant time.
+ * <p>
+ * A splittable generator is not thread-safe: it is split from a single thread,
+ * then each part is run by at most one thread.
+ * </p>
+ *
+ * @param <E> the type of elements held in this generator.
+ * @version $Revision$ $Date$
+ */
+public interface SplittableGenerator<E> extends Generator<E> {
+
+    /**
+     * Splits off the first part of the elements of this generator. If this
+     * generator can be split, the returned generator generates a prefix of its
+     * elements and this generator only generates the remaining ones, so that
+     * running the returned generator and then this one generates the same
+     * elements, in the same order, as running this generator before the split.
+     *
+     * @return Generator of the first part of the elements, or
+     *         <code>null</code> if this generator cannot be split any further.
+     */
+    SplittableGenerator<E> trySplit();
+
+    /**
+     * Estimates the number of elements {@link #run(org.apache.commons.functor.Procedure) run}
+     * would generate. Used to decide whether splitting is worth it.
+     *
+     * @return Estimated number of elements, or {@link Long#MAX_VALUE} if
+     *         unknown.
+     */
+    long estimateSize();
+}
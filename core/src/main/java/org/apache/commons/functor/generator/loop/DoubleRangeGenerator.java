@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.functor.generator.DoubleProcedure;
+import org.apache.commons.functor.generator.IterableGenerator;
+import org.apache.commons.functor.range.BoundType;
+import org.apache.commons.functor.range.DoubleRange;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Generates the elements of a {@link DoubleRange} without going through its
+ * iterator. Like the iterator, it adds the step to the previous element, so
+ * it generates exactly the same elements. It is an {@link IterableGenerator},
+ * and a {@link DoubleGenerator} which only boxes its elements when run with a
+ * {@link org.apache.commons.functor.Procedure}.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class DoubleRangeGenerator extends DoubleGenerator implements IterableGenerator<Double> {
+
+    /**
+     * The next element to generate.
+     */
+    private double next;
+
+    /**
+     * The difference between two consecutive elements.
+     */
+    private final double step;
+
+    /**
+     * The right endpoint of the range.
+     */
+    private final double right;
+
+    /**
+     * Whether the right endpoint is part of the range.
+     */
+    private final boolean rightClosed;
+
+    /**
+     * Create a new DoubleRangeGenerator generating the elements of a range.
+     * @param range DoubleRange to generate
+     */
+    public DoubleRangeGenerator(DoubleRange range) {
+        Validate.notNull(range, "Range argument was null");
+        this.step = range.getStep().doubleValue();
+        this.next = range.getLeftEndpoint().getValue().doubleValue();
+        if (range.getLeftEndpoint().getBoundType() == BoundType.OPEN) {
+            this.next += step;
+        }
+        this.right = range.getRightEndpoint().getValue().doubleValue();
+        this.rightClosed = range.getRightEndpoint().getBoundType() == BoundType.CLOSED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(DoubleProcedure proc) {
+        while (hasNext()) {
+            double value = next;
+            next += step;
+            proc.run(value);
+            if (isStopped() || isDone(proc)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Iterator<Double> iterator() {
+        return new Iterator<Double>() {
+            public boolean hasNext() {
+                return DoubleRangeGenerator.this.hasNext() && !isStopped();
+            }
+
+            public Double next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                double value = DoubleRangeGenerator.this.next;
+                DoubleRangeGenerator.this.next += step;
+                return Double.valueOf(value);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Checks whether the next element is still in the range.
+     * @return <code>true</code> if there are elements left to generate
+     */
+    private boolean hasNext() {
+        int cmp = Double.compare(next, right);
+        if (cmp == 0) {
+            return rightClosed;
+        }
+        return step > 0d ? cmp < 0 : cmp > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof DoubleRangeGenerator)) {
+            return false;
+        }
+        DoubleRangeGenerator that = (DoubleRangeGenerator) obj;
+        return Double.compare(this.next, that.next) == 0 && Double.compare(this.step, that.step) == 0
+                && Double.compare(this.right, that.right) == 0 && this.rightClosed == that.rightClosed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int hash = "DoubleRangeGenerator".hashCode();
+        hash <<= 2;
+        hash ^= hash(next);
+        hash <<= 2;
+        hash ^= hash(step);
+        hash <<= 2;
+        hash ^= hash(right);
+        hash <<= 2;
+        hash ^= rightClosed ? 1 : 0;
+        return hash;
+    }
+
+    /**
+     * Hashes a double like {@link Double#hashCode()}.
+     * @param value the double
+     * @return hash code
+     */
+    private static int hash(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "DoubleRangeGenerator<" + next + ", " + step + ", " + right + (rightClosed ? "]" : ")") + ">";
+    }
+}
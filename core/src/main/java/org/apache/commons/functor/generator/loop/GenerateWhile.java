@@ -19,6 +19,8 @@ package org.apache.commons.functor.generator.loop;
 import org.apache.commons.functor.Predicate;
 import org.apache.commons.functor.Procedure;
 import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.ShortCircuits;
 import org.apache.commons.lang3.Validate;
 
 /**
@@ -49,13 +51,17 @@ public class GenerateWhile<E> extends LoopGenerator<E> {
      * {@inheritDoc}
      */
     public void run(final Procedure<? super E> proc) {
-        getWrappedGenerator().run(new Procedure<E>() {
+        getWrappedGenerator().run(new ShortCircuitProcedure<E>() {
             public void run(E obj) {
                 proc.run(obj);
                 if (!test.test(obj)) {
                     GenerateWhile.this.stop();
                 }
             }
+
+            public boolean isDone() {
+                return GenerateWhile.this.isStopped() || ShortCircuits.isDone(proc);
+            }
         });
     }
 
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.IntBinaryFunction;
+import org.apache.commons.functor.generator.IntFunction;
+import org.apache.commons.functor.generator.IntPredicate;
+import org.apache.commons.functor.generator.IntProcedure;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.ShortCircuits;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Generator of <code>int</code>s which can run an {@link IntProcedure}, so
+ * that numeric loops do not allocate an <code>Integer</code> per element. The
+ * {@link #filter(IntPredicate) filter}, {@link #transform(IntFunction)
+ * transform} and {@link #fold(int, IntBinaryFunction) fold} stages work on
+ * <code>int</code>s as well; elements are only boxed when this generator is
+ * run with a {@link Procedure}.
+ * <p>
+ * Implementations of {@link #run(IntProcedure)} must return once this
+ * generator is {@link #isStopped() stopped} or
+ * {@link #isDone(IntProcedure) the procedure is done}, which is how the
+ * {@link ShortCircuitProcedure} contract carries over to the primitive stages.
+ * </p>
+ *
+ * @version $Revision$ $Date$
+ */
+public abstract class IntGenerator extends LoopGenerator<Integer> {
+
+    /**
+     * Procedure of a stage, which can tell the generator running it to stop.
+     */
+    private abstract static class Stage implements IntProcedure {
+        /**
+         * Checks whether this stage needs more elements.
+         * @return <code>true</code> if the generator running this stage can
+         *         stop
+         */
+        abstract boolean isDone();
+    }
+
+    /**
+     * Create a new IntGenerator.
+     */
+    public IntGenerator() {
+        super();
+    }
+
+    /**
+     * Create a new IntGenerator wrapping another generator, which is stopped
+     * along with this one.
+     * @param generator Generator to wrap
+     */
+    protected IntGenerator(Generator<? extends Integer> generator) {
+        super(generator);
+    }
+
+    /**
+     * Generators must implement this method.
+     * @param proc IntProcedure to run
+     */
+    public abstract void run(IntProcedure proc);
+
+    /**
+     * {@inheritDoc}
+     * Boxes each element for the procedure.
+     */
+    public void run(final Procedure<? super Integer> proc) {
+        Validate.notNull(proc, "Procedure argument was null");
+        run(new Stage() {
+            public void run(int value) {
+                proc.run(Integer.valueOf(value));
+            }
+
+            @Override
+            boolean isDone() {
+                return ShortCircuits.isDone(proc);
+            }
+        });
+    }
+
+    /**
+     * Creates a generator of the elements of this generator which satisfy a
+     * predicate.
+     * @param pred IntPredicate to test the elements with
+     * @return IntGenerator
+     */
+    public IntGenerator filter(final IntPredicate pred) {
+        Validate.notNull(pred, "Predicate argument was null");
+        return new IntGenerator(this) {
+            @Override
+            public void run(final IntProcedure proc) {
+                final IntGenerator filtered = this;
+                IntGenerator.this.run(new Stage() {
+                    public void run(int value) {
+                        if (pred.test(value)) {
+                            proc.run(value);
+                        }
+                    }
+
+                    @Override
+                    boolean isDone() {
+                        return filtered.isStopped() || IntGenerator.isDone(proc);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Creates a generator of the results of a function applied to the
+     * elements of this generator.
+     * @param func IntFunction to apply to each element
+     * @return IntGenerator
+     */
+    public IntGenerator transform(final IntFunction func) {
+        Validate.notNull(func, "Function argument was null");
+        return new IntGenerator(this) {
+            @Override
+            public void run(final IntProcedure proc) {
+                final IntGenerator transformed = this;
+                IntGenerator.this.run(new Stage() {
+                    public void run(int value) {
+                        proc.run(func.evaluate(value));
+                    }
+
+                    @Override
+                    boolean isDone() {
+                        return transformed.isStopped() || IntGenerator.isDone(proc);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Runs this generator, combining its elements from left to right.
+     * @param seed initial value
+     * @param func IntBinaryFunction combining the current value with each
+     *            element
+     * @return the final value, or <code>seed</code> if no element was
+     *         generated
+     */
+    public int fold(int seed, final IntBinaryFunction func) {
+        Validate.notNull(func, "Function argument was null");
+        final int[] result = new int[] { seed };
+        run(new IntProcedure() {
+            public void run(int value) {
+                result[0] = func.evaluate(result[0], value);
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * Checks whether a procedure run by a stage of this generator is done,
+     * that is whether the generator running it can stop. Procedures which
+     * are not stages are never done.
+     * @param proc the procedure
+     * @return <code>true</code> if the generator running <code>proc</code>
+     *         can stop
+     */
+    protected static boolean isDone(IntProcedure proc) {
+        return proc instanceof Stage && ((Stage) proc).isDone();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.functor.generator.IntProcedure;
+import org.apache.commons.functor.generator.IterableGenerator;
+import org.apache.commons.functor.generator.SplittableGenerator;
+import org.apache.commons.functor.range.BoundType;
+import org.apache.commons.functor.range.IntegerRange;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Generates the elements of an {@link IntegerRange} by index, without going
+ * through its iterator. It is a {@link SplittableGenerator}: it splits in
+ * halves in constant time, so it can be run by a {@link ParallelGenerator}.
+ * It is also an {@link IterableGenerator}, and an {@link IntGenerator} which only
+ * boxes its elements when run with a
+ * {@link org.apache.commons.functor.Procedure}.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class IntegerRangeGenerator extends IntGenerator implements SplittableGenerator<Integer>,
+        IterableGenerator<Integer> {
+
+    /**
+     * The next element to generate.
+     */
+    private int first;
+
+    /**
+     * The difference between two consecutive elements.
+     */
+    private final int step;
+
+    /**
+     * The number of elements left to generate.
+     */
+    private long size;
+
+    /**
+     * Create a new IntegerRangeGenerator generating the elements of a range.
+     * @param range IntegerRange to generate
+     */
+    public IntegerRangeGenerator(IntegerRange range) {
+        Validate.notNull(range, "Range argument was null");
+        this.step = range.getStep().intValue();
+        int left = range.getLeftEndpoint().getValue().intValue();
+        int right = range.getRightEndpoint().getValue().intValue();
+        if (range.isEmpty()) {
+            this.first = left;
+            this.size = 0;
+        } else if (left == right) {
+            this.first = left;
+            this.size = 1;
+        } else {
+            long start = left;
+            if (range.getLeftEndpoint().getBoundType() == BoundType.OPEN) {
+                start += step;
+            }
+            long last = right;
+            if (range.getRightEndpoint().getBoundType() == BoundType.OPEN) {
+                last -= Integer.signum(step);
+            }
+            long distance = step > 0 ? last - start : start - last;
+            this.first = (int) start;
+            this.size = distance < 0 ? 0 : distance / Math.abs((long) step) + 1;
+        }
+    }
+
+    /**
+     * Create a new IntegerRangeGenerator.
+     * @param first first element
+     * @param step difference between two consecutive elements
+     * @param size number of elements
+     */
+    private IntegerRangeGenerator(int first, int step, long size) {
+        this.first = first;
+        this.step = step;
+        this.size = size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(IntProcedure proc) {
+        while (size > 0) {
+            int value = first;
+            first += step;
+            size--;
+            proc.run(value);
+            if (isStopped() || isDone(proc)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            public boolean hasNext() {
+                return size > 0 && !isStopped();
+            }
+
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int value = first;
+                first += step;
+                size--;
+                return Integer.valueOf(value);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SplittableGenerator<Integer> trySplit() {
+        if (size < 2) {
+            return null;
+        }
+        long half = size >>> 1;
+        IntegerRangeGenerator prefix = new IntegerRangeGenerator(first, step, half);
+        first = (int) (first + half * step);
+        size -= half;
+        return prefix;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long estimateSize() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof IntegerRangeGenerator)) {
+            return false;
+        }
+        IntegerRangeGenerator that = (IntegerRangeGenerator) obj;
+        return this.first == that.first && this.step == that.step && this.size == that.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int hash = "IntegerRangeGenerator".hashCode();
+        hash <<= 2;
+        hash ^= first;
+        hash <<= 2;
+        hash ^= step;
+        hash <<= 2;
+        hash ^= (int) (size ^ (size >>> 32));
+        return hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "IntegerRangeGenerator<" + first + ", " + step + ", " + size + ">";
+    }
+}
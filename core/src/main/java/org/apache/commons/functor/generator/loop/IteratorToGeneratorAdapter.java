@@ -17,16 +17,20 @@ package org.apache.commons.functor.generator.loop;
 import java.util.Iterator;
 
 import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.IterableGenerator;
+import org.apache.commons.functor.generator.ShortCircuits;
 import org.apache.commons.lang3.Validate;
 
 /**
- * Adapts an {@link Iterator} to the {@link LoopGenerator} interface.
+ * Adapts an {@link Iterator} to the {@link LoopGenerator} interface. As an
+ * {@link IterableGenerator}, it also gives the adapted iterator back, so that
+ * its elements can be pulled one at a time.
  *
  * @param <E> the type of elements held in this generator.
  * @since 1.0
  * @version $Revision: 1508677 $ $Date: 2013-07-30 19:48:02 -0300 (Tue, 30 Jul 2013) $
  */
-public final class IteratorToGeneratorAdapter<E> extends LoopGenerator<E> {
+public final class IteratorToGeneratorAdapter<E> extends LoopGenerator<E> implements IterableGenerator<E> {
     /**
      * Helper iterator; enforces that iterators from equal owners are considered equal.
      * 
@@ -126,12 +130,22 @@ public final class IteratorToGeneratorAdapter<E> extends LoopGenerator<E> {
     public void run(Procedure<? super E> proc) {
         while (iter.hasNext()) {
             proc.run(iter.next());
-            if (isStopped()) {
+            if (isStopped() || ShortCircuits.isDone(proc)) {
                 break;
             }
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * Returns the adapted iterator.
+     */
+    // Iterator<? extends E> only returns instances of E
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        return (Iterator<E>) iter;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.LongBinaryFunction;
+import org.apache.commons.functor.generator.LongFunction;
+import org.apache.commons.functor.generator.LongPredicate;
+import org.apache.commons.functor.generator.LongProcedure;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.ShortCircuits;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Generator of <code>long</code>s which can run a {@link LongProcedure}, so
+ * that numeric loops do not allocate a <code>Long</code> per element. The
+ * {@link #filter(LongPredicate) filter}, {@link #transform(LongFunction)
+ * transform} and {@link #fold(long, LongBinaryFunction) fold} stages work on
+ * <code>long</code>s as well; elements are only boxed when this generator is
+ * run with a {@link Procedure}.
+ * <p>
+ * Implementations of {@link #run(LongProcedure)} must return once this
+ * generator is {@link #isStopped() stopped} or
+ * {@link #isDone(LongProcedure) the procedure is done}, which is how the
+ * {@link ShortCircuitProcedure} contract carries over to the primitive stages.
+ * </p>
+ *
+ * @version $Revision$ $Date$
+ */
+public abstract class LongGenerator extends LoopGenerator<Long> {
+
+    /**
+     * Procedure of a stage, which can tell the generator running it to stop.
+     */
+    private abstract static class Stage implements LongProcedure {
+        /**
+         * Checks whether this stage needs more elements.
+         * @return <code>true</code> if the generator running this stage can
+         *         stop
+         */
+        abstract boolean isDone();
+    }
+
+    /**
+     * Create a new LongGenerator.
+     */
+    public LongGenerator() {
+        super();
+    }
+
+    /**
+     * Create a new LongGenerator wrapping another generator, which is stopped
+     * along with this one.
+     * @param generator Generator to wrap
+     */
+    protected LongGenerator(Generator<? extends Long> generator) {
+        super(generator);
+    }
+
+    /**
+     * Generators must implement this method.
+     * @param proc LongProcedure to run
+     */
+    public abstract void run(LongProcedure proc);
+
+    /**
+     * {@inheritDoc}
+     * Boxes each element for the procedure.
+     */
+    public void run(final Procedure<? super Long> proc) {
+        Validate.notNull(proc, "Procedure argument was null");
+        run(new Stage() {
+            public void run(long value) {
+                proc.run(Long.valueOf(value));
+            }
+
+            @Override
+            boolean isDone() {
+                return ShortCircuits.isDone(proc);
+            }
+        });
+    }
+
+    /**
+     * Creates a generator of the elements of this generator which satisfy a
+     * predicate.
+     * @param pred LongPredicate to test the elements with
+     * @return LongGenerator
+     */
+    public LongGenerator filter(final LongPredicate pred) {
+        Validate.notNull(pred, "Predicate argument was null");
+        return new LongGenerator(this) {
+            @Override
+            public void run(final LongProcedure proc) {
+                final LongGenerator filtered = this;
+                LongGenerator.this.run(new Stage() {
+                    public void run(long value) {
+                        if (pred.test(value)) {
+                            proc.run(value);
+                        }
+                    }
+
+                    @Override
+                    boolean isDone() {
+                        return filtered.isStopped() || LongGenerator.isDone(proc);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Creates a generator of the results of a function applied to the
+     * elements of this generator.
+     * @param func LongFunction to apply to each element
+     * @return LongGenerator
+     */
+    public LongGenerator transform(final LongFunction func) {
+        Validate.notNull(func, "Function argument was null");
+        return new LongGenerator(this) {
+            @Override
+            public void run(final LongProcedure proc) {
+                final LongGenerator transformed = this;
+                LongGenerator.this.run(new Stage() {
+                    public void run(long value) {
+                        proc.run(func.evaluate(value));
+                    }
+
+                    @Override
+                    boolean isDone() {
+                        return transformed.isStopped() || LongGenerator.isDone(proc);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Runs this generator, combining its elements from left to right.
+     * @param seed initial value
+     * @param func LongBinaryFunction combining the current value with each
+     *            element
+     * @return the final value, or <code>seed</code> if no element was
+     *         generated
+     */
+    public long fold(long seed, final LongBinaryFunction func) {
+        Validate.notNull(func, "Function argument was null");
+        final long[] result = new long[] { seed };
+        run(new LongProcedure() {
+            public void run(long value) {
+                result[0] = func.evaluate(result[0], value);
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * Checks whether a procedure run by a stage of this generator is done,
+     * that is whether the generator running it can stop. Procedures which
+     * are not stages are never done.
+     * @param proc the procedure
+     * @return <code>true</code> if the generator running <code>proc</code>
+     *         can stop
+     */
+    protected static boolean isDone(LongProcedure proc) {
+        return proc instanceof Stage && ((Stage) proc).isDone();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.functor.generator.LongProcedure;
+import org.apache.commons.functor.generator.IterableGenerator;
+import org.apache.commons.functor.generator.SplittableGenerator;
+import org.apache.commons.functor.range.BoundType;
+import org.apache.commons.functor.range.LongRange;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Generates the elements of a {@link LongRange} by index, without going
+ * through its iterator. It is a {@link SplittableGenerator}: it splits in
+ * halves in constant time, so it can be run by a {@link ParallelGenerator}.
+ * It is also an {@link IterableGenerator}, and a {@link LongGenerator} which only
+ * boxes its elements when run with a
+ * {@link org.apache.commons.functor.Procedure}.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class LongRangeGenerator extends LongGenerator implements SplittableGenerator<Long>,
+        IterableGenerator<Long> {
+
+    /**
+     * The next element to generate.
+     */
+    private long first;
+
+    /**
+     * The difference between two consecutive elements.
+     */
+    private final long step;
+
+    /**
+     * The number of elements left to generate.
+     */
+    private long size;
+
+    /**
+     * Create a new LongRangeGenerator generating the elements of a range.
+     * @param range LongRange to generate
+     */
+    public LongRangeGenerator(LongRange range) {
+        Validate.notNull(range, "Range argument was null");
+        this.step = range.getStep().longValue();
+        long left = range.getLeftEndpoint().getValue().longValue();
+        long right = range.getRightEndpoint().getValue().longValue();
+        if (range.isEmpty()) {
+            this.first = left;
+            this.size = 0;
+        } else if (left == right) {
+            this.first = left;
+            this.size = 1;
+        } else {
+            // a long range can hold more than Long.MAX_VALUE elements
+            BigInteger bigStep = BigInteger.valueOf(step);
+            BigInteger start = BigInteger.valueOf(left);
+            if (range.getLeftEndpoint().getBoundType() == BoundType.OPEN) {
+                start = start.add(bigStep);
+            }
+            BigInteger last = BigInteger.valueOf(right);
+            if (range.getRightEndpoint().getBoundType() == BoundType.OPEN) {
+                last = last.subtract(BigInteger.valueOf(Long.signum(step)));
+            }
+            BigInteger distance = last.subtract(start);
+            if (step < 0) {
+                distance = distance.negate();
+            }
+            this.first = start.longValue();
+            if (distance.signum() < 0) {
+                this.size = 0;
+            } else {
+                BigInteger count = distance.divide(bigStep.abs()).add(BigInteger.ONE);
+                Validate.isTrue(count.bitLength() < Long.SIZE, "Range has too many elements: %s", count);
+                this.size = count.longValue();
+            }
+        }
+    }
+
+    /**
+     * Create a new LongRangeGenerator.
+     * @param first first element
+     * @param step difference between two consecutive elements
+     * @param size number of elements
+     */
+    private LongRangeGenerator(long first, long step, long size) {
+        this.first = first;
+        this.step = step;
+        this.size = size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(LongProcedure proc) {
+        while (size > 0) {
+            long value = first;
+            first += step;
+            size--;
+            proc.run(value);
+            if (isStopped() || isDone(proc)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            public boolean hasNext() {
+                return size > 0 && !isStopped();
+            }
+
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long value = first;
+                first += step;
+                size--;
+                return Long.valueOf(value);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SplittableGenerator<Long> trySplit() {
+        if (size < 2) {
+            return null;
+        }
+        long half = size >>> 1;
+        LongRangeGenerator prefix = new LongRangeGenerator(first, step, half);
+        first += half * step;
+        size -= half;
+        return prefix;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long estimateSize() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof LongRangeGenerator)) {
+            return false;
+        }
+        LongRangeGenerator that = (LongRangeGenerator) obj;
+        return this.first == that.first && this.step == that.step && this.size == that.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int hash = "LongRangeGenerator".hashCode();
+        hash <<= 2;
+        hash ^= (int) (first ^ (first >>> 32));
+        hash <<= 2;
+        hash ^= (int) (step ^ (step >>> 32));
+        hash <<= 2;
+        hash ^= (int) (size ^ (size >>> 32));
+        return hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "LongRangeGenerator<" + first + ", " + step + ", " + size + ">";
+    }
+}
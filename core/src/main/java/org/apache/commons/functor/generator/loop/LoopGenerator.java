@@ -19,7 +19,10 @@ import org.apache.commons.functor.generator.Generator;
 
 /**
  * Base class for generators that control execution flow, and may need to
- * stop the generation.
+ * stop the generation. Loop generators wrapping a generator run it with a
+ * {@link org.apache.commons.functor.generator.ShortCircuitProcedure} which is
+ * done once they are stopped, so that the wrapped generator stops as well
+ * even if it is not a loop generator.
  *
  * @param <E> the type of elements held in this generator.
  * @since 1.0
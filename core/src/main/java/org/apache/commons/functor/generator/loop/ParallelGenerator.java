@@ -0,0 +1,376 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.functor.BinaryFunction;
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.Predicate;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.core.algorithm.FoldLeft;
+import org.apache.commons.functor.generator.FilteredGenerator;
+import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.SplittableGenerator;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Runs a chain of {@link FilteredGenerator filter} and
+ * {@link TransformedGenerator transform} stages over a
+ * {@link SplittableGenerator} using several threads.
+ * <p>
+ * The source is split into chunks of roughly equal size, the stages are run
+ * over each chunk independently, from a single procedure, on the given
+ * {@link ExecutorService}, and the partial results are combined by a function
+ * which must be associative. Partial results are combined in the order of the chunks, so the
+ * combining function does not need to be commutative: for instance
+ * {@link #toCollection()} keeps the order of the source. The functors given to
+ * the stages and the terminal operations are called concurrently, so they must
+ * be thread-safe.
+ * </p>
+ * <p>
+ * Example, summing the squares of the even numbers below ten millions:
+ * </p>
+ * <pre>
+ * Integer sum = ParallelGenerator.parallel(new IntegerRangeGenerator(Ranges.integerRange(0, 10000000)), executor)
+ *     .filter(isEven)
+ *     .transform(square)
+ *     .fold(plus);
+ * </pre>
+ * <p>
+ * Like the generators it is built on, a parallel generator consumes its
+ * source and can only be run once. The stage methods return new parallel
+ * generators sharing the same source, so only one of them may be run.
+ * </p>
+ *
+ * @param <E> the type of elements held in this generator.
+ * @version $Revision$ $Date$
+ */
+public final class ParallelGenerator<E> {
+
+    /**
+     * Smallest number of elements per chunk when the chunk size is computed
+     * automatically, so that the cost of scheduling a chunk stays negligible.
+     */
+    public static final long MIN_CHUNK_SIZE = 1024;
+
+    /**
+     * Number of chunks per available processor when the chunk size is
+     * computed automatically, so that threads finishing early can pick up more
+     * work.
+     */
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    /**
+     * The generator to split.
+     */
+    private final SplittableGenerator<?> source;
+
+    /**
+     * Function building the pipeline of stages over a chunk of the
+     * source.
+     */
+    private final Function<Generator<?>, Pipeline<E>> stages;
+
+    /**
+     * Executor running the chunks.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Number of elements above which a chunk is split, or 0 to compute it
+     * from the size of the source.
+     */
+    private final long chunkSize;
+
+    /**
+     * Create a new ParallelGenerator computing the chunk size from the size of
+     * the source and the number of available processors.
+     * @param source SplittableGenerator to run
+     * @param executor ExecutorService running the chunks
+     */
+    public ParallelGenerator(SplittableGenerator<? extends E> source, ExecutorService executor) {
+        this(Validate.notNull(source, "Generator argument was null"), ParallelGenerator.<E> identity(),
+                Validate.notNull(executor, "ExecutorService argument was null"), 0);
+    }
+
+    /**
+     * Create a new ParallelGenerator.
+     * @param source SplittableGenerator to run
+     * @param executor ExecutorService running the chunks
+     * @param chunkSize number of elements above which a chunk is split
+     */
+    public ParallelGenerator(SplittableGenerator<? extends E> source, ExecutorService executor, long chunkSize) {
+        this(Validate.notNull(source, "Generator argument was null"), ParallelGenerator.<E> identity(),
+                Validate.notNull(executor, "ExecutorService argument was null"), chunkSize);
+        Validate.isTrue(chunkSize > 0, "Chunk size must be strictly positive: %s", chunkSize);
+    }
+
+    /**
+     * Create a new ParallelGenerator.
+     * @param source SplittableGenerator to run
+     * @param stages Function building the pipeline of stages over a chunk
+     * @param executor ExecutorService running the chunks
+     * @param chunkSize number of elements above which a chunk is split
+     */
+    private ParallelGenerator(SplittableGenerator<?> source, Function<Generator<?>, Pipeline<E>> stages,
+            ExecutorService executor, long chunkSize) {
+        this.source = source;
+        this.stages = stages;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Adds a stage only passing through the elements matched by a predicate.
+     * @param pred filtering Predicate, called concurrently
+     * @return ParallelGenerator
+     * @see FilteredGenerator
+     */
+    public ParallelGenerator<E> filter(final Predicate<? super E> pred) {
+        Validate.notNull(pred, "Predicate argument was null");
+        final Function<Generator<?>, Pipeline<E>> upstream = stages;
+        return new ParallelGenerator<E>(source, new Function<Generator<?>, Pipeline<E>>() {
+            public Pipeline<E> evaluate(Generator<?> chunk) {
+                return upstream.evaluate(chunk).filter(pred);
+            }
+        }, executor, chunkSize);
+    }
+
+    /**
+     * Adds a stage transforming the elements.
+     * @param <T> the type of the transformed elements
+     * @param func Function to apply to each element, called concurrently
+     * @return ParallelGenerator
+     * @see TransformedGenerator
+     */
+    public <T> ParallelGenerator<T> transform(final Function<? super E, ? extends T> func) {
+        Validate.notNull(func, "Function argument was null");
+        final Function<Generator<?>, Pipeline<E>> upstream = stages;
+        return new ParallelGenerator<T>(source, new Function<Generator<?>, Pipeline<T>>() {
+            public Pipeline<T> evaluate(Generator<?> chunk) {
+                return upstream.evaluate(chunk).transform(func);
+            }
+        }, executor, chunkSize);
+    }
+
+    /**
+     * Runs a procedure on each element, concurrently, and waits for all the
+     * elements to have been processed.
+     * @param proc Procedure to run, which must be thread-safe
+     */
+    public void run(final Procedure<? super E> proc) {
+        Validate.notNull(proc, "Procedure argument was null");
+        to(new Function<Generator<? extends E>, Object>() {
+            public Object evaluate(Generator<? extends E> chunk) {
+                chunk.run(proc);
+                return null;
+            }
+        }, new BinaryFunction<Object, Object, Object>() {
+            public Object evaluate(Object left, Object right) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Transforms each chunk using a function and combines the partial results,
+     * in the order of the chunks, using an associative function.
+     * @param <T> the type of the result
+     * @param transformer Function to apply to each chunk, called concurrently
+     * @param combiner associative BinaryFunction combining two partial results
+     * @return combined result
+     */
+    public <T> T to(final Function<Generator<? extends E>, ? extends T> transformer,
+            BinaryFunction<? super T, ? super T, ? extends T> combiner) {
+        Validate.notNull(transformer, "Function argument was null");
+        Validate.notNull(combiner, "BinaryFunction argument was null");
+        List<Callable<T>> tasks = new ArrayList<Callable<T>>();
+        for (final SplittableGenerator<?> chunk : split()) {
+            tasks.add(new Callable<T>() {
+                public T call() {
+                    return transformer.evaluate(stages.evaluate(chunk));
+                }
+            });
+        }
+        List<Future<T>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the chunks", e);
+        }
+        T result = null;
+        for (int i = 0; i < futures.size(); i++) {
+            T partial = get(futures.get(i));
+            result = i == 0 ? partial : combiner.evaluate(result, partial);
+        }
+        return result;
+    }
+
+    /**
+     * Folds the elements using an associative function: each chunk is folded
+     * from the left, then the partial results are folded in the order of the
+     * chunks.
+     * @param function associative BinaryFunction, called concurrently
+     * @return result of the fold, or <code>null</code> if there are no
+     *         elements
+     * @see FoldLeft
+     */
+    public E fold(final BinaryFunction<? super E, ? super E, ? extends E> function) {
+        Validate.notNull(function, "BinaryFunction argument was null");
+        final FoldLeft<E> foldLeft = new FoldLeft<E>(function);
+        return to(new Function<Generator<? extends E>, E>() {
+            // Generator<? extends E> only produces instances of E
+            @SuppressWarnings("unchecked")
+            public E evaluate(Generator<? extends E> chunk) {
+                return foldLeft.evaluate((Generator<E>) chunk);
+            }
+        }, new BinaryFunction<E, E, E>() {
+            public E evaluate(E left, E right) {
+                // empty chunks fold to null
+                if (left == null) {
+                    return right;
+                }
+                if (right == null) {
+                    return left;
+                }
+                return function.evaluate(left, right);
+            }
+        });
+    }
+
+    /**
+     * Collects the elements in a collection, in the order of the source.
+     * @return Collection
+     */
+    public Collection<E> toCollection() {
+        return to(new Function<Generator<? extends E>, Collection<E>>() {
+            public Collection<E> evaluate(Generator<? extends E> chunk) {
+                return chunk.to(new ArrayList<E>());
+            }
+        }, new BinaryFunction<Collection<E>, Collection<E>, Collection<E>>() {
+            public Collection<E> evaluate(Collection<E> left, Collection<E> right) {
+                left.addAll(right);
+                return left;
+            }
+        });
+    }
+
+    /**
+     * Splits the source into chunks of at most {@link #chunkSize} elements,
+     * unless they cannot be split any further.
+     * @return the chunks, in order
+     */
+    private List<SplittableGenerator<?>> split() {
+        long threshold = chunkSize;
+        if (threshold == 0) {
+            int chunks = Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR;
+            threshold = Math.max(MIN_CHUNK_SIZE, source.estimateSize() / chunks);
+        }
+        List<SplittableGenerator<?>> result = new ArrayList<SplittableGenerator<?>>();
+        split(source, threshold, result);
+        return result;
+    }
+
+    /**
+     * Splits a generator into chunks of at most <code>threshold</code>
+     * elements.
+     * @param generator SplittableGenerator to split
+     * @param threshold number of elements above which a chunk is split
+     * @param chunks the list to which the chunks are added, in order
+     */
+    private static void split(SplittableGenerator<?> generator, long threshold, List<SplittableGenerator<?>> chunks) {
+        while (generator.estimateSize() > threshold) {
+            SplittableGenerator<?> prefix = generator.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            split(prefix, threshold, chunks);
+        }
+        chunks.add(generator);
+    }
+
+    /**
+     * Retrieves the result of a chunk, rethrowing the exception it failed
+     * with, if any.
+     * @param <T> the type of the result
+     * @param future Future of the chunk
+     * @return partial result
+     */
+    private <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the chunks", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Creates the function building a pipeline without any stage over a chunk.
+     * @param <E> the type of elements held in the source.
+     * @return Function
+     */
+    private static <E> Function<Generator<?>, Pipeline<E>> identity() {
+        return new Function<Generator<?>, Pipeline<E>>() {
+            // the source was given as a SplittableGenerator<? extends E>
+            @SuppressWarnings("unchecked")
+            public Pipeline<E> evaluate(Generator<?> chunk) {
+                return Pipeline.of((Generator<? extends E>) chunk);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "ParallelGenerator<" + source + ">";
+    }
+
+    // static methods
+    //-----------------------------------------------------
+    /**
+     * Runs a SplittableGenerator in parallel.
+     *
+     * @param <E> the type of elements held in this generator.
+     * @param source SplittableGenerator to run
+     * @param executor ExecutorService running the chunks
+     * @return ParallelGenerator
+     */
+    public static <E> ParallelGenerator<E> parallel(SplittableGenerator<? extends E> source,
+            ExecutorService executor) {
+        return new ParallelGenerator<E>(source, executor);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.IterableGenerator;
+import org.apache.commons.functor.generator.ShortCircuits;
+import org.apache.commons.functor.generator.SplittableGenerator;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Generates the elements of a {@link RandomAccess random access} {@link List}
+ * or of an array, by index. Unlike an {@link IteratorToGeneratorAdapter} over
+ * the same list, it is a {@link SplittableGenerator}: it splits in halves in
+ * constant time, so it can be run by a {@link ParallelGenerator}. It is also
+ * an {@link IterableGenerator}, iterating by index as well.
+ * <p>
+ * The list must not be structurally modified while the generator is in use.
+ * </p>
+ *
+ * @param <E> the type of elements held in this generator.
+ * @version $Revision$ $Date$
+ */
+public final class RandomAccessGenerator<E> extends LoopGenerator<E> implements SplittableGenerator<E>,
+        IterableGenerator<E> {
+
+    /**
+     * The list holding the elements.
+     */
+    private final List<? extends E> list;
+
+    /**
+     * Index of the next element to generate.
+     */
+    private int from;
+
+    /**
+     * Index after the last element to generate.
+     */
+    private final int to;
+
+    /**
+     * Create a new RandomAccessGenerator generating all the elements of a
+     * list.
+     * @param list the list, which must implement {@link RandomAccess}
+     */
+    public RandomAccessGenerator(List<? extends E> list) {
+        this(Validate.notNull(list, "List argument was null"), 0, list.size());
+    }
+
+    /**
+     * Create a new RandomAccessGenerator generating the elements of a list
+     * between two indexes.
+     * @param list the list, which must implement {@link RandomAccess}
+     * @param from index of the first element, inclusive
+     * @param to index of the last element, exclusive
+     */
+    public RandomAccessGenerator(List<? extends E> list, int from, int to) {
+        Validate.notNull(list, "List argument was null");
+        Validate.isTrue(list instanceof RandomAccess, "List does not support random access: %s",
+                list.getClass().getName());
+        Validate.isTrue(from >= 0 && from <= to && to <= list.size(), "Invalid bounds [%s, %s) for size %s", from,
+                to, list.size());
+        this.list = list;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void run(Procedure<? super E> proc) {
+        while (from < to) {
+            proc.run(list.get(from++));
+            if (isStopped() || ShortCircuits.isDone(proc)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            public boolean hasNext() {
+                return from < to && !isStopped();
+            }
+
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return list.get(from++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SplittableGenerator<E> trySplit() {
+        int size = to - from;
+        if (size < 2) {
+            return null;
+        }
+        int middle = from + (size >>> 1);
+        RandomAccessGenerator<E> prefix = new RandomAccessGenerator<E>(list, from, middle);
+        from = middle;
+        return prefix;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long estimateSize() {
+        return to - from;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof RandomAccessGenerator<?>)) {
+            return false;
+        }
+        RandomAccessGenerator<?> that = (RandomAccessGenerator<?>) obj;
+        return this.list.equals(that.list) && this.from == that.from && this.to == that.to;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int hash = "RandomAccessGenerator".hashCode();
+        hash <<= 2;
+        hash ^= list.hashCode();
+        hash <<= 2;
+        hash ^= from;
+        hash <<= 2;
+        hash ^= to;
+        return hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "RandomAccessGenerator<" + list + ", " + from + ", " + to + ">";
+    }
+
+    // static methods
+    //-----------------------------------------------------
+    /**
+     * Adapt a random access List to the SplittableGenerator interface.
+     *
+     * @param <E> the type of elements held in this generator.
+     * @param list to adapt
+     * @return RandomAccessGenerator
+     */
+    public static <E> RandomAccessGenerator<E> adapt(List<? extends E> list) {
+        return null == list ? null : new RandomAccessGenerator<E>(list);
+    }
+
+    /**
+     * Adapt an array to the SplittableGenerator interface.
+     *
+     * @param <E> the type of elements held in this generator.
+     * @param array to adapt
+     * @return RandomAccessGenerator
+     */
+    public static <E> RandomAccessGenerator<E> adapt(E... array) {
+        return null == array ? null : new RandomAccessGenerator<E>(Arrays.asList(array));
+    }
+}
@@ -19,6 +19,8 @@ package org.apache.commons.functor.generator.loop;
 import org.apache.commons.functor.Function;
 import org.apache.commons.functor.Procedure;
 import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.ShortCircuits;
 import org.apache.commons.lang3.Validate;
 
 /**
@@ -55,10 +57,14 @@ public class TransformedGenerator<I, E> extends LoopGenerator<E> {
     // See comment above in the public constructor
     @SuppressWarnings("unchecked")
     public void run(final Procedure<? super E> proc) {
-        ((Generator<? extends I>) getWrappedGenerator()).run(new Procedure<I>() {
+        ((Generator<? extends I>) getWrappedGenerator()).run(new ShortCircuitProcedure<I>() {
             public void run(I obj) {
                 proc.run(func.evaluate(obj));
             }
+
+            public boolean isDone() {
+                return TransformedGenerator.this.isStopped() || ShortCircuits.isDone(proc);
+            }
         });
     }
 
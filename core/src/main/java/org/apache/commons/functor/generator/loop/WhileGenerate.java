@@ -19,6 +19,8 @@ package org.apache.commons.functor.generator.loop;
 import org.apache.commons.functor.Predicate;
 import org.apache.commons.functor.Procedure;
 import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.ShortCircuits;
 import org.apache.commons.lang3.Validate;
 
 /**
@@ -49,7 +51,7 @@ public class WhileGenerate<E> extends LoopGenerator<E> {
      * {@inheritDoc}
      */
     public void run(final Procedure<? super E> proc) {
-        getWrappedGenerator().run(new Procedure<E>() {
+        getWrappedGenerator().run(new ShortCircuitProcedure<E>() {
             public void run(E obj) {
                 if (!test.test(obj)) {
                     WhileGenerate.this.stop();
@@ -57,6 +59,10 @@ public class WhileGenerate<E> extends LoopGenerator<E> {
                     proc.run(obj);
                 }
             }
+
+            public boolean isDone() {
+                return WhileGenerate.this.isStopped() || ShortCircuits.isDone(proc);
+            }
         });
     }
 
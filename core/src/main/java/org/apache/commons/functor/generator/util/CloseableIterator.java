@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.util;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator over the elements of a generator which may hold resources, such as
+ * the producer thread of a {@link ProducerIterator}, until it is exhausted.
+ * An iterator which is abandoned before it is exhausted must be
+ * {@link #close() closed} to release them.
+ *
+ * @param <E> the type of elements held in the generator.
+ * @version $Revision$ $Date$
+ */
+public interface CloseableIterator<E> extends Iterator<E>, Closeable {
+
+    /**
+     * Releases the resources held by this iterator. Further calls to
+     * {@link #hasNext()} return <code>false</code>. Closing an exhausted or
+     * already closed iterator has no effect.
+     */
+    void close();
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.IterableGenerator;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Transforms a generator into an iterator over its elements, without
+ * collecting them first. An {@link IterableGenerator} is pulled from directly;
+ * any other generator is run by a {@link ProducerIterator}, which hands its
+ * elements over through a bounded buffer. Either way the iterator must be
+ * {@link CloseableIterator#close() closed} if it is not exhausted.
+ *
+ * @param <E> the type of elements held in the generator.
+ * @version $Revision$ $Date$
+ */
+public class IteratorTransformer<E> implements Function<Generator<? extends E>, CloseableIterator<E>> {
+
+    /**
+     * Closeable view of the iterator of an {@link IterableGenerator}.
+     * @param <E> the type of elements held in the generator
+     */
+    private static final class PullIterator<E> implements CloseableIterator<E> {
+        /**
+         * The iterator of the generator.
+         */
+        private final Iterator<? extends E> iterator;
+
+        /**
+         * Set by {@link #close()}.
+         */
+        private boolean closed;
+
+        /**
+         * Create a new PullIterator.
+         * @param iterator the iterator of the generator
+         */
+        PullIterator(Iterator<? extends E> iterator) {
+            this.iterator = iterator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean hasNext() {
+            return !closed && iterator.hasNext();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public E next() {
+            if (closed) {
+                throw new NoSuchElementException();
+            }
+            return iterator.next();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void remove() {
+            iterator.remove();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void close() {
+            closed = true;
+        }
+    }
+
+    // instance variables
+    //---------------------------------------------------
+    /**
+     * Capacity of the buffer of the {@link ProducerIterator}, if one is
+     * needed.
+     */
+    private final int capacity;
+
+    // constructors
+    //---------------------------------------------------
+    /**
+     * Create a new IteratorTransformer buffering at most
+     * {@link ProducerIterator#DEFAULT_CAPACITY} elements of push-only
+     * generators.
+     */
+    public IteratorTransformer() {
+        this(ProducerIterator.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new IteratorTransformer.
+     * @param capacity maximum number of elements of push-only generators
+     *            buffered ahead of the consumer
+     */
+    public IteratorTransformer(int capacity) {
+        Validate.isTrue(capacity > 0, "Capacity must be strictly positive: %s", capacity);
+        this.capacity = capacity;
+    }
+
+    // instance methods
+    //---------------------------------------------------
+    /**
+     * Returns an iterator over the elements of the {@link Generator}.
+     * @param generator the generator
+     * @return CloseableIterator, consuming the generator
+     */
+    // Iterator<? extends E> only returns instances of E
+    @SuppressWarnings("unchecked")
+    public CloseableIterator<E> evaluate(Generator<? extends E> generator) {
+        Validate.notNull(generator, "Generator argument was null");
+        if (generator instanceof IterableGenerator<?>) {
+            Iterator<? extends E> iterator = ((IterableGenerator<? extends E>) generator).iterator();
+            if (iterator instanceof CloseableIterator<?>) {
+                return (CloseableIterator<E>) iterator;
+            }
+            return new PullIterator<E>(iterator);
+        }
+        return new ProducerIterator<E>(generator, capacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof IteratorTransformer<?>)) {
+            return false;
+        }
+        return ((IteratorTransformer<?>) obj).capacity == capacity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return "IteratorTransformer".hashCode() << 2 ^ capacity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "IteratorTransformer<" + capacity + ">";
+    }
+
+    /**
+     * Get an {@link IteratorTransformer} instance with the default buffer
+     * capacity.
+     * @param <E> the type of elements held in the generator
+     * @return {@link IteratorTransformer}
+     */
+    public static <E> IteratorTransformer<E> toIterator() {
+        return new IteratorTransformer<E>();
+    }
+}
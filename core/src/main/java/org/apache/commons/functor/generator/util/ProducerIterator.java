@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.util;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.ShortCircuitProcedure;
+import org.apache.commons.functor.generator.loop.LoopGenerator;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Iterates over the elements of any {@link Generator}, including push-only
+ * ones, without collecting all of them first. The generator is run by a
+ * producer thread, started on the first call to {@link #hasNext()}, which
+ * hands the elements over through a small bounded buffer: the producer is
+ * never more than the capacity of the buffer ahead of the consumer, so memory
+ * use does not depend on the number of elements.
+ * <p>
+ * An exception thrown by the generator is rethrown by {@link #hasNext()} or
+ * {@link #next()} once the elements generated before it have been consumed.
+ * An iterator which is abandoned before it is exhausted must be
+ * {@link #close() closed}, otherwise its producer thread stays blocked on the
+ * full buffer.
+ * </p>
+ * <p>
+ * A ProducerIterator is meant to be used by a single consumer thread.
+ * </p>
+ *
+ * @param <E> the type of elements held in the generator.
+ * @version $Revision$ $Date$
+ */
+public class ProducerIterator<E> implements CloseableIterator<E> {
+
+    /**
+     * Capacity of the buffer when none is specified.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Stands for <code>null</code> elements in the buffer.
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * Marks the end of the elements in the buffer.
+     */
+    private static final Object END = new Object();
+
+    /**
+     * Number of producer threads created so far, to name them.
+     */
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    /**
+     * Wraps the exception the generator failed with.
+     */
+    private static final class Failure {
+        /**
+         * The exception thrown by the generator.
+         */
+        private final Throwable cause;
+
+        /**
+         * Create a new Failure.
+         * @param cause the exception thrown by the generator
+         */
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * Thrown from within the generator to unwind the producer thread when the
+     * iterator is closed.
+     */
+    private static final class Closed extends RuntimeException {
+        /**
+         * serialVersionUID declaration.
+         */
+        private static final long serialVersionUID = 2402516231916475412L;
+    }
+
+    /**
+     * The generator to iterate over.
+     */
+    private final Generator<? extends E> generator;
+
+    /**
+     * Buffer between the producer thread and the consumer.
+     */
+    private final BlockingQueue<Object> buffer;
+
+    /**
+     * The producer thread, <code>null</code> until it is started.
+     */
+    private Thread producer;
+
+    /**
+     * Set by {@link #close()}.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The next element taken from the buffer but not returned yet, or
+     * <code>null</code> if there is none.
+     */
+    private Object next;
+
+    /**
+     * Set once {@link #END} or a {@link Failure} has been taken from the
+     * buffer.
+     */
+    private boolean done;
+
+    /**
+     * Create a new ProducerIterator with a buffer of
+     * {@link #DEFAULT_CAPACITY} elements.
+     * @param generator Generator to iterate over
+     */
+    public ProducerIterator(Generator<? extends E> generator) {
+        this(generator, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new ProducerIterator.
+     * @param generator Generator to iterate over
+     * @param capacity maximum number of elements buffered ahead of the
+     *            consumer
+     */
+    public ProducerIterator(Generator<? extends E> generator, int capacity) {
+        this.generator = Validate.notNull(generator, "Generator argument was null");
+        Validate.isTrue(capacity > 0, "Capacity must be strictly positive: %s", capacity);
+        this.buffer = new ArrayBlockingQueue<Object>(capacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done || closed) {
+            return false;
+        }
+        if (producer == null) {
+            start();
+        }
+        Object taken;
+        try {
+            taken = buffer.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next element", e);
+        }
+        if (taken == END) {
+            done = true;
+            return false;
+        }
+        if (taken instanceof Failure) {
+            done = true;
+            Throwable cause = ((Failure) taken).cause;
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+        next = taken;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    // only elements of the generator, or NULL, are stored in next
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object result = next;
+        next = null;
+        return result == NULL ? null : (E) result;
+    }
+
+    /**
+     * Not supported.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Stops the producer thread and discards the buffered elements.
+     */
+    public void close() {
+        closed = true;
+        next = null;
+        if (producer != null) {
+            producer.interrupt();
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Starts the producer thread.
+     */
+    private void start() {
+        producer = new Thread(new Runnable() {
+            public void run() {
+                produce();
+            }
+        }, ProducerIterator.class.getSimpleName() + "-" + THREADS.incrementAndGet());
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /**
+     * Runs the generator, handing its elements over to the consumer. Runs on
+     * the producer thread.
+     */
+    private void produce() {
+        Object last = END;
+        try {
+            generator.run(new ShortCircuitProcedure<E>() {
+                public void run(E obj) {
+                    put(obj == null ? NULL : obj);
+                }
+
+                public boolean isDone() {
+                    return closed;
+                }
+            });
+        } catch (Closed e) {
+            return;
+        } catch (RuntimeException e) {
+            last = new Failure(e);
+        } catch (Error e) {
+            last = new Failure(e);
+        }
+        try {
+            put(last);
+        } catch (Closed e) {
+            return;
+        }
+    }
+
+    /**
+     * Hands an element over to the consumer, waiting for room in the buffer.
+     * Runs on the producer thread.
+     * @param element the element, {@link #END} or a {@link Failure}
+     */
+    private void put(Object element) {
+        if (closed) {
+            stopGenerator();
+            throw new Closed();
+        }
+        try {
+            buffer.put(element);
+        } catch (InterruptedException e) {
+            stopGenerator();
+            throw new Closed();
+        }
+    }
+
+    /**
+     * Stops the generator if it supports it, so that it does not call the
+     * producer procedure any more. Runs on the producer thread.
+     */
+    private void stopGenerator() {
+        if (generator instanceof LoopGenerator<?>) {
+            ((LoopGenerator<?>) generator).stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "ProducerIterator<" + generator + ">";
+    }
+}
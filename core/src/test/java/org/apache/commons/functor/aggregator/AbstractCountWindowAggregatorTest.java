@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.aggregator.functions.IntegerCountAggregatorBinaryFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorBinaryFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link AbstractCountWindowAggregator}.
+ */
+public class AbstractCountWindowAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new TestCountWindowAggregator(10, 5, false);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        TestCountWindowAggregator agg = (TestCountWindowAggregator) makeFunctor();
+        assertEquals(10, agg.getWindow());
+        assertEquals(5, agg.getWindowBuckets());
+        assertEquals(2, agg.getBucketSize());
+        assertFalse(agg.isTumbling());
+        assertEquals(0, agg.evaluate().intValue());
+        assertEquals(0, agg.getDataSize());
+
+        agg = new TestCountWindowAggregator(10, 5, true);
+        assertTrue(agg.isTumbling());
+        assertEquals(1, agg.getWindowBuckets());
+        assertEquals(10, agg.getBucketSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowNotMultipleOfBuckets() throws Exception {
+        new TestCountWindowAggregator(10, 3, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBuckets() throws Exception {
+        new TestCountWindowAggregator(10, 0, false);
+    }
+
+    /**
+     * Adds 1..n and checks the window only sums up the last values, expiring
+     * one bucket (2 values) at a time.
+     */
+    @Test
+    public void testSliding() throws Exception {
+        TestCountWindowAggregator agg = (TestCountWindowAggregator) makeFunctor();
+        for (int i = 1; i <= 100; i++) {
+            agg.add(i);
+            // number of values in the window: the full buckets before the
+            // current one plus what's in the current one
+            int inCurrent = (i - 1) % 2 + 1;
+            int first = Math.max(1, i - 8 - inCurrent + 1);
+            int expected = 0;
+            for (int j = first; j <= i; j++) {
+                expected += j;
+            }
+            assertEquals(expected, agg.evaluate().intValue());
+        }
+        assertEquals(100, agg.getCount());
+    }
+
+    @Test
+    public void testTumbling() throws Exception {
+        TestCountWindowAggregator agg = new TestCountWindowAggregator(5, 1, true);
+        for (int i = 1; i <= 4; i++) {
+            agg.add(i);
+            assertEquals(0, agg.evaluate().intValue());
+        }
+        agg.add(5);
+        assertEquals(15, agg.evaluate().intValue());
+        for (int i = 6; i <= 9; i++) {
+            agg.add(i);
+            assertEquals(15, agg.evaluate().intValue());
+        }
+        agg.add(10);
+        assertEquals(40, agg.evaluate().intValue());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        TestCountWindowAggregator agg = (TestCountWindowAggregator) makeFunctor();
+        for (int i = 1; i <= 7; i++) {
+            agg.add(i);
+        }
+        agg.reset();
+        assertEquals(0, agg.evaluate().intValue());
+        assertEquals(0, agg.getCount());
+        agg.add(3);
+        assertEquals(3, agg.evaluate().intValue());
+    }
+
+    /**
+     * The timer must report the window without emptying it.
+     */
+    @Test
+    public void testEvaluateAndResetKeepsWindow() throws Exception {
+        TestCountWindowAggregator agg = (TestCountWindowAggregator) makeFunctor();
+        for (int i = 1; i <= 10; i++) {
+            agg.add(i);
+        }
+        assertEquals(55, agg.evaluateAndReset().intValue());
+        assertEquals(55, agg.evaluate().intValue());
+        agg.add(11);
+        assertEquals(63, agg.evaluateAndReset().intValue());
+    }
+
+    /**
+     * A flush nobody listens to must not empty the window either.
+     */
+    @Test
+    public void testFlushWithoutListenersKeepsWindow() throws Exception {
+        TestCountWindowAggregator agg = (TestCountWindowAggregator) makeFunctor();
+        for (int i = 1; i <= 10; i++) {
+            agg.add(i);
+        }
+        agg.flush(null);
+        assertEquals(55, agg.evaluate().intValue());
+    }
+
+    @Test
+    public void testCombineFunction() throws Exception {
+        TestCountWindowAggregator agg = new TestCountWindowAggregator(new IntegerCountAggregatorBinaryFunction(),
+                new IntegerSumAggregatorBinaryFunction(), 10, 5, false);
+        for (int i = 1; i <= 25; i++) {
+            agg.add(i);
+        }
+        assertEquals(9, agg.evaluate().intValue());
+    }
+
+    /**
+     * Sums up the values in a window of samples.
+     */
+    class TestCountWindowAggregator extends AbstractCountWindowAggregator<Integer> {
+        public TestCountWindowAggregator(long window, int buckets, boolean tumbling) {
+            this(new IntegerSumAggregatorBinaryFunction(), new IntegerSumAggregatorBinaryFunction(), window,
+                    buckets, tumbling);
+        }
+
+        public TestCountWindowAggregator(IntegerSumAggregatorBinaryFunction aggregationFunction,
+                IntegerSumAggregatorBinaryFunction combineFunction, long window, int buckets, boolean tumbling) {
+            super(aggregationFunction, combineFunction, window, buckets, tumbling, NO_TIMER, false);
+        }
+
+        public TestCountWindowAggregator(IntegerCountAggregatorBinaryFunction aggregationFunction,
+                IntegerSumAggregatorBinaryFunction combineFunction, long window, int buckets, boolean tumbling) {
+            super(aggregationFunction, combineFunction, window, buckets, tumbling, NO_TIMER, false);
+        }
+
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    }
+}
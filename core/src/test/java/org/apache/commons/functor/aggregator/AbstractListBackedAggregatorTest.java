@@ -18,7 +18,9 @@ package org.apache.commons.functor.aggregator;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -146,6 +148,35 @@ public class AbstractListBackedAggregatorTest extends BaseFunctorTest {
         assertEquals(fct.callsCreateList, 0);
     }
 
+    /**
+     * Ensures the data series is swapped rather than cleared and that the
+     * detached list is recycled.
+     */
+    @Test
+    public void testEvaluateAndReset() throws Exception {
+        @SuppressWarnings("unchecked")
+        TestListBackedAggregator<Object> fct = (TestListBackedAggregator<Object>) makeFunctor();
+        TestFunction<Object> agg = (TestFunction<Object>) fct.getAggregationFunction();
+        List<Object> original = fct.getSeries();
+        int callsAdd = 31;
+        for (int i = 1; i <= callsAdd; i++)
+            fct.add(new Object());
+        fct.evaluateAndReset();
+        assertEquals(agg.calls, 1);
+        assertEquals(fct.callsCreateList, 1);
+        assertEquals(fct.getSeries().size(), 0);
+        assertEquals(original.size(), 0);
+        assertNotSame(original, fct.getSeries());
+
+        // the next swap should reuse the original list
+        fct.add(new Object());
+        fct.evaluateAndReset();
+        assertEquals(agg.calls, 2);
+        assertEquals(fct.callsCreateList, 1);
+        assertSame(original, fct.getSeries());
+        assertEquals(fct.getSeries().size(), 0);
+    }
+
     @Test
     public void testGetSize() throws Exception {
         @SuppressWarnings("unchecked")
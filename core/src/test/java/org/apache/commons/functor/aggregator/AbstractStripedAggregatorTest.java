@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.BinaryFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerCountAggregatorBinaryFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorBinaryFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link AbstractStripedAggregator}.
+ */
+public class AbstractStripedAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new TestStripedAggregator(new IntegerSumAggregatorBinaryFunction(), 4);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        TestStripedAggregator agg = new TestStripedAggregator(new IntegerSumAggregatorBinaryFunction(), 3);
+        assertEquals(4, agg.getStripes());
+        assertTrue(agg.isLockFreeAdd());
+        assertSame(agg.getAggregationFunction(), agg.getCombineFunction());
+        assertEquals(0, agg.evaluate().intValue());
+        assertEquals(0, agg.getDataSize());
+        assertTrue(AbstractStripedAggregator.DEFAULT_STRIPES > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStripes() throws Exception {
+        new TestStripedAggregator(new IntegerSumAggregatorBinaryFunction(), 0);
+    }
+
+    @Test
+    public void testAddEvaluateReset() throws Exception {
+        TestStripedAggregator agg = (TestStripedAggregator) makeFunctor();
+        int sum = 0;
+        for (int i = 1; i <= 100; i++) {
+            agg.add(i);
+            sum += i;
+            assertEquals(sum, agg.evaluate().intValue());
+        }
+        agg.reset();
+        assertEquals(0, agg.evaluate().intValue());
+    }
+
+    @Test
+    public void testEvaluateAndReset() throws Exception {
+        TestStripedAggregator agg = (TestStripedAggregator) makeFunctor();
+        for (int i = 1; i <= 10; i++) {
+            agg.add(i);
+        }
+        assertEquals(55, agg.evaluateAndReset().intValue());
+        assertEquals(0, agg.evaluate().intValue());
+        agg.add(3);
+        assertEquals(3, agg.evaluateAndReset().intValue());
+    }
+
+    /**
+     * Ensures no data is lost when a number of threads add concurrently and
+     * the stripes are merged with a different function than the one used to
+     * aggregate the data.
+     */
+    @Test
+    public void testConcurrentCount() throws Exception {
+        final TestStripedAggregator agg = new TestStripedAggregator(new IntegerCountAggregatorBinaryFunction(),
+                new IntegerSumAggregatorBinaryFunction(), 8);
+        final int threads = 8;
+        final int calls = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < calls; j++) {
+                        agg.add(j);
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * calls, agg.evaluate().intValue());
+    }
+
+    /**
+     * Striped aggregator starting from zero.
+     */
+    class TestStripedAggregator extends AbstractStripedAggregator<Integer> {
+        public TestStripedAggregator(BinaryFunction<Integer, Integer, Integer> aggregationFunction, int stripes) {
+            this(aggregationFunction, aggregationFunction, stripes);
+        }
+
+        public TestStripedAggregator(BinaryFunction<Integer, Integer, Integer> aggregationFunction,
+                BinaryFunction<Integer, Integer, Integer> combineFunction, int stripes) {
+            super(aggregationFunction, combineFunction, stripes, 0L, false);
+        }
+
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    }
+}
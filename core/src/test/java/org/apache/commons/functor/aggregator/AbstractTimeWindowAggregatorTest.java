@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorBinaryFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link AbstractTimeWindowAggregator}.
+ */
+public class AbstractTimeWindowAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new TestTimeWindowAggregator(1000L, 4, false);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        TestTimeWindowAggregator agg = (TestTimeWindowAggregator) makeFunctor();
+        assertEquals(1000L, agg.getWindow());
+        assertEquals(250L, agg.getBucketLength());
+        assertEquals(4, agg.getWindowBuckets());
+        assertFalse(agg.isTumbling());
+        assertEquals(0, agg.evaluate().intValue());
+
+        agg = new TestTimeWindowAggregator(1000L, 4, true);
+        assertTrue(agg.isTumbling());
+        assertEquals(1000L, agg.getBucketLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowTooShort() throws Exception {
+        new TestTimeWindowAggregator(3L, 4, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowNotMultipleOfBuckets() throws Exception {
+        new TestTimeWindowAggregator(1000L, 3, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyTumblingWindow() throws Exception {
+        new TestTimeWindowAggregator(0L, 1, true);
+    }
+
+    @Test
+    public void testTumblingIgnoresBuckets() throws Exception {
+        TestTimeWindowAggregator agg = new TestTimeWindowAggregator(1000L, 3, true);
+        assertEquals(1000L, agg.getBucketLength());
+    }
+
+    @Test
+    public void testSliding() throws Exception {
+        TestTimeWindowAggregator agg = (TestTimeWindowAggregator) makeFunctor();
+        agg.add(1); // bucket 0
+        agg.now = 300L;
+        agg.add(2); // bucket 1
+        agg.now = 600L;
+        agg.add(4); // bucket 2
+        agg.now = 900L;
+        agg.add(8); // bucket 3
+        assertEquals(15, agg.evaluate().intValue());
+        // bucket 0 expires
+        agg.now = 1000L;
+        assertEquals(14, agg.evaluate().intValue());
+        agg.add(16); // bucket 4, replaces bucket 0 in the ring
+        assertEquals(30, agg.evaluate().intValue());
+        // bucket 1 and 2 expire
+        agg.now = 1500L;
+        assertEquals(24, agg.evaluate().intValue());
+        // a long pause expires everything
+        agg.now = 10000L;
+        assertEquals(0, agg.evaluate().intValue());
+        agg.add(32);
+        assertEquals(32, agg.evaluate().intValue());
+    }
+
+    @Test
+    public void testTumbling() throws Exception {
+        TestTimeWindowAggregator agg = new TestTimeWindowAggregator(1000L, 4, true);
+        agg.add(1);
+        agg.now = 999L;
+        agg.add(2);
+        assertEquals(0, agg.evaluate().intValue());
+        agg.now = 1000L;
+        assertEquals(3, agg.evaluate().intValue());
+        agg.add(4);
+        agg.now = 1999L;
+        assertEquals(3, agg.evaluate().intValue());
+        agg.now = 2000L;
+        assertEquals(4, agg.evaluate().intValue());
+        // nothing added in the previous window
+        agg.now = 3000L;
+        assertEquals(0, agg.evaluate().intValue());
+    }
+
+    /**
+     * The timer must report the window without emptying it, but it drops the
+     * buckets which have expired.
+     */
+    @Test
+    public void testEvaluateAndResetKeepsWindow() throws Exception {
+        TestTimeWindowAggregator agg = (TestTimeWindowAggregator) makeFunctor();
+        agg.add(1);
+        agg.now = 500L;
+        agg.add(2);
+        assertEquals(3, agg.evaluateAndReset().intValue());
+        assertEquals(3, agg.evaluate().intValue());
+        agg.now = 1100L;
+        assertEquals(2, agg.evaluateAndReset().intValue());
+        agg.reset();
+        assertEquals(0, agg.evaluate().intValue());
+    }
+
+    /**
+     * Sums up the values in a window of time, using a clock controlled by the
+     * test.
+     */
+    class TestTimeWindowAggregator extends AbstractTimeWindowAggregator<Integer> {
+        long now;
+
+        public TestTimeWindowAggregator(long window, int buckets, boolean tumbling) {
+            super(new IntegerSumAggregatorBinaryFunction(), new IntegerSumAggregatorBinaryFunction(), window,
+                    buckets, tumbling, NO_TIMER, false);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    }
+}
@@ -20,10 +20,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.functor.BaseFunctorTest;
 import org.apache.commons.functor.aggregator.AbstractTimedAggregator;
@@ -115,6 +119,135 @@ public class AbstractTimedAggregatorTest extends BaseFunctorTest {
         agg.stop();
     }
 
+    @Test
+    public void testEvaluateAndReset() throws Exception {
+        SimpleStoreTimedAggregator agg = (SimpleStoreTimedAggregator) makeFunctor();
+        agg.add(42);
+        assertEquals(42, agg.evaluateAndReset().intValue());
+        assertEquals(0, agg.evaluate().intValue());
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        SimpleStoreTimedAggregator agg = new SimpleStoreTimedAggregator(DEFAULT_INTERVAL * 100, true);
+        final AtomicInteger received = new AtomicInteger();
+        agg.addTimerListener(new TimedAggregatorListener<Integer>() {
+            public void onTimer(AbstractTimedAggregator<Integer> aggregator, Integer evaluation) {
+                received.set(evaluation);
+            }
+        });
+        agg.add(42);
+        agg.flush(null);
+        assertEquals(42, received.get());
+        assertEquals(0, agg.evaluate().intValue());
+        agg.stop();
+        assertFalse(agg.isTimerEnabled());
+        assertFalse(agg.isSharedTimer());
+    }
+
+    @Test
+    public void testFlushWithoutListenersDoesNotEvaluate() throws Exception {
+        SimpleStoreTimedAggregator agg = new SimpleStoreTimedAggregator(DEFAULT_INTERVAL * 100, true);
+        try {
+            agg.add(42);
+            agg.flush(null);
+            assertEquals(0, agg.evaluations);
+            assertEquals(0, agg.evaluate().intValue());
+            agg.addTimerListener(new TimedAggregatorListener<Integer>() {
+                public void onTimer(AbstractTimedAggregator<Integer> aggregator, Integer evaluation) {
+                    // only there to be notified
+                }
+            });
+            int evaluations = agg.evaluations;
+            agg.flush(null);
+            assertEquals(evaluations + 1, agg.evaluations);
+        } finally {
+            agg.stop();
+        }
+    }
+
+    @Test
+    public void testInstrumentation() throws Exception {
+        final List<String> events = new CopyOnWriteArrayList<String>();
+        AggregatorInstrumentation instrumentation = new AggregatorInstrumentation() {
+            public void onAdd(AbstractTimedAggregator<?> aggregator, long lockWaitNanos) {
+                assertTrue(lockWaitNanos >= 0L);
+                events.add("add");
+            }
+
+            public void onEvaluate(AbstractTimedAggregator<?> aggregator, long lockWaitNanos, long durationNanos) {
+                assertTrue(lockWaitNanos >= 0L && durationNanos >= 0L);
+                events.add("evaluate");
+            }
+
+            public void onFlush(AbstractTimedAggregator<?> aggregator, long driftNanos, long durationNanos) {
+                assertTrue(durationNanos >= 0L);
+                // flushed well before the interval elapsed
+                assertTrue(driftNanos < 0L);
+                events.add("flush");
+            }
+
+            public void onNotify(AbstractTimedAggregator<?> aggregator, TimedAggregatorListener<?> listener,
+                    long latencyNanos, long durationNanos) {
+                assertTrue(latencyNanos >= 0L && durationNanos >= 0L);
+                events.add("notify");
+            }
+        };
+        SimpleStoreTimedAggregator agg = new SimpleStoreTimedAggregator(60000L, true);
+        try {
+            agg.addTimerListener(new TimedAggregatorListener<Integer>() {
+                public void onTimer(AbstractTimedAggregator<Integer> aggregator, Integer evaluation) {
+                    events.add("listener");
+                }
+            });
+            agg.add(1);
+            agg.evaluate();
+            assertTrue(events.isEmpty());
+
+            agg.setInstrumentation(instrumentation);
+            assertTrue(agg.getInstrumentation() == instrumentation);
+            agg.add(2);
+            assertEquals(Integer.valueOf(2), agg.evaluate());
+            agg.flush(null);
+            assertEquals(Arrays.asList("add", "evaluate", "flush", "listener", "notify"), events);
+
+            agg.setInstrumentation(null);
+            agg.add(3);
+            assertEquals(5, events.size());
+        } finally {
+            agg.stop();
+        }
+    }
+
+    @Test
+    public void testThrowingInstrumentationReleasesLock() throws Exception {
+        SimpleStoreTimedAggregator agg = new SimpleStoreTimedAggregator();
+        agg.setInstrumentation(new AggregatorInstrumentation() {
+            public void onAdd(AbstractTimedAggregator<?> aggregator, long lockWaitNanos) {
+                throw new IllegalStateException("onAdd");
+            }
+
+            public void onEvaluate(AbstractTimedAggregator<?> aggregator, long lockWaitNanos, long durationNanos) {
+            }
+
+            public void onFlush(AbstractTimedAggregator<?> aggregator, long driftNanos, long durationNanos) {
+            }
+
+            public void onNotify(AbstractTimedAggregator<?> aggregator, TimedAggregatorListener<?> listener,
+                    long latencyNanos, long durationNanos) {
+            }
+        });
+        try {
+            agg.add(7);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertFalse(((ReentrantReadWriteLock) agg.getDataLock()).isWriteLocked());
+        // the data was added before the instrumentation was called
+        assertEquals(7, agg.evaluate().intValue());
+    }
+
     /**
      * Simple timed aggregator which just stores the latest object and returns
      * it when evaluating the result.
@@ -123,6 +256,7 @@ public class AbstractTimedAggregatorTest extends BaseFunctorTest {
      */
     class SimpleStoreTimedAggregator extends AbstractTimedAggregator<Integer> {
         private Integer object;
+        private int     evaluations;
 
         public SimpleStoreTimedAggregator() {
             super();
@@ -143,6 +277,7 @@ public class AbstractTimedAggregatorTest extends BaseFunctorTest {
 
         @Override
         protected Integer doEvaluate() {
+            evaluations++;
             return object;
         }
 
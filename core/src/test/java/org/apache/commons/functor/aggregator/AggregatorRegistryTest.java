@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorBinaryFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link AggregatorRegistry}.
+ */
+public class AggregatorRegistryTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new AggregatorRegistry<String, Integer>(new SumFactory());
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        AggregatorRegistry<String, Integer> registry = new AggregatorRegistry<String, Integer>(new SumFactory());
+        assertEquals(0, registry.size());
+        assertFalse(registry.isTimerEnabled());
+        assertEquals(AbstractTimedAggregator.NO_TIMER, registry.getInterval());
+        assertEquals(AggregatorRegistry.DEFAULT_IDLE_FLUSHES, registry.getIdleFlushes());
+        assertNull(registry.evaluate("a"));
+    }
+
+    /**
+     * The factory must be called once per key, even when many threads add
+     * data for the same new keys at the same time.
+     */
+    @Test
+    public void testLazyCreation() throws Exception {
+        final SumFactory factory = new SumFactory();
+        final AggregatorRegistry<String, Integer> registry = new AggregatorRegistry<String, Integer>(factory);
+        final int threads = 8;
+        final int keys = 100;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int k = 0; k < keys; k++) {
+                        registry.add("key" + k, 1);
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(keys, registry.size());
+        assertEquals(keys, factory.created.get());
+        for (int k = 0; k < keys; k++) {
+            assertEquals(threads, registry.evaluate("key" + k).intValue());
+        }
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        AggregatorRegistry<String, Integer> registry = new AggregatorRegistry<String, Integer>(new SumFactory());
+        RecordingListener listener = new RecordingListener();
+        registry.addListener(listener);
+        registry.add("a", 1);
+        registry.add("a", 2);
+        registry.add("b", 5);
+        registry.flush();
+        assertEquals(2, listener.values.size());
+        assertEquals(3, listener.values.get("a").intValue());
+        assertEquals(5, listener.values.get("b").intValue());
+        assertEquals(0, registry.evaluate("a").intValue());
+
+        // only the keys which received data are reported
+        listener.values.clear();
+        registry.add("b", 1);
+        registry.flush();
+        assertEquals(1, listener.values.size());
+        assertEquals(1, listener.values.get("b").intValue());
+
+        assertTrue(registry.removeListener(listener));
+        assertFalse(registry.removeListener(listener));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        SumFactory factory = new SumFactory();
+        AggregatorRegistry<String, Integer> registry = new AggregatorRegistry<String, Integer>(factory,
+                AbstractTimedAggregator.NO_TIMER, 2);
+        registry.add("a", 1);
+        registry.add("b", 1);
+        registry.flush();
+        assertEquals(2, registry.size());
+        registry.add("b", 1);
+        registry.flush(); // a idle once
+        assertTrue(registry.containsKey("a"));
+        registry.add("b", 1);
+        registry.flush(); // a idle twice
+        assertFalse(registry.containsKey("a"));
+        assertTrue(registry.containsKey("b"));
+        assertEquals(1, registry.size());
+        // an evicted key is created again
+        registry.add("a", 4);
+        assertEquals(4, registry.evaluate("a").intValue());
+        assertEquals(3, factory.created.get());
+    }
+
+    @Test
+    public void testNoEviction() throws Exception {
+        AggregatorRegistry<String, Integer> registry = new AggregatorRegistry<String, Integer>(new SumFactory(),
+                AbstractTimedAggregator.NO_TIMER, 0);
+        registry.add("a", 1);
+        for (int i = 0; i < 10; i++) {
+            registry.flush();
+        }
+        assertTrue(registry.containsKey("a"));
+    }
+
+    @Test
+    public void testTimer() throws Exception {
+        AggregatorRegistry<String, Integer> registry = new AggregatorRegistry<String, Integer>(new SumFactory(),
+                50L, 0);
+        assertTrue(registry.isTimerEnabled());
+        RecordingListener listener = new RecordingListener();
+        registry.addListener(listener);
+        registry.add("a", 7);
+        TimeUnit.MILLISECONDS.sleep(200L);
+        assertEquals(7, listener.values.get("a").intValue());
+        registry.stop();
+        assertFalse(registry.isTimerEnabled());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullKey() throws Exception {
+        new AggregatorRegistry<String, Integer>(new SumFactory()).add(null, 1);
+    }
+
+    /**
+     * Creates summing aggregators and counts them.
+     */
+    static class SumFactory implements Function<String, Aggregator<Integer>> {
+        final AtomicInteger created = new AtomicInteger();
+
+        public Aggregator<Integer> evaluate(String key) {
+            created.incrementAndGet();
+            return new AbstractNoStoreAggregator<Integer>(new IntegerSumAggregatorBinaryFunction()) {
+                @Override
+                protected Integer initialValue() {
+                    return 0;
+                }
+            };
+        }
+    }
+
+    /**
+     * Records the last value received for each key.
+     */
+    static class RecordingListener implements AggregatorRegistryListener<String, Integer> {
+        final Map<String, Integer> values = new ConcurrentHashMap<String, Integer>();
+
+        public void onFlush(AggregatorRegistry<String, Integer> registry, String key, Integer evaluation) {
+            values.put(key, evaluation);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.functor.aggregator.AsyncTimedAggregatorListener.OverflowPolicy;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorFunction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link AsyncTimedAggregatorListener}.
+ */
+public class AsyncTimedAggregatorListenerTest {
+    /**
+     * Listener recording the evaluations received, which blocks until
+     * {@link #release} is counted down.
+     */
+    private static class RecordingListener implements TimedAggregatorListener<Integer> {
+        private final List<Integer>  received = new CopyOnWriteArrayList<Integer>();
+        private final CountDownLatch release;
+        private final CountDownLatch done;
+        private volatile Thread      thread;
+
+        RecordingListener(int releaseCount, int expected) {
+            this.release = new CountDownLatch(releaseCount);
+            this.done = new CountDownLatch(expected);
+        }
+
+        public void onTimer(AbstractTimedAggregator<Integer> aggregator, Integer evaluation) {
+            thread = Thread.currentThread();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(evaluation);
+            done.countDown();
+            if (evaluation.intValue() < 0) {
+                throw new IllegalStateException("negative");
+            }
+        }
+    }
+
+    private ArrayListBackedAggregator<Integer>   aggregator;
+    private AsyncTimedAggregatorListener<Integer> listener;
+
+    @Before
+    public void setUp() {
+        // the interval is only set so listeners can be registered; the test
+        // flushes the aggregator itself
+        aggregator = new ArrayListBackedAggregator<Integer>(new IntegerSumAggregatorFunction(), 60000L, true);
+    }
+
+    @After
+    public void tearDown() {
+        aggregator.stop();
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() throws Exception {
+        new AsyncTimedAggregatorListener<Integer>(new RecordingListener(0, 0), 0, OverflowPolicy.BLOCK);
+    }
+
+    @Test
+    public void testDeliversOnOwnThread() throws Exception {
+        RecordingListener delegate = new RecordingListener(0, 3);
+        listener = new AsyncTimedAggregatorListener<Integer>(delegate);
+        assertSame(delegate, listener.getDelegate());
+        assertSame(OverflowPolicy.DROP_OLDEST, listener.getOverflowPolicy());
+        aggregator.addTimerListener(listener);
+        for (int i = 1; i <= 3; i++) {
+            aggregator.add(i);
+            aggregator.flush(null);
+        }
+        assertTrue(delegate.done.await(5, TimeUnit.SECONDS));
+        // the delegate is done before the dispatch is counted
+        while (listener.getDispatchedCount() < 3L) {
+            Thread.sleep(1L);
+        }
+        assertEquals(3, delegate.received.size());
+        assertEquals(Integer.valueOf(1), delegate.received.get(0));
+        assertEquals(Integer.valueOf(3), delegate.received.get(2));
+        assertFalse(Thread.currentThread() == delegate.thread);
+        assertEquals(3L, listener.getReceivedCount());
+        assertEquals(0L, listener.getDroppedCount());
+        assertTrue(listener.getMaxDispatchLatency() >= listener.getMeanDispatchLatency());
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        RecordingListener delegate = new RecordingListener(1, 3);
+        listener = new AsyncTimedAggregatorListener<Integer>(delegate, 2, OverflowPolicy.DROP_OLDEST);
+        listener.onTimer(aggregator, 1);
+        // wait for the first notification to be taken by the blocked delegate
+        while (delegate.thread == null) {
+            Thread.sleep(1L);
+        }
+        for (int i = 2; i <= 5; i++) {
+            listener.onTimer(aggregator, i);
+        }
+        assertEquals(2, listener.getQueueSize());
+        assertEquals(2L, listener.getDroppedCount());
+        delegate.release.countDown();
+        assertTrue(delegate.done.await(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), delegate.received.get(0));
+        assertEquals(Integer.valueOf(4), delegate.received.get(1));
+        assertEquals(Integer.valueOf(5), delegate.received.get(2));
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        RecordingListener delegate = new RecordingListener(1, 3);
+        listener = new AsyncTimedAggregatorListener<Integer>(delegate, 2, OverflowPolicy.DROP_NEWEST);
+        listener.onTimer(aggregator, 1);
+        while (delegate.thread == null) {
+            Thread.sleep(1L);
+        }
+        for (int i = 2; i <= 5; i++) {
+            listener.onTimer(aggregator, i);
+        }
+        assertEquals(2L, listener.getDroppedCount());
+        delegate.release.countDown();
+        assertTrue(delegate.done.await(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), delegate.received.get(1));
+        assertEquals(Integer.valueOf(3), delegate.received.get(2));
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        final RecordingListener delegate = new RecordingListener(1, 4);
+        listener = new AsyncTimedAggregatorListener<Integer>(delegate, 1, OverflowPolicy.BLOCK);
+        listener.onTimer(aggregator, 1);
+        while (delegate.thread == null) {
+            Thread.sleep(1L);
+        }
+        listener.onTimer(aggregator, 2);
+        final CountDownLatch sent = new CountDownLatch(1);
+        new Thread() {
+            @Override
+            public void run() {
+                listener.onTimer(aggregator, 3);
+                listener.onTimer(aggregator, 4);
+                sent.countDown();
+            }
+        }.start();
+        assertFalse(sent.await(50, TimeUnit.MILLISECONDS));
+        delegate.release.countDown();
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertTrue(delegate.done.await(5, TimeUnit.SECONDS));
+        assertEquals(4, delegate.received.size());
+        assertEquals(0L, listener.getDroppedCount());
+    }
+
+    @Test
+    public void testFailureDoesNotStopDispatch() throws Exception {
+        RecordingListener delegate = new RecordingListener(0, 2);
+        listener = new AsyncTimedAggregatorListener<Integer>(delegate);
+        listener.onTimer(aggregator, -1);
+        listener.onTimer(aggregator, 1);
+        assertTrue(delegate.done.await(5, TimeUnit.SECONDS));
+        while (listener.getDispatchedCount() < 2L) {
+            Thread.sleep(1L);
+        }
+        assertEquals(1L, listener.getFailedCount());
+    }
+
+    @Test
+    public void testErrorDoesNotStopDispatch() throws Exception {
+        final CountDownLatch done = new CountDownLatch(2);
+        listener = new AsyncTimedAggregatorListener<Integer>(new TimedAggregatorListener<Integer>() {
+            public void onTimer(AbstractTimedAggregator<Integer> aggregator, Integer evaluation) {
+                done.countDown();
+                if (evaluation.intValue() < 0) {
+                    throw new Error("negative");
+                }
+            }
+        }, 1, OverflowPolicy.BLOCK);
+        listener.onTimer(aggregator, -1);
+        listener.onTimer(aggregator, 1);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        while (listener.getDispatchedCount() < 2L) {
+            Thread.sleep(1L);
+        }
+        assertEquals(1L, listener.getFailedCount());
+    }
+
+    @Test
+    public void testStopReleasesBlockedSender() throws Exception {
+        final RecordingListener delegate = new RecordingListener(1, 1);
+        listener = new AsyncTimedAggregatorListener<Integer>(delegate, 1, OverflowPolicy.BLOCK);
+        listener.onTimer(aggregator, 1);
+        while (delegate.thread == null) {
+            Thread.sleep(1L);
+        }
+        listener.onTimer(aggregator, 2);
+        Thread sender = new Thread() {
+            @Override
+            public void run() {
+                listener.onTimer(aggregator, 3);
+            }
+        };
+        sender.start();
+        while (listener.getReceivedCount() < 3L) {
+            Thread.sleep(1L);
+        }
+        listener.stop();
+        sender.join(5000L);
+        assertFalse(sender.isAlive());
+        delegate.release.countDown();
+        while (listener.getDispatchedCount() < 1L) {
+            Thread.sleep(1L);
+        }
+        assertEquals(0, listener.getQueueSize());
+        assertEquals(2L, listener.getDroppedCount());
+        assertEquals(listener.getReceivedCount(), listener.getDispatchedCount() + listener.getDroppedCount());
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        RecordingListener delegate = new RecordingListener(0, 1);
+        listener = new AsyncTimedAggregatorListener<Integer>(delegate);
+        listener.stop();
+        assertTrue(listener.isStopped());
+        listener.onTimer(aggregator, 1);
+        assertEquals(1L, listener.getDroppedCount());
+        assertEquals(0, listener.getQueueSize());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link CountMinSketch}.
+ */
+public class CountMinSketchTest {
+    @Test
+    public void testCreate() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(3, 100);
+        assertEquals(3, sketch.getDepth());
+        assertEquals(128, sketch.getWidth());
+        assertEquals(0L, sketch.estimate("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWidth() throws Exception {
+        new CountMinSketch(3, 0);
+    }
+
+    @Test
+    public void testNeverUnderEstimates() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        long total = 0L;
+        for (int key = 0; key < 500; key++) {
+            for (int i = 0; i <= key % 10; i++) {
+                sketch.add(Integer.valueOf(key));
+                total++;
+            }
+        }
+        long overEstimation = 0L;
+        for (int key = 0; key < 500; key++) {
+            long estimate = sketch.estimate(Integer.valueOf(key));
+            assertTrue(estimate >= key % 10 + 1);
+            overEstimation += estimate - (key % 10 + 1);
+        }
+        // on average within e / width of the total
+        assertTrue(overEstimation / 500.0 <= Math.E / 64 * total);
+    }
+
+    @Test
+    public void testAddReturnsEstimate() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(2, 1024);
+        assertEquals(1L, sketch.add("a"));
+        assertEquals(2L, sketch.add("a"));
+        assertEquals(2L, sketch.estimate("a"));
+        sketch.reset();
+        assertEquals(0L, sketch.estimate("a"));
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DefaultAggregatorScheduler}.
+ */
+public class DefaultAggregatorSchedulerTest extends BaseFunctorTest {
+    /** Default interval used in the tests. */
+    private static final long INTERVAL = 50L;
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DefaultAggregatorScheduler("test", 1);
+    }
+
+    /**
+     * Aggregators with the same interval end up in the same batch.
+     */
+    @Test
+    public void testBatches() throws Exception {
+        DefaultAggregatorScheduler scheduler = new DefaultAggregatorScheduler("test", 1);
+        CountingAggregator agg1 = new CountingAggregator(INTERVAL, scheduler);
+        CountingAggregator agg2 = new CountingAggregator(INTERVAL, scheduler);
+        CountingAggregator agg3 = new CountingAggregator(INTERVAL * 2, scheduler);
+        assertEquals(0, scheduler.getScheduledCount());
+        agg1.start();
+        agg2.start();
+        agg3.start();
+        assertSame(scheduler, agg1.getScheduler());
+        assertFalse(agg1.isSharedTimer());
+        assertEquals(3, scheduler.getScheduledCount());
+        assertEquals(2, scheduler.getBatchCount());
+
+        agg3.stop();
+        assertNull(agg3.getScheduler());
+        assertEquals(2, scheduler.getScheduledCount());
+        assertEquals(1, scheduler.getBatchCount());
+        assertFalse(scheduler.cancel(agg3));
+        // stopping an aggregator must not shut down a scheduler it doesn't
+        // own
+        assertFalse(scheduler.isShutdown());
+
+        TimeUnit.MILLISECONDS.sleep(INTERVAL * 3);
+        assertTrue(agg1.flushes.get() > 0);
+        assertTrue(agg2.flushes.get() > 0);
+
+        agg1.stop();
+        agg2.stop();
+        assertEquals(0, scheduler.getScheduledCount());
+        assertEquals(0, scheduler.getBatchCount());
+        scheduler.shutdown();
+        assertTrue(scheduler.isShutdown());
+    }
+
+    /**
+     * Aggregators are only scheduled once they are used or started, never by
+     * their constructor.
+     */
+    @Test
+    public void testScheduledOnFirstUse() throws Exception {
+        DefaultAggregatorScheduler scheduler = new DefaultAggregatorScheduler("test", 1);
+        CountingAggregator added = new CountingAggregator(INTERVAL, scheduler);
+        CountingAggregator evaluated = new CountingAggregator(INTERVAL, scheduler);
+        CountingAggregator stopped = new CountingAggregator(INTERVAL, scheduler);
+        assertEquals(0, scheduler.getScheduledCount());
+        added.add(1);
+        assertEquals(1, scheduler.getScheduledCount());
+        added.add(2);
+        evaluated.evaluate();
+        assertEquals(2, scheduler.getScheduledCount());
+        stopped.stop();
+        stopped.start();
+        stopped.add(1);
+        assertEquals(2, scheduler.getScheduledCount());
+        added.stop();
+        evaluated.stop();
+        scheduler.shutdown();
+    }
+
+    /**
+     * A slow listener must not prevent the other aggregators from being
+     * flushed.
+     */
+    @Test
+    public void testSlowListener() throws Exception {
+        DefaultAggregatorScheduler scheduler = new DefaultAggregatorScheduler("test", 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Thread> listenerThread = new AtomicReference<Thread>();
+        CountingAggregator slow = new CountingAggregator(INTERVAL, scheduler);
+        slow.addTimerListener(new TimedAggregatorListener<Integer>() {
+            public void onTimer(AbstractTimedAggregator<Integer> aggregator, Integer evaluation) {
+                listenerThread.set(Thread.currentThread());
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        CountingAggregator other = new CountingAggregator(INTERVAL, scheduler);
+        other.start();
+        TimeUnit.MILLISECONDS.sleep(INTERVAL * 2);
+        int flushes = other.flushes.get();
+        TimeUnit.MILLISECONDS.sleep(INTERVAL * 3);
+        assertTrue(other.flushes.get() > flushes);
+        assertTrue(listenerThread.get().getName().startsWith("test-listener"));
+        release.countDown();
+        slow.stop();
+        other.stop();
+        scheduler.shutdown();
+    }
+
+    /**
+     * Exceptions thrown while flushing an aggregator must not cancel the
+     * flushing.
+     */
+    @Test
+    public void testFailingAggregator() throws Exception {
+        DefaultAggregatorScheduler scheduler = new DefaultAggregatorScheduler(Executors
+                .newSingleThreadScheduledExecutor(), null);
+        final AtomicInteger errors = new AtomicInteger();
+        final Thread.UncaughtExceptionHandler handler = new Thread.UncaughtExceptionHandler() {
+            public void uncaughtException(Thread t, Throwable e) {
+                errors.incrementAndGet();
+            }
+        };
+        CountingAggregator agg = new CountingAggregator(INTERVAL, scheduler);
+        agg.addTimerListener(new TimedAggregatorListener<Integer>() {
+            public void onTimer(AbstractTimedAggregator<Integer> aggregator, Integer evaluation) {
+                Thread.currentThread().setUncaughtExceptionHandler(handler);
+                throw new IllegalStateException("Expected");
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(INTERVAL * 4);
+        assertTrue(agg.flushes.get() > 1);
+        assertTrue(errors.get() > 0);
+        agg.stop();
+        scheduler.shutdown();
+    }
+
+    /**
+     * The executors passed in are not shut down by the scheduler.
+     */
+    @Test
+    public void testExternalExecutor() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        DefaultAggregatorScheduler scheduler = new DefaultAggregatorScheduler(executor, null);
+        CountingAggregator agg = new CountingAggregator(INTERVAL, scheduler);
+        agg.start();
+        TimeUnit.MILLISECONDS.sleep(INTERVAL * 2);
+        assertTrue(agg.flushes.get() > 0);
+        scheduler.shutdown();
+        assertFalse(executor.isShutdown());
+        // let a flush which was already running finish
+        TimeUnit.MILLISECONDS.sleep(INTERVAL / 2);
+        int flushes = agg.flushes.get();
+        TimeUnit.MILLISECONDS.sleep(INTERVAL * 2);
+        assertEquals(flushes, agg.flushes.get());
+        executor.shutdown();
+    }
+
+    /**
+     * An aggregator owning its scheduler shuts it down when stopped.
+     */
+    @Test
+    public void testPrivateScheduler() throws Exception {
+        CountingAggregator agg = new CountingAggregator(INTERVAL, null);
+        agg.start();
+        DefaultAggregatorScheduler scheduler = (DefaultAggregatorScheduler) agg.getScheduler();
+        assertNotSame(AbstractTimedAggregator.getSharedScheduler(), scheduler);
+        assertEquals(1, scheduler.getScheduledCount());
+        agg.stop();
+        assertTrue(scheduler.isShutdown());
+    }
+
+    /**
+     * Aggregators which are no longer referenced are forgotten by the
+     * scheduler, and a private scheduler shuts itself down.
+     */
+    @Test
+    public void testCollected() throws Exception {
+        CountingAggregator agg = new CountingAggregator(INTERVAL, null);
+        agg.start();
+        DefaultAggregatorScheduler scheduler = (DefaultAggregatorScheduler) agg.getScheduler();
+        agg = null;
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (!scheduler.isShutdown() && System.currentTimeMillis() < deadline) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(INTERVAL);
+        }
+        assertTrue(scheduler.isShutdown());
+        assertEquals(0, scheduler.getScheduledCount());
+    }
+
+    /**
+     * Aggregator counting the number of times it has been flushed.
+     */
+    static class CountingAggregator extends AbstractTimedAggregator<Integer> {
+        final AtomicInteger flushes = new AtomicInteger();
+
+        public CountingAggregator(long interval, AggregatorScheduler scheduler) {
+            super(interval, scheduler);
+        }
+
+        @Override
+        protected void doAdd(Integer data) {
+            // nothing to store
+        }
+
+        @Override
+        protected Integer doEvaluate() {
+            return flushes.get();
+        }
+
+        @Override
+        protected void doReset() {
+            flushes.incrementAndGet();
+        }
+
+        @Override
+        protected int retrieveDataSize() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesMedianValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesSumAggregatorFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DirectDoubleBackedAggregator}.
+ */
+public class DirectDoubleBackedAggregatorTest extends BaseFunctorTest {
+    private static final double DELTA = 0.01;
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DirectDoubleBackedAggregator(new DoubleSeriesSumAggregatorFunction(), 4, 0L, false);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        DirectDoubleBackedAggregator agg = new DirectDoubleBackedAggregator(new DoubleSeriesSumAggregatorFunction());
+        assertEquals(DirectDoubleBackedAggregator.DEFAULT_SEGMENT_SIZE, agg.getSegmentSize());
+        assertEquals(0, agg.getDataSize());
+        assertNull(agg.evaluate());
+        assertTrue(agg.getAggregationFunction() instanceof DoubleSeriesSumAggregatorFunction);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullFunction() throws Exception {
+        new DirectDoubleBackedAggregator(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSegmentSize() throws Exception {
+        new DirectDoubleBackedAggregator(new DoubleSeriesSumAggregatorFunction(), 3, 0L, false);
+    }
+
+    @Test
+    public void testAddAcrossSegments() throws Exception {
+        DirectDoubleBackedAggregator agg = (DirectDoubleBackedAggregator) makeFunctor();
+        double sum = 0.0;
+        for (int i = 1; i <= 100; i++) {
+            if (i % 2 == 0) {
+                agg.add((double) i);
+            } else {
+                agg.add(Double.valueOf(i));
+            }
+            sum += i;
+            assertEquals(i, agg.getDataSize());
+            assertEquals(sum, agg.evaluate(), DELTA);
+        }
+        assertEquals(25, agg.getDirectSeries().getSegmentCount());
+        agg.reset();
+        assertEquals(0, agg.getDataSize());
+        assertNull(agg.evaluate());
+        // the segments are kept
+        assertEquals(25, agg.getDirectSeries().getSegmentCount());
+    }
+
+    @Test
+    public void testMedian() throws Exception {
+        DirectDoubleBackedAggregator agg = new DirectDoubleBackedAggregator(
+                new DoubleSeriesMedianValueAggregatorFunction(), 8, 0L, false);
+        for (int i = 99; i >= 0; i--) {
+            agg.add((double) i);
+        }
+        assertEquals(49.5, agg.evaluate(), DELTA);
+    }
+
+    /**
+     * The series detached on each interval is recycled for the next swap.
+     */
+    @Test
+    public void testEvaluateAndResetRecycles() throws Exception {
+        DirectDoubleBackedAggregator agg = (DirectDoubleBackedAggregator) makeFunctor();
+        DirectDoubleSeries first = agg.getDirectSeries();
+        for (int round = 1; round <= 4; round++) {
+            for (int i = 0; i < 10 * round; i++) {
+                agg.add(1.0);
+            }
+            assertEquals(10.0 * round, agg.evaluateAndReset(), DELTA);
+            assertEquals(0, agg.getDataSize());
+        }
+        // 2 series alternate: after an even number of swaps the first is back
+        assertSame(first, agg.getDirectSeries());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DirectDoubleSeries}.
+ */
+public class DirectDoubleSeriesTest {
+    @Test
+    public void testEmpty() throws Exception {
+        DirectDoubleSeries series = new DirectDoubleSeries(4);
+        assertEquals(4, series.getSegmentSize());
+        assertEquals(0, series.size());
+        assertEquals(0, series.getSegmentCount());
+        series.copyTo(new double[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSegmentSizeNotPowerOf2() throws Exception {
+        new DirectDoubleSeries(6);
+    }
+
+    @Test
+    public void testAddAcrossSegments() throws Exception {
+        DirectDoubleSeries series = new DirectDoubleSeries(4);
+        double[] expected = new double[11];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i * 1.5;
+            series.add(expected[i]);
+        }
+        assertEquals(11, series.size());
+        assertEquals(3, series.getSegmentCount());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], series.get(i), 0.0);
+        }
+        double[] copy = new double[11];
+        series.copyTo(copy);
+        assertArrayEquals(expected, copy, 0.0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() throws Exception {
+        DirectDoubleSeries series = new DirectDoubleSeries(4);
+        series.add(1.0);
+        series.get(1);
+    }
+
+    /**
+     * Clearing keeps the segments, which are reused by the next values.
+     */
+    @Test
+    public void testClearReusesSegments() throws Exception {
+        DirectDoubleSeries series = new DirectDoubleSeries(4);
+        for (int i = 0; i < 16; i++) {
+            series.add(i);
+        }
+        series.clear();
+        assertEquals(0, series.size());
+        assertEquals(4, series.getSegmentCount());
+        for (int i = 0; i < 10; i++) {
+            series.add(-i);
+        }
+        assertEquals(4, series.getSegmentCount());
+        assertEquals(-9.0, series.get(9), 0.0);
+    }
+}
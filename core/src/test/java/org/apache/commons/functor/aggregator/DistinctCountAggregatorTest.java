@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DistinctCountAggregator}.
+ */
+public class DistinctCountAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DistinctCountAggregator();
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        DistinctCountAggregator agg = new DistinctCountAggregator(10, 0L, false);
+        assertEquals(10, agg.getPrecision());
+        assertTrue(agg.isLockFreeAdd());
+        assertEquals(Long.valueOf(0L), agg.evaluate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrecision() throws Exception {
+        new DistinctCountAggregator(2);
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        DistinctCountAggregator agg = new DistinctCountAggregator();
+        for (int round = 0; round < 3; round++) {
+            for (long i = 0; i < 500; i++) {
+                agg.add(i);
+                agg.add(Long.valueOf(i));
+            }
+        }
+        assertEquals(500L, agg.evaluate().longValue(), 5.0);
+        agg.addItem("x");
+        agg.addHash(42L);
+        assertEquals(502L, agg.evaluate().longValue(), 5.0);
+    }
+
+    /**
+     * Each evaluation only reflects the items added since the previous reset.
+     */
+    @Test
+    public void testIntervals() throws Exception {
+        DistinctCountAggregator agg = new DistinctCountAggregator(12);
+        for (long i = 0; i < 100; i++) {
+            agg.add(i);
+        }
+        assertEquals(100L, agg.evaluateAndReset().longValue(), 2.0);
+        assertEquals(Long.valueOf(0L), agg.evaluate());
+        agg.add(1L);
+        agg.add(2L);
+        assertEquals(Long.valueOf(2L), agg.evaluate());
+        agg.reset();
+        assertEquals(Long.valueOf(0L), agg.evaluate());
+    }
+
+    @Test
+    public void testSnapshotAndMerge() throws Exception {
+        DistinctCountAggregator first = new DistinctCountAggregator(12);
+        DistinctCountAggregator second = new DistinctCountAggregator(12);
+        for (long i = 0; i < 300; i++) {
+            first.add(i);
+            second.add(i + 200);
+        }
+        HyperLogLog snapshot = first.snapshot();
+        assertEquals(first.evaluate().longValue(), snapshot.estimate());
+        second.merge(snapshot);
+        double tolerance = 3 * snapshot.getRelativeError();
+        assertEquals(500L, second.evaluate().longValue(), 500 * tolerance);
+
+        HyperLogLog detached = first.snapshotAndReset();
+        assertEquals(300L, detached.estimate(), 300 * tolerance);
+        assertEquals(Long.valueOf(0L), first.evaluate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() throws Exception {
+        new DistinctCountAggregator(12).merge(new HyperLogLog(10));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesSumAggregatorFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleArrayBackedAggregator}.
+ */
+public class DoubleArrayBackedAggregatorTest extends BaseFunctorTest {
+    private static final double DELTA = 0.01;
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleArrayBackedAggregator(new DoubleSeriesSumAggregatorFunction(), 2, 0L, false);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        DoubleArrayBackedAggregator agg = new DoubleArrayBackedAggregator(new DoubleSeriesSumAggregatorFunction());
+        assertEquals(DoubleArrayBackedAggregator.DEFAULT_INITIAL_CAPACITY, agg.getInitialCapacity());
+        assertEquals(0, agg.getDataSize());
+        assertNull(agg.evaluate());
+        assertTrue(agg.getAggregationFunction() instanceof DoubleSeriesSumAggregatorFunction);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullFunction() throws Exception {
+        new DoubleArrayBackedAggregator(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() throws Exception {
+        new DoubleArrayBackedAggregator(new DoubleSeriesSumAggregatorFunction(), 0, 0L, false);
+    }
+
+    /**
+     * Adds more values than the initial capacity, both as primitives and
+     * boxed, and makes sure nothing is lost when the array grows.
+     */
+    @Test
+    public void testAddGrows() throws Exception {
+        DoubleArrayBackedAggregator agg = (DoubleArrayBackedAggregator) makeFunctor();
+        double sum = 0.0;
+        for (int i = 1; i <= 100; i++) {
+            if (i % 2 == 0) {
+                agg.add((double) i);
+            } else {
+                agg.add(Double.valueOf(i));
+            }
+            sum += i;
+            assertEquals(i, agg.getDataSize());
+            assertEquals(i, agg.getSeries().size());
+            assertEquals(sum, agg.evaluate(), DELTA);
+        }
+        agg.reset();
+        assertEquals(0, agg.getDataSize());
+        assertNull(agg.evaluate());
+    }
+
+    @Test
+    public void testEvaluateAndReset() throws Exception {
+        DoubleArrayBackedAggregator agg = (DoubleArrayBackedAggregator) makeFunctor();
+        for (int round = 1; round <= 3; round++) {
+            for (int i = 0; i < 10 * round; i++) {
+                agg.add(1.0);
+            }
+            assertEquals(10.0 * round, agg.evaluateAndReset(), DELTA);
+            assertEquals(0, agg.getDataSize());
+        }
+    }
+
+    /**
+     * The array grown by a burst is reused once, then dropped, so the
+     * aggregator goes back to its initial capacity.
+     */
+    @Test
+    public void testSpareShrinksAfterBurst() throws Exception {
+        DoubleArrayBackedAggregator agg = (DoubleArrayBackedAggregator) makeFunctor();
+        for (int i = 0; i < 1000; i++) {
+            agg.add(1.0);
+        }
+        assertTrue(agg.getCapacity() >= 1000);
+        agg.evaluateAndReset();
+        assertEquals(2, agg.getCapacity());
+        agg.add(1.0);
+        agg.evaluateAndReset();
+        assertTrue(agg.getCapacity() >= 1000);
+        agg.add(1.0);
+        agg.evaluateAndReset();
+        assertEquals(2, agg.getCapacity());
+        agg.add(1.0);
+        agg.evaluateAndReset();
+        assertEquals(2, agg.getCapacity());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.functor.aggregator.functions.DoublePercentileAggregatorFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleQuantileSketch}.
+ */
+public class DoubleQuantileSketchTest {
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testEmpty() throws Exception {
+        DoubleQuantileSketch sketch = new DoubleQuantileSketch();
+        assertEquals(DoubleQuantileSketch.DEFAULT_K, sketch.getK());
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.getRetainedItems());
+        assertTrue(Double.isNaN(sketch.getPercentile(50.0)));
+        assertTrue(Double.isNaN(sketch.getMin()));
+        assertTrue(Double.isNaN(sketch.getMax()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidK() throws Exception {
+        new DoubleQuantileSketch(DoubleQuantileSketch.MIN_K - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() throws Exception {
+        new DoubleQuantileSketch().getPercentile(101.0);
+    }
+
+    /**
+     * As long as no compaction happened, the sketch should return the same
+     * values as {@link DoublePercentileAggregatorFunction}.
+     */
+    @Test
+    public void testExactForSmallStreams() throws Exception {
+        DoubleQuantileSketch sketch = new DoubleQuantileSketch();
+        List<Double> lst = new ArrayList<Double>();
+        Random rnd = new Random();
+        for (int i = 0; i < 100; i++) {
+            double value = rnd.nextDouble();
+            sketch.add(value);
+            lst.add(value);
+        }
+        assertEquals(100, sketch.getRetainedItems());
+        for (double p = 0.0; p <= 100.0; p += 5.0) {
+            assertEquals(new DoublePercentileAggregatorFunction(p).evaluate(lst), sketch.getPercentile(p), DELTA);
+        }
+    }
+
+    @Test
+    public void testAccuracyAndBoundedMemory() throws Exception {
+        DoubleQuantileSketch sketch = new DoubleQuantileSketch();
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            // add the values in a scrambled order
+            sketch.add((i * 7919L) % n);
+        }
+        assertEquals(n, sketch.getCount());
+        assertEquals(0.0, sketch.getMin(), DELTA);
+        assertEquals(n - 1, sketch.getMax(), DELTA);
+        assertEquals(0.0, sketch.getPercentile(0.0), DELTA);
+        assertEquals(n - 1, sketch.getPercentile(100.0), DELTA);
+        assertTrue(sketch.getRetainedItems() < 4 * sketch.getK());
+        double tolerance = 3 * sketch.getNormalizedRankError() * n;
+        for (double p = 10.0; p < 100.0; p += 10.0) {
+            assertEquals(p * (n - 1) / 100, sketch.getPercentile(p), tolerance);
+        }
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        DoubleQuantileSketch even = new DoubleQuantileSketch();
+        DoubleQuantileSketch odd = new DoubleQuantileSketch();
+        int n = 50000;
+        for (int i = 0; i < n; i++) {
+            if (i % 2 == 0) {
+                even.add(i);
+            } else {
+                odd.add(i);
+            }
+        }
+        DoubleQuantileSketch merged = new DoubleQuantileSketch();
+        merged.merge(even);
+        merged.merge(odd);
+        assertEquals(n / 2, even.getCount());
+        assertEquals(n, merged.getCount());
+        assertEquals(0.0, merged.getMin(), DELTA);
+        assertEquals(n - 1, merged.getMax(), DELTA);
+        double tolerance = 3 * merged.getNormalizedRankError() * n;
+        assertEquals(n / 2, merged.getPercentile(50.0), tolerance);
+        assertEquals(n * 0.9, merged.getPercentile(90.0), tolerance);
+        assertTrue(merged.getRetainedItems() < 4 * merged.getK());
+
+        DoubleQuantileSketch copy = merged.copy();
+        assertEquals(merged.getCount(), copy.getCount());
+        assertEquals(merged.getRetainedItems(), copy.getRetainedItems());
+        copy.reset();
+        assertEquals(0, copy.getCount());
+        assertEquals(n, merged.getCount());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesMeanValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesPercentileAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesSumAggregatorFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleReservoirSamplingAggregator}.
+ */
+public class DoubleReservoirSamplingAggregatorTest extends BaseFunctorTest {
+    private static final double DELTA = 0.0001;
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleReservoirSamplingAggregator(new DoubleSeriesSumAggregatorFunction(), 10);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        DoubleReservoirSamplingAggregator agg = new DoubleReservoirSamplingAggregator(
+                new DoubleSeriesSumAggregatorFunction(), 10, 0L, false);
+        assertEquals(10, agg.getCapacity());
+        assertEquals(0L, agg.getTotalCount());
+        assertEquals(0, agg.getDataSize());
+        assertNull(agg.evaluate());
+        assertTrue(agg.getSeries() instanceof SampledSeries);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() throws Exception {
+        new DoubleReservoirSamplingAggregator(new DoubleSeriesSumAggregatorFunction(), 0);
+    }
+
+    @Test
+    public void testBoundedMemory() throws Exception {
+        DoubleReservoirSamplingAggregator agg = (DoubleReservoirSamplingAggregator) makeFunctor();
+        for (int i = 1; i <= 10; i++) {
+            agg.add((double) i);
+        }
+        assertEquals(55.0, agg.evaluate(), DELTA);
+        for (int i = 11; i <= 100000; i++) {
+            agg.add((double) i);
+        }
+        assertEquals(10, agg.getDataSize());
+        assertEquals(100000L, agg.getTotalCount());
+        agg.reset();
+        assertEquals(0, agg.getDataSize());
+        assertEquals(0L, agg.getTotalCount());
+    }
+
+    @Test
+    public void testEstimates() throws Exception {
+        DoubleReservoirSamplingAggregator mean = new DoubleReservoirSamplingAggregator(
+                new DoubleSeriesMeanValueAggregatorFunction(), 2000);
+        DoubleReservoirSamplingAggregator median = new DoubleReservoirSamplingAggregator(
+                new DoubleSeriesPercentileAggregatorFunction(50.0), 2000);
+        for (int i = 0; i < 200000; i++) {
+            mean.add((double) (i % 1000));
+            median.add((double) (i % 1000));
+        }
+        assertEquals(499.5, mean.evaluate(), 50.0);
+        assertEquals(499.5, median.evaluate(), 50.0);
+    }
+
+    @Test
+    public void testDetach() throws Exception {
+        Function<DoubleSeries, Double> count = new Function<DoubleSeries, Double>() {
+            public Double evaluate(DoubleSeries obj) {
+                return (double) ((SampledSeries) obj).getTotalCount();
+            }
+        };
+        DoubleReservoirSamplingAggregator agg = new DoubleReservoirSamplingAggregator(count, 4);
+        for (int round = 1; round <= 3; round++) {
+            for (int i = 0; i < 100 * round; i++) {
+                agg.add(1.0);
+            }
+            assertEquals(4, agg.getDataSize());
+            assertEquals(100.0 * round, agg.evaluateAndReset(), DELTA);
+            assertEquals(0, agg.getDataSize());
+        }
+        agg.add(2.0);
+        assertEquals(1, agg.getDataSize());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link EwmaAggregator}.
+ */
+public class EwmaAggregatorTest extends BaseFunctorTest {
+    private static final double DELTA = 0.000001;
+
+    private final List<AbstractTimedAggregator<?>> created = new ArrayList<AbstractTimedAggregator<?>>();
+
+    @After
+    public void stopAggregators() {
+        for (AbstractTimedAggregator<?> agg : created) {
+            agg.stop();
+        }
+    }
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return create(AbstractEwmaAggregator.ONE_MINUTE);
+    }
+
+    private EwmaAggregator create(long window) {
+        EwmaAggregator agg = new EwmaAggregator(window, AbstractEwmaAggregator.DEFAULT_TICK_INTERVAL, true);
+        created.add(agg);
+        return agg;
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        EwmaAggregator agg = create(AbstractEwmaAggregator.FIFTEEN_MINUTES);
+        assertEquals(AbstractEwmaAggregator.FIFTEEN_MINUTES, agg.getWindow());
+        assertEquals(AbstractEwmaAggregator.DEFAULT_TICK_INTERVAL, agg.getInterval());
+        assertFalse(agg.isLockFreeAdd());
+        assertNull(agg.evaluate());
+    }
+
+    @Test
+    public void testTicks() throws Exception {
+        EwmaAggregator agg = create(AbstractEwmaAggregator.ONE_MINUTE);
+        double alpha = agg.getAlpha();
+        // no values yet: nothing to observe
+        assertNull(agg.evaluateAndReset());
+
+        agg.add(2.0);
+        agg.add(4.0);
+        assertEquals(3.0, agg.evaluateAndReset(), DELTA);
+
+        // no values: the average doesn't change
+        assertEquals(3.0, agg.evaluateAndReset(), DELTA);
+
+        agg.add(Double.valueOf(13.0));
+        double expected = 3.0 + alpha * 10.0;
+        assertEquals(expected, agg.evaluateAndReset(), DELTA);
+        assertEquals(expected, agg.evaluate(), DELTA);
+
+        agg.add(1.0);
+        agg.reset();
+        assertNull(agg.evaluate());
+        assertNull(agg.evaluateAndReset());
+    }
+
+    @Test
+    public void testFlushWithoutListenersTicks() throws Exception {
+        EwmaAggregator agg = create(AbstractEwmaAggregator.ONE_MINUTE);
+        agg.add(2.0);
+        agg.add(4.0);
+        agg.flush(null);
+        assertEquals(3.0, agg.evaluate(), DELTA);
+        agg.add(13.0);
+        agg.flush(null);
+        assertEquals(3.0 + agg.getAlpha() * 10.0, agg.evaluate(), DELTA);
+    }
+
+    /**
+     * A longer window reacts more slowly to a change.
+     */
+    @Test
+    public void testWindows() throws Exception {
+        EwmaAggregator fast = create(AbstractEwmaAggregator.ONE_MINUTE);
+        EwmaAggregator slow = create(AbstractEwmaAggregator.FIFTEEN_MINUTES);
+        fast.add(0.0);
+        slow.add(0.0);
+        fast.evaluateAndReset();
+        slow.evaluateAndReset();
+        for (int tick = 0; tick < 12; tick++) {
+            fast.add(1.0);
+            slow.add(1.0);
+            fast.evaluateAndReset();
+            slow.evaluateAndReset();
+        }
+        // after one minute the 1 minute average covered 1 - 1/e of the step
+        assertEquals(1.0 - Math.exp(-1.0), fast.evaluate(), DELTA);
+        assertEquals(1.0 - Math.exp(-1.0 / 15.0), slow.evaluate(), DELTA);
+    }
+}
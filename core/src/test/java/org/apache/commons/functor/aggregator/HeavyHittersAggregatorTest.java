@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link HeavyHittersAggregator}.
+ */
+public class HeavyHittersAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new HeavyHittersAggregator<String>(5);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        HeavyHittersAggregator<String> agg = new HeavyHittersAggregator<String>(3);
+        assertEquals(3, agg.getK());
+        assertEquals(3 * HeavyHittersAggregator.DEFAULT_CAPACITY_FACTOR, agg.getCapacity());
+        assertFalse(agg.isLockFreeAdd());
+        assertNull(agg.evaluate());
+        assertTrue(agg.getTop().isEmpty());
+        assertEquals(0L, agg.getTotalCount());
+        assertEquals(0, agg.getDataSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityBelowK() throws Exception {
+        new HeavyHittersAggregator<String>(10, 5);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullKey() throws Exception {
+        new HeavyHittersAggregator<String>(2).add(null);
+    }
+
+    @Test
+    public void testTop() throws Exception {
+        HeavyHittersAggregator<String> agg = new HeavyHittersAggregator<String>(2, 4);
+        for (int i = 0; i < 100; i++) {
+            agg.add("/slow");
+            if (i % 2 == 0) {
+                agg.add("/slower");
+            }
+            agg.add("/other" + i);
+        }
+        assertEquals("/slow", agg.evaluate());
+        assertEquals(250L, agg.getTotalCount());
+        assertEquals(4, agg.getDataSize());
+        List<HeavyHitter<String>> top = agg.getTop();
+        assertEquals(2, top.size());
+        assertEquals("/slow", top.get(0).getKey());
+        assertTrue(top.get(0).getGuaranteedCount() <= 100L);
+        assertTrue(top.get(0).getCount() >= 100L);
+        assertEquals("/slower", top.get(1).getKey());
+        assertTrue(agg.estimate("/slower") >= 50L);
+        assertEquals(4, agg.getTop(4).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTopAboveCapacity() throws Exception {
+        new HeavyHittersAggregator<String>(2, 4).getTop(5);
+    }
+
+    /**
+     * Each interval only reflects the keys added since the previous reset.
+     */
+    @Test
+    public void testIntervals() throws Exception {
+        HeavyHittersAggregator<String> agg = new HeavyHittersAggregator<String>(3);
+        agg.add("a");
+        agg.add("b");
+        agg.add("b");
+        assertEquals("b", agg.evaluateAndReset());
+        assertNull(agg.evaluate());
+
+        agg.add("c");
+        List<HeavyHitter<String>> top = agg.getTopAndReset();
+        assertEquals(1, top.size());
+        assertEquals("c", top.get(0).getKey());
+        assertEquals(1L, top.get(0).getCount());
+        assertTrue(agg.getTop().isEmpty());
+
+        agg.add("d");
+        agg.reset();
+        assertEquals(0L, agg.getTotalCount());
+    }
+}
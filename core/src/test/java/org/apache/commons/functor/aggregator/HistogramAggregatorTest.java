@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link HistogramAggregator}.
+ */
+public class HistogramAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new HistogramAggregator(50.0);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        HistogramAggregator agg = new HistogramAggregator(99.0, 5, 0L, false);
+        assertEquals(99.0, agg.getPercentile(), 0.0);
+        assertEquals(5, agg.getPrecision());
+        assertTrue(agg.isLockFreeAdd());
+        assertEquals(0L, agg.getCount());
+        assertNull(agg.evaluate());
+        assertNull(agg.getPercentile(10.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() throws Exception {
+        new HistogramAggregator(-1.0);
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        HistogramAggregator agg = new HistogramAggregator(90.0);
+        for (long i = 1; i <= 100; i++) {
+            agg.add(i);
+        }
+        agg.add(Long.valueOf(101L));
+        assertEquals(101L, agg.getCount());
+        assertEquals(Long.valueOf(91L), agg.evaluate());
+        assertEquals(Long.valueOf(51L), agg.getPercentile(50.0));
+        LongHistogram snapshot = agg.snapshot();
+        assertEquals(1L, snapshot.getMin());
+        assertEquals(101L, snapshot.getMax());
+        assertEquals(51.0, snapshot.getMean(), 0.0001);
+    }
+
+    /**
+     * Each evaluation only reflects the data added since the previous reset.
+     */
+    @Test
+    public void testIntervals() throws Exception {
+        HistogramAggregator agg = new HistogramAggregator(100.0);
+        for (long i = 0; i < 10; i++) {
+            agg.add(i);
+        }
+        assertEquals(Long.valueOf(9L), agg.evaluateAndReset());
+        assertEquals(0L, agg.getCount());
+        assertNull(agg.evaluate());
+
+        agg.add(5L);
+        agg.add(3L);
+        LongHistogram interval = agg.snapshotAndReset();
+        assertEquals(2L, interval.getCount());
+        assertEquals(8L, interval.getSum());
+        assertEquals(3L, interval.getMin());
+        assertEquals(5L, interval.getMax());
+
+        agg.add(1000000L);
+        agg.reset();
+        assertNull(agg.evaluate());
+        agg.add(7L);
+        assertEquals(Long.valueOf(7L), agg.evaluate());
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        HistogramAggregator first = new HistogramAggregator(100.0);
+        HistogramAggregator second = new HistogramAggregator(100.0);
+        first.add(10L);
+        second.add(20L);
+        first.merge(second.snapshot());
+        assertEquals(2L, first.getCount());
+        assertEquals(Long.valueOf(20L), first.evaluate());
+    }
+
+    /**
+     * Data added while the aggregator is being reset is never lost.
+     */
+    @Test
+    public void testNoDataLostOnReset() throws Exception {
+        final HistogramAggregator agg = new HistogramAggregator(50.0);
+        final int perThread = 50000;
+        Thread[] threads = new Thread[3];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        agg.add((long) i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        long total = 0L;
+        boolean running = true;
+        while (running) {
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+            total += agg.snapshotAndReset().getCount();
+        }
+        total += agg.snapshotAndReset().getCount();
+        assertEquals((long) perThread * threads.length, total);
+    }
+}
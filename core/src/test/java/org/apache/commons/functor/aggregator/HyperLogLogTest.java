@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link HyperLogLog}.
+ */
+public class HyperLogLogTest {
+    @Test
+    public void testCreate() throws Exception {
+        HyperLogLog sketch = new HyperLogLog();
+        assertEquals(HyperLogLog.DEFAULT_PRECISION, sketch.getPrecision());
+        assertEquals(1 << HyperLogLog.DEFAULT_PRECISION, sketch.getRegisterCount());
+        assertEquals(0L, sketch.estimate());
+        assertEquals(1.04 / 128, sketch.getRelativeError(), 0.0001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrecisionTooLow() throws Exception {
+        new HyperLogLog(HyperLogLog.MIN_PRECISION - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrecisionTooHigh() throws Exception {
+        new HyperLogLog(HyperLogLog.MAX_PRECISION + 1);
+    }
+
+    /**
+     * Small cardinalities are counted almost exactly.
+     */
+    @Test
+    public void testSmallCounts() throws Exception {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long i = 0; i < 100; i++) {
+            sketch.add(i);
+        }
+        assertEquals(100L, sketch.estimate(), 2.0);
+    }
+
+    /**
+     * Large cardinalities are estimated within a few standard errors.
+     */
+    @Test
+    public void testAccuracy() throws Exception {
+        for (int precision = 8; precision <= 14; precision += 3) {
+            HyperLogLog sketch = new HyperLogLog(precision);
+            long n = 200000L;
+            for (long i = 0; i < n; i++) {
+                sketch.add(i * 31L + 7L);
+            }
+            double error = Math.abs(sketch.estimate() - n) / (double) n;
+            assertTrue("precision " + precision + " error " + error, error < 3 * sketch.getRelativeError());
+        }
+    }
+
+    @Test
+    public void testDuplicatesIgnored() throws Exception {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int round = 0; round < 10; round++) {
+            for (long i = 0; i < 1000; i++) {
+                sketch.add(Long.valueOf(i));
+            }
+        }
+        assertEquals(1000L, sketch.estimate(), 1000 * 3 * sketch.getRelativeError());
+        HyperLogLog copy = sketch.copy();
+        sketch.add("a");
+        sketch.add("a");
+        copy.add("a");
+        assertEquals(copy.estimate(), sketch.estimate());
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        HyperLogLog a = new HyperLogLog(12);
+        HyperLogLog b = new HyperLogLog(12);
+        HyperLogLog all = new HyperLogLog(12);
+        for (long i = 0; i < 20000; i++) {
+            a.add(i);
+            all.add(i);
+        }
+        for (long i = 10000; i < 30000; i++) {
+            b.add(i);
+            all.add(i);
+        }
+        a.merge(b);
+        // register-wise maximum is exactly the sketch of the union
+        for (int i = 0; i < all.getRegisterCount(); i++) {
+            assertEquals(all.getRegister(i), a.getRegister(i));
+        }
+        assertEquals(all.estimate(), a.estimate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() throws Exception {
+        new HyperLogLog(10).merge(new HyperLogLog(11));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        HyperLogLog sketch = new HyperLogLog(6);
+        for (long i = 0; i < 1000; i++) {
+            sketch.add(i);
+        }
+        HyperLogLog copy = sketch.copy();
+        sketch.reset();
+        assertEquals(0L, sketch.estimate());
+        assertTrue(copy.estimate() > 500L);
+    }
+
+    /**
+     * Concurrent adds never lose a register update.
+     */
+    @Test
+    public void testConcurrentAdds() throws Exception {
+        final HyperLogLog sketch = new HyperLogLog(12);
+        final int threads = 4;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final long offset = t * 25000L;
+            new Thread() {
+                @Override
+                public void run() {
+                    for (long i = 0; i < 25000; i++) {
+                        sketch.add(offset + i);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+        HyperLogLog expected = new HyperLogLog(12);
+        for (long i = 0; i < threads * 25000L; i++) {
+            expected.add(i);
+        }
+        for (int i = 0; i < expected.getRegisterCount(); i++) {
+            assertEquals(expected.getRegister(i), sketch.getRegister(i));
+        }
+    }
+}
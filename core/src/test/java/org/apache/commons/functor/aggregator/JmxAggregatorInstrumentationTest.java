@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.functor.aggregator.functions.DoubleSeriesSumAggregatorFunction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link JmxAggregatorInstrumentation}.
+ */
+public class JmxAggregatorInstrumentationTest {
+    private DoubleArrayBackedAggregator  aggregator;
+    private JmxAggregatorInstrumentation instrumentation;
+
+    @Before
+    public void setUp() throws Exception {
+        aggregator = new DoubleArrayBackedAggregator(new DoubleSeriesSumAggregatorFunction(), 60000L, true);
+        instrumentation = JmxAggregatorInstrumentation.install(aggregator, "test");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        instrumentation.uninstall();
+        aggregator.stop();
+    }
+
+    @Test
+    public void testInstall() throws Exception {
+        assertSame(instrumentation, aggregator.getInstrumentation());
+        assertSame(aggregator, instrumentation.getAggregator());
+        ObjectName name = instrumentation.getObjectName();
+        assertEquals(JmxAggregatorInstrumentation.DOMAIN, name.getDomain());
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test(expected = InstanceAlreadyExistsException.class)
+    public void testDuplicateName() throws Exception {
+        JmxAggregatorInstrumentation.install(aggregator, "test");
+    }
+
+    @Test
+    public void testAttributes() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            aggregator.add(1.0);
+        }
+        aggregator.add(Double.valueOf(2.0));
+        assertEquals(12.0, aggregator.evaluate(), 0.0);
+        aggregator.flush(null);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = instrumentation.getObjectName();
+        assertEquals(11L, server.getAttribute(name, "AddCount"));
+        assertTrue((Double) server.getAttribute(name, "AddRate") > 0.0);
+        assertTrue((Long) server.getAttribute(name, "MaxAddLockWait") >= 0L);
+        assertEquals(1L, server.getAttribute(name, "EvaluateCount"));
+        assertEquals(1L, server.getAttribute(name, "FlushCount"));
+        assertTrue((Long) server.getAttribute(name, "LastFlushDrift") < 0L);
+        assertEquals(0L, server.getAttribute(name, "MaxFlushDelay"));
+        assertEquals(60000L, server.getAttribute(name, "Interval"));
+        assertEquals(0, server.getAttribute(name, "DataSize"));
+
+        server.invoke(name, "resetStatistics", null, null);
+        assertEquals(0L, instrumentation.getAddCount());
+        assertEquals(0L, instrumentation.getFlushCount());
+    }
+
+    @Test
+    public void testListenerStatistics() throws Exception {
+        aggregator.addTimerListener(new TimedAggregatorListener<Double>() {
+            public void onTimer(AbstractTimedAggregator<Double> source, Double evaluation) {
+                // nothing
+            }
+        });
+        aggregator.flush(null);
+        aggregator.flush(null);
+        assertEquals(2L, instrumentation.getNotifyCount());
+        assertTrue(instrumentation.getMaxListenerLatency() >= instrumentation.getMeanListenerLatency());
+        assertTrue(instrumentation.getMaxListenerDuration() >= instrumentation.getMeanListenerDuration());
+    }
+
+    @Test
+    public void testUninstall() throws Exception {
+        ObjectName name = instrumentation.getObjectName();
+        instrumentation.uninstall();
+        assertNull(aggregator.getInstrumentation());
+        assertNull(instrumentation.getObjectName());
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        aggregator.add(1.0);
+        assertEquals(0L, instrumentation.getAddCount());
+    }
+}
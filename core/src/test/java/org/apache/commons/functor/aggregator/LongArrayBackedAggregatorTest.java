@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.aggregator.functions.LongSeriesSumAggregatorFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link LongArrayBackedAggregator}.
+ */
+public class LongArrayBackedAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new LongArrayBackedAggregator(new LongSeriesSumAggregatorFunction(), 2, 0L, false);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        LongArrayBackedAggregator agg = new LongArrayBackedAggregator(new LongSeriesSumAggregatorFunction());
+        assertEquals(LongArrayBackedAggregator.DEFAULT_INITIAL_CAPACITY, agg.getInitialCapacity());
+        assertEquals(0, agg.getDataSize());
+        assertNull(agg.evaluate());
+        assertTrue(agg.getAggregationFunction() instanceof LongSeriesSumAggregatorFunction);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullFunction() throws Exception {
+        new LongArrayBackedAggregator(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() throws Exception {
+        new LongArrayBackedAggregator(new LongSeriesSumAggregatorFunction(), 0, 0L, false);
+    }
+
+    /**
+     * Adds more values than the initial capacity, both as primitives and
+     * boxed, and makes sure nothing is lost when the array grows.
+     */
+    @Test
+    public void testAddGrows() throws Exception {
+        LongArrayBackedAggregator agg = (LongArrayBackedAggregator) makeFunctor();
+        long sum = 0L;
+        for (int i = 1; i <= 100; i++) {
+            if (i % 2 == 0) {
+                agg.add((long) i);
+            } else {
+                agg.add(Long.valueOf(i));
+            }
+            sum += i;
+            assertEquals(i, agg.getDataSize());
+            assertEquals(i, agg.getSeries().size());
+            assertEquals(sum, agg.evaluate().longValue());
+        }
+        agg.reset();
+        assertEquals(0, agg.getDataSize());
+        assertNull(agg.evaluate());
+    }
+
+    @Test
+    public void testEvaluateAndReset() throws Exception {
+        LongArrayBackedAggregator agg = (LongArrayBackedAggregator) makeFunctor();
+        for (int round = 1; round <= 3; round++) {
+            for (int i = 0; i < 10 * round; i++) {
+                agg.add(1L);
+            }
+            assertEquals(10L * round, agg.evaluateAndReset().longValue());
+            assertEquals(0, agg.getDataSize());
+        }
+    }
+
+    /**
+     * The array grown by a burst is reused once, then dropped, so the
+     * aggregator goes back to its initial capacity.
+     */
+    @Test
+    public void testSpareShrinksAfterBurst() throws Exception {
+        LongArrayBackedAggregator agg = (LongArrayBackedAggregator) makeFunctor();
+        for (int i = 0; i < 1000; i++) {
+            agg.add(1L);
+        }
+        assertTrue(agg.getCapacity() >= 1000);
+        agg.evaluateAndReset();
+        assertEquals(2, agg.getCapacity());
+        agg.add(1L);
+        agg.evaluateAndReset();
+        assertTrue(agg.getCapacity() >= 1000);
+        agg.add(1L);
+        agg.evaluateAndReset();
+        assertEquals(2, agg.getCapacity());
+        agg.add(1L);
+        agg.evaluateAndReset();
+        assertEquals(2, agg.getCapacity());
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link LongHistogram}.
+ */
+public class LongHistogramTest {
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testEmpty() throws Exception {
+        LongHistogram histogram = new LongHistogram();
+        assertEquals(LongHistogram.DEFAULT_PRECISION, histogram.getPrecision());
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getSum());
+        assertEquals(0L, histogram.getMin());
+        assertEquals(0L, histogram.getMax());
+        assertEquals(0L, histogram.getPercentile(50.0));
+        assertTrue(Double.isNaN(histogram.getMean()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrecision() throws Exception {
+        new LongHistogram(LongHistogram.MAX_PRECISION + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValue() throws Exception {
+        new LongHistogram().record(-1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() throws Exception {
+        new LongHistogram().getPercentile(100.5);
+    }
+
+    /**
+     * Values below 2^precision have their own bucket, so percentiles are
+     * exact.
+     */
+    @Test
+    public void testSmallValuesAreExact() throws Exception {
+        LongHistogram histogram = new LongHistogram(7);
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100L, histogram.getCount());
+        assertEquals(5050L, histogram.getSum());
+        assertEquals(50.5, histogram.getMean(), DELTA);
+        assertEquals(1L, histogram.getMin());
+        assertEquals(100L, histogram.getMax());
+        assertEquals(50L, histogram.getPercentile(50.0));
+        assertEquals(90L, histogram.getPercentile(90.0));
+        assertEquals(1L, histogram.getPercentile(0.0));
+        assertEquals(100L, histogram.getPercentile(100.0));
+    }
+
+    @Test
+    public void testRelativeError() throws Exception {
+        Random rnd = new Random();
+        int n = 50000;
+        long[] values = new long[n];
+        for (int precision = LongHistogram.MIN_PRECISION; precision <= 10; precision++) {
+            LongHistogram histogram = new LongHistogram(precision);
+            for (int i = 0; i < n; i++) {
+                values[i] = (long) Math.exp(rnd.nextDouble() * 40.0);
+                histogram.record(values[i]);
+            }
+            Arrays.sort(values);
+            for (double p = 1.0; p < 100.0; p += 7.0) {
+                long expected = values[(int) Math.ceil(p / 100.0 * n) - 1];
+                long actual = histogram.getPercentile(p);
+                assertEquals("precision " + precision + ", p" + p, expected, actual,
+                        Math.max(1.0, expected * histogram.getRelativeError() * 2.0));
+            }
+        }
+    }
+
+    @Test
+    public void testExtremeValues() throws Exception {
+        LongHistogram histogram = new LongHistogram();
+        histogram.record(0L);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0L, histogram.getMin());
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(0L, histogram.getPercentile(50.0));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(99.0), Long.MAX_VALUE * histogram.getRelativeError());
+    }
+
+    @Test
+    public void testAddAndSubtract() throws Exception {
+        LongHistogram first = new LongHistogram();
+        LongHistogram second = new LongHistogram();
+        for (long i = 0; i < 1000; i++) {
+            first.record(i);
+            second.record(i * 1000);
+        }
+        LongHistogram total = first.copy();
+        total.add(second);
+        assertEquals(2000L, total.getCount());
+        assertEquals(first.getSum() + second.getSum(), total.getSum());
+        assertEquals(0L, total.getMin());
+        assertEquals(999000L, total.getMax());
+
+        total.subtract(first);
+        assertEquals(second.getCount(), total.getCount());
+        assertEquals(second.getSum(), total.getSum());
+        for (double p = 0.0; p <= 100.0; p += 10.0) {
+            assertEquals(second.getPercentile(p), total.getPercentile(p),
+                    second.getPercentile(p) * total.getRelativeError() * 2.0);
+        }
+        // min and max are narrowed down to the buckets left
+        assertEquals(0L, total.getMin());
+        assertTrue(total.getMax() <= 999000L);
+
+        total.subtract(total.copy());
+        assertEquals(0L, total.getCount());
+        assertEquals(0L, total.getMax());
+    }
+
+    @Test
+    public void testCopyOfBuckets() throws Exception {
+        LongHistogram histogram = new LongHistogram();
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        LongHistogram small = histogram.copyOfBuckets();
+        // values below 2^precision have a bucket each
+        assertEquals(100L, small.getCount());
+        assertEquals(5050L, small.getSum());
+        assertEquals(1L, small.getMin());
+        assertEquals(100L, small.getMax());
+
+        histogram.record(1000000L);
+        LongHistogram copy = histogram.copyOfBuckets();
+        assertEquals(101L, copy.getCount());
+        assertEquals(5050L + 1000000L, copy.getSum(), 1000000L * copy.getRelativeError());
+        assertEquals(1L, copy.getMin());
+        assertTrue(copy.getMax() >= 1000000L);
+        assertEquals(1000000L, copy.getMax(), 1000000L * copy.getRelativeError() * 2.0);
+        assertEquals(copy.getMax(), copy.getPercentile(100.0));
+
+        copy.subtract(small);
+        assertEquals(1L, copy.getCount());
+        // the remaining value is only known by its bucket
+        assertTrue(copy.getMin() <= 1000000L && copy.getMax() >= 1000000L);
+        assertTrue(copy.getSum() >= copy.getMin() && copy.getSum() <= copy.getMax());
+        assertEquals(0, new LongHistogram().copyOfBuckets().getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubtractLarger() throws Exception {
+        LongHistogram histogram = new LongHistogram();
+        LongHistogram larger = new LongHistogram();
+        larger.record(1L);
+        histogram.subtract(larger);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrecisionMismatch() throws Exception {
+        new LongHistogram(5).add(new LongHistogram(6));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        LongHistogram histogram = new LongHistogram();
+        histogram.record(42L);
+        histogram.reset();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMax());
+        histogram.record(7L);
+        assertEquals(7L, histogram.getMin());
+        assertEquals(7L, histogram.getPercentile(50.0));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LongHistogram histogram = new LongHistogram();
+        final int perThread = 20000;
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        histogram.record(i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals((long) perThread * threads.length, histogram.getCount());
+        assertEquals((long) perThread * (perThread - 1) / 2 * threads.length, histogram.getSum());
+        assertEquals(perThread - 1L, histogram.getMax());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link QuantileSketchAggregator}.
+ */
+public class QuantileSketchAggregatorTest extends BaseFunctorTest {
+    private static final double DELTA = 0.0001;
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new QuantileSketchAggregator(50.0);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        QuantileSketchAggregator agg = (QuantileSketchAggregator) makeFunctor();
+        assertEquals(50.0, agg.getPercentile(), DELTA);
+        assertEquals(DoubleQuantileSketch.DEFAULT_K, agg.getK());
+        assertNull(agg.evaluate());
+        assertNull(agg.getPercentile(90.0));
+        assertEquals(0, agg.getDataSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() throws Exception {
+        new QuantileSketchAggregator(-1.0);
+    }
+
+    @Test
+    public void testAddEvaluateReset() throws Exception {
+        QuantileSketchAggregator agg = (QuantileSketchAggregator) makeFunctor();
+        for (int i = 1; i <= 99; i++) {
+            if (i % 2 == 0) {
+                agg.add((double) i);
+            } else {
+                agg.add(Double.valueOf(i));
+            }
+        }
+        assertEquals(50.0, agg.evaluate(), DELTA);
+        assertEquals(1.0, agg.getPercentile(0.0), DELTA);
+        assertEquals(99.0, agg.getPercentile(100.0), DELTA);
+        assertEquals(99, agg.getDataSize());
+        agg.reset();
+        assertNull(agg.evaluate());
+    }
+
+    @Test
+    public void testEvaluateAndResetAndMerge() throws Exception {
+        QuantileSketchAggregator first = (QuantileSketchAggregator) makeFunctor();
+        QuantileSketchAggregator second = (QuantileSketchAggregator) makeFunctor();
+        for (int i = 0; i < 10; i++) {
+            first.add(i);
+            second.add(i + 10);
+        }
+        DoubleQuantileSketch snapshot = second.snapshot();
+        assertEquals(10, snapshot.getCount());
+        assertEquals(10, second.snapshotAndReset().getCount());
+        assertNull(second.evaluate());
+
+        first.merge(snapshot);
+        assertEquals(19.0, first.getPercentile(100.0), DELTA);
+        assertEquals(9.0, first.evaluateAndReset(), DELTA);
+        assertNull(first.evaluate());
+        assertTrue(snapshot.getCount() > 0);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RateAggregator}.
+ */
+public class RateAggregatorTest extends BaseFunctorTest {
+    private static final double DELTA = 0.000001;
+
+    private final List<AbstractTimedAggregator<?>> created = new ArrayList<AbstractTimedAggregator<?>>();
+
+    @After
+    public void stopAggregators() {
+        for (AbstractTimedAggregator<?> agg : created) {
+            agg.stop();
+        }
+    }
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return create(AbstractEwmaAggregator.ONE_MINUTE, AbstractEwmaAggregator.DEFAULT_TICK_INTERVAL);
+    }
+
+    private RateAggregator create(long window, long tickInterval) {
+        RateAggregator agg = new RateAggregator(window, tickInterval, true);
+        created.add(agg);
+        return agg;
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        RateAggregator agg = create(AbstractEwmaAggregator.FIVE_MINUTES, 5000L);
+        assertEquals(AbstractEwmaAggregator.FIVE_MINUTES, agg.getWindow());
+        assertEquals(5000L, agg.getInterval());
+        assertEquals(1.0 - Math.exp(-5.0 / 300.0), agg.getAlpha(), DELTA);
+        assertTrue(agg.isLockFreeAdd());
+        assertNull(agg.evaluate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoTickInterval() throws Exception {
+        new RateAggregator(AbstractEwmaAggregator.ONE_MINUTE, 0L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() throws Exception {
+        create(0L, 1000L);
+    }
+
+    @Test
+    public void testInvalidWindowIsNotScheduled() throws Exception {
+        DefaultAggregatorScheduler shared = (DefaultAggregatorScheduler) AbstractTimedAggregator.getSharedScheduler();
+        int scheduled = shared.getScheduledCount();
+        try {
+            new RateAggregator(-1L, 1000L, true);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(scheduled, shared.getScheduledCount());
+    }
+
+    @Test
+    public void testTicks() throws Exception {
+        RateAggregator agg = create(AbstractEwmaAggregator.ONE_MINUTE, 5000L);
+        double alpha = agg.getAlpha();
+        for (int i = 0; i < 50; i++) {
+            agg.add(1.0);
+        }
+        // the average is only updated on ticks
+        assertNull(agg.evaluate());
+        assertEquals(10.0, agg.evaluateAndReset(), DELTA);
+        assertEquals(10.0, agg.evaluate(), DELTA);
+
+        // no events: the rate decays
+        double expected = 10.0 * (1.0 - alpha);
+        assertEquals(expected, agg.evaluateAndReset(), DELTA);
+
+        agg.add(Double.valueOf(100.0));
+        expected += alpha * (20.0 - expected);
+        assertEquals(expected, agg.evaluateAndReset(), DELTA);
+
+        agg.reset();
+        assertNull(agg.evaluate());
+        assertEquals(0.0, agg.evaluateAndReset(), DELTA);
+    }
+
+    /**
+     * A steady rate converges to that rate.
+     */
+    @Test
+    public void testConverges() throws Exception {
+        RateAggregator agg = create(AbstractEwmaAggregator.ONE_MINUTE, 1000L);
+        agg.add(1.0);
+        agg.evaluateAndReset();
+        for (int tick = 0; tick < 600; tick++) {
+            agg.add(25.0);
+            agg.evaluateAndReset();
+        }
+        assertEquals(25.0, agg.evaluate(), 0.01);
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final RateAggregator agg = create(AbstractEwmaAggregator.ONE_MINUTE, 1000L);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        agg.add(1.0);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000.0, agg.evaluateAndReset(), DELTA);
+    }
+
+    @Test
+    public void testTimerTicks() throws Exception {
+        RateAggregator agg = create(AbstractEwmaAggregator.ONE_MINUTE, 50L);
+        agg.add(5.0);
+        Thread.sleep(200L);
+        assertTrue(agg.evaluate() != null);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ReservoirList} and {@link ReservoirSampler}.
+ */
+public class ReservoirListTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() throws Exception {
+        new ReservoirList<Integer>(0);
+    }
+
+    @Test
+    public void testFillsUpToCapacity() throws Exception {
+        ReservoirList<Integer> list = new ReservoirList<Integer>(10, new Random(1L));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(list.add(i));
+            assertEquals(i + 1, list.size());
+            assertEquals(Integer.valueOf(i), list.get(i));
+        }
+        for (int i = 10; i < 10000; i++) {
+            assertTrue(list.add(i));
+            assertEquals(10, list.size());
+        }
+        assertEquals(10000L, list.getTotalCount());
+        assertEquals(10, list.getCapacity());
+        Set<Integer> distinct = new HashSet<Integer>(list);
+        assertEquals(10, distinct.size());
+
+        list.clear();
+        assertEquals(0, list.size());
+        assertEquals(0L, list.getTotalCount());
+        list.add(-1);
+        assertEquals(Integer.valueOf(-1), list.get(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetBeyondSize() throws Exception {
+        ReservoirList<Integer> list = new ReservoirList<Integer>(10);
+        list.add(1);
+        list.get(1);
+    }
+
+    /**
+     * Samples the stream 0..n-1 many times and checks every element ends up in
+     * the sample with probability capacity/n.
+     */
+    @Test
+    public void testUniform() throws Exception {
+        int capacity = 10;
+        int n = 100;
+        int runs = 20000;
+        int[] hits = new int[n];
+        Random random = new Random(42L);
+        ReservoirList<Integer> list = new ReservoirList<Integer>(capacity, random);
+        for (int run = 0; run < runs; run++) {
+            list.clear();
+            for (int i = 0; i < n; i++) {
+                list.add(i);
+            }
+            for (Integer sampled : list) {
+                hits[sampled.intValue()]++;
+            }
+        }
+        double expected = (double) runs * capacity / n;
+        for (int i = 0; i < n; i++) {
+            assertEquals("element " + i, expected, hits[i], expected * 0.1);
+        }
+    }
+}
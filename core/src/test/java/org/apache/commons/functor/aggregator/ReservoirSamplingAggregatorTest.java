@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.aggregator.functions.IntegerMeanValueAggregatorFunction;
+import org.apache.commons.functor.aggregator.functions.IntegerSumAggregatorFunction;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ReservoirSamplingAggregator}.
+ */
+public class ReservoirSamplingAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new ReservoirSamplingAggregator<Integer>(new IntegerSumAggregatorFunction(), 10);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        ReservoirSamplingAggregator<Integer> agg = new ReservoirSamplingAggregator<Integer>(
+                new IntegerSumAggregatorFunction(), 10, 0L, false);
+        assertEquals(10, agg.getCapacity());
+        assertEquals(0L, agg.getTotalCount());
+        assertEquals(0, agg.getDataSize());
+        assertTrue(agg.getSeries() instanceof SampledSeries);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() throws Exception {
+        new ReservoirSamplingAggregator<Integer>(new IntegerSumAggregatorFunction(), 0);
+    }
+
+    @Test
+    public void testBoundedMemory() throws Exception {
+        ReservoirSamplingAggregator<Integer> agg = new ReservoirSamplingAggregator<Integer>(
+                new IntegerSumAggregatorFunction(), 10);
+        for (int i = 1; i <= 5; i++) {
+            agg.add(i);
+        }
+        // below capacity the sample is the data
+        assertEquals(Integer.valueOf(15), agg.evaluate());
+        for (int i = 6; i <= 100000; i++) {
+            agg.add(i);
+        }
+        assertEquals(10, agg.getDataSize());
+        assertEquals(100000L, agg.getTotalCount());
+        agg.reset();
+        assertEquals(0, agg.getDataSize());
+        assertEquals(0L, agg.getTotalCount());
+    }
+
+    @Test
+    public void testMeanEstimate() throws Exception {
+        ReservoirSamplingAggregator<Integer> agg = new ReservoirSamplingAggregator<Integer>(
+                new IntegerMeanValueAggregatorFunction(), 1000);
+        for (int i = 0; i < 100000; i++) {
+            agg.add(i % 100);
+        }
+        // mean of a uniform sample of 0..99 is 49.5, std error below 1
+        assertEquals(49.5, agg.evaluate().doubleValue(), 5.0);
+    }
+
+    /**
+     * The function sees the true count through {@link SampledSeries}, also
+     * after the series has been detached.
+     */
+    @Test
+    public void testTotalCountSeenByFunction() throws Exception {
+        Function<List<Integer>, Integer> count = new Function<List<Integer>, Integer>() {
+            public Integer evaluate(List<Integer> obj) {
+                return (int) ((SampledSeries) obj).getTotalCount();
+            }
+        };
+        ReservoirSamplingAggregator<Integer> agg = new ReservoirSamplingAggregator<Integer>(count, 5);
+        for (int i = 0; i < 1234; i++) {
+            agg.add(i);
+        }
+        assertEquals(Integer.valueOf(1234), agg.evaluate());
+        assertEquals(Integer.valueOf(1234), agg.evaluateAndReset());
+        assertEquals(0L, agg.getTotalCount());
+        agg.add(1);
+        assertEquals(Integer.valueOf(1), agg.evaluateAndReset());
+        assertEquals(Integer.valueOf(0), agg.evaluate());
+    }
+
+    @Test
+    public void testEmptyEvaluatesToNull() throws Exception {
+        ReservoirSamplingAggregator<Integer> agg = new ReservoirSamplingAggregator<Integer>(
+                new IntegerMeanValueAggregatorFunction(), 3);
+        assertNull(agg.evaluate());
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.apache.commons.functor.aggregator.state.DoubleCountState;
+import org.apache.commons.functor.aggregator.state.DoubleMaxState;
+import org.apache.commons.functor.aggregator.state.DoubleMeanState;
+import org.apache.commons.functor.aggregator.state.DoubleMinState;
+import org.apache.commons.functor.aggregator.state.DoubleSumState;
+import org.apache.commons.functor.aggregator.state.DoubleSummaryState;
+import org.apache.commons.functor.aggregator.state.DoubleVarianceState;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link SnapshotCodec} and {@link SnapshotCodecs}.
+ */
+public class SnapshotCodecsTest {
+    private <T> T roundTrip(SnapshotCodec<T> codec, T value) {
+        int size = codec.getEncodedSize(value);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        codec.encode(value, buffer);
+        assertEquals(size, buffer.position());
+        buffer.flip();
+        assertSame(codec, SnapshotCodecs.forType(buffer.get(0)));
+        T decoded = codec.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        return decoded;
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        assertEquals(Double.valueOf(-1.5), roundTrip(SnapshotCodecs.DOUBLE, -1.5));
+        assertTrue(roundTrip(SnapshotCodecs.DOUBLE, Double.NaN).isNaN());
+        long[] longs = { 0L, 1L, -1L, 63L, -64L, 64L, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long l : longs) {
+            assertEquals(Long.valueOf(l), roundTrip(SnapshotCodecs.LONG, l));
+        }
+        int[] ints = { 0, 1, -1, 1000, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        for (int i : ints) {
+            assertEquals(Integer.valueOf(i), roundTrip(SnapshotCodecs.INTEGER, i));
+        }
+        assertNull(roundTrip(SnapshotCodecs.LONG, null));
+    }
+
+    @Test
+    public void testCompactIntegers() throws Exception {
+        assertEquals(SnapshotCodec.HEADER_SIZE + 1, SnapshotCodecs.LONG.getEncodedSize(-5L));
+        assertEquals(SnapshotCodec.HEADER_SIZE + 2, SnapshotCodecs.INTEGER.getEncodedSize(100));
+        assertEquals(SnapshotCodec.HEADER_SIZE + 10, SnapshotCodecs.LONG.getEncodedSize(Long.MIN_VALUE));
+        assertEquals(SnapshotCodec.HEADER_SIZE, SnapshotCodecs.DOUBLE.getEncodedSize(null));
+    }
+
+    @Test
+    public void testSketchRoundTripIsExact() throws Exception {
+        DoubleQuantileSketch sketch = new DoubleQuantileSketch(64);
+        Random rnd = new Random();
+        for (int i = 0; i < 50000; i++) {
+            sketch.add(rnd.nextGaussian());
+        }
+        DoubleQuantileSketch decoded = roundTrip(SnapshotCodecs.DOUBLE_QUANTILE_SKETCH, sketch);
+        assertEquals(sketch.getK(), decoded.getK());
+        assertEquals(sketch.getCount(), decoded.getCount());
+        assertEquals(sketch.getRetainedItems(), decoded.getRetainedItems());
+        assertEquals(sketch.getMin(), decoded.getMin(), 0.0);
+        assertEquals(sketch.getMax(), decoded.getMax(), 0.0);
+        for (double p = 0.0; p <= 100.0; p += 2.5) {
+            assertEquals(sketch.getPercentile(p), decoded.getPercentile(p), 0.0);
+        }
+        int levelCount = sketch.getLevelCount();
+        assertEquals(levelCount, decoded.getLevelCount());
+        for (int level = 0; level < levelCount; level++) {
+            assertEquals(sketch.getLevelSize(level), decoded.getLevelSize(level));
+            for (int i = 0; i < sketch.getLevelSize(level); i++) {
+                assertEquals(sketch.getLevelItem(level, i), decoded.getLevelItem(level, i), 0.0);
+            }
+        }
+
+        // the decoded sketch keeps working
+        decoded.merge(sketch);
+        assertEquals(2 * sketch.getCount(), decoded.getCount());
+        decoded.add(1.0);
+        assertEquals(2 * sketch.getCount() + 1, decoded.getCount());
+    }
+
+    @Test
+    public void testEmptySketch() throws Exception {
+        DoubleQuantileSketch decoded = roundTrip(SnapshotCodecs.DOUBLE_QUANTILE_SKETCH, new DoubleQuantileSketch());
+        assertEquals(DoubleQuantileSketch.DEFAULT_K, decoded.getK());
+        assertEquals(0, decoded.getCount());
+        assertTrue(Double.isNaN(decoded.getMin()));
+        assertTrue(Double.isNaN(decoded.getPercentile(50.0)));
+    }
+
+    @Test
+    public void testHistogramRoundTripIsExact() throws Exception {
+        LongHistogram histogram = new LongHistogram(6);
+        Random rnd = new Random();
+        for (int i = 0; i < 10000; i++) {
+            histogram.record((long) Math.exp(rnd.nextDouble() * 30.0));
+        }
+        LongHistogram decoded = roundTrip(SnapshotCodecs.LONG_HISTOGRAM, histogram);
+        assertEquals(histogram.getPrecision(), decoded.getPrecision());
+        assertEquals(histogram.getCount(), decoded.getCount());
+        assertEquals(histogram.getSum(), decoded.getSum());
+        assertEquals(histogram.getMin(), decoded.getMin());
+        assertEquals(histogram.getMax(), decoded.getMax());
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            assertEquals(histogram.getBucketValueCount(i), decoded.getBucketValueCount(i));
+        }
+        for (double p = 0.0; p <= 100.0; p += 2.5) {
+            assertEquals(histogram.getPercentile(p), decoded.getPercentile(p));
+        }
+        // sparse buckets keep the encoding small
+        assertTrue(SnapshotCodecs.LONG_HISTOGRAM.getEncodedSize(histogram) < histogram.getBucketCount() * 8);
+
+        decoded = roundTrip(SnapshotCodecs.LONG_HISTOGRAM, new LongHistogram());
+        assertEquals(0L, decoded.getCount());
+        decoded.record(3L);
+        assertEquals(3L, decoded.getMin());
+    }
+
+    @Test
+    public void testHyperLogLog() throws Exception {
+        HyperLogLog sketch = new HyperLogLog(10);
+        for (long i = 0; i < 5000; i++) {
+            sketch.add(i);
+        }
+        HyperLogLog decoded = roundTrip(SnapshotCodecs.HYPER_LOG_LOG, sketch);
+        assertEquals(sketch.getPrecision(), decoded.getPrecision());
+        for (int i = 0; i < sketch.getRegisterCount(); i++) {
+            assertEquals(sketch.getRegister(i), decoded.getRegister(i));
+        }
+        assertEquals(sketch.estimate(), decoded.estimate());
+        assertEquals(0L, roundTrip(SnapshotCodecs.HYPER_LOG_LOG, new HyperLogLog(4)).estimate());
+    }
+
+    @Test
+    public void testStates() throws Exception {
+        double[] data = { 3.0, -1.0, 4.5, 10.0, 2.0 };
+        DoubleSumState sum = new DoubleSumState();
+        DoubleCountState count = new DoubleCountState();
+        DoubleMinState min = new DoubleMinState();
+        DoubleMaxState max = new DoubleMaxState();
+        DoubleMeanState mean = new DoubleMeanState();
+        DoubleVarianceState variance = new DoubleVarianceState();
+        for (double d : data) {
+            sum.add(d);
+            count.add(d);
+            min.add(d);
+            max.add(d);
+            mean.add(d);
+            variance.add(d);
+        }
+        assertEquals(sum.getResult(), roundTrip(SnapshotCodecs.SUM_STATE, sum).getResult());
+        assertEquals(count.getResult(), roundTrip(SnapshotCodecs.COUNT_STATE, count).getResult());
+        assertEquals(min.getResult(), roundTrip(SnapshotCodecs.MIN_STATE, min).getResult());
+        assertEquals(max.getResult(), roundTrip(SnapshotCodecs.MAX_STATE, max).getResult());
+        assertEquals(mean.getResult(), roundTrip(SnapshotCodecs.MEAN_STATE, mean).getResult());
+        DoubleVarianceState decodedVariance = roundTrip(SnapshotCodecs.VARIANCE_STATE, variance);
+        assertEquals(variance.getResult(), decodedVariance.getResult());
+        assertEquals(variance.getMean(), decodedVariance.getMean(), 0.0);
+
+        DoubleSummaryState summary = new DoubleSummaryState();
+        for (double d : data) {
+            summary.add(d);
+        }
+        DoubleSummaryState decodedSummary = roundTrip(SnapshotCodecs.SUMMARY_STATE, summary);
+        assertEquals(summary.getCount(), decodedSummary.getCount());
+        assertEquals(summary.getSum(), decodedSummary.getSum(), 0.0);
+        assertEquals(summary.getVariance(), decodedSummary.getVariance());
+        assertEquals(summary.getMin(), decodedSummary.getMin());
+        assertEquals(summary.getMax(), decodedSummary.getMax());
+        assertNull(roundTrip(SnapshotCodecs.SUMMARY_STATE, new DoubleSummaryState()).getMin());
+
+        assertTrue(roundTrip(SnapshotCodecs.MIN_STATE, new DoubleMinState()).isEmpty());
+        assertTrue(roundTrip(SnapshotCodecs.MAX_STATE, new DoubleMaxState()).isEmpty());
+        assertNull(roundTrip(SnapshotCodecs.VARIANCE_STATE, new DoubleVarianceState()).getResult());
+    }
+
+    @Test
+    public void testSeveralSnapshotsInOneBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        SnapshotCodecs.LONG.encode(42L, buffer);
+        SnapshotCodecs.DOUBLE.encode(0.25, buffer);
+        SnapshotCodecs.SUM_STATE.encode(new DoubleSumState(7.0), buffer);
+        buffer.flip();
+        assertEquals(Long.valueOf(42L), SnapshotCodecs.LONG.decode(buffer));
+        assertEquals(Double.valueOf(0.25), SnapshotCodecs.DOUBLE.decode(buffer));
+        assertEquals(Double.valueOf(7.0), SnapshotCodecs.SUM_STATE.decode(buffer).getResult());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testWriteToChannel() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+        int written = SnapshotCodecs.MEAN_STATE.writeTo(new DoubleMeanState(10.0, 4L), Channels.newChannel(out),
+                buffer);
+        written += SnapshotCodecs.LONG.writeTo(-3L, Channels.newChannel(out), buffer);
+        byte[] bytes = out.toByteArray();
+        assertEquals(written, bytes.length);
+
+        ByteBuffer expected = ByteBuffer.allocate(bytes.length);
+        SnapshotCodecs.MEAN_STATE.encode(new DoubleMeanState(10.0, 4L), expected);
+        SnapshotCodecs.LONG.encode(-3L, expected);
+        assertArrayEquals(expected.array(), bytes);
+
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        assertEquals(Double.valueOf(2.5), SnapshotCodecs.MEAN_STATE.decode(in).getResult());
+        assertEquals(Long.valueOf(-3L), SnapshotCodecs.LONG.decode(in));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteToSmallBuffer() throws Exception {
+        SnapshotCodecs.DOUBLE.writeTo(1.0, Channels.newChannel(new ByteArrayOutputStream()), ByteBuffer.allocate(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongType() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        SnapshotCodecs.DOUBLE.encode(1.0, buffer);
+        buffer.flip();
+        SnapshotCodecs.LONG.decode(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNewerVersion() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        SnapshotCodecs.DOUBLE.encode(1.0, buffer);
+        buffer.put(1, (byte) (SnapshotCodecs.DOUBLE.getVersion() + 1));
+        buffer.flip();
+        SnapshotCodecs.DOUBLE.decode(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLittleEndian() throws Exception {
+        SnapshotCodecs.DOUBLE.encode(1.0, ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void testForType() throws Exception {
+        assertSame(SnapshotCodecs.VARIANCE_STATE, SnapshotCodecs.forType(SnapshotCodecs.VARIANCE_STATE.getType()));
+        assertNull(SnapshotCodecs.forType((byte) 60));
+        assertNull(SnapshotCodecs.forType((byte) -1));
+        assertNull(SnapshotCodecs.forType((byte) 100));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.NullaryFunction;
+import org.apache.commons.functor.aggregator.state.DoubleMeanState;
+import org.apache.commons.functor.aggregator.state.DoubleVarianceState;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link StateAggregator}.
+ */
+public class StateAggregatorTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new StateAggregator<Double, DoubleMeanState>(new MeanFactory());
+    }
+
+    @Test
+    public void testAddEvaluateReset() throws Exception {
+        MeanFactory factory = new MeanFactory();
+        StateAggregator<Double, DoubleMeanState> agg = new StateAggregator<Double, DoubleMeanState>(factory);
+        assertSame(factory, agg.getStateFactory());
+        assertNull(agg.evaluate());
+        agg.add(1.0);
+        agg.add(2.0);
+        agg.add(6.0);
+        assertEquals(3.0, agg.evaluate(), 0.000001);
+        assertEquals(0, agg.getDataSize());
+        agg.reset();
+        assertNull(agg.evaluate());
+    }
+
+    @Test
+    public void testEvaluateAndReset() throws Exception {
+        StateAggregator<Double, DoubleMeanState> agg = new StateAggregator<Double, DoubleMeanState>(
+                new MeanFactory());
+        agg.add(2.0);
+        agg.add(4.0);
+        assertEquals(3.0, agg.evaluateAndReset(), 0.000001);
+        assertNull(agg.evaluate());
+    }
+
+    @Test
+    public void testExportImport() throws Exception {
+        StateAggregator<Double, DoubleMeanState> first = new StateAggregator<Double, DoubleMeanState>(
+                new MeanFactory());
+        StateAggregator<Double, DoubleMeanState> second = new StateAggregator<Double, DoubleMeanState>(
+                new MeanFactory());
+        first.add(1.0);
+        second.add(4.0);
+        second.add(4.0);
+
+        DoubleMeanState exported = second.exportState();
+        // exporting doesn't modify the aggregator, nor does modifying the
+        // exported state
+        exported.add(100.0);
+        assertEquals(4.0, second.evaluate(), 0.000001);
+
+        first.importState(second.exportState());
+        assertEquals(3.0, first.evaluate(), 0.000001);
+        assertEquals(4.0, second.evaluate(), 0.000001);
+
+        DoubleMeanState detached = second.exportStateAndReset();
+        assertEquals(2, detached.getCount());
+        assertNull(second.evaluate());
+    }
+
+    /**
+     * Per-thread partial states reduced into a single one must give the same
+     * result as a single aggregator receiving all the data.
+     */
+    @Test
+    public void testReducePartials() throws Exception {
+        NullaryFunction<DoubleVarianceState> factory = new NullaryFunction<DoubleVarianceState>() {
+            public DoubleVarianceState evaluate() {
+                return new DoubleVarianceState();
+            }
+        };
+        StateAggregator<Double, DoubleVarianceState> all = new StateAggregator<Double, DoubleVarianceState>(factory);
+        StateAggregator<Double, DoubleVarianceState> total = new StateAggregator<Double, DoubleVarianceState>(
+                factory);
+        for (int part = 0; part < 4; part++) {
+            StateAggregator<Double, DoubleVarianceState> partial = new StateAggregator<Double, DoubleVarianceState>(
+                    factory);
+            for (int i = 0; i < 50; i++) {
+                double value = part * 100 + i * 0.5;
+                partial.add(value);
+                all.add(value);
+            }
+            total.importState(partial.exportStateAndReset());
+        }
+        assertEquals(all.evaluate(), total.evaluate(), 0.000001);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullFactory() throws Exception {
+        new StateAggregator<Double, DoubleMeanState>(null);
+    }
+
+    /**
+     * Creates empty mean states.
+     */
+    static class MeanFactory implements NullaryFunction<DoubleMeanState> {
+        public DoubleMeanState evaluate() {
+            return new DoubleMeanState();
+        }
+    }
+}
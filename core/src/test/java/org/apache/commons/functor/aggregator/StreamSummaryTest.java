@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link StreamSummary}.
+ */
+public class StreamSummaryTest {
+    @Test
+    public void testEmpty() throws Exception {
+        StreamSummary<String> summary = new StreamSummary<String>(5);
+        assertEquals(5, summary.getCapacity());
+        assertEquals(0, summary.size());
+        assertNull(summary.getTopKey());
+        assertTrue(summary.getTop(3).isEmpty());
+    }
+
+    /**
+     * Below capacity the counts are exact.
+     */
+    @Test
+    public void testExactBelowCapacity() throws Exception {
+        StreamSummary<String> summary = new StreamSummary<String>(10);
+        String[] keys = { "a", "b", "c", "d" };
+        for (int i = 0; i < keys.length; i++) {
+            for (int j = 0; j <= i * 2; j++) {
+                summary.add(keys[i]);
+            }
+        }
+        assertEquals("d", summary.getTopKey());
+        assertEquals(16L, summary.getTotal());
+        List<HeavyHitter<String>> top = summary.getTop(3);
+        assertEquals(3, top.size());
+        assertEquals("d", top.get(0).getKey());
+        assertEquals(7L, top.get(0).getCount());
+        assertEquals(0L, top.get(0).getError());
+        assertEquals("c", top.get(1).getKey());
+        assertEquals(5L, top.get(1).getCount());
+        assertEquals("b", top.get(2).getKey());
+        assertEquals(3L, top.get(2).getCount());
+        assertEquals(1L, summary.estimate("a"));
+    }
+
+    /**
+     * The frequent keys of a skewed stream are found despite many rare keys.
+     */
+    @Test
+    public void testHeavyHitters() throws Exception {
+        StreamSummary<Integer> summary = new StreamSummary<Integer>(50);
+        Random random = new Random(42L);
+        int[] actual = new int[100000];
+        for (int i = 0; i < 200000; i++) {
+            int key;
+            if (random.nextInt(2) == 0) {
+                // keys 0..4 make half of the stream, 0 being the most frequent
+                key = Math.min(random.nextInt(8), 4);
+            } else {
+                key = 5 + random.nextInt(actual.length - 5);
+            }
+            actual[key]++;
+            summary.add(Integer.valueOf(key));
+        }
+        assertEquals(50, summary.size());
+        List<HeavyHitter<Integer>> top = summary.getTop(5);
+        assertEquals(Integer.valueOf(4), top.get(0).getKey());
+        long previous = Long.MAX_VALUE;
+        for (HeavyHitter<Integer> hitter : top) {
+            int key = hitter.getKey().intValue();
+            assertTrue(key < 5);
+            assertTrue(hitter.getCount() >= actual[key]);
+            assertTrue(hitter.getGuaranteedCount() <= actual[key]);
+            assertTrue(hitter.getCount() <= previous);
+            previous = hitter.getCount();
+        }
+    }
+
+    /**
+     * The counts of the buckets stay sorted whatever the order of the keys.
+     */
+    @Test
+    public void testRanking() throws Exception {
+        StreamSummary<Integer> summary = new StreamSummary<Integer>(8);
+        Random random = new Random(7L);
+        for (int i = 0; i < 10000; i++) {
+            summary.add(Integer.valueOf(random.nextInt(30)));
+        }
+        List<HeavyHitter<Integer>> top = summary.getTop(8);
+        assertEquals(8, top.size());
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).getCount() >= top.get(i).getCount());
+        }
+        assertEquals(top.get(0).getKey(), summary.getTopKey());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.aggregator.state.DoubleSummaryState;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link SummaryStatisticsAggregator}.
+ */
+public class SummaryStatisticsAggregatorTest extends BaseFunctorTest {
+    private static final double DELTA = 0.000001;
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new SummaryStatisticsAggregator();
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        SummaryStatisticsAggregator agg = new SummaryStatisticsAggregator();
+        assertNull(agg.evaluate());
+        assertEquals(0L, agg.getStatistics().getCount());
+        agg.add(2.0);
+        agg.add(Double.valueOf(4.0));
+        agg.add(9.0);
+        assertEquals(5.0, agg.evaluate(), DELTA);
+        DoubleSummaryState statistics = agg.getStatistics();
+        assertEquals(3L, statistics.getCount());
+        assertEquals(15.0, statistics.getSum(), DELTA);
+        assertEquals(13.0, statistics.getVariance(), DELTA);
+        assertEquals(2.0, statistics.getMin(), 0.0);
+        assertEquals(9.0, statistics.getMax(), 0.0);
+
+        // the statistics returned are a copy
+        agg.add(100.0);
+        assertEquals(3L, statistics.getCount());
+        assertEquals(4L, agg.getStatistics().getCount());
+
+        assertEquals(28.75, agg.evaluateAndReset(), DELTA);
+        assertNull(agg.evaluate());
+        assertNull(agg.getStatistics().getMax());
+    }
+
+    /**
+     * Aggregators fed by different threads can be merged.
+     */
+    @Test
+    public void testMergeAcrossThreads() throws Exception {
+        final SummaryStatisticsAggregator[] partials = new SummaryStatisticsAggregator[4];
+        Thread[] threads = new Thread[partials.length];
+        for (int t = 0; t < threads.length; t++) {
+            final SummaryStatisticsAggregator partial = new SummaryStatisticsAggregator();
+            final int offset = t * 1000;
+            partials[t] = partial;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        partial.add((double) (offset + i));
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        SummaryStatisticsAggregator total = new SummaryStatisticsAggregator();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total.importState(partials[t].exportStateAndReset());
+        }
+        DoubleSummaryState statistics = total.getStatistics();
+        assertEquals(4000L, statistics.getCount());
+        assertEquals(1999.5, statistics.getResult(), DELTA);
+        // variance of 0..n-1 is n(n+1)/12
+        assertEquals(4000.0 * 4001.0 / 12.0, statistics.getVariance(), 0.001);
+        assertEquals(0.0, statistics.getMin(), 0.0);
+        assertEquals(3999.0, statistics.getMax(), 0.0);
+        assertNull(partials[0].evaluate());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleMultiPercentileAggregatorFunction}.
+ */
+public class DoubleMultiPercentileAggregatorFunctionTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleMultiPercentileAggregatorFunction(50, 90, 99);
+    }
+
+    @Test
+    public void testEmptyList() throws Exception {
+        DoubleMultiPercentileAggregatorFunction fct = (DoubleMultiPercentileAggregatorFunction) makeFunctor();
+        assertNull(fct.evaluate(null));
+        assertNull(fct.evaluate(new ArrayList<Double>()));
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        DoubleMultiPercentileAggregatorFunction fct = (DoubleMultiPercentileAggregatorFunction) makeFunctor();
+        double[] percentiles = fct.getPercentiles();
+        assertEquals(3, percentiles.length);
+        assertEquals(50.0, percentiles[0], 0.01);
+        assertEquals(90.0, percentiles[1], 0.01);
+        assertEquals(99.0, percentiles[2], 0.01);
+        percentiles[0] = 1.0;
+        assertEquals(50.0, fct.getPercentiles()[0], 0.01);
+        boolean exc = false;
+        try {
+            new DoubleMultiPercentileAggregatorFunction();
+        } catch (IllegalArgumentException e) {
+            exc = true;
+        }
+        assertTrue(exc);
+        exc = false;
+        try {
+            new DoubleMultiPercentileAggregatorFunction(50, 101);
+        } catch (IllegalArgumentException e) {
+            exc = true;
+        }
+        assertTrue(exc);
+    }
+
+    /**
+     * Ensures each value matches the one computed by
+     * {@link DoublePercentileAggregatorFunction}, regardless of the order the
+     * percentiles are passed in and with duplicate percentiles.
+     */
+    @Test
+    public void testSameAsSingle() throws Exception {
+        double[] percentiles = { 99.9, 50.0, 0.0, 90.0, 50.0, 100.0, 25.0 };
+        DoubleMultiPercentileAggregatorFunction fct = new DoubleMultiPercentileAggregatorFunction(percentiles);
+        DoublePercentileAggregatorFunction[] expected = new DoublePercentileAggregatorFunction[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            expected[i] = new DoublePercentileAggregatorFunction(percentiles[i]);
+        }
+        Random rnd = new Random();
+        List<Double> lst = new ArrayList<Double>();
+        for (int i = 0; i < 300; i++) {
+            lst.add((double) rnd.nextInt(100));
+            double[] result = fct.evaluate(lst);
+            assertEquals(percentiles.length, result.length);
+            for (int j = 0; j < percentiles.length; j++) {
+                assertEquals(expected[j].evaluate(lst), result[j], 0.0001);
+            }
+        }
+    }
+}
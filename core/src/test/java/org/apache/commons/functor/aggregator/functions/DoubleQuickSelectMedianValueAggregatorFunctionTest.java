@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleQuickSelectMedianValueAggregatorFunction}.
+ */
+public class DoubleQuickSelectMedianValueAggregatorFunctionTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleQuickSelectMedianValueAggregatorFunction();
+    }
+
+    @Test
+    public void testEmptyList() throws Exception {
+        DoubleQuickSelectMedianValueAggregatorFunction fct = (DoubleQuickSelectMedianValueAggregatorFunction) makeFunctor();
+        assertNull(fct.evaluate(null));
+        assertNull(fct.evaluate(new ArrayList<Double>()));
+    }
+
+    @Test
+    public void testSmallList() throws Exception {
+        DoubleQuickSelectMedianValueAggregatorFunction fct = (DoubleQuickSelectMedianValueAggregatorFunction) makeFunctor();
+        List<Double> lst = new ArrayList<Double>();
+        lst.add(5.0);
+        assertEquals(5.0, fct.evaluate(lst), 0.01);
+        lst.add(1.0);
+        assertEquals(3.0, fct.evaluate(lst), 0.01);
+        lst.add(4.0);
+        assertEquals(4.0, fct.evaluate(lst), 0.01);
+        // the list itself must not be reordered
+        assertEquals(5.0, lst.get(0), 0.01);
+        assertEquals(1.0, lst.get(1), 0.01);
+        assertEquals(4.0, lst.get(2), 0.01);
+    }
+
+    /**
+     * Ensures the result matches the one of the sort based
+     * {@link DoubleMedianValueAggregatorFunction}, for lists large enough to
+     * be partitioned and with plenty of duplicates.
+     */
+    @Test
+    public void testSameAsSort() throws Exception {
+        DoubleQuickSelectMedianValueAggregatorFunction fct = (DoubleQuickSelectMedianValueAggregatorFunction) makeFunctor();
+        DoubleMedianValueAggregatorFunction expected = new DoubleMedianValueAggregatorFunction();
+        Random rnd = new Random();
+        List<Double> lst = new ArrayList<Double>();
+        for (int i = 0; i < 500; i++) {
+            lst.add((double) rnd.nextInt(100));
+            assertEquals(expected.evaluate(lst), fct.evaluate(lst), 0.0001);
+        }
+    }
+
+    /**
+     * Ensures <code>NaN</code> and signed zeros are ordered like the sort
+     * based {@link DoubleMedianValueAggregatorFunction} orders them.
+     */
+    @Test
+    public void testNaNAndSignedZerosSameAsSort() throws Exception {
+        DoubleQuickSelectMedianValueAggregatorFunction fct = (DoubleQuickSelectMedianValueAggregatorFunction) makeFunctor();
+        DoubleMedianValueAggregatorFunction expected = new DoubleMedianValueAggregatorFunction();
+        double[] special = { Double.NaN, -0.0, 0.0 };
+        Random rnd = new Random();
+        List<Double> lst = new ArrayList<Double>();
+        for (int i = 0; i < 500; i++) {
+            lst.add(i % 3 == 0 ? special[rnd.nextInt(special.length)] : (double) (rnd.nextInt(21) - 10));
+            assertEquals(expected.evaluate(lst), fct.evaluate(lst));
+        }
+    }
+}
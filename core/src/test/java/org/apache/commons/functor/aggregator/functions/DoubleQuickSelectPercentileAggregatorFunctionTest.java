@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleQuickSelectPercentileAggregatorFunction}.
+ */
+public class DoubleQuickSelectPercentileAggregatorFunctionTest extends BaseFunctorTest {
+    private static final double DEF_PERC = 90; // by default use the 90th percentile
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleQuickSelectPercentileAggregatorFunction(DEF_PERC);
+    }
+
+    @Test
+    public void testEmptyList() throws Exception {
+        DoubleQuickSelectPercentileAggregatorFunction fct = (DoubleQuickSelectPercentileAggregatorFunction) makeFunctor();
+        assertNull(fct.evaluate(null));
+        assertNull(fct.evaluate(new ArrayList<Double>()));
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        DoubleQuickSelectPercentileAggregatorFunction fct = (DoubleQuickSelectPercentileAggregatorFunction) makeFunctor();
+        assertEquals(fct.getPercentile(), DEF_PERC, 0.01);
+        boolean exc = false;
+        try {
+            new DoubleQuickSelectPercentileAggregatorFunction(-1);
+        } catch (IllegalArgumentException e) {
+            exc = true;
+        }
+        assertTrue(exc);
+        exc = false;
+        try {
+            new DoubleQuickSelectPercentileAggregatorFunction(101);
+        } catch (IllegalArgumentException e) {
+            exc = true;
+        }
+        assertTrue(exc);
+    }
+
+    @Test
+    public void testComputeRank() throws Exception {
+        assertEquals(0, new DoubleQuickSelectPercentileAggregatorFunction(0.0).computeRank(5));
+        assertEquals(2, new DoubleQuickSelectPercentileAggregatorFunction(50.0).computeRank(5));
+        assertEquals(4, new DoubleQuickSelectPercentileAggregatorFunction(100.0).computeRank(5));
+    }
+
+    /**
+     * Ensures the result matches the one of the sort based
+     * {@link DoublePercentileAggregatorFunction}, for a few percentiles and for lists
+     * large enough to be partitioned.
+     */
+    @Test
+    public void testSameAsSort() throws Exception {
+        double[] percentiles = { 0.0, 25.0, 50.0, 90.0, 99.0, 100.0 };
+        Random rnd = new Random();
+        for (double percentile : percentiles) {
+            DoubleQuickSelectPercentileAggregatorFunction fct = new DoubleQuickSelectPercentileAggregatorFunction(percentile);
+            DoublePercentileAggregatorFunction expected = new DoublePercentileAggregatorFunction(percentile);
+            List<Double> lst = new ArrayList<Double>();
+            for (int i = 0; i < 300; i++) {
+                lst.add((double) rnd.nextInt(100));
+                assertEquals(expected.evaluate(lst), fct.evaluate(lst), 0.0001);
+            }
+        }
+    }
+
+    /**
+     * Ensures <code>NaN</code> and signed zeros are ordered like the sort
+     * based {@link DoublePercentileAggregatorFunction} orders them.
+     */
+    @Test
+    public void testNaNAndSignedZerosSameAsSort() throws Exception {
+        double[] percentiles = { 0.0, 50.0, 90.0, 100.0 };
+        double[] special = { Double.NaN, -0.0, 0.0 };
+        Random rnd = new Random();
+        for (double percentile : percentiles) {
+            DoubleQuickSelectPercentileAggregatorFunction fct = new DoubleQuickSelectPercentileAggregatorFunction(percentile);
+            DoublePercentileAggregatorFunction expected = new DoublePercentileAggregatorFunction(percentile);
+            List<Double> lst = new ArrayList<Double>();
+            for (int i = 0; i < 300; i++) {
+                lst.add(i % 3 == 0 ? special[rnd.nextInt(special.length)] : (double) (rnd.nextInt(21) - 10));
+                assertEquals(expected.evaluate(lst), fct.evaluate(lst));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.aggregator.DoubleArraySeries;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleSeriesMaxAggregatorFunction}.
+ */
+public class DoubleSeriesMaxAggregatorFunctionTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleSeriesMaxAggregatorFunction();
+    }
+
+    @Test
+    public void testEmptySeries() throws Exception {
+        DoubleSeriesMaxAggregatorFunction fct = (DoubleSeriesMaxAggregatorFunction) makeFunctor();
+        assertNull(fct.evaluate(null));
+        assertNull(fct.evaluate(new DoubleArraySeries(new double[0], 0)));
+    }
+
+    /**
+     * Ensures the result matches the one of the <code>List</code> based
+     * counterpart, {@link DoubleMaxAggregatorFunction}.
+     */
+    @Test
+    public void testSameAsList() throws Exception {
+        DoubleSeriesMaxAggregatorFunction fct = (DoubleSeriesMaxAggregatorFunction) makeFunctor();
+        DoubleMaxAggregatorFunction expected = new DoubleMaxAggregatorFunction();
+        Random rnd = new Random();
+        int calls = 31;
+        double[] data = new double[calls];
+        List<Double> lst = new ArrayList<Double>();
+        for (int i = 0; i < calls; i++) {
+            double value = rnd.nextDouble() * 1000;
+            data[i] = value;
+            lst.add(value);
+            assertEquals(expected.evaluate(lst), fct.evaluate(new DoubleArraySeries(data, i + 1)), 0.01);
+        }
+    }
+}
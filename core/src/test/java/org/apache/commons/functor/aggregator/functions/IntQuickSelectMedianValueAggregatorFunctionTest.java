@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link IntegerQuickSelectMedianValueAggregatorFunction}.
+ */
+public class IntQuickSelectMedianValueAggregatorFunctionTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new IntegerQuickSelectMedianValueAggregatorFunction();
+    }
+
+    @Test
+    public void testEmptyList() throws Exception {
+        IntegerQuickSelectMedianValueAggregatorFunction fct = (IntegerQuickSelectMedianValueAggregatorFunction) makeFunctor();
+        assertNull(fct.evaluate(null));
+        assertNull(fct.evaluate(new ArrayList<Integer>()));
+    }
+
+    @Test
+    public void testSmallList() throws Exception {
+        IntegerQuickSelectMedianValueAggregatorFunction fct = (IntegerQuickSelectMedianValueAggregatorFunction) makeFunctor();
+        List<Integer> lst = new ArrayList<Integer>();
+        lst.add(5);
+        assertEquals(5, fct.evaluate(lst).intValue());
+        lst.add(1);
+        assertEquals(3, fct.evaluate(lst).intValue());
+        lst.add(4);
+        assertEquals(4, fct.evaluate(lst).intValue());
+    }
+
+    /**
+     * Ensures the result matches the one of the sort based
+     * {@link IntegerMedianValueAggregatorFunction}, for lists large enough to
+     * be partitioned and with plenty of duplicates.
+     */
+    @Test
+    public void testSameAsSort() throws Exception {
+        IntegerQuickSelectMedianValueAggregatorFunction fct = (IntegerQuickSelectMedianValueAggregatorFunction) makeFunctor();
+        IntegerMedianValueAggregatorFunction expected = new IntegerMedianValueAggregatorFunction();
+        Random rnd = new Random();
+        List<Integer> lst = new ArrayList<Integer>();
+        for (int i = 0; i < 500; i++) {
+            lst.add(rnd.nextInt(100));
+            assertEquals(expected.evaluate(lst), fct.evaluate(lst));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link IntegerQuickSelectPercentileAggregatorFunction}.
+ */
+public class IntQuickSelectPercentileAggregatorFunctionTest extends BaseFunctorTest {
+    private static final double DEF_PERC = 90; // by default use the 90th percentile
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new IntegerQuickSelectPercentileAggregatorFunction(DEF_PERC);
+    }
+
+    @Test
+    public void testEmptyList() throws Exception {
+        IntegerQuickSelectPercentileAggregatorFunction fct = (IntegerQuickSelectPercentileAggregatorFunction) makeFunctor();
+        assertNull(fct.evaluate(null));
+        assertNull(fct.evaluate(new ArrayList<Integer>()));
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        IntegerQuickSelectPercentileAggregatorFunction fct = (IntegerQuickSelectPercentileAggregatorFunction) makeFunctor();
+        assertEquals(fct.getPercentile(), DEF_PERC, 0.01);
+        boolean exc = false;
+        try {
+            new IntegerQuickSelectPercentileAggregatorFunction(-1);
+        } catch (IllegalArgumentException e) {
+            exc = true;
+        }
+        assertTrue(exc);
+        exc = false;
+        try {
+            new IntegerQuickSelectPercentileAggregatorFunction(101);
+        } catch (IllegalArgumentException e) {
+            exc = true;
+        }
+        assertTrue(exc);
+    }
+
+    @Test
+    public void testComputeRank() throws Exception {
+        assertEquals(0, new IntegerQuickSelectPercentileAggregatorFunction(0.0).computeRank(5));
+        assertEquals(2, new IntegerQuickSelectPercentileAggregatorFunction(50.0).computeRank(5));
+        assertEquals(4, new IntegerQuickSelectPercentileAggregatorFunction(100.0).computeRank(5));
+    }
+
+    /**
+     * Ensures the result matches the one of the sort based
+     * {@link IntegerPercentileAggregatorFunction}, for a few percentiles and for lists
+     * large enough to be partitioned.
+     */
+    @Test
+    public void testSameAsSort() throws Exception {
+        double[] percentiles = { 0.0, 25.0, 50.0, 90.0, 99.0, 100.0 };
+        Random rnd = new Random();
+        for (double percentile : percentiles) {
+            IntegerQuickSelectPercentileAggregatorFunction fct = new IntegerQuickSelectPercentileAggregatorFunction(percentile);
+            IntegerPercentileAggregatorFunction expected = new IntegerPercentileAggregatorFunction(percentile);
+            List<Integer> lst = new ArrayList<Integer>();
+            for (int i = 0; i < 300; i++) {
+                lst.add(rnd.nextInt(100));
+                assertEquals(expected.evaluate(lst), fct.evaluate(lst));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleCountState}.
+ */
+public class DoubleCountStateTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleCountState();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        DoubleCountState state = new DoubleCountState();
+        assertEquals(0.0, state.getResult(), 0.0);
+        // merging empty states is a no-op
+        state.merge(new DoubleCountState());
+        assertEquals(0.0, state.getResult(), 0.0);
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+        double[] data = randomData(100);
+        DoubleCountState state = new DoubleCountState();
+        for (double d : data) {
+            state.add(d);
+        }
+        assertEquals(expected(data, 0, data.length), state.getResult(), 0.000001);
+    }
+
+    /**
+     * Merging the states of parts of the data must give the same result as
+     * adding all the data to a single state.
+     */
+    @Test
+    public void testMerge() throws Exception {
+        double[] data = randomData(300);
+        DoubleCountState first = new DoubleCountState();
+        DoubleCountState second = new DoubleCountState();
+        DoubleCountState third = new DoubleCountState();
+        for (int i = 0; i < 100; i++) {
+            first.add(data[i]);
+            second.add(Double.valueOf(data[i + 100]));
+            third.add(data[i + 200]);
+        }
+        assertEquals(expected(data, 0, 100), first.getResult(), 0.000001);
+        // associativity: (first + second) + third == first + (second + third)
+        DoubleCountState left = first.copy();
+        left.merge(second);
+        left.merge(third);
+        DoubleCountState right = second.copy();
+        right.merge(third);
+        first.merge(right);
+        assertEquals(expected(data, 0, data.length), left.getResult(), 0.000001);
+        assertEquals(expected(data, 0, data.length), first.getResult(), 0.000001);
+        // the merged state is not modified
+        assertEquals(expected(data, 100, 300), right.getResult(), 0.000001);
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        DoubleCountState state = new DoubleCountState();
+        state.add(1.0);
+        state.add(5.0);
+        DoubleCountState copy = state.copy();
+        assertEquals(state.getResult(), copy.getResult(), 0.000001);
+        copy.add(-3.0);
+        assertEquals(expected(new double[] { 1.0, 5.0 }, 0, 2), state.getResult(), 0.000001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCount() throws Exception {
+        new DoubleCountState(-1L);
+    }
+
+    private static double[] randomData(int n) {
+        Random rnd = new Random();
+        double[] data = new double[n];
+        for (int i = 0; i < n; i++) {
+            data[i] = rnd.nextDouble() * 1000.0 - 200.0;
+        }
+        return data;
+    }
+
+    private static double expected(double[] data, int from, int to) {
+        return to - from;
+    }
+}
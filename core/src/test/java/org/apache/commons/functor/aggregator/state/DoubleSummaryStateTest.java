@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleSummaryState}.
+ */
+public class DoubleSummaryStateTest extends BaseFunctorTest {
+    private static final double DELTA = 0.000001;
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleSummaryState();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        DoubleSummaryState state = new DoubleSummaryState();
+        assertEquals(0L, state.getCount());
+        assertEquals(0.0, state.getSum(), 0.0);
+        assertNull(state.getResult());
+        assertNull(state.getVariance());
+        assertNull(state.getPopulationVariance());
+        assertNull(state.getStandardDeviation());
+        assertNull(state.getMin());
+        assertNull(state.getMax());
+        state.merge(new DoubleSummaryState());
+        assertNull(state.getResult());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCount() throws Exception {
+        new DoubleSummaryState(-1L, 0.0, 0.0, 0.0, 0.0, 0.0);
+    }
+
+    @Test
+    public void testSingleValue() throws Exception {
+        DoubleSummaryState state = new DoubleSummaryState();
+        state.add(-4.0);
+        assertEquals(-4.0, state.getResult(), 0.0);
+        assertEquals(0.0, state.getVariance(), 0.0);
+        assertEquals(-4.0, state.getMin(), 0.0);
+        assertEquals(-4.0, state.getMax(), 0.0);
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+        double[] data = randomData(200);
+        DoubleSummaryState state = new DoubleSummaryState();
+        for (double d : data) {
+            state.add(d);
+        }
+        assertStatistics(data, 0, data.length, state);
+    }
+
+    /**
+     * Merging the states of parts of the data must give the same statistics as
+     * adding all the data to a single state.
+     */
+    @Test
+    public void testMerge() throws Exception {
+        double[] data = randomData(300);
+        DoubleSummaryState first = new DoubleSummaryState();
+        DoubleSummaryState second = new DoubleSummaryState();
+        DoubleSummaryState third = new DoubleSummaryState();
+        for (int i = 0; i < 100; i++) {
+            first.add(data[i]);
+            second.add(Double.valueOf(data[i + 100]));
+            third.add(data[i + 200]);
+        }
+        DoubleSummaryState left = first.copy();
+        left.merge(second);
+        left.merge(third);
+        DoubleSummaryState right = second.copy();
+        right.merge(third);
+        first.merge(right);
+        assertStatistics(data, 0, data.length, left);
+        assertStatistics(data, 0, data.length, first);
+        // the merged state is not modified
+        assertStatistics(data, 100, 300, right);
+
+        DoubleSummaryState empty = new DoubleSummaryState();
+        empty.merge(third);
+        assertStatistics(data, 200, 300, empty);
+    }
+
+    private static void assertStatistics(double[] data, int from, int to, DoubleSummaryState state) {
+        double sum = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            sum += data[i];
+            min = Math.min(min, data[i]);
+            max = Math.max(max, data[i]);
+        }
+        int n = to - from;
+        double mean = sum / n;
+        double squares = 0.0;
+        for (int i = from; i < to; i++) {
+            squares += (data[i] - mean) * (data[i] - mean);
+        }
+        assertEquals(n, state.getCount());
+        assertEquals(sum, state.getSum(), DELTA);
+        assertEquals(mean, state.getResult(), DELTA);
+        assertEquals(squares / (n - 1), state.getVariance(), DELTA);
+        assertEquals(squares / n, state.getPopulationVariance(), DELTA);
+        assertEquals(Math.sqrt(squares / (n - 1)), state.getStandardDeviation(), DELTA);
+        assertEquals(min, state.getMin(), 0.0);
+        assertEquals(max, state.getMax(), 0.0);
+    }
+
+    private static double[] randomData(int size) {
+        Random rnd = new Random();
+        double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = rnd.nextGaussian() * 100.0 + 1000.0;
+        }
+        return data;
+    }
+}
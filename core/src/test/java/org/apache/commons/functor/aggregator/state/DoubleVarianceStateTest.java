@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.aggregator.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DoubleVarianceState}.
+ */
+public class DoubleVarianceStateTest extends BaseFunctorTest {
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new DoubleVarianceState();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        DoubleVarianceState state = new DoubleVarianceState();
+        assertNull(state.getResult());
+        // merging empty states is a no-op
+        state.merge(new DoubleVarianceState());
+        assertNull(state.getResult());
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+        double[] data = randomData(100);
+        DoubleVarianceState state = new DoubleVarianceState();
+        for (double d : data) {
+            state.add(d);
+        }
+        assertEquals(expected(data, 0, data.length), state.getResult(), 0.000001);
+    }
+
+    /**
+     * Merging the states of parts of the data must give the same result as
+     * adding all the data to a single state.
+     */
+    @Test
+    public void testMerge() throws Exception {
+        double[] data = randomData(300);
+        DoubleVarianceState first = new DoubleVarianceState();
+        DoubleVarianceState second = new DoubleVarianceState();
+        DoubleVarianceState third = new DoubleVarianceState();
+        for (int i = 0; i < 100; i++) {
+            first.add(data[i]);
+            second.add(Double.valueOf(data[i + 100]));
+            third.add(data[i + 200]);
+        }
+        assertEquals(expected(data, 0, 100), first.getResult(), 0.000001);
+        // associativity: (first + second) + third == first + (second + third)
+        DoubleVarianceState left = first.copy();
+        left.merge(second);
+        left.merge(third);
+        DoubleVarianceState right = second.copy();
+        right.merge(third);
+        first.merge(right);
+        assertEquals(expected(data, 0, data.length), left.getResult(), 0.000001);
+        assertEquals(expected(data, 0, data.length), first.getResult(), 0.000001);
+        // the merged state is not modified
+        assertEquals(expected(data, 100, 300), right.getResult(), 0.000001);
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        DoubleVarianceState state = new DoubleVarianceState();
+        state.add(1.0);
+        state.add(5.0);
+        DoubleVarianceState copy = state.copy();
+        assertEquals(state.getResult(), copy.getResult(), 0.000001);
+        copy.add(-3.0);
+        assertEquals(expected(new double[] { 1.0, 5.0 }, 0, 2), state.getResult(), 0.000001);
+    }
+
+    @Test
+    public void testKnownValues() throws Exception {
+        DoubleVarianceState state = new DoubleVarianceState();
+        state.add(2.0);
+        assertEquals(0.0, state.getResult(), 0.0);
+        assertEquals(0.0, state.getPopulationVariance(), 0.0);
+        for (double d : new double[] { 4.0, 4.0, 4.0, 5.0, 5.0, 7.0, 9.0 }) {
+            state.add(d);
+        }
+        assertEquals(8, state.getCount());
+        assertEquals(5.0, state.getMean(), 0.000001);
+        assertEquals(4.0, state.getPopulationVariance(), 0.000001);
+        assertEquals(32.0 / 7.0, state.getResult(), 0.000001);
+    }
+
+    /**
+     * Values with a large offset must not lose precision.
+     */
+    @Test
+    public void testLargeOffset() throws Exception {
+        DoubleVarianceState first = new DoubleVarianceState();
+        DoubleVarianceState second = new DoubleVarianceState();
+        first.add(1e9 + 4.0);
+        first.add(1e9 + 7.0);
+        second.add(1e9 + 13.0);
+        second.add(1e9 + 16.0);
+        first.merge(second);
+        assertEquals(30.0, first.getResult(), 0.000001);
+    }
+
+    private static double[] randomData(int n) {
+        Random rnd = new Random();
+        double[] data = new double[n];
+        for (int i = 0; i < n; i++) {
+            data[i] = rnd.nextDouble() * 1000.0 - 200.0;
+        }
+        return data;
+    }
+
+    private static double expected(double[] data, int from, int to) {
+        double sum = 0.0;
+        for (int i = from; i < to; i++) {
+            sum += data[i];
+        }
+        double mean = sum / (to - from);
+        double squares = 0.0;
+        for (int i = from; i < to; i++) {
+            squares += (data[i] - mean) * (data[i] - mean);
+        }
+        return squares / (to - from - 1);
+    }
+}
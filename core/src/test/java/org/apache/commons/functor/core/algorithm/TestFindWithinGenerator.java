@@ -20,15 +20,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.apache.commons.functor.BaseFunctorTest;
 import org.apache.commons.functor.Predicate;
+import org.apache.commons.functor.Procedure;
 import org.apache.commons.functor.adapter.LeftBoundPredicate;
+import org.apache.commons.functor.core.Identity;
 import org.apache.commons.functor.core.IsEqual;
+import org.apache.commons.functor.generator.BaseGenerator;
+import org.apache.commons.functor.generator.Generator;
 import org.apache.commons.functor.generator.loop.IteratorToGeneratorAdapter;
+import org.apache.commons.functor.generator.loop.TransformedGenerator;
 import org.junit.Test;
 
 /**
@@ -107,6 +114,34 @@ public class TestFindWithinGenerator extends BaseFunctorTest {
         assertNotNull("FindWithinGenerator instance must not be null", FindWithinGenerator.instance());
     }
 
+    @Test
+    public void testStopsAtFirstMatch() {
+        Iterator<Integer> iter = numbers.iterator();
+        assertEquals(Integer.valueOf(3), new FindWithinGenerator<Integer>().evaluate(
+            new TransformedGenerator<Integer, Integer>(IteratorToGeneratorAdapter.adapt(iter),
+                Identity.<Integer> instance()), equalsThree));
+        assertEquals(Integer.valueOf(4), iter.next());
+    }
+
+    @Test
+    public void testStopsGeneratorIgnoringShortCircuit() {
+        List<Integer> generated = new ArrayList<Integer>();
+        assertEquals(Integer.valueOf(3), new FindWithinGenerator<Integer>().evaluate(counting(generated),
+            equalsThree));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), generated);
+    }
+
+    private Generator<Integer> counting(final List<Integer> generated) {
+        return new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                for (Integer i : numbers) {
+                    generated.add(i);
+                    proc.run(i);
+                }
+            }
+        };
+    }
+
     // Attributes
     // ------------------------------------------------------------------------
 
@@ -16,17 +16,25 @@
  */
 package org.apache.commons.functor.core.algorithm;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.functor.BaseFunctorTest;
 import org.apache.commons.functor.Predicate;
+import org.apache.commons.functor.Procedure;
 import org.apache.commons.functor.adapter.LeftBoundPredicate;
 import org.apache.commons.functor.core.IsEqual;
+import org.apache.commons.functor.core.IsNotNull;
 import org.apache.commons.functor.core.algorithm.GeneratorContains;
+import org.apache.commons.functor.generator.BaseGenerator;
+import org.apache.commons.functor.generator.FilteredGenerator;
+import org.apache.commons.functor.generator.Generator;
 import org.apache.commons.functor.generator.loop.IteratorToGeneratorAdapter;
 import org.junit.Test;
 
@@ -48,6 +56,33 @@ public class TestGeneratorContains extends BaseFunctorTest {
             equalsTwentyThree));
     }
 
+    @Test
+    public void testStopsAtFirstMatch() {
+        Iterator<Integer> iter = list.iterator();
+        assertTrue(new GeneratorContains<Integer>().test(new FilteredGenerator<Integer>(
+            IteratorToGeneratorAdapter.adapt(iter), IsNotNull.instance()), equalsThree));
+        assertEquals(Integer.valueOf(4), iter.next());
+    }
+
+    @Test
+    public void testStopsGeneratorIgnoringShortCircuit() {
+        List<Integer> generated = new ArrayList<Integer>();
+        assertTrue(new GeneratorContains<Integer>().test(counting(generated), equalsThree));
+        // the element after the match is generated, but not tested
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), generated);
+    }
+
+    private Generator<Integer> counting(final List<Integer> generated) {
+        return new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                for (Integer i : list) {
+                    generated.add(i);
+                    proc.run(i);
+                }
+            }
+        };
+    }
+
     // Attributes
     // ------------------------------------------------------------------------
 
@@ -18,14 +18,20 @@ package org.apache.commons.functor.core.algorithm;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.functor.BaseFunctorTest;
 import org.apache.commons.functor.Predicate;
+import org.apache.commons.functor.Procedure;
 import org.apache.commons.functor.adapter.LeftBoundPredicate;
+import org.apache.commons.functor.core.Identity;
 import org.apache.commons.functor.core.IsEqual;
+import org.apache.commons.functor.generator.BaseGenerator;
+import org.apache.commons.functor.generator.Generator;
 import org.apache.commons.functor.generator.loop.IteratorToGeneratorAdapter;
+import org.apache.commons.functor.generator.loop.TransformedGenerator;
 import org.junit.Test;
 
 /**
@@ -43,6 +49,25 @@ public class TestIndexOfInGenerator extends BaseFunctorTest {
         assertEquals(3L, new IndexOfInGenerator<Integer>().evaluate(IteratorToGeneratorAdapter.adapt(list.iterator()),equalsThree));
     }
 
+    @Test
+    public void testStopsNonLoopSource() {
+        List<Integer> generated = new ArrayList<Integer>();
+        assertEquals(3L, new IndexOfInGenerator<Integer>().evaluate(new TransformedGenerator<Integer, Integer>(
+            counting(generated), Identity.<Integer> instance()), equalsThree));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), generated);
+    }
+
+    private Generator<Integer> counting(final List<Integer> generated) {
+        return new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                for (Integer i : list) {
+                    generated.add(i);
+                    proc.run(i);
+                }
+            }
+        };
+    }
+
     // Attributes
     // ------------------------------------------------------------------------
 
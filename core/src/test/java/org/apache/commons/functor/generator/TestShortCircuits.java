@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.core.Identity;
+import org.apache.commons.functor.core.NoOp;
+import org.apache.commons.functor.generator.loop.IteratorToGeneratorAdapter;
+import org.apache.commons.functor.generator.loop.TransformedGenerator;
+import org.junit.Test;
+
+/**
+ * Tests the ShortCircuits class.
+ * @version $Revision$ $Date$
+ */
+public class TestShortCircuits {
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testRunNullGenerator() {
+        ShortCircuits.run(null, new Take(1));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testRunNullProcedure() {
+        ShortCircuits.run(generator(), null);
+    }
+
+    @Test
+    public void testIsDone() {
+        assertFalse(ShortCircuits.isDone(NoOp.instance()));
+        Take take = new Take(1);
+        assertFalse(ShortCircuits.isDone(take));
+        take.run(0);
+        assertTrue(ShortCircuits.isDone(take));
+    }
+
+    @Test
+    public void testCooperativeGeneratorStops() {
+        Iterator<Integer> iter = list.iterator();
+        Take take = new Take(3);
+        ShortCircuits.run(IteratorToGeneratorAdapter.adapt(iter), take);
+        assertEquals(Arrays.asList(0, 1, 2), take.taken);
+        assertEquals(Integer.valueOf(3), iter.next());
+    }
+
+    @Test
+    public void testWrappedGeneratorStops() {
+        Iterator<Integer> iter = list.iterator();
+        Take take = new Take(3);
+        ShortCircuits.run(new TransformedGenerator<Integer, Integer>(IteratorToGeneratorAdapter.adapt(iter),
+            Identity.<Integer> instance()), take);
+        assertEquals(Arrays.asList(0, 1, 2), take.taken);
+        assertEquals(Integer.valueOf(3), iter.next());
+    }
+
+    @Test
+    public void testNonCooperativeGeneratorIsInterrupted() {
+        Take take = new Take(3);
+        ShortCircuits.run(generator(), take);
+        assertEquals(Arrays.asList(0, 1, 2), take.taken);
+        // one more element is generated, but not given to the procedure
+        assertEquals(Arrays.asList(0, 1, 2, 3), generated);
+    }
+
+    @Test
+    public void testDoneProcedureIsNotRun() {
+        Take take = new Take(0);
+        ShortCircuits.run(generator(), take);
+        assertTrue(take.taken.isEmpty());
+        assertTrue(generated.isEmpty());
+    }
+
+    @Test
+    public void testNoShortCircuit() {
+        Take take = new Take(20);
+        ShortCircuits.run(generator(), take);
+        assertEquals(list, take.taken);
+    }
+
+    @Test
+    public void testNestedRuns() {
+        final Take outer = new Take(2);
+        final List<Integer> inner = new ArrayList<Integer>();
+        ShortCircuits.run(generator(), new ShortCircuitProcedure<Integer>() {
+            public void run(final Integer i) {
+                outer.run(i);
+                Take take = new Take(i + 1);
+                ShortCircuits.run(IteratorToGeneratorAdapter.adapt(list.iterator()), take);
+                inner.addAll(take.taken);
+            }
+
+            public boolean isDone() {
+                return outer.isDone();
+            }
+        });
+        assertEquals(Arrays.asList(0, 1), outer.taken);
+        assertEquals(Arrays.asList(0, 0, 1), inner);
+    }
+
+    @Test
+    public void testProcedureExceptionPropagates() {
+        final IllegalStateException thrown = new IllegalStateException();
+        try {
+            ShortCircuits.run(generator(), new ShortCircuitProcedure<Integer>() {
+                public void run(Integer obj) {
+                    throw thrown;
+                }
+
+                public boolean isDone() {
+                    return false;
+                }
+            });
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertSame(thrown, e);
+        }
+    }
+
+    // Classes
+    // ------------------------------------------------------------------------
+
+    /**
+     * Takes a given number of elements.
+     */
+    private static class Take implements ShortCircuitProcedure<Integer> {
+        private final int count;
+        private final List<Integer> taken = new ArrayList<Integer>();
+
+        public Take(int count) {
+            this.count = count;
+        }
+
+        public void run(Integer obj) {
+            taken.add(obj);
+        }
+
+        public boolean isDone() {
+            return taken.size() >= count;
+        }
+    }
+
+    /**
+     * Creates a generator ignoring the short-circuit contract, which records
+     * the elements it generated.
+     * @return Generator
+     */
+    private Generator<Integer> generator() {
+        return new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                for (Integer i : list) {
+                    generated.add(i);
+                    proc.run(i);
+                }
+            }
+        };
+    }
+
+    // Attributes
+    // ------------------------------------------------------------------------
+
+    private final List<Integer> list = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    private final List<Integer> generated = new ArrayList<Integer>();
+}
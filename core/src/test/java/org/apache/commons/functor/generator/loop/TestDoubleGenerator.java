@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.functor.adapter.LeftBoundPredicate;
+import org.apache.commons.functor.core.IsEqual;
+import org.apache.commons.functor.core.algorithm.GeneratorContains;
+import org.apache.commons.functor.generator.DoubleBinaryFunction;
+import org.apache.commons.functor.generator.DoubleFunction;
+import org.apache.commons.functor.generator.DoublePredicate;
+import org.apache.commons.functor.generator.DoubleProcedure;
+import org.apache.commons.functor.range.DoubleRange;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the DoubleGenerator class.
+ * @version $Revision$ $Date$
+ */
+public class TestDoubleGenerator {
+
+    @Before
+    public void setUp() throws Exception {
+        source = new DoubleRangeGenerator(new DoubleRange(0.0, 5.0, 0.5));
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testRunDoubleProcedure() {
+        final List<Double> result = new ArrayList<Double>();
+        source.filter(isWhole).transform(half).run(new DoubleProcedure() {
+            public void run(double value) {
+                result.add(value);
+            }
+        });
+        assertEquals(Arrays.asList(0.0, 0.5, 1.0, 1.5, 2.0), result);
+    }
+
+    @Test
+    public void testRunProcedure() {
+        assertEquals(Arrays.asList(0.0, 0.5, 1.0, 1.5, 2.0), source.filter(isWhole).transform(half).toCollection());
+    }
+
+    @Test
+    public void testFold() {
+        assertEquals(22.5, source.fold(0.0, sum), 0.0);
+        assertEquals(-1.0, new DoubleRangeGenerator(new DoubleRange(0.0, 0.0)).fold(-1.0, sum), 0.0);
+    }
+
+    @Test
+    public void testShortCircuitThroughStages() {
+        assertTrue(new GeneratorContains<Double>().test(source.filter(isWhole).transform(half),
+            LeftBoundPredicate.bind(IsEqual.instance(), 1.0)));
+        // 0.0 to 2.0 were generated
+        assertEquals(Double.valueOf(2.5), source.iterator().next());
+    }
+
+    @Test
+    public void testStopStage() {
+        final DoubleGenerator transformed = source.transform(half);
+        final List<Double> result = new ArrayList<Double>();
+        transformed.run(new DoubleProcedure() {
+            public void run(double value) {
+                result.add(value);
+                if (value == 0.5) {
+                    transformed.stop();
+                }
+            }
+        });
+        assertEquals(Arrays.asList(0.0, 0.25, 0.5), result);
+        assertTrue(source.isStopped());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testFilterNull() {
+        source.filter(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testTransformNull() {
+        source.transform(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testFoldNull() {
+        source.fold(0.0, null);
+    }
+
+    // Attributes
+    // ------------------------------------------------------------------------
+
+    private DoubleRangeGenerator source = null;
+
+    private final DoublePredicate isWhole = new DoublePredicate() {
+        public boolean test(double value) {
+            return value == Math.floor(value);
+        }
+    };
+
+    private final DoubleFunction half = new DoubleFunction() {
+        public double evaluate(double value) {
+            return value / 2.0;
+        }
+    };
+
+    private final DoubleBinaryFunction sum = new DoubleBinaryFunction() {
+        public double evaluate(double left, double right) {
+            return left + right;
+        }
+    };
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.generator.DoubleProcedure;
+import org.apache.commons.functor.range.BoundType;
+import org.apache.commons.functor.range.DoubleRange;
+import org.junit.Test;
+
+/**
+ * Tests the DoubleRangeGenerator class.
+ * @version $Revision$ $Date$
+ */
+public class TestDoubleRangeGenerator extends BaseFunctorTest {
+
+    @Override
+    public Object makeFunctor() {
+        return new DoubleRangeGenerator(new DoubleRange(0.0, 10.0));
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testGenerateLikeIterator() {
+        double[][] cases = {
+            { 0.0, 10.0, 1.0 }, { 0.0, 1.0, 0.1 }, { 10.0, 0.0, -1.5 }, { 5.0, 5.0, 1.0 }, { -0.7, 0.7, 0.7 } };
+        for (double[] c : cases) {
+            for (BoundType left : BoundType.values()) {
+                for (BoundType right : BoundType.values()) {
+                    DoubleRange range = new DoubleRange(c[0], left, c[1], right, c[2]);
+                    assertEquals(range.toString(), toList(range), new DoubleRangeGenerator(range).toCollection());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRunDoubleProcedure() {
+        DoubleRange range = new DoubleRange(1.0, BoundType.OPEN, -1.0, BoundType.CLOSED, -0.25);
+        final List<Double> result = new ArrayList<Double>();
+        new DoubleRangeGenerator(range).run(new DoubleProcedure() {
+            public void run(double value) {
+                result.add(value);
+            }
+        });
+        assertEquals(toList(range), result);
+    }
+
+    @Test
+    public void testStop() {
+        final DoubleRangeGenerator gen = new DoubleRangeGenerator(new DoubleRange(0.0, 10.0));
+        final List<Double> result = new ArrayList<Double>();
+        gen.run(new DoubleProcedure() {
+            public void run(double value) {
+                result.add(value);
+                if (value == 2.0) {
+                    gen.stop();
+                }
+            }
+        });
+        assertEquals(3, result.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructNull() {
+        new DoubleRangeGenerator(null);
+    }
+
+    @Test
+    public void testIterator() {
+        DoubleRange range = new DoubleRange(0.0, BoundType.OPEN, 3.0, BoundType.CLOSED, 0.5);
+        Iterator<Double> iter = new DoubleRangeGenerator(range).iterator();
+        List<Double> result = new ArrayList<Double>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals(toList(range), result);
+    }
+
+    @Test
+    public void testEquals() {
+        DoubleRangeGenerator gen = new DoubleRangeGenerator(new DoubleRange(0.0, 10.0));
+        assertObjectsAreEqual(gen, gen);
+        assertObjectsAreEqual(gen, new DoubleRangeGenerator(new DoubleRange(0.0, 10.0, 1.0)));
+        assertObjectsAreNotEqual(gen, new DoubleRangeGenerator(new DoubleRange(0.0, BoundType.CLOSED, 10.0,
+            BoundType.CLOSED)));
+        assertObjectsAreNotEqual(gen, new DoubleRangeGenerator(new DoubleRange(0.0, 10.0, 0.5)));
+    }
+
+    private static List<Double> toList(Iterable<Double> range) {
+        List<Double> result = new ArrayList<Double>();
+        for (Double d : range) {
+            result.add(d);
+        }
+        return result;
+    }
+}
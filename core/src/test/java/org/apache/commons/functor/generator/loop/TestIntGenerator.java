@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.adapter.LeftBoundPredicate;
+import org.apache.commons.functor.core.IsEqual;
+import org.apache.commons.functor.core.algorithm.GeneratorContains;
+import org.apache.commons.functor.generator.IntBinaryFunction;
+import org.apache.commons.functor.generator.IntFunction;
+import org.apache.commons.functor.generator.IntPredicate;
+import org.apache.commons.functor.generator.IntProcedure;
+import org.apache.commons.functor.range.IntegerRange;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the IntGenerator class.
+ * @version $Revision$ $Date$
+ */
+public class TestIntGenerator {
+
+    @Before
+    public void setUp() throws Exception {
+        source = new IntegerRangeGenerator(new IntegerRange(0, 10));
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testRunIntProcedure() {
+        final List<Integer> result = new ArrayList<Integer>();
+        source.filter(isEven).transform(square).run(new IntProcedure() {
+            public void run(int value) {
+                result.add(value);
+            }
+        });
+        assertEquals(Arrays.asList(0, 4, 16, 36, 64), result);
+    }
+
+    @Test
+    public void testRunProcedure() {
+        assertEquals(Arrays.asList(1, 3, 5, 7, 9), source.transform(square).filter(new IntPredicate() {
+            public boolean test(int value) {
+                return value % 2 != 0;
+            }
+        }).transform(new IntFunction() {
+            public int evaluate(int value) {
+                return (int) Math.sqrt(value);
+            }
+        }).toCollection());
+    }
+
+    @Test
+    public void testFold() {
+        assertEquals(120, source.filter(isEven).transform(square).fold(0, sum));
+    }
+
+    @Test
+    public void testFoldEmpty() {
+        assertEquals(7, new IntegerRangeGenerator(new IntegerRange(0, 0)).fold(7, sum));
+    }
+
+    @Test
+    public void testShortCircuitThroughStages() {
+        assertTrue(new GeneratorContains<Integer>().test(source.filter(isEven).transform(square),
+            LeftBoundPredicate.bind(IsEqual.instance(), 16)));
+        // 0 to 4 were generated
+        assertEquals(5, source.estimateSize());
+    }
+
+    @Test
+    public void testStopStage() {
+        final IntGenerator filtered = source.filter(isEven);
+        final List<Integer> result = new ArrayList<Integer>();
+        filtered.run(new IntProcedure() {
+            public void run(int value) {
+                result.add(value);
+                if (value == 2) {
+                    filtered.stop();
+                }
+            }
+        });
+        assertEquals(Arrays.asList(0, 2), result);
+        assertTrue(source.isStopped());
+    }
+
+    @Test
+    public void testPlainProcedureIsNeverDone() {
+        assertFalse(IntGenerator.isDone(new IntProcedure() {
+            public void run(int value) {
+            }
+        }));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testRunNullProcedure() {
+        source.run((Procedure<Integer>) null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testFilterNull() {
+        source.filter(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testTransformNull() {
+        source.transform(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testFoldNull() {
+        source.fold(0, null);
+    }
+
+    // Attributes
+    // ------------------------------------------------------------------------
+
+    private IntegerRangeGenerator source = null;
+
+    private final IntPredicate isEven = new IntPredicate() {
+        public boolean test(int value) {
+            return value % 2 == 0;
+        }
+    };
+
+    private final IntFunction square = new IntFunction() {
+        public int evaluate(int value) {
+            return value * value;
+        }
+    };
+
+    private final IntBinaryFunction sum = new IntBinaryFunction() {
+        public int evaluate(int left, int right) {
+            return left + right;
+        }
+    };
+}
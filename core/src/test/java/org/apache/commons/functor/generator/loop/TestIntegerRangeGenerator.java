@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.IntProcedure;
+import org.apache.commons.functor.generator.SplittableGenerator;
+import org.apache.commons.functor.range.BoundType;
+import org.apache.commons.functor.range.IntegerRange;
+import org.junit.Test;
+
+/**
+ * Tests the IntegerRangeGenerator class.
+ * @version $Revision$ $Date$
+ */
+public class TestIntegerRangeGenerator extends BaseFunctorTest {
+
+    @Override
+    public Object makeFunctor() {
+        return new IntegerRangeGenerator(new IntegerRange(0, 10));
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testGenerateLikeIterator() {
+        int[][] cases = {
+            { 0, 10, 1 }, { 0, 10, 3 }, { 10, 0, -1 }, { 10, 0, -4 }, { 5, 5, 0 }, { -7, 7, 7 } };
+        for (int[] c : cases) {
+            for (BoundType left : BoundType.values()) {
+                for (BoundType right : BoundType.values()) {
+                    IntegerRange range = new IntegerRange(c[0], left, c[1], right, c[2]);
+                    IntegerRangeGenerator gen = new IntegerRangeGenerator(range);
+                    List<Integer> expected = toList(range);
+                    assertEquals(range.toString(), expected.size(), gen.estimateSize());
+                    assertEquals(range.toString(), expected, gen.toCollection());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGenerateNearBounds() {
+        IntegerRange range = new IntegerRange(Integer.MAX_VALUE - 10, BoundType.CLOSED, Integer.MAX_VALUE,
+            BoundType.CLOSED, 3);
+        assertEquals(Arrays.asList(Integer.MAX_VALUE - 10, Integer.MAX_VALUE - 7, Integer.MAX_VALUE - 4,
+            Integer.MAX_VALUE - 1), new IntegerRangeGenerator(range).toCollection());
+        range = new IntegerRange(Integer.MIN_VALUE + 1, BoundType.OPEN, Integer.MIN_VALUE, BoundType.CLOSED, -1);
+        assertEquals(Arrays.asList(Integer.MIN_VALUE), new IntegerRangeGenerator(range).toCollection());
+    }
+
+    @Test
+    public void testSplit() {
+        IntegerRange range = new IntegerRange(0, 21, 2);
+        IntegerRangeGenerator gen = new IntegerRangeGenerator(range);
+        SplittableGenerator<Integer> prefix = gen.trySplit();
+        SplittableGenerator<Integer> first = prefix.trySplit();
+        List<Integer> result = new ArrayList<Integer>();
+        first.to(result);
+        prefix.to(result);
+        gen.to(result);
+        assertEquals(toList(range), result);
+        assertNull(new IntegerRangeGenerator(new IntegerRange(3, BoundType.CLOSED, 3, BoundType.CLOSED)).trySplit());
+    }
+
+    @Test
+    public void testStop() {
+        final IntegerRangeGenerator gen = new IntegerRangeGenerator(new IntegerRange(0, 10));
+        final List<Integer> result = new ArrayList<Integer>();
+        gen.run(new Procedure<Integer>() {
+            public void run(Integer obj) {
+                result.add(obj);
+                if (obj.intValue() == 2) {
+                    gen.stop();
+                }
+            }
+        });
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void testRunIntProcedure() {
+        IntegerRange range = new IntegerRange(10, BoundType.OPEN, 0, BoundType.CLOSED, -3);
+        final List<Integer> result = new ArrayList<Integer>();
+        new IntegerRangeGenerator(range).run(new IntProcedure() {
+            public void run(int value) {
+                result.add(value);
+            }
+        });
+        assertEquals(toList(range), result);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructNull() {
+        new IntegerRangeGenerator(null);
+    }
+
+    @Test
+    public void testIterator() {
+        IntegerRange range = new IntegerRange(10, BoundType.OPEN, 0, BoundType.CLOSED, -3);
+        Iterator<Integer> iter = new IntegerRangeGenerator(range).iterator();
+        List<Integer> result = new ArrayList<Integer>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals(toList(range), result);
+    }
+
+    @Test
+    public void testEquals() {
+        IntegerRangeGenerator gen = new IntegerRangeGenerator(new IntegerRange(0, 10));
+        assertObjectsAreEqual(gen, gen);
+        assertObjectsAreEqual(gen, new IntegerRangeGenerator(new IntegerRange(0, BoundType.CLOSED, 9,
+            BoundType.CLOSED)));
+        assertObjectsAreNotEqual(gen, new IntegerRangeGenerator(new IntegerRange(0, 11)));
+    }
+
+    private static List<Integer> toList(Iterable<Integer> range) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (Integer i : range) {
+            result.add(i);
+        }
+        return result;
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.commons.functor.generator.loop;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -91,6 +92,12 @@ public class TestIteratorToGeneratorAdapter extends BaseFunctorTest {
         new IteratorToGeneratorAdapter<Object>(null);
     }
 
+    @Test
+    public void testIterator() {
+        Iterator<String> iter = list.iterator();
+        assertSame(iter, new IteratorToGeneratorAdapter<String>(iter).iterator());
+    }
+
     @Test
     public void testEquals() {
         Iterator<String> iter = list.iterator();
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.adapter.LeftBoundPredicate;
+import org.apache.commons.functor.core.IsEqual;
+import org.apache.commons.functor.core.algorithm.GeneratorContains;
+import org.apache.commons.functor.generator.LongBinaryFunction;
+import org.apache.commons.functor.generator.LongFunction;
+import org.apache.commons.functor.generator.LongPredicate;
+import org.apache.commons.functor.generator.LongProcedure;
+import org.apache.commons.functor.range.LongRange;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the LongGenerator class.
+ * @version $Revision$ $Date$
+ */
+public class TestLongGenerator {
+
+    @Before
+    public void setUp() throws Exception {
+        source = new LongRangeGenerator(new LongRange(0, 10));
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testRunLongProcedure() {
+        final List<Long> result = new ArrayList<Long>();
+        source.filter(isEven).transform(square).run(new LongProcedure() {
+            public void run(long value) {
+                result.add(value);
+            }
+        });
+        assertEquals(Arrays.asList(0L, 4L, 16L, 36L, 64L), result);
+    }
+
+    @Test
+    public void testRunProcedure() {
+        assertEquals(Arrays.asList(1L, 3L, 5L, 7L, 9L), source.transform(square).filter(new LongPredicate() {
+            public boolean test(long value) {
+                return value % 2 != 0;
+            }
+        }).transform(new LongFunction() {
+            public long evaluate(long value) {
+                return (long) Math.sqrt(value);
+            }
+        }).toCollection());
+    }
+
+    @Test
+    public void testFold() {
+        assertEquals(120, source.filter(isEven).transform(square).fold(0, sum));
+    }
+
+    @Test
+    public void testFoldEmpty() {
+        assertEquals(7, new LongRangeGenerator(new LongRange(0, 0)).fold(7, sum));
+    }
+
+    @Test
+    public void testShortCircuitThroughStages() {
+        assertTrue(new GeneratorContains<Long>().test(source.filter(isEven).transform(square),
+            LeftBoundPredicate.bind(IsEqual.instance(), 16L)));
+        // 0 to 4 were generated
+        assertEquals(5, source.estimateSize());
+    }
+
+    @Test
+    public void testStopStage() {
+        final LongGenerator filtered = source.filter(isEven);
+        final List<Long> result = new ArrayList<Long>();
+        filtered.run(new LongProcedure() {
+            public void run(long value) {
+                result.add(value);
+                if (value == 2) {
+                    filtered.stop();
+                }
+            }
+        });
+        assertEquals(Arrays.asList(0L, 2L), result);
+        assertTrue(source.isStopped());
+    }
+
+    @Test
+    public void testPlainProcedureIsNeverDone() {
+        assertFalse(LongGenerator.isDone(new LongProcedure() {
+            public void run(long value) {
+            }
+        }));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testRunNullProcedure() {
+        source.run((Procedure<Long>) null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testFilterNull() {
+        source.filter(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testTransformNull() {
+        source.transform(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testFoldNull() {
+        source.fold(0, null);
+    }
+
+    // Attributes
+    // ------------------------------------------------------------------------
+
+    private LongRangeGenerator source = null;
+
+    private final LongPredicate isEven = new LongPredicate() {
+        public boolean test(long value) {
+            return value % 2 == 0;
+        }
+    };
+
+    private final LongFunction square = new LongFunction() {
+        public long evaluate(long value) {
+            return value * value;
+        }
+    };
+
+    private final LongBinaryFunction sum = new LongBinaryFunction() {
+        public long evaluate(long left, long right) {
+            return left + right;
+        }
+    };
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.LongProcedure;
+import org.apache.commons.functor.generator.SplittableGenerator;
+import org.apache.commons.functor.range.BoundType;
+import org.apache.commons.functor.range.LongRange;
+import org.junit.Test;
+
+/**
+ * Tests the LongRangeGenerator class.
+ * @version $Revision$ $Date$
+ */
+public class TestLongRangeGenerator extends BaseFunctorTest {
+
+    @Override
+    public Object makeFunctor() {
+        return new LongRangeGenerator(new LongRange(0, 10));
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testGenerateLikeIterator() {
+        long[][] cases = {
+            { 0, 10, 1 }, { 0, 10, 3 }, { 10, 0, -1 }, { 10, 0, -4 }, { 5, 5, 0 }, { -7, 7, 7 } };
+        for (long[] c : cases) {
+            for (BoundType left : BoundType.values()) {
+                for (BoundType right : BoundType.values()) {
+                    LongRange range = new LongRange(c[0], left, c[1], right, c[2]);
+                    LongRangeGenerator gen = new LongRangeGenerator(range);
+                    List<Long> expected = toList(range);
+                    assertEquals(range.toString(), expected.size(), gen.estimateSize());
+                    assertEquals(range.toString(), expected, gen.toCollection());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGenerateNearBounds() {
+        LongRange range = new LongRange(Long.MAX_VALUE - 10, BoundType.CLOSED, Long.MAX_VALUE, BoundType.CLOSED, 3);
+        assertEquals(Arrays.asList(Long.MAX_VALUE - 10, Long.MAX_VALUE - 7, Long.MAX_VALUE - 4, Long.MAX_VALUE - 1),
+            new LongRangeGenerator(range).toCollection());
+        range = new LongRange(0, BoundType.CLOSED, Long.MAX_VALUE, BoundType.CLOSED, 1L << 62);
+        LongRangeGenerator gen = new LongRangeGenerator(range);
+        assertEquals(2, gen.estimateSize());
+        assertEquals(Arrays.asList(0L, 1L << 62), gen.toCollection());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyElements() {
+        new LongRangeGenerator(new LongRange(0, BoundType.CLOSED, Long.MAX_VALUE, BoundType.CLOSED, 1));
+    }
+
+    @Test
+    public void testSplit() {
+        LongRange range = new LongRange(0, 21, 2);
+        LongRangeGenerator gen = new LongRangeGenerator(range);
+        SplittableGenerator<Long> prefix = gen.trySplit();
+        SplittableGenerator<Long> first = prefix.trySplit();
+        List<Long> result = new ArrayList<Long>();
+        first.to(result);
+        prefix.to(result);
+        gen.to(result);
+        assertEquals(toList(range), result);
+        assertNull(new LongRangeGenerator(new LongRange(3, BoundType.CLOSED, 3, BoundType.CLOSED)).trySplit());
+    }
+
+    @Test
+    public void testStop() {
+        final LongRangeGenerator gen = new LongRangeGenerator(new LongRange(0, 10));
+        final List<Long> result = new ArrayList<Long>();
+        gen.run(new Procedure<Long>() {
+            public void run(Long obj) {
+                result.add(obj);
+                if (obj.longValue() == 2) {
+                    gen.stop();
+                }
+            }
+        });
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void testRunLongProcedure() {
+        LongRange range = new LongRange(10, BoundType.OPEN, 0, BoundType.CLOSED, -3);
+        final List<Long> result = new ArrayList<Long>();
+        new LongRangeGenerator(range).run(new LongProcedure() {
+            public void run(long value) {
+                result.add(value);
+            }
+        });
+        assertEquals(toList(range), result);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructNull() {
+        new LongRangeGenerator(null);
+    }
+
+    @Test
+    public void testIterator() {
+        LongRange range = new LongRange(10, BoundType.OPEN, 0, BoundType.CLOSED, -3);
+        Iterator<Long> iter = new LongRangeGenerator(range).iterator();
+        List<Long> result = new ArrayList<Long>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals(toList(range), result);
+    }
+
+    @Test
+    public void testEquals() {
+        LongRangeGenerator gen = new LongRangeGenerator(new LongRange(0, 10));
+        assertObjectsAreEqual(gen, gen);
+        assertObjectsAreEqual(gen, new LongRangeGenerator(new LongRange(0, BoundType.CLOSED, 9,
+            BoundType.CLOSED)));
+        assertObjectsAreNotEqual(gen, new LongRangeGenerator(new LongRange(0, 11)));
+    }
+
+    private static List<Long> toList(Iterable<Long> range) {
+        List<Long> result = new ArrayList<Long>();
+        for (Long i : range) {
+            result.add(i);
+        }
+        return result;
+    }
+}
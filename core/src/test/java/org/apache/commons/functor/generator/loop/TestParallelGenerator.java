@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.functor.BinaryFunction;
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.Predicate;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.range.IntegerRange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the ParallelGenerator class.
+ * @version $Revision$ $Date$
+ */
+public class TestParallelGenerator {
+
+    // Lifecycle
+    // ------------------------------------------------------------------------
+
+    private ExecutorService executor = null;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testFold() {
+        Integer sum = ParallelGenerator.parallel(new IntegerRangeGenerator(new IntegerRange(0, 100000)), executor)
+            .fold(SUM);
+        assertEquals(Integer.valueOf(99999 * 50000), sum);
+    }
+
+    @Test
+    public void testFoldEmpty() {
+        assertNull(new ParallelGenerator<Integer>(new IntegerRangeGenerator(new IntegerRange(0, 0)), executor)
+            .fold(SUM));
+        assertEquals(Integer.valueOf(0), new ParallelGenerator<Integer>(new IntegerRangeGenerator(new IntegerRange(
+            0, 100)), executor, 10).filter(new Predicate<Integer>() {
+            public boolean test(Integer obj) {
+                return obj.intValue() < 10;
+            }
+        }).transform(new Function<Integer, Integer>() {
+            public Integer evaluate(Integer obj) {
+                return Integer.valueOf(0);
+            }
+        }).fold(SUM));
+    }
+
+    @Test
+    public void testStagesKeepOrder() {
+        List<Integer> source = new ArrayList<Integer>();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            source.add(Integer.valueOf(i));
+            if (i % 3 == 0) {
+                expected.add("#" + i);
+            }
+        }
+        ParallelGenerator<String> gen = new ParallelGenerator<Integer>(new RandomAccessGenerator<Integer>(source),
+            executor, 7).filter(new Predicate<Integer>() {
+            public boolean test(Integer obj) {
+                return obj.intValue() % 3 == 0;
+            }
+        }).transform(new Function<Integer, String>() {
+            public String evaluate(Integer obj) {
+                return "#" + obj;
+            }
+        });
+        assertEquals(expected, gen.toCollection());
+    }
+
+    @Test
+    public void testCombineInOrder() {
+        String result = new ParallelGenerator<Integer>(new IntegerRangeGenerator(new IntegerRange(0, 10)), executor,
+            1).transform(new Function<Integer, String>() {
+            public String evaluate(Integer obj) {
+                return obj.toString();
+            }
+        }).fold(new BinaryFunction<String, String, String>() {
+            public String evaluate(String left, String right) {
+                return left + right;
+            }
+        });
+        assertEquals("0123456789", result);
+    }
+
+    @Test
+    public void testRunUsesSeveralThreads() {
+        final AtomicLong sum = new AtomicLong();
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        new ParallelGenerator<Integer>(new IntegerRangeGenerator(new IntegerRange(0, 10000)), executor, 100)
+            .run(new Procedure<Integer>() {
+                public void run(Integer obj) {
+                    sum.addAndGet(obj.intValue());
+                    if (!threads.contains(Thread.currentThread())) {
+                        threads.add(Thread.currentThread());
+                    }
+                }
+            });
+        assertEquals(9999L * 5000, sum.get());
+        assertTrue(!threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testExceptionIsRethrown() {
+        ParallelGenerator<Integer> gen = new ParallelGenerator<Integer>(new IntegerRangeGenerator(new IntegerRange(
+            0, 100)), executor, 10);
+        try {
+            gen.run(new Procedure<Integer>() {
+                public void run(Integer obj) {
+                    if (obj.intValue() == 42) {
+                        throw new IllegalStateException("42");
+                    }
+                }
+            });
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("42", e.getMessage());
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructNullSource() {
+        new ParallelGenerator<Integer>(null, executor);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructNullExecutor() {
+        new ParallelGenerator<Integer>(new IntegerRangeGenerator(new IntegerRange(0, 10)), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructInvalidChunkSize() {
+        new ParallelGenerator<Integer>(new IntegerRangeGenerator(new IntegerRange(0, 10)), executor, 0);
+    }
+
+    // Attributes
+    // ------------------------------------------------------------------------
+
+    private static final BinaryFunction<Integer, Integer, Integer> SUM =
+        new BinaryFunction<Integer, Integer, Integer>() {
+            public Integer evaluate(Integer left, Integer right) {
+                return Integer.valueOf(left.intValue() + right.intValue());
+            }
+        };
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.Function;
+import org.apache.commons.functor.Predicate;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.BaseGenerator;
+import org.apache.commons.functor.generator.FilteredGenerator;
+import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.util.CloseableIterator;
+import org.apache.commons.functor.generator.util.ProducerIterator;
+import org.apache.commons.functor.range.IntegerRange;
+import org.junit.Test;
+
+/**
+ * Tests the Pipeline class.
+ * @version $Revision$ $Date$
+ */
+public class TestPipeline extends BaseFunctorTest {
+
+    @Override
+    public Object makeFunctor() {
+        return Pipeline.of(IteratorToGeneratorAdapter.adapt(new IntegerRange(1, 10))).filter(isOdd);
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testFilterAndTransform() {
+        Generator<Integer> chained = new TransformedGenerator<Integer, Integer>(new FilteredGenerator<Integer>(
+            range(), isOdd), square);
+        Generator<Integer> pipeline = Pipeline.of(range()).filter(isOdd).transform(square);
+        assertEquals(chained.toCollection(), pipeline.toCollection());
+        assertEquals("[1, 9, 25, 49, 81]", Pipeline.of(range()).filter(isOdd).transform(square).toCollection()
+            .toString());
+    }
+
+    @Test
+    public void testLoopStages() {
+        assertEquals(new WhileGenerate<Integer>(isLessThanFive, range()).toCollection(),
+            Pipeline.of(range()).whileGenerate(isLessThanFive).toCollection());
+        assertEquals(new UntilGenerate<Integer>(isOdd, range()).toCollection(),
+            Pipeline.of(range()).untilGenerate(isOdd).toCollection());
+        assertEquals(new GenerateWhile<Integer>(range(), isLessThanFive).toCollection(),
+            Pipeline.of(range()).generateWhile(isLessThanFive).toCollection());
+        assertEquals(new GenerateUntil<Integer>(range(), isOdd).toCollection(),
+            Pipeline.of(range()).generateUntil(isOdd).toCollection());
+    }
+
+    @Test
+    public void testDeepChain() {
+        Generator<Integer> chained = new UntilGenerate<Integer>(isLarge, new TransformedGenerator<Integer, Integer>(
+            new FilteredGenerator<Integer>(new TransformedGenerator<Integer, Integer>(new FilteredGenerator<Integer>(
+                range(), isOdd), square), isOdd), increment));
+        Generator<Integer> pipeline = Pipeline.of(range()).filter(isOdd).transform(square).filter(isOdd)
+            .transform(increment).untilGenerate(isLarge);
+        assertEquals("[2, 10, 26]", chained.toCollection().toString());
+        assertEquals("[2, 10, 26]", pipeline.toCollection().toString());
+    }
+
+    @Test
+    public void testStopAfterFilteredElement() {
+        // the element stopping the generation is filtered out downstream
+        IteratorToGeneratorAdapter<Integer> source = range();
+        Generator<Integer> pipeline = Pipeline.of(source).generateWhile(isLessThanFive).filter(isLessThanFive);
+        assertEquals("[1, 2, 3, 4]", pipeline.toCollection().toString());
+        assertTrue(source.isStopped());
+        assertEquals("[1, 2, 3, 4]", new FilteredGenerator<Integer>(new GenerateWhile<Integer>(range(),
+            isLessThanFive), isLessThanFive).toCollection().toString());
+    }
+
+    @Test
+    public void testStopIgnoresRemainingElementsOfPlainGenerator() {
+        final List<Integer> generated = new ArrayList<Integer>();
+        Generator<Integer> source = new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                for (int i = 1; i < 10; i++) {
+                    generated.add(Integer.valueOf(i));
+                    proc.run(Integer.valueOf(i));
+                }
+            }
+        };
+        assertEquals("[1, 2, 3, 4]", Pipeline.of(source).whileGenerate(isLessThanFive).toCollection().toString());
+        assertEquals(9, generated.size());
+    }
+
+    @Test
+    public void testStopsLoopGeneratorSource() {
+        IteratorToGeneratorAdapter<Integer> source = range();
+        Pipeline.of(source).untilGenerate(isLessThanFive).toCollection();
+        assertTrue(source.isStopped());
+    }
+
+    @Test
+    public void testAdjacentStepsAreMerged() {
+        IteratorToGeneratorAdapter<Integer> source = range();
+        Pipeline<Integer> pipeline = Pipeline.of(source).filter(isOdd).transform(square).untilGenerate(isLarge)
+            .transform(increment).filter(isOdd);
+        assertEquals("Pipeline<" + source + ", [steps(filter(" + isOdd + "), transform(" + square
+            + ")), untilGenerate(" + isLarge + "), steps(transform(" + increment + "), filter(" + isOdd + "))]>",
+            pipeline.toString());
+        assertEquals("[]", pipeline.toCollection().toString());
+        assertEquals("[2, 10, 26]", Pipeline.of(range()).filter(isOdd).transform(square).untilGenerate(isLarge)
+            .transform(increment).toCollection().toString());
+    }
+
+    @Test
+    public void testStagesAreImmutable() {
+        Pipeline<Integer> pipeline = Pipeline.of(range());
+        pipeline.filter(isOdd);
+        assertEquals("[1, 2, 3, 4, 5, 6, 7, 8, 9]", pipeline.toCollection().toString());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructNull() {
+        Pipeline.of(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testFilterNull() {
+        Pipeline.of(range()).filter(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testTransformNull() {
+        Pipeline.of(range()).transform(null);
+    }
+
+    @Test
+    public void testIterator() {
+        IteratorToGeneratorAdapter<Integer> source = range();
+        Iterator<Integer> iter = Pipeline.of(source).filter(isOdd).transform(square).generateUntil(isLarge)
+            .iterator();
+        List<Integer> result = new ArrayList<Integer>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals("[1, 9, 25, 49]", result.toString());
+        assertTrue(source.isStopped());
+    }
+
+    @Test
+    public void testIteratorOverPushGenerator() {
+        Generator<Integer> source = new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                for (int i = 1; i < 10; i++) {
+                    proc.run(Integer.valueOf(i));
+                }
+            }
+        };
+        Iterator<Integer> iter = Pipeline.of(source).whileGenerate(isLessThanFive).iterator();
+        assertTrue(iter instanceof ProducerIterator<?>);
+        List<Integer> result = new ArrayList<Integer>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals("[1, 2, 3, 4]", result.toString());
+    }
+
+    @Test
+    public void testCloseIteratorOverPushGenerator() throws Exception {
+        final Thread[] producer = new Thread[1];
+        Generator<Integer> source = new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                producer[0] = Thread.currentThread();
+                for (int i = 1; true; i++) {
+                    proc.run(Integer.valueOf(i));
+                }
+            }
+        };
+        CloseableIterator<Integer> iter = Pipeline.of(source).filter(isOdd).iterator();
+        assertEquals(Integer.valueOf(1), iter.next());
+        iter.close();
+        producer[0].join(5000L);
+        assertFalse(producer[0].isAlive());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testCloseIterator() {
+        IteratorToGeneratorAdapter<Integer> source = range();
+        CloseableIterator<Integer> iter = Pipeline.of(source).filter(isOdd).iterator();
+        assertEquals(Integer.valueOf(1), iter.next());
+        iter.close();
+        assertFalse(iter.hasNext());
+        assertTrue(source.isStopped());
+    }
+
+    @Test
+    public void testEquals() {
+        Pipeline<Integer> pipeline = Pipeline.of(range()).filter(isOdd).transform(square);
+        assertObjectsAreEqual(pipeline, pipeline);
+        assertObjectsAreEqual(pipeline, Pipeline.of(range()).filter(isOdd).transform(square));
+        assertObjectsAreNotEqual(pipeline, Pipeline.of(range()).transform(square).filter(isOdd));
+        assertObjectsAreNotEqual(pipeline, Pipeline.of(range()).filter(isOdd));
+    }
+
+    // Attributes
+    // ------------------------------------------------------------------------
+
+    private static IteratorToGeneratorAdapter<Integer> range() {
+        return IteratorToGeneratorAdapter.adapt(new IntegerRange(1, 10));
+    }
+
+    private static final Predicate<Integer> isOdd = new Predicate<Integer>() {
+        public boolean test(Integer obj) {
+            return obj.intValue() % 2 != 0;
+        }
+    };
+
+    private static final Predicate<Integer> isLessThanFive = new Predicate<Integer>() {
+        public boolean test(Integer obj) {
+            return obj.intValue() < 5;
+        }
+    };
+
+    private static final Predicate<Integer> isLarge = new Predicate<Integer>() {
+        public boolean test(Integer obj) {
+            return obj.intValue() > 30;
+        }
+    };
+
+    private static final Function<Integer, Integer> square = new Function<Integer, Integer>() {
+        public Integer evaluate(Integer obj) {
+            return Integer.valueOf(obj.intValue() * obj.intValue());
+        }
+    };
+
+    private static final Function<Integer, Integer> increment = new Function<Integer, Integer>() {
+        public Integer evaluate(Integer obj) {
+            return Integer.valueOf(obj.intValue() + 1);
+        }
+    };
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.SplittableGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the RandomAccessGenerator class.
+ * @version $Revision$ $Date$
+ */
+public class TestRandomAccessGenerator extends BaseFunctorTest {
+
+    @Override
+    public Object makeFunctor() {
+        return new RandomAccessGenerator<String>(Arrays.asList("1", "two", "c"));
+    }
+
+    // Lifecycle
+    // ------------------------------------------------------------------------
+
+    private List<Integer> list = null;
+
+    @Before
+    public void setUp() throws Exception {
+        list = new ArrayList<Integer>();
+        for (int i = 0; i < 10; i++) {
+            list.add(Integer.valueOf(i));
+        }
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testGenerate() {
+        assertEquals(list, new RandomAccessGenerator<Integer>(list).toCollection());
+        assertEquals(list.subList(2, 5), new RandomAccessGenerator<Integer>(list, 2, 5).toCollection());
+        assertEquals(Arrays.asList("a", "b"), RandomAccessGenerator.adapt("a", "b").toCollection());
+    }
+
+    @Test
+    public void testStop() {
+        final RandomAccessGenerator<Integer> gen = new RandomAccessGenerator<Integer>(list);
+        final List<Integer> result = new ArrayList<Integer>();
+        gen.run(new Procedure<Integer>() {
+            public void run(Integer obj) {
+                result.add(obj);
+                if (obj.intValue() == 3) {
+                    gen.stop();
+                }
+            }
+        });
+        assertEquals(list.subList(0, 4), result);
+    }
+
+    @Test
+    public void testSplit() {
+        RandomAccessGenerator<Integer> gen = new RandomAccessGenerator<Integer>(list);
+        SplittableGenerator<Integer> prefix = gen.trySplit();
+        assertEquals(5, prefix.estimateSize());
+        assertEquals(5, gen.estimateSize());
+        SplittableGenerator<Integer> first = prefix.trySplit();
+        assertEquals(list.subList(0, 2), first.toCollection());
+        assertEquals(list.subList(2, 5), prefix.toCollection());
+        assertEquals(list.subList(5, 10), gen.toCollection());
+        assertEquals(0, gen.estimateSize());
+        assertNull(gen.trySplit());
+    }
+
+    @Test
+    public void testSplitSingleElement() {
+        RandomAccessGenerator<Integer> gen = new RandomAccessGenerator<Integer>(list, 3, 4);
+        assertNull(gen.trySplit());
+        assertEquals(Arrays.asList(Integer.valueOf(3)), gen.toCollection());
+    }
+
+    @Test
+    public void testAdaptNull() {
+        assertNull(RandomAccessGenerator.adapt((List<?>) null));
+        assertNull(RandomAccessGenerator.adapt((Object[]) null));
+        assertNotNull(RandomAccessGenerator.adapt(list));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructNull() {
+        new RandomAccessGenerator<Object>(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructSequentialList() {
+        new RandomAccessGenerator<Integer>(new LinkedList<Integer>(list));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructInvalidBounds() {
+        new RandomAccessGenerator<Integer>(list, 5, 11);
+    }
+
+    @Test
+    public void testIterator() {
+        RandomAccessGenerator<Integer> gen = new RandomAccessGenerator<Integer>(list, 2, 5);
+        Iterator<Integer> iter = gen.iterator();
+        assertEquals(Integer.valueOf(2), iter.next());
+        assertEquals(2, gen.estimateSize());
+        assertEquals(Integer.valueOf(3), iter.next());
+        // the iterator consumes the generator
+        assertEquals(Arrays.asList(Integer.valueOf(4)), gen.toCollection());
+        assertTrue(!iter.hasNext());
+    }
+
+    @Test
+    public void testEquals() {
+        RandomAccessGenerator<Integer> gen = new RandomAccessGenerator<Integer>(list);
+        assertObjectsAreEqual(gen, gen);
+        assertObjectsAreEqual(gen, new RandomAccessGenerator<Integer>(list, 0, 10));
+        assertObjectsAreNotEqual(gen, new RandomAccessGenerator<Integer>(list, 0, 9));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.functor.BaseFunctorTest;
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.BaseGenerator;
+import org.apache.commons.functor.generator.Generator;
+import org.apache.commons.functor.generator.loop.IteratorToGeneratorAdapter;
+import org.junit.Test;
+
+/**
+ * Tests the IteratorTransformer class.
+ * @version $Revision$ $Date$
+ */
+public class TestIteratorTransformer extends BaseFunctorTest {
+
+    @Override
+    protected Object makeFunctor() throws Exception {
+        return new IteratorTransformer<Object>();
+    }
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testPullsFromIterableGenerator() {
+        List<String> list = Arrays.asList("a", "b", "c");
+        Iterator<String> source = list.iterator();
+        CloseableIterator<String> iter = IteratorToGeneratorAdapter.adapt(source).to(
+            IteratorTransformer.<String> toIterator());
+        assertFalse(iter instanceof ProducerIterator<?>);
+        assertEquals("a", iter.next());
+        assertEquals("b", source.next());
+        iter.close();
+        assertFalse(iter.hasNext());
+        assertTrue(source.hasNext());
+    }
+
+    @Test
+    public void testRunsPushGenerator() {
+        Generator<Integer> gen = new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                for (int i = 0; i < 5; i++) {
+                    proc.run(Integer.valueOf(i));
+                }
+            }
+        };
+        Iterator<Integer> iter = gen.to(new IteratorTransformer<Integer>(1));
+        assertTrue(iter instanceof ProducerIterator<?>);
+        List<Integer> result = new ArrayList<Integer>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals("[0, 1, 2, 3, 4]", result.toString());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testCloseTerminatesProducerThread() throws Exception {
+        final Thread[] producer = new Thread[1];
+        Generator<Integer> gen = new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                producer[0] = Thread.currentThread();
+                for (int i = 0; true; i++) {
+                    proc.run(Integer.valueOf(i));
+                }
+            }
+        };
+        CloseableIterator<Integer> iter = gen.to(new IteratorTransformer<Integer>(1));
+        assertEquals(Integer.valueOf(0), iter.next());
+        // abandoned with the producer blocked on the full buffer
+        iter.close();
+        producer[0].join(5000L);
+        assertFalse(producer[0].isAlive());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testEvaluateNull() {
+        new IteratorTransformer<Object>().evaluate(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructInvalidCapacity() {
+        new IteratorTransformer<Object>(0);
+    }
+
+    @Test
+    public void testEquals() {
+        IteratorTransformer<Object> transformer = new IteratorTransformer<Object>();
+        assertObjectsAreEqual(transformer, transformer);
+        assertObjectsAreEqual(transformer, IteratorTransformer.toIterator());
+        assertObjectsAreNotEqual(transformer, new IteratorTransformer<Object>(1));
+    }
+}
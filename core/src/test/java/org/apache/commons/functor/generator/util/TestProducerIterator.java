@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.functor.generator.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.functor.Procedure;
+import org.apache.commons.functor.generator.BaseGenerator;
+import org.apache.commons.functor.generator.Generator;
+import org.junit.Test;
+
+/**
+ * Tests the ProducerIterator class.
+ * @version $Revision$ $Date$
+ */
+public class TestProducerIterator {
+
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testIterate() {
+        ProducerIterator<Integer> iter = new ProducerIterator<Integer>(new Counter(100, new AtomicInteger()), 4);
+        List<Integer> result = new ArrayList<Integer>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals(100, result.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), result.get(i));
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testNullElements() {
+        ProducerIterator<Object> iter = new ProducerIterator<Object>(new BaseGenerator<Object>() {
+            public void run(Procedure<? super Object> proc) {
+                proc.run(null);
+                proc.run("a");
+            }
+        });
+        assertNull(iter.next());
+        assertEquals("a", iter.next());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testEmpty() {
+        ProducerIterator<Integer> iter = new ProducerIterator<Integer>(new Counter(0, new AtomicInteger()));
+        assertFalse(iter.hasNext());
+        try {
+            iter.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBoundedBuffer() throws Exception {
+        AtomicInteger generated = new AtomicInteger();
+        ProducerIterator<Integer> iter = new ProducerIterator<Integer>(new Counter(1000, generated), 4);
+        assertEquals(Integer.valueOf(0), iter.next());
+        // give the producer time to run ahead as far as it can
+        Thread.sleep(100);
+        assertTrue(generated.get() <= 1 + 4 + 1);
+        iter.close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicInteger generated = new AtomicInteger();
+        ProducerIterator<Integer> iter = new ProducerIterator<Integer>(new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                try {
+                    new Counter(Integer.MAX_VALUE, generated).run(proc);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }, 2);
+        assertEquals(Integer.valueOf(0), iter.next());
+        iter.close();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertFalse(iter.hasNext());
+        assertTrue(generated.get() < 10);
+    }
+
+    @Test
+    public void testFailure() {
+        ProducerIterator<Integer> iter = new ProducerIterator<Integer>(new BaseGenerator<Integer>() {
+            public void run(Procedure<? super Integer> proc) {
+                proc.run(Integer.valueOf(1));
+                throw new IllegalStateException("failed");
+            }
+        });
+        assertEquals(Integer.valueOf(1), iter.next());
+        try {
+            iter.hasNext();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRemove() {
+        new ProducerIterator<Integer>(new Counter(1, new AtomicInteger())).remove();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructNull() {
+        new ProducerIterator<Integer>(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructInvalidCapacity() {
+        new ProducerIterator<Integer>(new Counter(1, new AtomicInteger()), 0);
+    }
+
+    @Test
+    public void testToString() {
+        Generator<Integer> gen = new Counter(1, new AtomicInteger());
+        assertEquals("ProducerIterator<" + gen + ">", new ProducerIterator<Integer>(gen).toString());
+        assertEquals(Arrays.asList(Integer.valueOf(0)), gen.toCollection());
+    }
+
+    // Classes
+    // ------------------------------------------------------------------------
+
+    static class Counter extends BaseGenerator<Integer> {
+        private final int count;
+        private final AtomicInteger generated;
+
+        Counter(int count, AtomicInteger generated) {
+            this.count = count;
+            this.generated = generated;
+        }
+
+        public void run(Procedure<? super Integer> proc) {
+            for (int i = 0; i < count; i++) {
+                generated.incrementAndGet();
+                proc.run(Integer.valueOf(i));
+            }
+        }
+    }
+}